@@ -0,0 +1,125 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import com.intellij.psi.tree.IElementType;
+import com.jetbrains.python.PyElementTypes;
+import com.jetbrains.python.PyTokenTypes;
+import com.jetbrains.python.psi.PyFile;
+import com.sonar.sslr.api.AstNode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.python.PythonCheck;
+import org.sonar.python.PythonVisitor;
+import org.sonar.python.PythonVisitorContext;
+import org.sonar.python.PythonVisitorMultiplexer;
+import org.sonar.python.SubscriptionVisitor;
+import org.sonar.python.checks.CheckList;
+
+/**
+ * All the rules of {@link CheckList} with their default parameters, on trees parsed beforehand:
+ * <ul>
+ *   <li>{@code syntaxTreeChecks}: the checks visiting the SSLR tree, including the construction of the symbol table</li>
+ *   <li>{@code subscriptionChecks}: the checks subscribing to PSI elements</li>
+ *   <li>{@code subscriptionDispatch}: the cost of the dispatch alone, with a check which does nothing on common elements</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+public class ChecksBenchmark extends BenchmarkBase {
+
+  private static final List<IElementType> DISPATCHED_TYPES = Arrays.asList(
+    PyElementTypes.CALL_EXPRESSION,
+    PyElementTypes.REFERENCE_EXPRESSION,
+    PyElementTypes.ASSIGNMENT_STATEMENT,
+    PyElementTypes.FUNCTION_DECLARATION,
+    PyElementTypes.CLASS_DECLARATION,
+    PyTokenTypes.IDENTIFIER);
+
+  private PythonVisitorMultiplexer syntaxTreeVisitor;
+  private SubscriptionVisitor subscriptionVisitor;
+  private SubscriptionVisitor dispatchVisitor;
+
+  @Setup
+  public void setUp() throws ReflectiveOperationException {
+    List<PythonCheck> checks = new ArrayList<>();
+    for (Class<?> checkClass : CheckList.getChecks()) {
+      checks.add((PythonCheck) checkClass.getConstructor().newInstance());
+    }
+    List<PythonCheck> syntaxTreeChecks = checks.stream()
+      .filter(check -> PythonVisitor.visitsSyntaxTree(check.getClass()))
+      .collect(Collectors.toList());
+    syntaxTreeVisitor = new PythonVisitorMultiplexer(syntaxTreeChecks);
+    subscriptionVisitor = new SubscriptionVisitor(checks);
+    dispatchVisitor = new SubscriptionVisitor(Arrays.asList(new NoOpCheck()));
+  }
+
+  @Benchmark
+  public int syntaxTreeChecks(PythonSources sources, ParsedSources parsedSources, Throughput throughput) {
+    int index = throughput.next(sources);
+    AstNode tree = parsedSources.sslrTree(index);
+    if (tree == null) {
+      return 0;
+    }
+    PythonVisitorContext context = SslrTrees.context(sources.files().get(index), tree);
+    syntaxTreeVisitor.scanFile(context);
+    return context.getIssues().size();
+  }
+
+  @Benchmark
+  public int subscriptionChecks(PythonSources sources, ParsedSources parsedSources, Throughput throughput) {
+    return analyze(subscriptionVisitor, sources, parsedSources, throughput);
+  }
+
+  @Benchmark
+  public int subscriptionDispatch(PythonSources sources, ParsedSources parsedSources, Throughput throughput) {
+    return analyze(dispatchVisitor, sources, parsedSources, throughput);
+  }
+
+  private static int analyze(SubscriptionVisitor visitor, PythonSources sources, ParsedSources parsedSources, Throughput throughput) {
+    int index = throughput.next(sources);
+    PyFile pyFile = parsedSources.pyFile(index);
+    AstNode tree = parsedSources.sslrTree(index);
+    if (pyFile == null || tree == null) {
+      return 0;
+    }
+    PythonVisitorContext context = SslrTrees.context(sources.files().get(index), tree);
+    visitor.analyze(context, pyFile);
+    return context.getIssues().size();
+  }
+
+  private static class NoOpCheck extends PythonCheck {
+
+    private int visitedElements = 0;
+
+    @Override
+    public void initialize(Context context) {
+      for (IElementType type : DISPATCHED_TYPES) {
+        context.registerSyntaxNodeConsumer(type, ctx -> visitedElements++);
+      }
+    }
+  }
+
+}
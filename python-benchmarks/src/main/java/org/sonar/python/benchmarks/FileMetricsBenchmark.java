@@ -0,0 +1,40 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import com.jetbrains.python.psi.PyFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.python.metrics.FileMetrics;
+
+@State(Scope.Thread)
+public class FileMetricsBenchmark extends BenchmarkBase {
+
+  @Benchmark
+  public FileMetrics compute(PythonSources sources, ParsedSources parsedSources, Throughput throughput) {
+    PyFile pyFile = parsedSources.pyFile(throughput.next(sources));
+    if (pyFile == null) {
+      return null;
+    }
+    return new FileMetrics(false, pyFile);
+  }
+
+}
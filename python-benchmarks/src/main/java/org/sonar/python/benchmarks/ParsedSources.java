@@ -0,0 +1,73 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import com.jetbrains.python.psi.PyFile;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Grammar;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.python.PythonConfiguration;
+import org.sonar.python.frontend.PythonParser;
+
+/**
+ * The SSLR and PSI trees of the corpus, for the benchmarks which do not measure parsing.
+ * A tree is null when the file cannot be parsed.
+ */
+@State(Scope.Benchmark)
+public class ParsedSources {
+
+  private final List<AstNode> sslrTrees = new ArrayList<>();
+  private final List<PyFile> pyFiles = new ArrayList<>();
+
+  @Setup
+  public void parse(PythonSources sources) {
+    Parser<Grammar> sslrParser = org.sonar.python.parser.PythonParser.create(new PythonConfiguration(StandardCharsets.UTF_8));
+    PythonParser psiParser = new PythonParser();
+    for (SourceFile file : sources.files()) {
+      sslrTrees.add(SslrTrees.parse(sslrParser, file));
+      PyFile pyFile;
+      try {
+        pyFile = psiParser.parse(file.content());
+      } catch (RecognitionException e) {
+        pyFile = null;
+      }
+      pyFiles.add(pyFile);
+    }
+  }
+
+  @CheckForNull
+  AstNode sslrTree(int index) {
+    return sslrTrees.get(index);
+  }
+
+  @CheckForNull
+  PyFile pyFile(int index) {
+    return pyFiles.get(index);
+  }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import com.jetbrains.python.psi.LanguageLevel;
+import com.jetbrains.python.psi.PyFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.python.frontend.PythonParser;
+
+/**
+ * PSI parsing at each language level, and with the detection of the language level done by the analysis.
+ */
+@State(Scope.Thread)
+public class PsiParserBenchmark extends BenchmarkBase {
+
+  private PythonParser parser;
+
+  @State(Scope.Benchmark)
+  public static class FixedLevel {
+
+    @Param({"PYTHON27", "PYTHON38"})
+    public String languageLevel;
+
+    private LanguageLevel level;
+
+    @Setup
+    public void setUp() {
+      level = LanguageLevel.valueOf(languageLevel);
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    parser = new PythonParser();
+  }
+
+  @Benchmark
+  public PyFile parseAtLevel(PythonSources sources, Throughput throughput, FixedLevel fixedLevel) {
+    PyFile pyFile = parser.parseAs(sources.files().get(throughput.next(sources)).content(), fixedLevel.level);
+    // the tree is built on the first access to the children of the file
+    pyFile.getNode().getLastChildNode();
+    return pyFile;
+  }
+
+  @Benchmark
+  public Object parseWithDetection(PythonSources sources, Throughput throughput) {
+    try {
+      return parser.parse(sources.files().get(throughput.next(sources)).content());
+    } catch (RuntimeException e) {
+      // neither valid Python 2 nor Python 3 code
+      return e;
+    }
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The corpus of Python files used by all the benchmarks: by default, a sample of the files of the ruling
+ * test sources (git submodule "its/sources").
+ * <ul>
+ *   <li>{@code python.benchmarks.sources}: directory in which ".py" files are searched recursively</li>
+ *   <li>{@code python.benchmarks.maxFiles}: size of the sample, the files are picked at regular intervals in
+ *   the sorted list of paths so that every project of the corpus is represented</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+public class PythonSources {
+
+  static final String SOURCES_PROPERTY = "python.benchmarks.sources";
+  static final String MAX_FILES_PROPERTY = "python.benchmarks.maxFiles";
+
+  private List<SourceFile> files;
+
+  @Setup
+  public void load() throws IOException {
+    Path directory = Paths.get(System.getProperty(SOURCES_PROPERTY, "../its/sources"));
+    int maxFiles = Integer.getInteger(MAX_FILES_PROPERTY, 200);
+    files = load(directory, maxFiles);
+  }
+
+  static List<SourceFile> load(Path directory, int maxFiles) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      throw new IllegalStateException("Directory of Python sources not found: " + directory.toAbsolutePath()
+        + ". Run \"git submodule update --init\" or set -D" + SOURCES_PROPERTY + ".");
+    }
+    List<Path> paths;
+    try (Stream<Path> stream = Files.walk(directory)) {
+      paths = stream
+        .filter(path -> path.getFileName().toString().endsWith(".py") && Files.isRegularFile(path))
+        .sorted()
+        .collect(Collectors.toList());
+    }
+    if (paths.isEmpty()) {
+      throw new IllegalStateException("No Python file found in " + directory.toAbsolutePath());
+    }
+    List<SourceFile> sample = new ArrayList<>();
+    double step = Math.max(1.0, paths.size() / (double) maxFiles);
+    for (double i = 0; i < paths.size() && sample.size() < maxFiles; i += step) {
+      Path path = paths.get((int) i);
+      String content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+      sample.add(new SourceFile(directory.relativize(path).toString(), content));
+    }
+    return Collections.unmodifiableList(sample);
+  }
+
+  public List<SourceFile> files() {
+    return files;
+  }
+
+  public int size() {
+    return files.size();
+  }
+
+}
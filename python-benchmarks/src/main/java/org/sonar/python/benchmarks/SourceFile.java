@@ -0,0 +1,57 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import org.sonar.python.PythonFile;
+
+/**
+ * A Python file of the benchmark corpus, read once before the measurements.
+ */
+public class SourceFile implements PythonFile {
+
+  private final String fileName;
+  private final String content;
+  private final int size;
+
+  SourceFile(String fileName, String content) {
+    this.fileName = fileName;
+    this.content = content;
+    this.size = content.getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  @Override
+  public String content() {
+    return content;
+  }
+
+  @Override
+  public String fileName() {
+    return fileName;
+  }
+
+  /**
+   * Size in bytes of the UTF-8 content.
+   */
+  public int size() {
+    return size;
+  }
+
+}
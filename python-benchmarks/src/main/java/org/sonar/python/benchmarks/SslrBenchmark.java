@@ -0,0 +1,64 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Grammar;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.Lexer;
+import com.sonar.sslr.impl.Parser;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.python.PythonConfiguration;
+import org.sonar.python.lexer.PythonLexer;
+import org.sonar.python.parser.PythonParser;
+
+/**
+ * Lexing and parsing with the SSLR grammar. Files which are not valid Python 2 code are skipped by the parser
+ * benchmark, as the analysis does.
+ */
+@State(Scope.Thread)
+public class SslrBenchmark extends BenchmarkBase {
+
+  private Lexer lexer;
+  private Parser<Grammar> parser;
+
+  @Setup
+  public void setUp() {
+    PythonConfiguration configuration = new PythonConfiguration(StandardCharsets.UTF_8);
+    lexer = PythonLexer.create(configuration);
+    parser = PythonParser.create(configuration);
+  }
+
+  @Benchmark
+  public List<Token> lex(PythonSources sources, Throughput throughput) {
+    return lexer.lex(sources.files().get(throughput.next(sources)).content());
+  }
+
+  @Benchmark
+  public AstNode parse(PythonSources sources, Throughput throughput) {
+    return SslrTrees.parse(parser, sources.files().get(throughput.next(sources)));
+  }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Grammar;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
+import javax.annotation.CheckForNull;
+import org.sonar.python.PythonVisitorContext;
+
+class SslrTrees {
+
+  private SslrTrees() {
+  }
+
+  @CheckForNull
+  static AstNode parse(Parser<Grammar> parser, SourceFile file) {
+    try {
+      return parser.parse(file.content());
+    } catch (RecognitionException e) {
+      return null;
+    }
+  }
+
+  /**
+   * A new context on an already parsed tree: issues and symbol table are not shared between operations.
+   */
+  static PythonVisitorContext context(SourceFile file, AstNode tree) {
+    return new PythonVisitorContext(tree, file);
+  }
+
+}
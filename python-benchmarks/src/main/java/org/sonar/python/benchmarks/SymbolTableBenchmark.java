@@ -0,0 +1,90 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import com.sonar.sslr.api.AstNode;
+import java.nio.charset.StandardCharsets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.python.PythonConfiguration;
+import org.sonar.python.parser.PythonParser;
+import org.sonar.python.semantic.SymbolTable;
+
+@State(Scope.Thread)
+public class SymbolTableBenchmark extends BenchmarkBase {
+
+  /**
+   * A generated module made of many classes whose variables are assigned lambdas, comprehensions and calls reading
+   * the previous variables: the names read in the value of a class variable are bound in the order of the class body.
+   */
+  @State(Scope.Benchmark)
+  public static class ClassHeavyModule {
+
+    @Param({"100", "1000"})
+    public int classes;
+
+    private SourceFile file;
+    private AstNode tree;
+
+    @Setup
+    public void generate() {
+      StringBuilder content = new StringBuilder("import os\nfrom functools import partial\n\n");
+      for (int i = 0; i < classes; i++) {
+        content
+          .append("class Model").append(i).append(":\n")
+          .append("    base = os.path.join('data', 'model").append(i).append("')\n")
+          .append("    size = len(base)\n")
+          .append("    double = lambda self, value: value * 2\n")
+          .append("    values = [size + n for n in range(10)]\n")
+          .append("    names = {str(n): size for n in values if n > size}\n")
+          .append("    first = second = size\n")
+          .append("    loader = partial(os.path.exists, base)\n")
+          .append("    loaded = property(lambda self: self.values[first])\n\n")
+          .append("    def method(self, arg):\n")
+          .append("        local = arg + self.size\n")
+          .append("        return [local * n for n in range(local)]\n\n");
+      }
+      file = new SourceFile("class_heavy.py", content.toString());
+      tree = SslrTrees.parse(PythonParser.create(new PythonConfiguration(StandardCharsets.UTF_8)), file);
+      if (tree == null) {
+        throw new IllegalStateException("The generated module cannot be parsed");
+      }
+    }
+  }
+
+  @Benchmark
+  public SymbolTable build(PythonSources sources, ParsedSources parsedSources, Throughput throughput) {
+    int index = throughput.next(sources);
+    AstNode tree = parsedSources.sslrTree(index);
+    if (tree == null) {
+      return null;
+    }
+    return SslrTrees.context(sources.files().get(index), tree).symbolTable();
+  }
+
+  @Benchmark
+  public SymbolTable buildClassHeavyModule(ClassHeavyModule module) {
+    return SslrTrees.context(module.file, module.tree).symbolTable();
+  }
+
+}
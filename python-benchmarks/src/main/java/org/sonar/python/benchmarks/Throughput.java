@@ -0,0 +1,56 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Iterates over the files of the corpus, one file per benchmark operation: the score of a benchmark is then a
+ * number of files per second, "gc.alloc.rate.norm" of the gc profiler is the allocation per file, and the
+ * secondary result "bytes" is the number of bytes of source code per second.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+
+  public long bytes;
+
+  private int index;
+
+  @Setup(Level.Iteration)
+  public void reset() {
+    bytes = 0;
+  }
+
+  /**
+   * Index of the next file to analyze.
+   */
+  int next(PythonSources sources) {
+    int current = index;
+    index = (index + 1) % sources.size();
+    bytes += sources.files().get(current).size();
+    return current;
+  }
+
+}
@@ -21,21 +21,23 @@ package org.sonar.python.checks;
 
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
-import com.sonar.sslr.api.Grammar;
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.api.Trivia;
-import com.sonar.sslr.impl.Parser;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.check.Rule;
 import org.sonar.python.PythonCheck;
-import org.sonar.python.PythonConfiguration;
 import org.sonar.python.api.PythonGrammar;
 import org.sonar.python.api.PythonTokenType;
+import org.sonar.python.parser.ParserPool;
 import org.sonar.python.parser.PythonParser;
 
 @Rule(key = CommentedCodeCheck.CHECK_KEY)
@@ -43,13 +45,43 @@ public class CommentedCodeCheck extends PythonCheck {
 
   public static final String CHECK_KEY = "S125";
   public static final String MESSAGE = "Remove this commented out code.";
-  private static final Parser<Grammar> parser = PythonParser.create(new PythonConfiguration(StandardCharsets.UTF_8));
+  private static final Logger LOG = Loggers.get(CommentedCodeCheck.class);
+  private static final int MAX_MEMOIZED_TEXTS = 1000;
+  private static final int MAX_MEMOIZED_TEXT_LENGTH = 2000;
+
+  private final ParserPool parserPool = PythonParser.pool(StandardCharsets.UTF_8);
+  // the same comments (license headers, boilerplate) are found in many files
+  private final Map<String, Boolean> parsedAsCode = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+      return size() > MAX_MEMOIZED_TEXTS;
+    }
+  };
+  // counters of the current file
+  private int checkedTexts;
+  private int filteredTexts;
+  private int memoizedTexts;
 
   @Override
   public Set<AstNodeType> subscribedKinds() {
     return Collections.singleton(PythonTokenType.STRING);
   }
 
+  @Override
+  public void visitFile(@Nullable AstNode astNode) {
+    checkedTexts = 0;
+    filteredTexts = 0;
+    memoizedTexts = 0;
+  }
+
+  @Override
+  public void leaveFile(AstNode astNode) {
+    if (checkedTexts > 0 && LOG.isDebugEnabled()) {
+      LOG.debug("Commented code: {} comments checked, {} rejected without parsing, {} already parsed",
+        checkedTexts, filteredTexts, memoizedTexts);
+    }
+  }
+
   @Override
   public void visitNode(AstNode astNode) {
     if (isMultilineComment(astNode)) {
@@ -127,9 +159,28 @@ public class CommentedCodeCheck extends PythonCheck {
     return text.matches("\\s*");
   }
 
-  private static boolean isTextParsedAsCode(String text) {
+  private boolean isTextParsedAsCode(String text) {
+    checkedTexts++;
+    if (ProseFilter.isCertainlyNotCode(text)) {
+      filteredTexts++;
+      return false;
+    }
+    if (text.length() > MAX_MEMOIZED_TEXT_LENGTH) {
+      return parseAsCode(text);
+    }
+    Boolean memoized = parsedAsCode.get(text);
+    if (memoized != null) {
+      memoizedTexts++;
+      return memoized;
+    }
+    boolean isCode = parseAsCode(text);
+    parsedAsCode.put(text, isCode);
+    return isCode;
+  }
+
+  private boolean parseAsCode(String text) {
     try {
-      AstNode astNode = parser.parse(text);
+      AstNode astNode = parserPool.parse(text);
       List<AstNode> expressions = astNode.getDescendants(PythonGrammar.EXPRESSION_STMT);
       return astNode.getNumberOfChildren() > 1 && !isSimpleExpression(expressions);
     } catch (Exception e) {
@@ -0,0 +1,95 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.checks;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Recognizes, without parsing them, texts which are certainly not valid Python code: a line containing two consecutive
+ * words which are not keywords, like "this is", is a syntax error unless it is part of a string or a comment.
+ * Texts which may contain multi-line strings are never rejected.
+ */
+class ProseFilter {
+
+  private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+    "and", "as", "assert", "async", "await", "break", "class", "continue", "def", "del", "elif", "else", "except", "exec",
+    "finally", "for", "from", "global", "if", "import", "in", "is", "lambda", "nonlocal", "not", "or", "pass", "print",
+    "raise", "return", "try", "while", "with", "yield", "None", "True", "False"));
+
+  private ProseFilter() {
+  }
+
+  static boolean isCertainlyNotCode(String text) {
+    if (text.contains("'''") || text.contains("\"\"\"")) {
+      return false;
+    }
+    for (String line : text.split("\n", -1)) {
+      if (line.endsWith("\\")) {
+        // the next line may be the continuation of a string
+        return false;
+      }
+    }
+    for (String line : text.split("\n", -1)) {
+      if (hasConsecutiveWords(line)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean hasConsecutiveWords(String line) {
+    boolean previousIsWord = false;
+    boolean onlyBlanksSincePreviousWord = false;
+    int i = 0;
+    while (i < line.length()) {
+      char c = line.charAt(i);
+      if (c == '#' || c == '\'' || c == '"' || c == '`') {
+        // what follows is a comment or a string
+        return false;
+      }
+      if (isWordPart(c)) {
+        int start = i;
+        while (i < line.length() && isWordPart(line.charAt(i))) {
+          i++;
+        }
+        String word = line.substring(start, i);
+        boolean isWord = !Character.isDigit(word.charAt(0)) && !KEYWORDS.contains(word);
+        if (isWord && previousIsWord && onlyBlanksSincePreviousWord) {
+          return true;
+        }
+        previousIsWord = isWord;
+        onlyBlanksSincePreviousWord = true;
+      } else {
+        if (c != ' ' && c != '\t') {
+          onlyBlanksSincePreviousWord = false;
+        }
+        i++;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isWordPart(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+  }
+
+}
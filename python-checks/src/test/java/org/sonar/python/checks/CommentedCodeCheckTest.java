@@ -29,4 +29,11 @@ public class CommentedCodeCheckTest {
     PythonCheckVerifier.verify("src/test/resources/checks/commentedCode.py", new CommentedCodeCheck());
   }
 
+  @Test
+  public void same_issues_with_memoized_verdicts() {
+    CommentedCodeCheck check = new CommentedCodeCheck();
+    PythonCheckVerifier.verify("src/test/resources/checks/commentedCode.py", check);
+    PythonCheckVerifier.verify("src/test/resources/checks/commentedCode.py", check);
+  }
+
 }
@@ -0,0 +1,68 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.checks;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProseFilterTest {
+
+  @Test
+  public void prose() {
+    assertThat(ProseFilter.isCertainlyNotCode("this is not a code\n")).isTrue();
+    assertThat(ProseFilter.isCertainlyNotCode("Copyright (C) 2011-2019 SonarSource SA\n")).isTrue();
+    assertThat(ProseFilter.isCertainlyNotCode("x = 1\nfd was already in place\n")).isTrue();
+    assertThat(ProseFilter.isCertainlyNotCode("foo.bar baz")).isTrue();
+  }
+
+  @Test
+  public void possibly_code() {
+    assertThat(ProseFilter.isCertainlyNotCode("x += 1")).isFalse();
+    assertThat(ProseFilter.isCertainlyNotCode("if x is not None:\n    print x\n")).isFalse();
+    assertThat(ProseFilter.isCertainlyNotCode("return a")).isFalse();
+    assertThat(ProseFilter.isCertainlyNotCode("new in 8.0")).isFalse();
+    assertThat(ProseFilter.isCertainlyNotCode("x = 2 + y")).isFalse();
+    assertThat(ProseFilter.isCertainlyNotCode("")).isFalse();
+  }
+
+  @Test
+  public void words_in_strings_and_comments() {
+    assertThat(ProseFilter.isCertainlyNotCode("x = 'hello world'")).isFalse();
+    assertThat(ProseFilter.isCertainlyNotCode("x = \"hello world\"")).isFalse();
+    assertThat(ProseFilter.isCertainlyNotCode("x = 1  # hello world")).isFalse();
+    assertThat(ProseFilter.isCertainlyNotCode("\"subCommands is a list")).isFalse();
+  }
+
+  @Test
+  public void multiline_strings() {
+    assertThat(ProseFilter.isCertainlyNotCode("x = '''\nhello world\n'''")).isFalse();
+    assertThat(ProseFilter.isCertainlyNotCode("x = \"\"\"\nhello world\n\"\"\"")).isFalse();
+    assertThat(ProseFilter.isCertainlyNotCode("x = 'hello \\\nworld'")).isFalse();
+  }
+
+  @Test
+  public void words_separated_by_operators() {
+    assertThat(ProseFilter.isCertainlyNotCode("a + b")).isFalse();
+    assertThat(ProseFilter.isCertainlyNotCode("f(a, b)")).isFalse();
+    assertThat(ProseFilter.isCertainlyNotCode("café bar")).isFalse();
+  }
+
+}
@@ -0,0 +1,300 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.frontend;
+
+import com.jetbrains.python.psi.LanguageLevel;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Guesses the language level of a file from a single scan of its characters, without building any token or tree.
+ * <p>
+ * Only constructs which are syntax errors in Python 3 lead to {@link LanguageLevel#PYTHON27}: print and exec statements,
+ * backticks, "&lt;&gt;", "ur" string prefixes, long integer suffixes, old octal literals, and "except X, e" or "raise E, V".
+ * Constructs which are valid in Python 3 but would be parsed differently as Python 2 (like "print(x)") lead to
+ * {@link LanguageLevel#PYTHON38}, so that the parse tree is the same as when the file is parsed as Python 3 first.
+ */
+public final class LanguageLevelDetector {
+
+  private static final Set<String> EXPRESSION_OPERATOR_KEYWORDS = new HashSet<>(Arrays.asList("and", "or", "not", "in", "is", "if", "else", "for"));
+
+  private final String content;
+  private final int length;
+  private int index = 0;
+  private int nesting = 0;
+  private boolean atStatementStart = true;
+  private boolean inStatementForbiddingComma = false;
+  private boolean python3Construct = false;
+
+  private LanguageLevelDetector(String content) {
+    this.content = content;
+    this.length = content.length();
+  }
+
+  /**
+   * @return null when the content does not contain any construct specific to one of the language levels
+   */
+  @Nullable
+  public static LanguageLevel detect(String content) {
+    return new LanguageLevelDetector(content).detect();
+  }
+
+  @Nullable
+  private LanguageLevel detect() {
+    while (index < length) {
+      if (scanNext()) {
+        return LanguageLevel.PYTHON27;
+      }
+    }
+    return python3Construct ? LanguageLevel.PYTHON38 : null;
+  }
+
+  /**
+   * Scans the next token and returns true if it can only be part of Python 2 code.
+   */
+  private boolean scanNext() {
+    char c = content.charAt(index);
+    if (c == '\n' || c == '\r') {
+      index++;
+      if (nesting == 0) {
+        endOfStatement();
+      }
+      return false;
+    }
+    if (c == ' ' || c == '\t' || c == '\f') {
+      index++;
+      return false;
+    }
+    if (c == '\\') {
+      // explicit line joining
+      index += 2;
+      return false;
+    }
+    if (c == '#') {
+      skipComment();
+      return false;
+    }
+    if (c == '\'' || c == '"') {
+      atStatementStart = false;
+      skipString();
+      return false;
+    }
+    if (Character.isDigit(c) || (c == '.' && index + 1 < length && Character.isDigit(content.charAt(index + 1)))) {
+      atStatementStart = false;
+      return isPython2Number(scanNumber());
+    }
+    if (Character.isJavaIdentifierStart(c)) {
+      return scanWord();
+    }
+    return scanOperator(c);
+  }
+
+  private boolean scanOperator(char c) {
+    boolean statementStart = false;
+    boolean python2 = false;
+    if (c == '`') {
+      python2 = true;
+    } else if (c == '<' && nextCharIs('>')) {
+      python2 = true;
+    } else if (c == '(' || c == '[' || c == '{') {
+      nesting++;
+    } else if (c == ')' || c == ']' || c == '}') {
+      nesting = Math.max(0, nesting - 1);
+    } else if (c == ';' && nesting == 0) {
+      endOfStatement();
+      statementStart = true;
+    } else if (c == ':' && nesting == 0) {
+      if (nextCharIs('=')) {
+        python3Construct = true;
+      } else {
+        // body of a compound statement on the same line
+        inStatementForbiddingComma = false;
+        statementStart = true;
+      }
+    } else if (c == ',' && nesting == 0) {
+      python2 = inStatementForbiddingComma;
+    } else if (c == '-' && nextCharIs('>')) {
+      python3Construct = true;
+    }
+    index++;
+    atStatementStart = statementStart;
+    return python2;
+  }
+
+  private boolean scanWord() {
+    int start = index;
+    while (index < length && Character.isJavaIdentifierPart(content.charAt(index))) {
+      index++;
+    }
+    String word = content.substring(start, index);
+    if (index < length && isQuote(content.charAt(index)) && isStringPrefix(word)) {
+      atStatementStart = false;
+      String prefix = word.toLowerCase(Locale.ENGLISH);
+      if (prefix.contains("f")) {
+        python3Construct = true;
+      }
+      skipString();
+      return "ur".equals(prefix);
+    }
+    boolean statementStart = atStatementStart;
+    atStatementStart = false;
+    if (!statementStart) {
+      return false;
+    }
+    switch (word) {
+      case "print":
+      case "exec":
+        return isStatementKeyword();
+      case "except":
+      case "raise":
+        inStatementForbiddingComma = true;
+        return false;
+      case "nonlocal":
+        python3Construct = true;
+        return false;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * "print" and "exec" are statements in Python 2 and functions in Python 3. They are considered as statements only when
+   * followed by something which cannot follow an expression in Python 3: a string, a number, an identifier which is not an
+   * operator, a backtick or a brace.
+   */
+  private boolean isStatementKeyword() {
+    int next = index;
+    while (next < length && (content.charAt(next) == ' ' || content.charAt(next) == '\t')) {
+      next++;
+    }
+    if (next == length) {
+      return false;
+    }
+    char c = content.charAt(next);
+    if (c == '(') {
+      python3Construct = true;
+      return false;
+    }
+    if (Character.isJavaIdentifierStart(c)) {
+      int end = next;
+      while (end < length && Character.isJavaIdentifierPart(content.charAt(end))) {
+        end++;
+      }
+      return !EXPRESSION_OPERATOR_KEYWORDS.contains(content.substring(next, end));
+    }
+    return c == '\'' || c == '"' || c == '`' || c == '{' || Character.isDigit(c);
+  }
+
+  private String scanNumber() {
+    int start = index;
+    while (index < length) {
+      char c = content.charAt(index);
+      if (Character.isLetterOrDigit(c) || c == '.' || c == '_') {
+        index++;
+      } else if ((c == '+' || c == '-') && isExponent(content.charAt(index - 1)) && !isHexadecimal(start)) {
+        index++;
+      } else {
+        break;
+      }
+    }
+    return content.substring(start, index);
+  }
+
+  private boolean isHexadecimal(int start) {
+    return start + 1 < length && content.charAt(start) == '0' && (content.charAt(start + 1) == 'x' || content.charAt(start + 1) == 'X');
+  }
+
+  private static boolean isExponent(char c) {
+    return c == 'e' || c == 'E';
+  }
+
+  private static boolean isPython2Number(String number) {
+    char last = number.charAt(number.length() - 1);
+    if (last == 'l' || last == 'L') {
+      return true;
+    }
+    // old octal literal such as 0777 (but not 0 or 00)
+    if (number.length() > 1 && number.charAt(0) == '0') {
+      boolean onlyDigits = true;
+      boolean onlyZeros = true;
+      for (int i = 1; i < number.length(); i++) {
+        char c = number.charAt(i);
+        onlyDigits &= Character.isDigit(c);
+        onlyZeros &= c == '0';
+      }
+      return onlyDigits && !onlyZeros;
+    }
+    return false;
+  }
+
+  private void skipComment() {
+    while (index < length && content.charAt(index) != '\n' && content.charAt(index) != '\r') {
+      index++;
+    }
+  }
+
+  private void skipString() {
+    char quote = content.charAt(index);
+    boolean triple = index + 2 < length && content.charAt(index + 1) == quote && content.charAt(index + 2) == quote;
+    index += triple ? 3 : 1;
+    while (index < length) {
+      char c = content.charAt(index);
+      if (c == '\\') {
+        index += 2;
+      } else if (c == quote && (!triple || (index + 2 < length && content.charAt(index + 1) == quote && content.charAt(index + 2) == quote))) {
+        index += triple ? 3 : 1;
+        return;
+      } else if (!triple && (c == '\n' || c == '\r')) {
+        return;
+      } else {
+        index++;
+      }
+    }
+  }
+
+  private void endOfStatement() {
+    atStatementStart = true;
+    inStatementForbiddingComma = false;
+  }
+
+  private boolean nextCharIs(char c) {
+    return index + 1 < length && content.charAt(index + 1) == c;
+  }
+
+  private static boolean isQuote(char c) {
+    return c == '\'' || c == '"';
+  }
+
+  private static boolean isStringPrefix(String word) {
+    if (word.length() > 2) {
+      return false;
+    }
+    for (int i = 0; i < word.length(); i++) {
+      if ("rRuUbBfF".indexOf(word.charAt(i)) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
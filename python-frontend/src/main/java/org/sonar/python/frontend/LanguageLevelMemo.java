@@ -0,0 +1,51 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.frontend;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts, for a whole project, the files parsed by {@link PythonParser} and the ones which had to be parsed a second time
+ * because the language level tried first was wrong. Instances can be shared by several parsers used concurrently.
+ */
+public class LanguageLevelMemo {
+
+  private final AtomicInteger parsedFiles = new AtomicInteger();
+  private final AtomicInteger reparsedFiles = new AtomicInteger();
+
+  void record(boolean reparsed) {
+    parsedFiles.incrementAndGet();
+    if (reparsed) {
+      reparsedFiles.incrementAndGet();
+    }
+  }
+
+  public int parsedFiles() {
+    return parsedFiles.get();
+  }
+
+  /**
+   * Number of files which had to be parsed a second time because the first language level was wrong.
+   */
+  public int reparsedFiles() {
+    return reparsedFiles.get();
+  }
+
+}
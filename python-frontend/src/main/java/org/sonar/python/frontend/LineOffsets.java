@@ -0,0 +1,125 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.frontend;
+
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Table of the start offsets of the lines of a file, used to convert a character offset into a line and a column
+ * without going through the PSI {@link com.intellij.openapi.editor.Document}.
+ * <p>
+ * The table of a {@link PsiFile} is computed on first use and stored in the user data of the file, so that
+ * all the visitors of the file share it. Positions can be packed into a {@code long} (see {@link #position(int)})
+ * in order to avoid allocating a location object per token.
+ */
+public class LineOffsets {
+
+  private static final Key<LineOffsets> KEY = Key.create("python.lineOffsets");
+
+  private final int[] lineStarts;
+  private final int length;
+
+  public LineOffsets(CharSequence text) {
+    int[] starts = new int[16];
+    int count = 1;
+    length = text.length();
+    for (int i = 0; i < length; i++) {
+      if (text.charAt(i) == '\n') {
+        if (count == starts.length) {
+          starts = Arrays.copyOf(starts, count * 2);
+        }
+        starts[count] = i + 1;
+        count++;
+      }
+    }
+    lineStarts = Arrays.copyOf(starts, count);
+  }
+
+  @NotNull
+  public static LineOffsets of(@NotNull PsiElement element) {
+    PsiFile file = element.getContainingFile();
+    LineOffsets lineOffsets = file.getUserData(KEY);
+    if (lineOffsets == null || lineOffsets.length != file.getTextLength()) {
+      lineOffsets = new LineOffsets(file.getViewProvider().getContents());
+      file.putUserData(KEY, lineOffsets);
+    }
+    return lineOffsets;
+  }
+
+  public int lineCount() {
+    return lineStarts.length;
+  }
+
+  /**
+   * @return the 1-based line of the given offset
+   */
+  public int line(int offset) {
+    int low = 0;
+    int high = lineStarts.length - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (lineStarts[middle] <= offset) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low + 1;
+  }
+
+  /**
+   * @return the 0-based column of the given offset
+   */
+  public int column(int offset) {
+    return offset - lineStarts[line(offset) - 1];
+  }
+
+  /**
+   * @return the line and the column of the given offset, packed into a long. See {@link #lineOf(long)} and {@link #columnOf(long)}.
+   */
+  public long position(int offset) {
+    int line = line(offset);
+    return pack(line, offset - lineStarts[line - 1]);
+  }
+
+  public long startPosition(PsiElement element) {
+    return position(element.getTextRange().getStartOffset());
+  }
+
+  public long endPosition(PsiElement element) {
+    return position(element.getTextRange().getEndOffset());
+  }
+
+  public static long pack(int line, int column) {
+    return ((long) line << 32) | (column & 0xFFFFFFFFL);
+  }
+
+  public static int lineOf(long position) {
+    return (int) (position >>> 32);
+  }
+
+  public static int columnOf(long position) {
+    return (int) position;
+  }
+}
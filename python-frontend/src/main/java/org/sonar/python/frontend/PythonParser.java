@@ -71,28 +71,75 @@ public class PythonParser {
 
   private static final Disposable TEST_DISPOSABLE = new TestDisposable();
 
-  private static final PsiFileFactory psiFileFactory = psiFileFactory();
+  private static final PsiEnvironment psiEnvironment = new PsiEnvironment();
 
+  private static final PsiFileFactory sharedPsiFileFactory = psiEnvironment.newPsiFileFactory();
+
+  private final PsiFileFactory psiFileFactory;
+  private final LanguageLevelMemo languageLevelMemo;
+
+  public PythonParser() {
+    this(new LanguageLevelMemo());
+  }
+
+  public PythonParser(LanguageLevelMemo languageLevelMemo) {
+    this(sharedPsiFileFactory, languageLevelMemo);
+  }
+
+  private PythonParser(PsiFileFactory psiFileFactory, LanguageLevelMemo languageLevelMemo) {
+    this.psiFileFactory = psiFileFactory;
+    this.languageLevelMemo = languageLevelMemo;
+  }
+
+  /**
+   * Creates a parser backed by its own PSI project and manager. Such a parser does not share any
+   * parsing state with other instances, so each analysis thread can use its own one.
+   */
+  public static PythonParser createIsolated(LanguageLevelMemo languageLevelMemo) {
+    return new PythonParser(psiEnvironment.newPsiFileFactory(), languageLevelMemo);
+  }
+
+  /**
+   * Parses the content as Python 3, or as Python 2 if it is not valid Python 3 code. To avoid parsing most files twice,
+   * files on which {@link LanguageLevelDetector} finds Python 2 only constructs are parsed as Python 2 first. Other files
+   * are always parsed as Python 3 first, so that the accepted tree does not depend on the files analyzed before.
+   */
   public PyFile parse(String content) {
-    PyFile file = parseAs(content, LanguageLevel.PYTHON38);
+    LanguageLevel detectedLevel = LanguageLevelDetector.detect(content);
+    LanguageLevel firstLevel = detectedLevel == null ? LanguageLevel.PYTHON38 : detectedLevel;
+    PyFile file = parseAs(content, firstLevel);
     if (errorElements(file).isEmpty()) {
+      languageLevelMemo.record(false);
       return file;
     }
-    file = parseAs(content, LanguageLevel.PYTHON27);
-    PsiErrorElement errorElement = errorElements(file).get(0);
+    LanguageLevel secondLevel = firstLevel == LanguageLevel.PYTHON27 ? LanguageLevel.PYTHON38 : LanguageLevel.PYTHON27;
+    PyFile secondFile = parseAs(content, secondLevel);
+    languageLevelMemo.record(true);
+    if (errorElements(secondFile).isEmpty()) {
+      return secondFile;
+    }
+    PyFile python2File = secondLevel == LanguageLevel.PYTHON27 ? secondFile : file;
+    PsiErrorElement errorElement = errorElements(python2File).get(0);
     if (errorElement == null) {
-      return file;
+      return python2File;
     }
     int lineNumber = new PythonTokenLocation(errorElement).startLine();
     throw new RecognitionException(lineNumber, errorElement.getErrorDescription());
   }
 
+  public LanguageLevelMemo languageLevelMemo() {
+    return languageLevelMemo;
+  }
+
   private static JBIterable<PsiErrorElement> errorElements(PsiElement root) {
     return SyntaxTraverser.psiTraverser(root).traverse().filter(PsiErrorElement.class);
   }
 
+  /**
+   * Parses the content at the given language level only: syntax errors are kept as error elements in the tree.
+   */
   @NotNull
-  private static PyFile parseAs(String content, LanguageLevel languageLevel) {
+  public PyFile parseAs(String content, LanguageLevel languageLevel) {
     PsiFile file = psiFileFactory.createFileFromText("test.py", PythonFileType.INSTANCE, normalizeEol(content), System.currentTimeMillis(), false, false);
     file.getViewProvider().getVirtualFile().putUserData(LanguageLevel.KEY, languageLevel);
     return (PyFile) file;
@@ -114,37 +161,47 @@ public class PythonParser {
     return new PythonParser().parse(fileContent);
   }
 
-  private static PsiFileFactory psiFileFactory() {
-    CoreFileTypeRegistry fileTypeRegistry = new CoreFileTypeRegistry();
-    fileTypeRegistry.registerFileType(PythonFileType.INSTANCE, "py");
-    FileTypeRegistry.ourInstanceGetter = new StaticGetter<>(fileTypeRegistry);
-
-    Disposable disposable = Disposer.newDisposable();
-
-    MockApplication application = new MockApplication(disposable);
-    FileDocumentManager fileDocMgr = new MockFileDocumentManagerImpl(DocumentImpl::new, null);
-    application.registerService(FileDocumentManager.class, fileDocMgr);
-    PsiBuilderFactoryImpl psiBuilderFactory = new PsiBuilderFactoryImpl();
-    application.registerService(PsiBuilderFactory.class, psiBuilderFactory);
-    application.registerService(ProgressManager.class, ProgressManagerImpl.class);
-    ApplicationManager.setApplication(application, FileTypeRegistry.ourInstanceGetter, disposable);
-
-    Extensions.getArea(null).registerExtensionPoint(MetaLanguage.EP_NAME.getName(), MetaLanguage.class.getName(), ExtensionPoint.Kind.INTERFACE);
-    Extensions.registerAreaClass("IDEA_PROJECT", null);
-    registerExtensionPoint(PythonDialectsTokenSetContributor.EP_NAME, PythonDialectsTokenSetContributor.class);
-    registerExtension(PythonDialectsTokenSetContributor.EP_NAME, new PythonTokenSetContributor());
-
-    MockProject project = new MockProject(null, disposable);
-
-    LanguageParserDefinitions.INSTANCE.addExplicitExtension(PythonLanguage.getInstance(), new PythonParserDefinition());
-    CoreASTFactory astFactory = new CoreASTFactory();
-    LanguageASTFactory.INSTANCE.addExplicitExtension(PythonLanguage.getInstance(), astFactory);
-    LanguageASTFactory.INSTANCE.addExplicitExtension(Language.ANY, astFactory);
+  /**
+   * Application-level services are global to the JVM and registered only once, while projects (and the
+   * {@link PsiManager} attached to them) can be created as many times as needed.
+   */
+  private static class PsiEnvironment {
+
+    private final Disposable disposable = Disposer.newDisposable();
+    private final FileDocumentManager fileDocMgr;
+    private final PsiBuilderFactoryImpl psiBuilderFactory;
+
+    private PsiEnvironment() {
+      CoreFileTypeRegistry fileTypeRegistry = new CoreFileTypeRegistry();
+      fileTypeRegistry.registerFileType(PythonFileType.INSTANCE, "py");
+      FileTypeRegistry.ourInstanceGetter = new StaticGetter<>(fileTypeRegistry);
+
+      MockApplication application = new MockApplication(disposable);
+      fileDocMgr = new MockFileDocumentManagerImpl(DocumentImpl::new, null);
+      application.registerService(FileDocumentManager.class, fileDocMgr);
+      psiBuilderFactory = new PsiBuilderFactoryImpl();
+      application.registerService(PsiBuilderFactory.class, psiBuilderFactory);
+      application.registerService(ProgressManager.class, ProgressManagerImpl.class);
+      ApplicationManager.setApplication(application, FileTypeRegistry.ourInstanceGetter, disposable);
+
+      Extensions.getArea(null).registerExtensionPoint(MetaLanguage.EP_NAME.getName(), MetaLanguage.class.getName(), ExtensionPoint.Kind.INTERFACE);
+      Extensions.registerAreaClass("IDEA_PROJECT", null);
+      registerExtensionPoint(PythonDialectsTokenSetContributor.EP_NAME, PythonDialectsTokenSetContributor.class);
+      registerExtension(PythonDialectsTokenSetContributor.EP_NAME, new PythonTokenSetContributor());
+
+      LanguageParserDefinitions.INSTANCE.addExplicitExtension(PythonLanguage.getInstance(), new PythonParserDefinition());
+      CoreASTFactory astFactory = new CoreASTFactory();
+      LanguageASTFactory.INSTANCE.addExplicitExtension(PythonLanguage.getInstance(), astFactory);
+      LanguageASTFactory.INSTANCE.addExplicitExtension(Language.ANY, astFactory);
+    }
 
-    // https://github.com/JetBrains/intellij-community/blob/93b632941e406178dd5c78fe4d8fdf7d8c357355/platform/testFramework/src/com/intellij/testFramework/ParsingTestCase.java
-    //new MockPsiManager()
-    PsiManager psiManager = new PsiManagerImpl(project, fileDocMgr, psiBuilderFactory, null, null, null);
-    return new PsiFileFactoryImpl(psiManager);
+    private synchronized PsiFileFactory newPsiFileFactory() {
+      MockProject project = new MockProject(null, disposable);
+      // https://github.com/JetBrains/intellij-community/blob/93b632941e406178dd5c78fe4d8fdf7d8c357355/platform/testFramework/src/com/intellij/testFramework/ParsingTestCase.java
+      //new MockPsiManager()
+      PsiManager psiManager = new PsiManagerImpl(project, fileDocMgr, psiBuilderFactory, null, null, null);
+      return new PsiFileFactoryImpl(psiManager);
+    }
   }
 
   protected static <T> void registerExtension(@NotNull ExtensionPointName<T> extensionPointName, @NotNull T t) {
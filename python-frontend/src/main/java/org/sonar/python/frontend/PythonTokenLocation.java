@@ -19,7 +19,6 @@
  */
 package org.sonar.python.frontend;
 
-import com.intellij.openapi.editor.Document;
 import com.intellij.psi.PsiElement;
 import org.jetbrains.annotations.NotNull;
 
@@ -30,16 +29,16 @@ public class PythonTokenLocation {
   private final int endLineOffset;
 
   public PythonTokenLocation(@NotNull PsiElement element) {
-    this(element.getTextRange().getStartOffset(), element.getTextRange().getEndOffset(), element.getContainingFile().getViewProvider().getDocument());
+    this(element.getTextRange().getStartOffset(), element.getTextRange().getEndOffset(), LineOffsets.of(element));
   }
 
-  public PythonTokenLocation(int startOffset, int endOffset, Document psiDocument) {
-    startLine = psiDocument.getLineNumber(startOffset);
-    int startLineNumberOffset = psiDocument.getLineStartOffset(startLine);
-    startLineOffset = startOffset - startLineNumberOffset;
-    endLine = psiDocument.getLineNumber(endOffset);
-    int endLineNumberOffset = psiDocument.getLineStartOffset(endLine);
-    endLineOffset = endOffset - endLineNumberOffset;
+  public PythonTokenLocation(int startOffset, int endOffset, LineOffsets lineOffsets) {
+    long startPosition = lineOffsets.position(startOffset);
+    long endPosition = lineOffsets.position(endOffset);
+    startLine = LineOffsets.lineOf(startPosition) - 1;
+    startLineOffset = LineOffsets.columnOf(startPosition);
+    endLine = LineOffsets.lineOf(endPosition) - 1;
+    endLineOffset = LineOffsets.columnOf(endPosition);
   }
 
   public int startLine() {
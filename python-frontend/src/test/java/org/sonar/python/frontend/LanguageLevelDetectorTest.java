@@ -0,0 +1,81 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.frontend;
+
+import org.junit.Test;
+
+import static com.jetbrains.python.psi.LanguageLevel.PYTHON27;
+import static com.jetbrains.python.psi.LanguageLevel.PYTHON38;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LanguageLevelDetectorTest {
+
+  @Test
+  public void python2_constructs() {
+    assertThat(LanguageLevelDetector.detect("print 'hello'")).isEqualTo(PYTHON27);
+    assertThat(LanguageLevelDetector.detect("if x:\n  print x, y\n")).isEqualTo(PYTHON27);
+    assertThat(LanguageLevelDetector.detect("if x: print 42")).isEqualTo(PYTHON27);
+    assertThat(LanguageLevelDetector.detect("exec code in ns")).isEqualTo(PYTHON27);
+    assertThat(LanguageLevelDetector.detect("x = `y`")).isEqualTo(PYTHON27);
+    assertThat(LanguageLevelDetector.detect("x = ur'abc'")).isEqualTo(PYTHON27);
+    assertThat(LanguageLevelDetector.detect("x = 42L")).isEqualTo(PYTHON27);
+    assertThat(LanguageLevelDetector.detect("x = 0777")).isEqualTo(PYTHON27);
+    assertThat(LanguageLevelDetector.detect("if a <> b: pass")).isEqualTo(PYTHON27);
+    assertThat(LanguageLevelDetector.detect("try:\n  pass\nexcept ValueError, e:\n  pass")).isEqualTo(PYTHON27);
+    assertThat(LanguageLevelDetector.detect("try:\n  pass\nexcept (A, B), e:\n  pass")).isEqualTo(PYTHON27);
+    assertThat(LanguageLevelDetector.detect("raise ValueError, 'message'")).isEqualTo(PYTHON27);
+    assertThat(LanguageLevelDetector.detect("print('a')\nprint 'b'")).isEqualTo(PYTHON27);
+  }
+
+  @Test
+  public void python3_constructs() {
+    assertThat(LanguageLevelDetector.detect("print('hello')")).isEqualTo(PYTHON38);
+    assertThat(LanguageLevelDetector.detect("x = f'{y}'")).isEqualTo(PYTHON38);
+    assertThat(LanguageLevelDetector.detect("def f(x) -> int:\n  pass")).isEqualTo(PYTHON38);
+    assertThat(LanguageLevelDetector.detect("if (n := 10) > 5: pass")).isEqualTo(PYTHON38);
+    assertThat(LanguageLevelDetector.detect("def f():\n  nonlocal x")).isEqualTo(PYTHON38);
+  }
+
+  @Test
+  public void inconclusive() {
+    assertThat(LanguageLevelDetector.detect("")).isNull();
+    assertThat(LanguageLevelDetector.detect("x = 1\ny = x + 2")).isNull();
+    assertThat(LanguageLevelDetector.detect("print")).isNull();
+    assertThat(LanguageLevelDetector.detect("print = 42")).isNull();
+    assertThat(LanguageLevelDetector.detect("print in x")).isNull();
+    assertThat(LanguageLevelDetector.detect("print -1")).isNull();
+    assertThat(LanguageLevelDetector.detect("print [1]")).isNull();
+    assertThat(LanguageLevelDetector.detect("x.print\nx = 0")).isNull();
+    assertThat(LanguageLevelDetector.detect("x = {'a': 1, 'b': 2}")).isNull();
+    assertThat(LanguageLevelDetector.detect("try:\n  pass\nexcept (A, B) as e:\n  pass")).isNull();
+    assertThat(LanguageLevelDetector.detect("raise ValueError(a, b)")).isNull();
+    assertThat(LanguageLevelDetector.detect("x = 1.5e-3 + 0x1F + 0 + 00 + 0.5")).isNull();
+  }
+
+  @Test
+  public void strings_and_comments_are_ignored() {
+    assertThat(LanguageLevelDetector.detect("# print 'a' `b`")).isNull();
+    assertThat(LanguageLevelDetector.detect("x = 'print `a` 42L'")).isNull();
+    assertThat(LanguageLevelDetector.detect("x = \"\"\"\nprint 'a'\n\"\"\"")).isNull();
+    assertThat(LanguageLevelDetector.detect("x = 'it\\'s'\ny = 2")).isNull();
+    assertThat(LanguageLevelDetector.detect("x = foo(a,\n  b)\nprint 'x'")).isEqualTo(PYTHON27);
+  }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.frontend;
+
+import com.jetbrains.python.psi.PyFile;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LineOffsetsTest {
+
+  @Test
+  public void line_and_column() {
+    LineOffsets lineOffsets = new LineOffsets("foo\n\nbar\n");
+    assertThat(lineOffsets.lineCount()).isEqualTo(4);
+    assertThat(lineOffsets.line(0)).isEqualTo(1);
+    assertThat(lineOffsets.column(0)).isEqualTo(0);
+    assertThat(lineOffsets.line(3)).isEqualTo(1);
+    assertThat(lineOffsets.column(3)).isEqualTo(3);
+    assertThat(lineOffsets.line(4)).isEqualTo(2);
+    assertThat(lineOffsets.line(5)).isEqualTo(3);
+    assertThat(lineOffsets.column(7)).isEqualTo(2);
+    assertThat(lineOffsets.line(9)).isEqualTo(4);
+    assertThat(lineOffsets.column(9)).isEqualTo(0);
+  }
+
+  @Test
+  public void empty_text() {
+    LineOffsets lineOffsets = new LineOffsets("");
+    assertThat(lineOffsets.lineCount()).isEqualTo(1);
+    assertThat(lineOffsets.line(0)).isEqualTo(1);
+    assertThat(lineOffsets.column(0)).isEqualTo(0);
+  }
+
+  @Test
+  public void many_lines() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      sb.append("line").append(i).append("\n");
+    }
+    String text = sb.toString();
+    LineOffsets lineOffsets = new LineOffsets(text);
+    assertThat(lineOffsets.lineCount()).isEqualTo(101);
+    int offset = text.indexOf("line42");
+    assertThat(lineOffsets.line(offset)).isEqualTo(43);
+    assertThat(lineOffsets.column(offset + 4)).isEqualTo(4);
+  }
+
+  @Test
+  public void packed_position() {
+    long position = LineOffsets.pack(12, 34);
+    assertThat(LineOffsets.lineOf(position)).isEqualTo(12);
+    assertThat(LineOffsets.columnOf(position)).isEqualTo(34);
+
+    LineOffsets lineOffsets = new LineOffsets("a\nbc");
+    position = lineOffsets.position(3);
+    assertThat(LineOffsets.lineOf(position)).isEqualTo(2);
+    assertThat(LineOffsets.columnOf(position)).isEqualTo(1);
+  }
+
+  @Test
+  public void shared_by_elements_of_a_file() {
+    PyFile pyFile = new PythonParser().parse("x = 1\ny = 2\n");
+    LineOffsets lineOffsets = LineOffsets.of(pyFile);
+    assertThat(LineOffsets.of(pyFile.getLastChild())).isSameAs(lineOffsets);
+    assertThat(lineOffsets.line(pyFile.getStatements().get(1).getTextOffset())).isEqualTo(2);
+    assertThat(LineOffsets.lineOf(lineOffsets.endPosition(pyFile.getStatements().get(1)))).isEqualTo(2);
+  }
+
+}
@@ -59,6 +59,48 @@ public class PythonParserTest {
     assertThat(statement).isInstanceOf(PyPrintStatement.class);
   }
 
+  @Test
+  public void language_level_memo() {
+    LanguageLevelMemo memo = new LanguageLevelMemo();
+    PythonParser memoParser = new PythonParser(memo);
+    assertThat(memoParser.languageLevelMemo()).isSameAs(memo);
+    memoParser.parse("print 42");
+    memoParser.parse("print(42)");
+    assertThat(memo.parsedFiles()).isEqualTo(2);
+    assertThat(memo.reparsedFiles()).isEqualTo(0);
+
+    // tuple parameters are only valid in Python 2, but they are not detected
+    memoParser.parse("def f(a, (b, c)):\n  pass");
+    assertThat(memo.parsedFiles()).isEqualTo(3);
+    assertThat(memo.reparsedFiles()).isEqualTo(1);
+
+    // files without specific constructs are still parsed as Python 3 first
+    memoParser.parse("x = 1");
+    assertThat(memo.parsedFiles()).isEqualTo(4);
+    assertThat(memo.reparsedFiles()).isEqualTo(1);
+    memoParser.parse("def f(a, (b, c)):\n  pass");
+    assertThat(memo.parsedFiles()).isEqualTo(5);
+    assertThat(memo.reparsedFiles()).isEqualTo(2);
+  }
+
+  @Test
+  public void first_level_does_not_depend_on_previous_files() {
+    PythonParser memoParser = new PythonParser(new LanguageLevelMemo());
+    for (int i = 0; i < 3; i++) {
+      memoParser.parse("def f(a, (b, c)):\n  pass");
+    }
+    // valid in both levels: the Python 3 tree is accepted, as for a fresh parser
+    PyFile pyFile = memoParser.parse("print(42)");
+    assertThat(pyFile.getStatements().get(0)).isNotInstanceOf(PyPrintStatement.class);
+    assertThat(memoParser.languageLevelMemo().reparsedFiles()).isEqualTo(3);
+  }
+
+  @Test
+  public void isolated_parser() {
+    PyFile pyFile = PythonParser.createIsolated(new LanguageLevelMemo()).parse("print 42");
+    assertThat(pyFile.getStatements().get(0)).isInstanceOf(PyPrintStatement.class);
+  }
+
   @Test
   public void print_with_parentheses() {
     PyFile pyFile = parser.parse("print(42)");
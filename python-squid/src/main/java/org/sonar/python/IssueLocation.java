@@ -24,7 +24,7 @@ import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.Token;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
-import org.sonar.python.frontend.PythonTokenLocation;
+import org.sonar.python.frontend.LineOffsets;
 
 public abstract class IssueLocation {
 
@@ -76,8 +76,8 @@ public abstract class IssueLocation {
   public abstract int endLineOffset();
 
   private static class PsiIssueLocation extends IssueLocation {
-    private final PythonTokenLocation startLocation;
-    private final PythonTokenLocation endLocation;
+    private final long start;
+    private final long end;
 
     PsiIssueLocation(PsiElement element, @Nullable String message) {
       this(element, element, message);
@@ -85,28 +85,28 @@ public abstract class IssueLocation {
 
     PsiIssueLocation(PsiElement startElement, PsiElement endElement, @Nullable String message) {
       super(message);
-      this.startLocation = new PythonTokenLocation(startElement);
-      this.endLocation = new PythonTokenLocation(endElement);
+      this.start = LineOffsets.of(startElement).startPosition(startElement);
+      this.end = LineOffsets.of(endElement).endPosition(endElement);
     }
 
     @Override
     public int startLine() {
-      return startLocation.startLine();
+      return LineOffsets.lineOf(start);
     }
 
     @Override
     public int startLineOffset() {
-      return startLocation.startLineOffset();
+      return LineOffsets.columnOf(start);
     }
 
     @Override
     public int endLine() {
-      return endLocation.endLine();
+      return LineOffsets.lineOf(end);
     }
 
     @Override
     public int endLineOffset() {
-      return endLocation.endLineOffset();
+      return LineOffsets.columnOf(end);
     }
 
   }
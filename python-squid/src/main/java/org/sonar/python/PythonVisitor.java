@@ -22,14 +22,33 @@ package org.sonar.python;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.Token;
+import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 public class PythonVisitor {
 
+  private static final Set<String> SYNTAX_TREE_METHODS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+    "subscribedKinds", "visitFile", "leaveFile", "visitNode", "visitToken", "leaveNode", "scanFile")));
+
   private PythonVisitorContext context;
 
+  /**
+   * Returns true when the given visitor class overrides at least one of the methods used to visit the SSLR syntax tree.
+   * Visitors for which it returns false do not need the file to be parsed by the SSLR parser.
+   */
+  public static boolean visitsSyntaxTree(Class<? extends PythonVisitor> visitorClass) {
+    for (Method method : visitorClass.getMethods()) {
+      if (SYNTAX_TREE_METHODS.contains(method.getName()) && method.getDeclaringClass() != PythonVisitor.class) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public Set<AstNodeType> subscribedKinds() {
     return Collections.emptySet();
   }
@@ -58,6 +77,10 @@ public class PythonVisitor {
     return context;
   }
 
+  void setContext(PythonVisitorContext context) {
+    this.context = context;
+  }
+
   public void scanFile(PythonVisitorContext context) {
     this.context = context;
     AstNode tree = context.rootTree();
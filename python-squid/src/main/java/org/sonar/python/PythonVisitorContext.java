@@ -24,37 +24,55 @@ import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.RecognitionException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.python.PythonCheck.PreciseIssue;
+import org.sonar.python.semantic.ProjectIndex;
 import org.sonar.python.semantic.SymbolTable;
 import org.sonar.python.semantic.SymbolTableBuilderVisitor;
 
+/**
+ * The syntax tree and the symbol table are only built on first access, so that files are neither parsed by the SSLR parser
+ * nor resolved when no visitor needs it.
+ */
 public class PythonVisitorContext {
 
-  private final AstNode rootTree;
+  private Supplier<AstNode> rootTreeSupplier;
+  private AstNode rootTree;
   private final PythonFile pythonFile;
   private final RecognitionException parsingException;
   private SymbolTable symbolTable = null;
+  private ProjectIndex projectIndex = ProjectIndex.EMPTY;
   private List<PreciseIssue> issues = new ArrayList<>();
 
   public PythonVisitorContext(AstNode rootTree, PythonFile pythonFile) {
-    this(rootTree, pythonFile, null);
-    SymbolTableBuilderVisitor symbolTableBuilderVisitor = new SymbolTableBuilderVisitor();
-    symbolTableBuilderVisitor.scanFile(this);
-    symbolTable = symbolTableBuilderVisitor.symbolTable();
+    this(() -> rootTree, pythonFile, null);
+  }
+
+  /**
+   * @param rootTreeSupplier called at most once, on the first call to {@link #rootTree()}
+   */
+  public PythonVisitorContext(Supplier<AstNode> rootTreeSupplier, PythonFile pythonFile) {
+    this(rootTreeSupplier, pythonFile, null);
   }
 
   public PythonVisitorContext(PythonFile pythonFile, RecognitionException parsingException) {
-    this(null, pythonFile, parsingException);
+    this(() -> null, pythonFile, parsingException);
   }
 
-  private PythonVisitorContext(AstNode rootTree, PythonFile pythonFile, RecognitionException parsingException) {
-    this.rootTree = rootTree;
+  private PythonVisitorContext(Supplier<AstNode> rootTreeSupplier, PythonFile pythonFile, @Nullable RecognitionException parsingException) {
+    this.rootTreeSupplier = rootTreeSupplier;
     this.pythonFile = pythonFile;
     this.parsingException = parsingException;
   }
 
+  @CheckForNull
   public AstNode rootTree() {
+    if (rootTreeSupplier != null) {
+      rootTree = rootTreeSupplier.get();
+      rootTreeSupplier = null;
+    }
     return rootTree;
   }
 
@@ -66,10 +84,28 @@ public class PythonVisitorContext {
     return parsingException;
   }
 
+  @CheckForNull
   public SymbolTable symbolTable() {
+    if (symbolTable == null && rootTree() != null) {
+      SymbolTableBuilderVisitor symbolTableBuilderVisitor = new SymbolTableBuilderVisitor();
+      symbolTableBuilderVisitor.scanFile(this);
+      symbolTable = symbolTableBuilderVisitor.symbolTable();
+    }
     return symbolTable;
   }
 
+  /**
+   * Top-level definitions and imports of the other modules of the project, empty when the project was not indexed:
+   * checks using it must implement {@link ProjectIndexConsumer}.
+   */
+  public ProjectIndex projectIndex() {
+    return projectIndex;
+  }
+
+  public void setProjectIndex(ProjectIndex projectIndex) {
+    this.projectIndex = projectIndex;
+  }
+
   public void addIssue(PreciseIssue issue) {
     issues.add(issue);
   }
@@ -0,0 +1,215 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.sonar.python.PythonCheck.PreciseIssue;
+
+/**
+ * Scans a file with several {@link PythonVisitor}s in a single walk of the SSLR tree.
+ * <p>
+ * Each visitor receives exactly the same calls, in the same order, as if {@link PythonVisitor#scanFile(PythonVisitorContext)}
+ * was called on it: nodes are only dispatched to the visitors subscribed to their type, and tokens are only dispatched to
+ * the visitors overriding {@link PythonVisitor#visitToken(Token)}. Visitors overriding {@code scanFile} are scanned on their own.
+ * Issues are reordered after the walk, so that they are reported in the same order as with one walk per visitor.
+ */
+public class PythonVisitorMultiplexer {
+
+  private static final PythonVisitor[] NO_VISITORS = new PythonVisitor[0];
+
+  private final List<PythonVisitor> standaloneVisitors = new ArrayList<>();
+  private final PythonVisitor[] multiplexedVisitors;
+  private final PythonVisitor[] tokenVisitors;
+  private final Map<AstNodeType, PythonVisitor[]> visitorsByType = new HashMap<>();
+  private final Map<Object, Integer> visitorIndexes = new IdentityHashMap<>();
+  @Nullable
+  private CheckTimeRecorder timeRecorder;
+
+  public PythonVisitorMultiplexer(List<? extends PythonVisitor> visitors) {
+    List<PythonVisitor> multiplexed = new ArrayList<>();
+    List<PythonVisitor> visitingTokens = new ArrayList<>();
+    Map<AstNodeType, List<PythonVisitor>> subscriptions = new HashMap<>();
+    for (PythonVisitor visitor : visitors) {
+      visitorIndexes.put(visitor, visitorIndexes.size());
+      if (overrides(visitor, "scanFile", PythonVisitorContext.class)) {
+        standaloneVisitors.add(visitor);
+        continue;
+      }
+      multiplexed.add(visitor);
+      if (overrides(visitor, "visitToken", Token.class)) {
+        visitingTokens.add(visitor);
+      }
+      for (AstNodeType type : visitor.subscribedKinds()) {
+        subscriptions.computeIfAbsent(type, t -> new ArrayList<>()).add(visitor);
+      }
+    }
+    multiplexedVisitors = multiplexed.toArray(NO_VISITORS);
+    tokenVisitors = visitingTokens.toArray(NO_VISITORS);
+    subscriptions.forEach((type, subscribedVisitors) -> visitorsByType.put(type, subscribedVisitors.toArray(NO_VISITORS)));
+  }
+
+  /**
+   * @param timeRecorder receives the time spent in each call to a check, null to stop measuring it
+   */
+  public void setTimeRecorder(@Nullable CheckTimeRecorder timeRecorder) {
+    this.timeRecorder = timeRecorder;
+  }
+
+  public void scanFile(PythonVisitorContext context) {
+    List<PreciseIssue> issues = context.getIssues();
+    int firstNewIssue = issues.size();
+
+    for (PythonVisitor visitor : standaloneVisitors) {
+      long start = startTime();
+      visitor.scanFile(context);
+      recordTime(visitor, start);
+    }
+
+    if (multiplexedVisitors.length > 0) {
+      scanTree(context);
+    }
+
+    if (issues.size() - firstNewIssue > 1) {
+      // stable sort: issues of each visitor keep their relative order
+      issues.subList(firstNewIssue, issues.size()).sort(Comparator.comparingInt(issue -> visitorIndex(issue.check())));
+    }
+  }
+
+  /**
+   * Only called when there are multiplexed visitors, as it forces the SSLR tree to be built.
+   */
+  private void scanTree(PythonVisitorContext context) {
+    for (PythonVisitor visitor : multiplexedVisitors) {
+      visitor.setContext(context);
+    }
+    AstNode tree = context.rootTree();
+    if (tree == null) {
+      return;
+    }
+    for (PythonVisitor visitor : multiplexedVisitors) {
+      long start = startTime();
+      visitor.visitFile(tree);
+      recordTime(visitor, start);
+    }
+    if (timeRecorder == null) {
+      scanNode(tree);
+    } else {
+      scanNodeMeasuringTime(tree);
+    }
+    for (PythonVisitor visitor : multiplexedVisitors) {
+      long start = startTime();
+      visitor.leaveFile(tree);
+      recordTime(visitor, start);
+    }
+  }
+
+  private void scanNode(AstNode node) {
+    PythonVisitor[] subscribedVisitors = visitorsByType.getOrDefault(node.getType(), NO_VISITORS);
+    for (PythonVisitor visitor : subscribedVisitors) {
+      visitor.visitNode(node);
+    }
+
+    List<AstNode> children = node.getChildren();
+    if (children.isEmpty()) {
+      if (tokenVisitors.length > 0) {
+        for (Token token : node.getTokens()) {
+          for (PythonVisitor visitor : tokenVisitors) {
+            visitor.visitToken(token);
+          }
+        }
+      }
+    } else {
+      for (AstNode child : children) {
+        scanNode(child);
+      }
+    }
+
+    for (PythonVisitor visitor : subscribedVisitors) {
+      visitor.leaveNode(node);
+    }
+  }
+
+  /**
+   * Same as {@link #scanNode(AstNode)}, measuring the time spent in each visitor.
+   */
+  private void scanNodeMeasuringTime(AstNode node) {
+    PythonVisitor[] subscribedVisitors = visitorsByType.getOrDefault(node.getType(), NO_VISITORS);
+    for (PythonVisitor visitor : subscribedVisitors) {
+      long start = System.nanoTime();
+      visitor.visitNode(node);
+      recordTime(visitor, start);
+    }
+
+    List<AstNode> children = node.getChildren();
+    if (children.isEmpty()) {
+      if (tokenVisitors.length > 0) {
+        for (Token token : node.getTokens()) {
+          for (PythonVisitor visitor : tokenVisitors) {
+            long start = System.nanoTime();
+            visitor.visitToken(token);
+            recordTime(visitor, start);
+          }
+        }
+      }
+    } else {
+      for (AstNode child : children) {
+        scanNodeMeasuringTime(child);
+      }
+    }
+
+    for (PythonVisitor visitor : subscribedVisitors) {
+      long start = System.nanoTime();
+      visitor.leaveNode(node);
+      recordTime(visitor, start);
+    }
+  }
+
+  private long startTime() {
+    return timeRecorder == null ? 0L : System.nanoTime();
+  }
+
+  private void recordTime(PythonVisitor visitor, long start) {
+    if (timeRecorder != null && visitor instanceof PythonCheck) {
+      timeRecorder.record((PythonCheck) visitor, System.nanoTime() - start);
+    }
+  }
+
+  private int visitorIndex(PythonCheck check) {
+    return visitorIndexes.getOrDefault(check, Integer.MAX_VALUE);
+  }
+
+  private static boolean overrides(PythonVisitor visitor, String methodName, Class<?> parameterType) {
+    try {
+      return visitor.getClass().getMethod(methodName, parameterType).getDeclaringClass() != PythonVisitor.class;
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
@@ -22,65 +22,137 @@ package org.sonar.python;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.tree.IElementType;
 import com.jetbrains.python.psi.PyFile;
-import com.jetbrains.python.psi.PyRecursiveElementVisitor;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import org.sonar.python.PythonCheck.PreciseIssue;
 
-public class SubscriptionVisitor extends PyRecursiveElementVisitor {
+/**
+ * Dispatches the PSI elements of files to the consumers registered by {@link SubscriptionCheck}s.
+ * <p>
+ * Subscriptions are collected once, when the visitor is created, into a table indexed by {@link IElementType#getIndex()}.
+ * Analyzing a file is then only an iterative walk of its tree. An instance can be reused for several files, but
+ * not concurrently, as the checks themselves are not thread-safe.
+ */
+public class SubscriptionVisitor {
+
+  private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
 
-  private final Map<IElementType, List<ConsumerWrapper>> consumers = new HashMap<>();
-  private final PythonVisitorContext pythonVisitorContext;
-  private PsiElement currentElement;
+  private final PythonCheck[] checks;
+  private final Subscription[][] subscriptionsByElementType;
+  @Nullable
+  private CheckTimeRecorder timeRecorder;
 
   public static void analyze(Collection<PythonCheck> checks, PythonVisitorContext pythonVisitorContext, PyFile pyFile) {
-    SubscriptionVisitor subscriptionVisitor = new SubscriptionVisitor(checks, pythonVisitorContext);
-    pyFile.accept(subscriptionVisitor);
+    new SubscriptionVisitor(checks).analyze(pythonVisitorContext, pyFile);
   }
 
-  private SubscriptionVisitor(Collection<PythonCheck> checks, PythonVisitorContext pythonVisitorContext) {
-    this.pythonVisitorContext = pythonVisitorContext;
-    for (PythonCheck check : checks) {
-      check.initialize((elementType, consumer) -> {
-        List<ConsumerWrapper> elementConsumers = consumers.computeIfAbsent(elementType, c -> new ArrayList<>());
-        elementConsumers.add(new ConsumerWrapper(check, consumer));
+  public SubscriptionVisitor(Collection<PythonCheck> checks) {
+    this.checks = checks.toArray(new PythonCheck[0]);
+    List<List<Subscription>> subscriptions = new ArrayList<>();
+    for (int checkIndex = 0; checkIndex < this.checks.length; checkIndex++) {
+      int index = checkIndex;
+      this.checks[checkIndex].initialize((elementType, consumer) -> {
+        int elementTypeIndex = elementType.getIndex();
+        while (subscriptions.size() <= elementTypeIndex) {
+          subscriptions.add(null);
+        }
+        List<Subscription> elementSubscriptions = subscriptions.get(elementTypeIndex);
+        if (elementSubscriptions == null) {
+          elementSubscriptions = new ArrayList<>();
+          subscriptions.set(elementTypeIndex, elementSubscriptions);
+        }
+        elementSubscriptions.add(new Subscription(index, consumer));
       });
     }
+    subscriptionsByElementType = new Subscription[subscriptions.size()][];
+    for (int i = 0; i < subscriptionsByElementType.length; i++) {
+      List<Subscription> elementSubscriptions = subscriptions.get(i);
+      subscriptionsByElementType[i] = elementSubscriptions == null ? NO_SUBSCRIPTIONS : elementSubscriptions.toArray(NO_SUBSCRIPTIONS);
+    }
+  }
+
+  /**
+   * @param timeRecorder receives the time spent in each call to a check, null to stop measuring it
+   */
+  public void setTimeRecorder(@Nullable CheckTimeRecorder timeRecorder) {
+    this.timeRecorder = timeRecorder;
   }
 
-  @Override
-  public void visitElement(PsiElement element) {
-    currentElement = element;
-    List<ConsumerWrapper> elementConsumers = consumers.get(element.getNode().getElementType());
-    if (elementConsumers != null) {
-      for (ConsumerWrapper consumer : elementConsumers) {
-        consumer.execute();
+  public void analyze(PythonVisitorContext pythonVisitorContext, PyFile pyFile) {
+    if (subscriptionsByElementType.length == 0) {
+      return;
+    }
+    FileState fileState = new FileState();
+    CheckSubscriptionContext[] contexts = new CheckSubscriptionContext[checks.length];
+    for (int i = 0; i < checks.length; i++) {
+      contexts[i] = new CheckSubscriptionContext(checks[i], pythonVisitorContext, fileState);
+    }
+
+    // pre-order walk, without recursion to support deeply nested trees
+    PsiElement element = pyFile;
+    while (element != null) {
+      visitElement(element, fileState, contexts);
+      PsiElement next = element.getFirstChild();
+      while (next == null && element != pyFile) {
+        next = element.getNextSibling();
+        if (next == null) {
+          element = element.getParent();
+        }
       }
+      element = next;
     }
-    super.visitElement(element);
   }
 
-  private class ConsumerWrapper implements SubscriptionContext {
-    private final PythonCheck check;
+  private void visitElement(PsiElement element, FileState fileState, CheckSubscriptionContext[] contexts) {
+    int elementTypeIndex = element.getNode().getElementType().getIndex();
+    if (elementTypeIndex < subscriptionsByElementType.length) {
+      Subscription[] subscriptions = subscriptionsByElementType[elementTypeIndex];
+      if (subscriptions.length > 0) {
+        fileState.currentElement = element;
+        for (Subscription subscription : subscriptions) {
+          if (timeRecorder == null) {
+            subscription.consumer.accept(contexts[subscription.checkIndex]);
+          } else {
+            long start = System.nanoTime();
+            subscription.consumer.accept(contexts[subscription.checkIndex]);
+            timeRecorder.record(checks[subscription.checkIndex], System.nanoTime() - start);
+          }
+        }
+      }
+    }
+  }
+
+  private static class Subscription {
+    private final int checkIndex;
     private final Consumer<SubscriptionContext> consumer;
 
-    ConsumerWrapper(PythonCheck check, Consumer<SubscriptionContext> consumer) {
-      this.check = check;
+    Subscription(int checkIndex, Consumer<SubscriptionContext> consumer) {
+      this.checkIndex = checkIndex;
       this.consumer = consumer;
     }
+  }
 
-    public void execute() {
-      consumer.accept(this);
+  private static class FileState {
+    private PsiElement currentElement;
+  }
+
+  private static class CheckSubscriptionContext implements SubscriptionContext {
+    private final PythonCheck check;
+    private final PythonVisitorContext pythonVisitorContext;
+    private final FileState fileState;
+
+    CheckSubscriptionContext(PythonCheck check, PythonVisitorContext pythonVisitorContext, FileState fileState) {
+      this.check = check;
+      this.pythonVisitorContext = pythonVisitorContext;
+      this.fileState = fileState;
     }
 
     @Override
     public PsiElement syntaxNode() {
-      return SubscriptionVisitor.this.currentElement;
+      return fileState.currentElement;
     }
 
     @Override
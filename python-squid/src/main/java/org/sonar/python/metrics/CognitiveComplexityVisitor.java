@@ -89,6 +89,12 @@ public class CognitiveComplexityVisitor extends PyRecursiveElementVisitor {
 
   @Override
   public void visitElement(PsiElement element) {
+    enterElement(element);
+    super.visitElement(element);
+    leaveElement(element);
+  }
+
+  void enterElement(PsiElement element) {
     IElementType elementType = element.getNode().getElementType();
 
     if (TYPES_INCREMENTING_WITH_NESTING.contains(elementType)) {
@@ -107,8 +113,10 @@ public class CognitiveComplexityVisitor extends PyRecursiveElementVisitor {
       incrementWithNesting(element.getNode().findChildByType(PyTokenTypes.IF_KEYWORD).getPsi());
       nestingLevelStack.peek().increment();
     }
+  }
 
-    super.visitElement(element);
+  void leaveElement(PsiElement element) {
+    IElementType elementType = element.getNode().getElementType();
 
     if (elementType == PyElementTypes.FUNCTION_DECLARATION || elementType == PyElementTypes.CLASS_DECLARATION) {
       nestingLevelStack.pop();
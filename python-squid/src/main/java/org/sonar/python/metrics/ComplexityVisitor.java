@@ -51,9 +51,13 @@ public class ComplexityVisitor extends PyRecursiveElementVisitor {
     PyTokenTypes.OR_KEYWORD
   ));
 
+  static boolean isComplexityElement(IElementType elementType) {
+    return COMPLEXITY_TYPES.contains(elementType);
+  }
+
   @Override
   public void visitElement(PsiElement element) {
-    if (COMPLEXITY_TYPES.contains(element.getNode().getElementType())) {
+    if (isComplexityElement(element.getNode().getElementType())) {
       complexity++;
     }
     super.visitElement(element);
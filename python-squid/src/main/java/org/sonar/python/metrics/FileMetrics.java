@@ -19,14 +19,23 @@
  */
 package org.sonar.python.metrics;
 
-import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.impl.source.tree.LeafPsiElement;
+import com.intellij.psi.tree.IElementType;
 import com.jetbrains.python.psi.PyClass;
 import com.jetbrains.python.psi.PyFile;
 import com.jetbrains.python.psi.PyFunction;
 import com.jetbrains.python.psi.PyStatement;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 
+/**
+ * Computes all the metrics of a file in a single traversal of its PSI tree. The leaves met during the traversal can
+ * also be given to {@link LeafVisitor}s, so that highlighting or CPD tokens do not need another traversal.
+ */
 public class FileMetrics {
 
   private int numberOfStatements;
@@ -35,16 +44,71 @@ public class FileMetrics {
   private final CognitiveComplexityVisitor cognitiveComplexityVisitor = new CognitiveComplexityVisitor(null);
   private final MetricsVisitor metricsVisitor;
   private List<Integer> functionComplexities = new ArrayList<>();
+  // indexes in functionComplexities of the functions enclosing the current element
+  private final Deque<Integer> enclosingFunctions = new ArrayDeque<>();
+  private final List<LeafVisitor> leafVisitors;
 
   public FileMetrics(boolean ignoreHeaderComments, PyFile pyFile) {
-    numberOfStatements = PsiTreeUtil.findChildrenOfType(pyFile, PyStatement.class).size();
-    numberOfClasses = PsiTreeUtil.findChildrenOfType(pyFile, PyClass.class).size();
-    cyclomaticComplexity = ComplexityVisitor.complexity(pyFile);
-    pyFile.accept(cognitiveComplexityVisitor);
+    this(ignoreHeaderComments, pyFile, Collections.emptyList());
+  }
+
+  public FileMetrics(boolean ignoreHeaderComments, PyFile pyFile, List<LeafVisitor> leafVisitors) {
+    this.leafVisitors = leafVisitors;
     metricsVisitor = new MetricsVisitor(ignoreHeaderComments);
-    pyFile.accept(metricsVisitor);
-    for (PyFunction functionDef : PsiTreeUtil.findChildrenOfType(pyFile, PyFunction.class)) {
-      functionComplexities.add(ComplexityVisitor.complexity(functionDef));
+    PsiElement element = pyFile;
+    while (element != null) {
+      enterElement(element);
+      PsiElement next = element.getFirstChild();
+      while (next == null) {
+        leaveElement(element);
+        if (element == pyFile) {
+          break;
+        }
+        next = element.getNextSibling();
+        if (next == null) {
+          element = element.getParent();
+        }
+      }
+      element = next;
+    }
+    for (LeafVisitor leafVisitor : leafVisitors) {
+      leafVisitor.leaveFile();
+    }
+  }
+
+  private void enterElement(PsiElement element) {
+    IElementType elementType = element.getNode().getElementType();
+    if (element instanceof PyStatement) {
+      numberOfStatements++;
+    }
+    if (element instanceof PyClass) {
+      numberOfClasses++;
+    }
+    if (element instanceof PyFunction) {
+      enclosingFunctions.push(functionComplexities.size());
+      functionComplexities.add(0);
+    }
+    if (ComplexityVisitor.isComplexityElement(elementType)) {
+      cyclomaticComplexity++;
+      // the complexity of a function does not include the complexity of the functions nested in it
+      Integer enclosingFunction = enclosingFunctions.peek();
+      if (enclosingFunction != null) {
+        functionComplexities.set(enclosingFunction, functionComplexities.get(enclosingFunction) + 1);
+      }
+    }
+    cognitiveComplexityVisitor.enterElement(element);
+    metricsVisitor.enterElement(element);
+    if (element instanceof LeafPsiElement) {
+      for (LeafVisitor leafVisitor : leafVisitors) {
+        leafVisitor.visitLeaf((LeafPsiElement) element);
+      }
+    }
+  }
+
+  private void leaveElement(PsiElement element) {
+    cognitiveComplexityVisitor.leaveElement(element);
+    if (element instanceof PyFunction) {
+      enclosingFunctions.pop();
     }
   }
 
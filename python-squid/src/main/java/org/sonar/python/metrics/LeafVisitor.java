@@ -17,25 +17,23 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
-package org.sonar.plugins.python.xunit;
+package org.sonar.python.metrics;
 
-import org.junit.Test;
+import com.intellij.psi.impl.source.tree.LeafPsiElement;
 
-import static org.assertj.core.api.Assertions.assertThat;
-
-public class TestSuiteTest {
+/**
+ * Receives the leaves of a PSI tree (tokens, whitespaces and comments) in the order of the source code, during the
+ * traversal done by {@link FileMetrics}. Lets token-based computations share that traversal.
+ */
+public interface LeafVisitor {
 
-  @Test
-  public void test() {
-    TestSuite suite = new TestSuite("key");
-    assertThat(suite.getKey()).isEqualTo("key");
-    assertThat(suite.getTestCases()).isEmpty();
-    assertThat(suite.getDetails()).isEqualTo("<tests-details></tests-details>");
+  void visitLeaf(LeafPsiElement leaf);
 
-    TestCase testCase = new TestCase("name", 1, "status", "stack", "msg", "file", "testClassname");
-    suite.addTestCase(testCase);
-    assertThat(suite.getTestCases()).containsExactly(testCase);
-    assertThat(suite.getDetails()).isEqualTo("<tests-details><testcase status=\"status\" time=\"1\" name=\"name\"/></tests-details>");
+  /**
+   * Called once all the leaves of the file have been visited.
+   */
+  default void leaveFile() {
+    // nothing to do by default
   }
 
 }
@@ -0,0 +1,146 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.metrics;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Read-only set of line numbers, backed by a {@link BitSet} so that adding a line neither boxes nor allocates.
+ */
+public final class LineSet {
+
+  // object headers, BitSet fields and the reference to the array of words
+  private static final int OVERHEAD_BYTES = 64;
+
+  private final BitSet lines;
+
+  LineSet() {
+    this(new BitSet());
+  }
+
+  private LineSet(BitSet lines) {
+    this.lines = lines;
+  }
+
+  public static LineSet of(int... lines) {
+    LineSet lineSet = new LineSet();
+    for (int line : lines) {
+      lineSet.add(line);
+    }
+    return lineSet;
+  }
+
+  /**
+   * @see #toLongArray()
+   */
+  public static LineSet fromLongArray(long[] words) {
+    return new LineSet(BitSet.valueOf(words));
+  }
+
+  void add(int line) {
+    lines.set(line);
+  }
+
+  void addRange(int firstLine, int lastLine) {
+    if (firstLine <= lastLine) {
+      lines.set(firstLine, lastLine + 1);
+    }
+  }
+
+  public boolean contains(int line) {
+    return line >= 0 && lines.get(line);
+  }
+
+  public int size() {
+    return lines.cardinality();
+  }
+
+  public boolean isEmpty() {
+    return lines.isEmpty();
+  }
+
+  /**
+   * Calls the consumer with each line, in ascending order.
+   */
+  public void forEach(IntConsumer consumer) {
+    for (int line = lines.nextSetBit(0); line >= 0; line = lines.nextSetBit(line + 1)) {
+      consumer.accept(line);
+    }
+  }
+
+  public int[] toArray() {
+    return lines.stream().toArray();
+  }
+
+  /**
+   * Compact representation of the set, see {@link BitSet#toLongArray()}.
+   */
+  public long[] toLongArray() {
+    return lines.toLongArray();
+  }
+
+  /**
+   * @return an unmodifiable view of this set, for APIs which require a {@link Set}. Lines are only boxed when the view is queried.
+   */
+  public Set<Integer> asSet() {
+    return new AbstractSet<Integer>() {
+      @Override
+      public boolean contains(Object o) {
+        return o instanceof Integer && LineSet.this.contains((Integer) o);
+      }
+
+      @Override
+      public Iterator<Integer> iterator() {
+        return lines.stream().iterator();
+      }
+
+      @Override
+      public int size() {
+        return LineSet.this.size();
+      }
+    };
+  }
+
+  /**
+   * @return an estimation of the number of bytes used by this set
+   */
+  public long memoryUsage() {
+    return OVERHEAD_BYTES + lines.size() / 8L;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || (o instanceof LineSet && lines.equals(((LineSet) o).lines));
+  }
+
+  @Override
+  public int hashCode() {
+    return lines.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return lines.toString();
+  }
+}
@@ -34,19 +34,17 @@ import com.jetbrains.python.psi.PyRecursiveElementVisitor;
 import com.jetbrains.python.psi.PyStatement;
 import com.jetbrains.python.psi.PyStringLiteralExpression;
 import com.jetbrains.python.psi.PyTryExceptStatement;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
-import org.sonar.python.frontend.PythonTokenLocation;
+import org.sonar.python.frontend.LineOffsets;
 
 public class MetricsVisitor extends PyRecursiveElementVisitor {
 
   private final boolean ignoreHeaderComments;
-  private Set<Integer> linesOfCode = new HashSet<>();
-  private Set<Integer> executableLines = new HashSet<>();
-  private Set<Integer> linesOfComments = new HashSet<>();
-  private Set<Integer> noSonar = new HashSet<>();
+  private final LineSet linesOfCode = new LineSet();
+  private final LineSet executableLines = new LineSet();
+  private final LineSet linesOfComments = new LineSet();
+  private final LineSet noSonar = new LineSet();
   private boolean firstNonCommentSeen = false;
+  private LineOffsets lineOffsets;
 
   public MetricsVisitor(boolean ignoreHeaderComments) {
     this.ignoreHeaderComments = ignoreHeaderComments;
@@ -54,6 +52,11 @@ public class MetricsVisitor extends PyRecursiveElementVisitor {
 
   @Override
   public void visitElement(PsiElement element) {
+    enterElement(element);
+    super.visitElement(element);
+  }
+
+  void enterElement(PsiElement element) {
     // track the first meaningful element which is not a comment to handle ignoreHeaderComments
     if (!((element instanceof PyFile) || (element instanceof PsiComment) || (element instanceof PsiWhiteSpace))) {
       firstNonCommentSeen = true;
@@ -64,10 +67,7 @@ public class MetricsVisitor extends PyRecursiveElementVisitor {
       && !(element instanceof PsiWhiteSpace)
       && !(element instanceof PsiComment)
       && element.getNode().getElementType() != PyTokenTypes.DOCSTRING) {
-      PythonTokenLocation location = new PythonTokenLocation(element);
-      for (int line = location.startLine(); line <= location.endLine(); line++) {
-        linesOfCode.add(line);
-      }
+      addLines(linesOfCode, element);
     }
 
     // track executable lines of code
@@ -80,20 +80,23 @@ public class MetricsVisitor extends PyRecursiveElementVisitor {
       handleComment(((PsiComment) element));
     }
 
-    super.visitElement(element);
+    // docstrings are counted as comments
+    if (element instanceof PyStringLiteralExpression && ((PyStringLiteralExpression) element).isDocString()) {
+      addLines(linesOfComments, element);
+    }
   }
 
   private void handlePyStatement(PyStatement element) {
     if (!isDocString(element)) {
-      executableLines.add(new PythonTokenLocation(element).startLine());
+      executableLines.add(startLine(element));
     }
     if (element instanceof PyIfStatement) {
       for (PyIfPart pyIfPart : ((PyIfStatement) element).getElifParts()) {
-        executableLines.add(new PythonTokenLocation(pyIfPart).startLine());
+        executableLines.add(startLine(pyIfPart));
       }
     } else if (element instanceof PyTryExceptStatement) {
       for (PyExceptPart pyExceptPart : ((PyTryExceptStatement) element).getExceptParts()) {
-        executableLines.add(new PythonTokenLocation(pyExceptPart).startLine());
+        executableLines.add(startLine(pyExceptPart));
       }
     }
   }
@@ -101,7 +104,7 @@ public class MetricsVisitor extends PyRecursiveElementVisitor {
   private void handleComment(PsiComment comment) {
     String[] commentLines = getCommentContent(comment.getText())
       .split("(\r)?\n|\r", -1);
-    int line = new PythonTokenLocation(comment).startLine();
+    int line = startLine(comment);
 
     for (String commentLine : commentLines) {
       if (commentLine.contains("NOSONAR")) {
@@ -113,15 +116,20 @@ public class MetricsVisitor extends PyRecursiveElementVisitor {
     }
   }
 
-  @Override
-  public void visitPyStringLiteralExpression(PyStringLiteralExpression node) {
-    if (node.isDocString()) {
-      PythonTokenLocation location = new PythonTokenLocation(node);
-      for (int line = location.startLine(); line <= location.endLine(); line++) {
-        linesOfComments.add(line);
-      }
+  private int startLine(PsiElement element) {
+    return lineOffsets(element).line(element.getTextRange().getStartOffset());
+  }
+
+  private void addLines(LineSet lines, PsiElement element) {
+    int endLine = lineOffsets(element).line(element.getTextRange().getEndOffset());
+    lines.addRange(startLine(element), endLine);
+  }
+
+  private LineOffsets lineOffsets(PsiElement element) {
+    if (lineOffsets == null) {
+      lineOffsets = LineOffsets.of(element);
     }
-    super.visitPyStringLiteralExpression(node);
+    return lineOffsets;
   }
 
   private static boolean isDocString(PyStatement element) {
@@ -147,16 +155,23 @@ public class MetricsVisitor extends PyRecursiveElementVisitor {
     return comment.substring(comment.indexOf('#'));
   }
 
-  public Set<Integer> getLinesWithNoSonar() {
-    return Collections.unmodifiableSet(noSonar);
+  public LineSet getLinesWithNoSonar() {
+    return noSonar;
+  }
+
+  public LineSet getExecutableLines() {
+    return executableLines;
   }
 
-  public Set<Integer> getExecutableLines() {
-    return Collections.unmodifiableSet(executableLines);
+  public LineSet getLinesOfCode() {
+    return linesOfCode;
   }
 
-  public Set<Integer> getLinesOfCode() {
-    return Collections.unmodifiableSet(linesOfCode);
+  /**
+   * @return an estimation of the number of bytes used by the line sets of this visitor
+   */
+  public long lineSetsMemoryUsage() {
+    return linesOfCode.memoryUsage() + executableLines.memoryUsage() + linesOfComments.memoryUsage() + noSonar.memoryUsage();
   }
 
   public int getCommentLineCount() {
@@ -0,0 +1,57 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.parser;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Grammar;
+import com.sonar.sslr.impl.Parser;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.sonar.python.PythonConfiguration;
+
+/**
+ * SSLR parsers which can be used by any thread. Parsers and lexers are stateful: a parser is borrowed by one thread for
+ * the duration of a parse, and then given back for reuse. A new parser is only created when all the others are in use.
+ */
+public final class ParserPool {
+
+  private final PythonConfiguration configuration;
+  private final Queue<Parser<Grammar>> idleParsers = new ConcurrentLinkedQueue<>();
+
+  ParserPool(PythonConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * @throws com.sonar.sslr.api.RecognitionException when the source code is not valid
+   */
+  public AstNode parse(String source) {
+    Parser<Grammar> parser = idleParsers.poll();
+    if (parser == null) {
+      parser = PythonParser.create(configuration);
+    }
+    try {
+      return parser.parse(source);
+    } finally {
+      idleParsers.add(parser);
+    }
+  }
+
+}
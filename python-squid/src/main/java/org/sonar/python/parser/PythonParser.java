@@ -21,18 +21,41 @@ package org.sonar.python.parser;
 
 import com.sonar.sslr.api.Grammar;
 import com.sonar.sslr.impl.Parser;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.sonar.python.PythonConfiguration;
 import org.sonar.python.api.PythonGrammar;
 import org.sonar.python.lexer.PythonLexer;
 
 public final class PythonParser {
 
+  private static final Map<Charset, ParserPool> POOLS = new ConcurrentHashMap<>();
+
   private PythonParser() {
   }
 
   public static Parser<Grammar> create(PythonConfiguration conf) {
-    return Parser.builder(PythonGrammar.create().build())
+    return Parser.builder(grammar())
       .withLexer(PythonLexer.create(conf)).build();
   }
 
+  /**
+   * The grammar is built once: it is not modified by parsers, so all of them can share it.
+   */
+  public static Grammar grammar() {
+    return GrammarHolder.GRAMMAR;
+  }
+
+  /**
+   * Parsers shared by all the checks which parse source code on their own, whatever the thread they are executed in.
+   */
+  public static ParserPool pool(Charset charset) {
+    return POOLS.computeIfAbsent(charset, c -> new ParserPool(new PythonConfiguration(c)));
+  }
+
+  private static class GrammarHolder {
+    private static final Grammar GRAMMAR = PythonGrammar.create().build();
+  }
+
 }
@@ -0,0 +1,299 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.semantic;
+
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.python.api.PythonKeyword;
+import org.sonar.python.api.PythonPunctuator;
+import org.sonar.python.api.PythonTokenType;
+
+/**
+ * Names defined at the top level of a module, and modules it imports, as found in the tokens of the module:
+ * extracting them does not need the module to be parsed.
+ * <p>
+ * Top-level names are the ones bound outside of any function or class, including inside "if", "try" or "with"
+ * blocks: functions, classes, simple assignment targets, annotated names, imported modules and imported names.
+ * Relative imports are kept as written (ex: "..util"), they are resolved by {@link ProjectIndex.Builder} which
+ * knows the name of the module.
+ */
+public final class ModuleSummary {
+
+  private static final int MAX_COUNT = 1 << 20;
+
+  private final List<String> definitions;
+  private final List<String> imports;
+
+  public ModuleSummary(List<String> definitions, List<String> imports) {
+    this.definitions = Collections.unmodifiableList(new ArrayList<>(definitions));
+    this.imports = Collections.unmodifiableList(new ArrayList<>(imports));
+  }
+
+  public List<String> definitions() {
+    return definitions;
+  }
+
+  public List<String> imports() {
+    return imports;
+  }
+
+  public static ModuleSummary extract(List<Token> tokens) {
+    return new Extractor(tokens).extract();
+  }
+
+  public void write(DataOutput out) throws IOException {
+    writeStrings(out, definitions);
+    writeStrings(out, imports);
+  }
+
+  public static ModuleSummary read(DataInput in) throws IOException {
+    return new ModuleSummary(readStrings(in), readStrings(in));
+  }
+
+  private static void writeStrings(DataOutput out, List<String> strings) throws IOException {
+    out.writeInt(strings.size());
+    for (String string : strings) {
+      out.writeUTF(string);
+    }
+  }
+
+  private static List<String> readStrings(DataInput in) throws IOException {
+    int count = in.readInt();
+    if (count < 0 || count > MAX_COUNT) {
+      throw new IOException("invalid number of names: " + count);
+    }
+    List<String> strings = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      strings.add(in.readUTF());
+    }
+    return strings;
+  }
+
+  private static class Extractor {
+
+    private final List<Token> tokens;
+    private final Set<String> definitions = new LinkedHashSet<>();
+    private final Set<String> imports = new LinkedHashSet<>();
+    private int position;
+
+    private Extractor(List<Token> tokens) {
+      this.tokens = tokens;
+    }
+
+    private ModuleSummary extract() {
+      // for each indented block: true when it is the body of a function or of a class
+      Deque<Boolean> blocks = new ArrayDeque<>();
+      int functionOrClassBlocks = 0;
+      boolean isFunctionOrClassHeader = false;
+      boolean isStatementStart = true;
+      for (int i = 0; i < tokens.size(); i++) {
+        TokenType type = tokens.get(i).getType();
+        if (type == PythonTokenType.INDENT) {
+          blocks.push(isFunctionOrClassHeader);
+          functionOrClassBlocks += isFunctionOrClassHeader ? 1 : 0;
+          isStatementStart = true;
+        } else if (type == PythonTokenType.DEDENT) {
+          if (!blocks.isEmpty() && blocks.pop()) {
+            functionOrClassBlocks--;
+          }
+          isStatementStart = true;
+        } else if (type == PythonTokenType.NEWLINE || type == PythonPunctuator.SEMICOLON) {
+          isStatementStart = true;
+        } else if (isStatementStart) {
+          isStatementStart = false;
+          isFunctionOrClassHeader = type == PythonKeyword.DEF || type == PythonKeyword.CLASS || (isAsync(i) && is(i + 1, PythonKeyword.DEF));
+          if (functionOrClassBlocks == 0) {
+            position = i;
+            topLevelStatement();
+          }
+        }
+      }
+      return new ModuleSummary(new ArrayList<>(definitions), new ArrayList<>(imports));
+    }
+
+    private void topLevelStatement() {
+      if (isAsync(position)) {
+        position++;
+      }
+      if (consume(PythonKeyword.DEF) || consume(PythonKeyword.CLASS)) {
+        addDefinition(name());
+      } else if (consume(PythonKeyword.IMPORT)) {
+        importNames();
+      } else if (consume(PythonKeyword.FROM)) {
+        importFrom();
+      } else {
+        assignmentTargets();
+      }
+    }
+
+    /**
+     * import a.b.c, d as e
+     */
+    private void importNames() {
+      do {
+        String moduleName = dottedName();
+        if (moduleName == null) {
+          return;
+        }
+        imports.add(moduleName);
+        if (consume(PythonKeyword.AS)) {
+          addDefinition(name());
+        } else {
+          int firstDot = moduleName.indexOf('.');
+          addDefinition(firstDot < 0 ? moduleName : moduleName.substring(0, firstDot));
+        }
+      } while (consume(PythonPunctuator.COMMA));
+    }
+
+    /**
+     * from ..a.b import (c, d as e)
+     */
+    private void importFrom() {
+      StringBuilder moduleName = new StringBuilder();
+      while (consume(PythonPunctuator.DOT)) {
+        moduleName.append('.');
+      }
+      String dottedName = dottedName();
+      if (dottedName != null) {
+        moduleName.append(dottedName);
+      }
+      if (moduleName.length() == 0 || !consume(PythonKeyword.IMPORT)) {
+        return;
+      }
+      imports.add(moduleName.toString());
+      consume(PythonPunctuator.LPARENTHESIS);
+      do {
+        String importedName = name();
+        if (importedName == null) {
+          // "import *" or end of a parenthesized list ending with a comma
+          return;
+        }
+        addDefinition(consume(PythonKeyword.AS) ? name() : importedName);
+      } while (consume(PythonPunctuator.COMMA));
+    }
+
+    /**
+     * a = b, c = 1 or a: int = 1: the targets before each "=" (or before the ":" of an annotation) are definitions when
+     * they are only made of names. Brackets are taken into account so that the keyword arguments of calls are ignored.
+     */
+    private void assignmentTargets() {
+      int targetStart = position;
+      int depth = 0;
+      for (int i = position; i < tokens.size() && !isStatementEnd(i); i++) {
+        TokenType type = tokens.get(i).getType();
+        if (type == PythonPunctuator.LPARENTHESIS || type == PythonPunctuator.LBRACKET || type == PythonPunctuator.LCURLYBRACE) {
+          depth++;
+        } else if (type == PythonPunctuator.RPARENTHESIS || type == PythonPunctuator.RBRACKET || type == PythonPunctuator.RCURLYBRACE) {
+          depth--;
+        } else if (depth == 0 && type == PythonPunctuator.ASSIGN) {
+          addTargetNames(targetStart, i);
+          targetStart = i + 1;
+        } else if (depth == 0 && type == PythonPunctuator.COLON && targetStart == position) {
+          addTargetNames(targetStart, i);
+          return;
+        }
+      }
+    }
+
+    /**
+     * Only names, possibly in tuples or lists: "a", "a, b", "[a, (b, c)]". Not "a[i]" or "a.b".
+     */
+    private void addTargetNames(int from, int to) {
+      List<String> names = new ArrayList<>();
+      TokenType previousType = null;
+      for (int i = from; i < to; i++) {
+        TokenType type = tokens.get(i).getType();
+        boolean isOpeningBracket = type == PythonPunctuator.LPARENTHESIS || type == PythonPunctuator.LBRACKET;
+        if (type == GenericTokenType.IDENTIFIER) {
+          names.add(tokens.get(i).getValue());
+        } else if ((isOpeningBracket && previousType == GenericTokenType.IDENTIFIER)
+          || (!isOpeningBracket && type != PythonPunctuator.COMMA && type != PythonPunctuator.RPARENTHESIS && type != PythonPunctuator.RBRACKET)) {
+          return;
+        }
+        previousType = type;
+      }
+      names.forEach(this::addDefinition);
+    }
+
+    @CheckForNull
+    private String dottedName() {
+      String name = name();
+      if (name == null) {
+        return null;
+      }
+      StringBuilder dottedName = new StringBuilder(name);
+      while (is(position, PythonPunctuator.DOT) && is(position + 1, GenericTokenType.IDENTIFIER)) {
+        dottedName.append('.').append(tokens.get(position + 1).getValue());
+        position += 2;
+      }
+      return dottedName.toString();
+    }
+
+    @CheckForNull
+    private String name() {
+      if (is(position, GenericTokenType.IDENTIFIER)) {
+        position++;
+        return tokens.get(position - 1).getValue();
+      }
+      return null;
+    }
+
+    private void addDefinition(@Nullable String name) {
+      if (name != null) {
+        definitions.add(name);
+      }
+    }
+
+    private boolean consume(TokenType type) {
+      if (is(position, type)) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private boolean is(int index, TokenType type) {
+      return index < tokens.size() && tokens.get(index).getType() == type;
+    }
+
+    private boolean isAsync(int index) {
+      return is(index, GenericTokenType.IDENTIFIER) && "async".equals(tokens.get(index).getValue());
+    }
+
+    private boolean isStatementEnd(int index) {
+      TokenType type = tokens.get(index).getType();
+      return type == PythonTokenType.NEWLINE || type == PythonPunctuator.SEMICOLON || type == GenericTokenType.EOF;
+    }
+  }
+
+}
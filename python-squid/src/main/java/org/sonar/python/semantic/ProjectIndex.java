@@ -0,0 +1,211 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.semantic;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Top-level definitions and imports of all the modules of a project, so that checks can resolve names across modules
+ * without parsing the imported modules.
+ * <p>
+ * To scale to very large projects, each distinct name (of a module, of a definition or of an imported module) is stored
+ * once in a sorted table, and modules, definitions and imports are arrays of indexes in this table: all the queries
+ * are binary searches. An index is immutable and can be used by several threads.
+ */
+public final class ProjectIndex {
+
+  public static final ProjectIndex EMPTY = new Builder().build();
+
+  private final String[] names;
+  // indexes of the names of the modules, sorted
+  private final int[] modules;
+  // definitions of the module at index m: definitions[definitionsStart[m]] to definitions[definitionsStart[m + 1] - 1], sorted
+  private final int[] definitionsStart;
+  private final int[] definitions;
+  private final int[] importsStart;
+  private final int[] imports;
+
+  private ProjectIndex(String[] names, int[] modules, int[] definitionsStart, int[] definitions, int[] importsStart, int[] imports) {
+    this.names = names;
+    this.modules = modules;
+    this.definitionsStart = definitionsStart;
+    this.definitions = definitions;
+    this.importsStart = importsStart;
+    this.imports = imports;
+  }
+
+  public int moduleCount() {
+    return modules.length;
+  }
+
+  public boolean hasModule(String moduleName) {
+    return moduleIndex(moduleName) >= 0;
+  }
+
+  /**
+   * True when the given name is bound at the top level of the module.
+   */
+  public boolean isDefined(String moduleName, String name) {
+    int module = moduleIndex(moduleName);
+    int nameIndex = Arrays.binarySearch(names, name);
+    return module >= 0 && nameIndex >= 0 && Arrays.binarySearch(definitions, definitionsStart[module], definitionsStart[module + 1], nameIndex) >= 0;
+  }
+
+  /**
+   * True when the qualified name is the one of a module of the project ("a.b" for "a/b.py" or "a/b/__init__.py"),
+   * or of a top-level definition of a module of the project ("a.b" for "b" in "a.py").
+   */
+  public boolean isResolvable(String qualifiedName) {
+    int lastDot = qualifiedName.lastIndexOf('.');
+    return hasModule(qualifiedName) || (lastDot > 0 && isDefined(qualifiedName.substring(0, lastDot), qualifiedName.substring(lastDot + 1)));
+  }
+
+  /**
+   * Sorted names bound at the top level of the module, empty when the module is not in the project.
+   */
+  public List<String> definitions(String moduleName) {
+    int module = moduleIndex(moduleName);
+    return module < 0 ? names(definitions, 0, 0) : names(definitions, definitionsStart[module], definitionsStart[module + 1]);
+  }
+
+  /**
+   * Sorted names of the modules imported by the module, relative imports being resolved, empty when the module is not in the project.
+   */
+  public List<String> imports(String moduleName) {
+    int module = moduleIndex(moduleName);
+    return module < 0 ? names(imports, 0, 0) : names(imports, importsStart[module], importsStart[module + 1]);
+  }
+
+  private int moduleIndex(String moduleName) {
+    int nameIndex = Arrays.binarySearch(names, moduleName);
+    return nameIndex < 0 ? -1 : Arrays.binarySearch(modules, nameIndex);
+  }
+
+  private List<String> names(int[] nameIndexes, int from, int to) {
+    return new AbstractList<String>() {
+      @Override
+      public String get(int index) {
+        if (index < 0 || index >= size()) {
+          throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return names[nameIndexes[from + index]];
+      }
+
+      @Override
+      public int size() {
+        return to - from;
+      }
+    };
+  }
+
+  /**
+   * Collects the summaries of the modules. When several files have the same module name (ex: modules outside of
+   * packages in different directories), their definitions and imports are merged.
+   */
+  public static class Builder {
+
+    private final Map<String, SortedSet<String>> definitionsByModule = new TreeMap<>();
+    private final Map<String, SortedSet<String>> importsByModule = new TreeMap<>();
+
+    /**
+     * @param moduleName qualified name of the module, ex: "a.b" for "a/b.py" or "a/b/__init__.py"
+     * @param isPackage true for the "__init__.py" file of a package, relative imports are then relative to the module itself
+     */
+    public Builder add(String moduleName, boolean isPackage, ModuleSummary summary) {
+      definitionsByModule.computeIfAbsent(moduleName, name -> new TreeSet<>()).addAll(summary.definitions());
+      SortedSet<String> moduleImports = importsByModule.computeIfAbsent(moduleName, name -> new TreeSet<>());
+      String packageName = isPackage ? moduleName : parent(moduleName);
+      for (String importedModule : summary.imports()) {
+        moduleImports.add(absoluteModuleName(packageName, importedModule));
+      }
+      return this;
+    }
+
+    /**
+     * "..b" imported from package "x.y" is "x.b", "." is "x.y".
+     */
+    static String absoluteModuleName(String packageName, String importedModule) {
+      if (!importedModule.startsWith(".")) {
+        return importedModule;
+      }
+      int dots = 1;
+      while (dots < importedModule.length() && importedModule.charAt(dots) == '.') {
+        dots++;
+      }
+      String base = packageName;
+      for (int i = 1; i < dots; i++) {
+        base = parent(base);
+      }
+      String relativeName = importedModule.substring(dots);
+      if (base.isEmpty()) {
+        return relativeName.isEmpty() ? importedModule : relativeName;
+      }
+      return relativeName.isEmpty() ? base : (base + "." + relativeName);
+    }
+
+    private static String parent(String moduleName) {
+      int lastDot = moduleName.lastIndexOf('.');
+      return lastDot < 0 ? "" : moduleName.substring(0, lastDot);
+    }
+
+    public ProjectIndex build() {
+      SortedSet<String> allNames = new TreeSet<>(definitionsByModule.keySet());
+      definitionsByModule.values().forEach(allNames::addAll);
+      importsByModule.values().forEach(allNames::addAll);
+      String[] names = allNames.toArray(new String[0]);
+
+      int[] modules = new int[definitionsByModule.size()];
+      int[] definitionsStart = new int[modules.length + 1];
+      int[] importsStart = new int[modules.length + 1];
+      int moduleIndex = 0;
+      for (Map.Entry<String, SortedSet<String>> entry : definitionsByModule.entrySet()) {
+        modules[moduleIndex] = Arrays.binarySearch(names, entry.getKey());
+        definitionsStart[moduleIndex + 1] = definitionsStart[moduleIndex] + entry.getValue().size();
+        importsStart[moduleIndex + 1] = importsStart[moduleIndex] + importsByModule.get(entry.getKey()).size();
+        moduleIndex++;
+      }
+      int[] definitions = new int[definitionsStart[modules.length]];
+      int[] imports = new int[importsStart[modules.length]];
+      moduleIndex = 0;
+      for (Map.Entry<String, SortedSet<String>> entry : definitionsByModule.entrySet()) {
+        fillIndexes(names, entry.getValue(), definitions, definitionsStart[moduleIndex]);
+        fillIndexes(names, importsByModule.get(entry.getKey()), imports, importsStart[moduleIndex]);
+        moduleIndex++;
+      }
+      return new ProjectIndex(names, modules, definitionsStart, definitions, importsStart, imports);
+    }
+
+    // names are sorted, so the indexes of a sorted set of names are sorted
+    private static void fillIndexes(String[] names, SortedSet<String> values, int[] indexes, int start) {
+      int i = start;
+      for (String value : values) {
+        indexes[i] = Arrays.binarySearch(names, value);
+        i++;
+      }
+    }
+  }
+
+}
@@ -21,14 +21,18 @@ package org.sonar.python.semantic;
 
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.python.PythonVisitor;
@@ -37,12 +41,22 @@ import org.sonar.python.api.PythonGrammar;
 import org.sonar.python.api.PythonPunctuator;
 import org.sonar.sslr.ast.AstSelect;
 
+/**
+ * Builds the symbol table of a file in two walks of the syntax tree: the first one creates the scopes and the
+ * symbols from their write usages (assignments, parameters, loop variables, imports), the second one binds the
+ * read usages.
+ * <p>
+ * The value assigned to a class variable is evaluated when the class body is executed: the names it reads are
+ * bound to the symbols declared before the assignment when there is one, see {@link ClassVariableValue}.
+ */
 public class SymbolTableBuilderVisitor extends PythonVisitor {
 
   private Map<AstNode, Scope> scopesByRootTree;
-  private Set<AstNode> allReadUsages;
-  private Map<String, Module> importedModules = new HashMap<>();
-  private Map<AstNode, Symbol> symbolByNode = new HashMap<>();
+  private Map<String, Module> importedModules;
+  private Map<AstNode, Symbol> symbolByNode;
+  private Map<AstNode, SymbolImpl> symbolByWriteUsage;
+  private Map<AstNode, ClassVariableValue> classVariableValues;
+  private int declarationCount;
 
   public SymbolTable symbolTable() {
     return new SymbolTablImpl(scopesByRootTree, symbolByNode);
@@ -50,111 +64,139 @@ public class SymbolTableBuilderVisitor extends PythonVisitor {
 
   @Override
   public void scanFile(PythonVisitorContext context) {
-    super.scanFile(context);
-    new FirstPhaseVisitor().scanFile(context);
-    new SecondPhaseVisitor().scanFile(context);
+    AstNode tree = context.rootTree();
+    if (tree != null) {
+      visitFile(tree);
+      new DeclarationVisitor().scanFile(tree);
+      new ReadUsageVisitor().scanFile(tree);
+    }
   }
 
   @Override
   public void visitFile(AstNode node) {
     scopesByRootTree = new HashMap<>();
-    allReadUsages = new HashSet<>();
+    importedModules = new HashMap<>();
+    symbolByNode = new HashMap<>();
+    symbolByWriteUsage = new HashMap<>();
+    classVariableValues = new HashMap<>();
+    declarationCount = 0;
   }
 
-  private static class ScopeVisitor extends PythonVisitor {
+  private static boolean isScopeRootTree(AstNode node) {
+    AstNodeType type = node.getType();
+    return type == PythonGrammar.FUNCDEF || type == PythonGrammar.CLASSDEF || type == PythonGrammar.LAMBDEF || type == PythonGrammar.LAMBDEF_NOCOND;
+  }
 
-    private Deque<AstNode> scopeRootTrees = new LinkedList<>();
+  /**
+   * Depth-first walk of the syntax tree which keeps track of the current scope and of the class variable value
+   * in which the current node is.
+   */
+  private abstract class ScopeVisitor {
 
-    @Override
-    public void visitFile(AstNode node) {
-      enterScope(node);
-    }
+    private final Deque<Scope> scopes = new ArrayDeque<>();
+    @Nullable
+    ClassVariableValue classVariableValue;
 
-    public void enterScope(AstNode node) {
-      scopeRootTrees.push(node);
+    void scanFile(AstNode tree) {
+      scopes.push(scopesByRootTree.get(tree));
+      for (AstNode child : tree.getChildren()) {
+        scan(child);
+      }
     }
 
-    @Override
-    public void visitNode(AstNode node) {
-      if (node.is(PythonGrammar.FUNCDEF, PythonGrammar.CLASSDEF, PythonGrammar.LAMBDEF, PythonGrammar.LAMBDEF_NOCOND)) {
-        enterScope(node);
+    private void scan(AstNode node) {
+      ClassVariableValue value = null;
+      if (classVariableValue == null && currentScope().isClassScope()) {
+        value = classVariableValues.get(node);
+        if (value != null) {
+          enterClassVariableValue(value);
+          classVariableValue = value;
+        }
       }
-    }
 
-    @Override
-    public void leaveNode(AstNode node) {
-      if (node.is(PythonGrammar.FUNCDEF, PythonGrammar.CLASSDEF, PythonGrammar.LAMBDEF, PythonGrammar.LAMBDEF_NOCOND)) {
-        scopeRootTrees.pop();
+      visitNode(node);
+
+      Scope scope = isScopeRootTree(node) ? scopesByRootTree.get(node) : null;
+      if (scope != null) {
+        scopes.push(scope);
+      }
+      for (AstNode child : node.getChildren()) {
+        scan(child);
+      }
+      if (scope != null) {
+        scopes.pop();
       }
-    }
 
-    public AstNode currentScopeRootTree() {
-      return scopeRootTrees.peek();
+      if (value != null) {
+        leaveClassVariableValue(value);
+        classVariableValue = null;
+      }
     }
 
-  }
+    abstract void visitNode(AstNode node);
 
-  private class FirstPhaseVisitor extends ScopeVisitor {
+    void enterClassVariableValue(ClassVariableValue value) {
+      // default implementation does nothing
+    }
 
-    @Override
-    public Set<AstNodeType> subscribedKinds() {
-      Set<AstNodeType> set = new HashSet<>();
-      set.add(PythonGrammar.FUNCDEF);
-      set.add(PythonGrammar.LAMBDEF);
-      set.add(PythonGrammar.LAMBDEF_NOCOND);
-      set.add(PythonGrammar.FOR_STMT);
-      set.add(PythonGrammar.COMP_FOR);
-      set.add(PythonGrammar.CLASSDEF);
-      set.add(PythonGrammar.EXPRESSION_STMT);
-      set.add(PythonGrammar.GLOBAL_STMT);
-      set.add(PythonGrammar.NONLOCAL_STMT);
-      set.add(PythonGrammar.IMPORT_STMT);
-      set.add(PythonGrammar.ATTRIBUTE_REF);
-      return Collections.unmodifiableSet(set);
+    void leaveClassVariableValue(ClassVariableValue value) {
+      // default implementation does nothing
     }
 
-    @Override
-    public void visitFile(AstNode node) {
-      super.visitFile(node);
-      createScope(node, null);
+    Scope currentScope() {
+      return scopes.peek();
     }
 
-    @Override
-    public void visitNode(AstNode node) {
-      Scope currentScope = currentScope();
+  }
 
-      super.visitNode(node);
+  private class DeclarationVisitor extends ScopeVisitor {
 
-      if (node.is(PythonGrammar.FUNCDEF)) {
-        createScope(node, currentScope);
-        createFunctionParameters(node);
+    @Override
+    void scanFile(AstNode tree) {
+      scopesByRootTree.put(tree, new Scope(null, tree));
+      super.scanFile(tree);
+    }
+
+    @Override
+    void visitNode(AstNode node) {
+      AstNodeType type = node.getType();
+      if (type == PythonGrammar.FUNCDEF) {
+        createFunctionParameters(node, createScope(node));
 
-      } else if (node.is(PythonGrammar.LAMBDEF, PythonGrammar.LAMBDEF_NOCOND)) {
-        createScope(node, currentScope);
-        createLambdaParameters(node);
+      } else if (type == PythonGrammar.LAMBDEF || type == PythonGrammar.LAMBDEF_NOCOND) {
+        createLambdaParameters(node, createScope(node));
 
-      } else if (node.is(PythonGrammar.FOR_STMT, PythonGrammar.COMP_FOR)) {
+      } else if (type == PythonGrammar.FOR_STMT || type == PythonGrammar.COMP_FOR) {
         createLoopVariables(node);
 
-      } else if (node.is(PythonGrammar.CLASSDEF)) {
-        createScope(node, currentScope);
+      } else if (type == PythonGrammar.CLASSDEF) {
+        createScope(node);
 
-      } else if (node.is(PythonGrammar.EXPRESSION_STMT)) {
+      } else if (type == PythonGrammar.EXPRESSION_STMT) {
         visitAssignment(node);
 
-      } else if (node.is(PythonGrammar.GLOBAL_STMT)) {
+      } else if (type == PythonGrammar.GLOBAL_STMT) {
         node.getChildren(PythonGrammar.NAME).forEach(name -> currentScope().addGlobalName(name.getTokenValue()));
 
-      } else if (node.is(PythonGrammar.NONLOCAL_STMT)) {
+      } else if (type == PythonGrammar.NONLOCAL_STMT) {
         node.getChildren(PythonGrammar.NAME).forEach(name -> currentScope().addNonlocalName(name.getTokenValue()));
 
-      } else if (node.is(PythonGrammar.IMPORT_STMT)) {
+      } else if (type == PythonGrammar.IMPORT_STMT) {
         visitImportStatement(node);
 
-      } else if (node.is(PythonGrammar.ATTRIBUTE_REF)) {
+      } else if (type == PythonGrammar.ATTRIBUTE_REF) {
         addSymbolForAttributeRef(node);
       }
+    }
 
+    @Override
+    void enterClassVariableValue(ClassVariableValue value) {
+      value.enter(declarationCount);
+    }
+
+    @Override
+    void leaveClassVariableValue(ClassVariableValue value) {
+      value.leave(declarationCount);
     }
 
     /**
@@ -164,21 +206,15 @@ public class SymbolTableBuilderVisitor extends PythonVisitor {
      * see {@link SymbolTable#getSymbol(AstNode)}
      */
     private void addSymbolForAttributeRef(AstNode attributeRef) {
-      String symbolName = attributeRef.getChildren(PythonGrammar.ATOM, PythonGrammar.NAME).stream()
-        .map(AstNode::getTokenValue)
-        .collect(Collectors.joining( "." ));
-      String propertyName = attributeRef.getLastChild(PythonGrammar.NAME).getTokenValue();
-      String namespace = symbolName.replaceAll("\\." + propertyName, "");
-      Module module = importedModules.get(namespace);
+      String symbolName = attributeRefName(attributeRef);
+      int lastDot = symbolName.lastIndexOf('.');
+      Module module = importedModules.get(symbolName.substring(0, lastDot));
       if (module != null) {
-        SymbolImpl symbol = module.scope.resolve(symbolName);
+        SymbolImpl symbol = module.scope.resolve(symbolName, null);
         if (symbol == null) {
-          String qualifiedName = qualifiedName(module.name, propertyName);
-          symbol = new SymbolImpl(symbolName, module.scope.rootTree, qualifiedName);
-          module.scope.symbols.add(symbol);
-          module.scope.symbolsByName.put(symbolName, symbol);
+          symbol = module.scope.createSymbol(symbolName, qualifiedName(module.name, symbolName.substring(lastDot + 1)));
         }
-        symbol.addReadUsage(attributeRef);
+        symbol.readUsages.add(attributeRef);
         symbolByNode.put(attributeRef, symbol);
       }
     }
@@ -204,9 +240,7 @@ public class SymbolTableBuilderVisitor extends PythonVisitor {
       } else if (node.is(PythonGrammar.IMPORT_FROM)) {
         AstNode dottedName = node.getFirstChild(PythonGrammar.DOTTED_NAME);
         if (dottedName != null) {
-          String moduleName = dottedName.getChildren(PythonGrammar.NAME).stream()
-            .map(AstNode::getTokenValue)
-            .collect(Collectors.joining("."));
+          String moduleName = joinNames(dottedName, null);
           node.getDescendants(PythonGrammar.IMPORT_AS_NAME).forEach(
             importAsName -> {
               // ignore import that contains aliases
@@ -219,40 +253,43 @@ public class SymbolTableBuilderVisitor extends PythonVisitor {
     }
 
     private void addImportedSymbols(AstNode moduleNameNode, @Nullable AstNode aliasNode) {
-      String moduleName = moduleNameNode.getChildren(PythonGrammar.NAME).stream()
-        .map(AstNode::getTokenValue)
-        .collect(Collectors.joining("."));
+      String moduleName = joinNames(moduleNameNode, null);
       if (aliasNode != null) {
-        currentScope().addWriteUsage(aliasNode);
+        currentScope().addWriteUsage(aliasNode, null);
         String alias = aliasNode.getTokenValue();
         importedModules.put(alias, new Module(moduleName, currentScope(), alias));
       } else {
-        currentScope().addWriteUsage(moduleNameNode);
+        currentScope().addWriteUsage(moduleNameNode, null);
         importedModules.put(moduleName, new Module(moduleName, currentScope(), null));
       }
     }
 
     private void visitAssignment(AstNode node) {
+      boolean isClassScope = currentScope().isClassScope();
+      ClassVariableValue previousValue = null;
       for (AstNode assignOperator : node.getChildren(PythonPunctuator.ASSIGN, PythonGrammar.AUGASSIGN, PythonGrammar.ANNASSIGN)) {
         AstNode target = assignOperator.getPreviousSibling();
         if (assignOperator.is(PythonGrammar.ANNASSIGN)) {
           assignOperator = assignOperator.getFirstChild(PythonPunctuator.ASSIGN);
         }
         if (assignOperator != null) {
-          if (currentScopeRootTree().is(PythonGrammar.CLASSDEF)) {
-            FirstPhaseVisitor firstPhaseVisitor = new FirstPhaseVisitor();
-            firstPhaseVisitor.enterScope(currentScopeRootTree());
-            firstPhaseVisitor.scanNode(assignOperator.getNextSibling());
-            new ClassVariableAssignmentVisitor(currentScopeRootTree()).scanNode(assignOperator.getNextSibling());
+          AstNode targetName = isSingleToken(target) ? target.getFirstDescendant(PythonGrammar.NAME) : null;
+          if (isClassScope) {
+            if (previousValue != null) {
+              previousValue.nextTargetName = targetName;
+            }
+            ClassVariableValue value = new ClassVariableValue(declarationCount, previousValue);
+            classVariableValues.put(assignOperator.getNextSibling(), value);
+            previousValue = value;
           }
-          if (target.getTokens().size() == 1) {
-            addWriteUsage(target.getFirstDescendant(PythonGrammar.NAME));
+          if (targetName != null) {
+            currentScope().addWriteUsage(targetName, null);
           }
         }
       }
     }
 
-    private void createFunctionParameters(AstNode functionTree) {
+    private void createFunctionParameters(AstNode functionTree, Scope functionScope) {
       AstNode parameters = functionTree.getFirstChild(PythonGrammar.TYPEDARGSLIST);
       if (parameters == null) {
         return;
@@ -261,39 +298,140 @@ public class SymbolTableBuilderVisitor extends PythonVisitor {
         .descendants(PythonGrammar.TFPDEF)
         .children(PythonGrammar.NAME);
       for (AstNode parameterName : parameterNames) {
-        addWriteUsage(parameterName);
+        functionScope.addWriteUsage(parameterName, null);
       }
     }
 
-    private void createLambdaParameters(AstNode functionTree) {
+    private void createLambdaParameters(AstNode functionTree, Scope lambdaScope) {
       AstNode parameters = functionTree.getFirstChild(PythonGrammar.VARARGSLIST);
       if (parameters == null) {
         return;
       }
 
-      parameters.getChildren(PythonGrammar.NAME).forEach(this::addWriteUsage);
+      parameters.getChildren(PythonGrammar.NAME).forEach(name -> lambdaScope.addWriteUsage(name, null));
       parameters.getDescendants(PythonGrammar.FPDEF).stream()
         .flatMap(paramDef -> paramDef.getChildren(PythonGrammar.NAME).stream())
-        .forEach(this::addWriteUsage);
+        .forEach(name -> lambdaScope.addWriteUsage(name, null));
     }
 
     private void createLoopVariables(AstNode loopTree) {
       AstNode target = loopTree.getFirstChild(PythonGrammar.EXPRLIST);
-      if (target.getTokens().size() == 1) {
-        addWriteUsage(target.getFirstDescendant(PythonGrammar.NAME));
+      if (isSingleToken(target)) {
+        currentScope().addWriteUsage(target.getFirstDescendant(PythonGrammar.NAME), null);
+      }
+    }
+
+    private Scope createScope(AstNode node) {
+      Scope scope = new Scope(currentScope(), node);
+      scopesByRootTree.put(node, scope);
+      return scope;
+    }
+
+  }
+
+  /**
+   * Read usages have to be visited in a second phase.
+   * They can't be visited in the same phase as write usages,
+   * since a read usage may appear in the syntax tree "before" it's declared (written).
+   */
+  private class ReadUsageVisitor extends ScopeVisitor {
+
+    @Override
+    void visitNode(AstNode node) {
+      AstNodeType type = node.getType();
+      if (type == PythonGrammar.ATOM || type == PythonGrammar.DOTTED_NAME) {
+        AstNode nameNode = node.getFirstChild(PythonGrammar.NAME);
+        if (nameNode != null) {
+          addReadUsage(node, nameNode);
+        }
+      } else if (type == PythonGrammar.CALL_EXPR) {
+        addSymbolForCallExpression(node);
+      }
+    }
+
+    private void addReadUsage(AstNode node, AstNode nameNode) {
+      SymbolImpl symbol = classVariableValue == null ? null : readSymbol(nameNode, classVariableValue);
+      if (symbol == null) {
+        symbol = readSymbol(nameNode, null);
+      }
+      if (symbol != null) {
+        symbol.readUsages.add(nameNode);
+        symbolByNode.put(node, symbol);
+      }
+    }
+
+    @CheckForNull
+    private SymbolImpl readSymbol(AstNode nameNode, @Nullable ClassVariableValue value) {
+      SymbolImpl symbol = currentScope().resolve(nameNode.getTokenValue(), value);
+      boolean isWriteUsage = symbol != null && symbolByWriteUsage.get(nameNode) == symbol && (value == null || nameNode != value.nextTargetName);
+      return isWriteUsage ? null : symbol;
+    }
+
+    /**
+     * This is used by rules to easily retrieve the symbol of a function from AstNode of type CALL_EXPR
+     * see {@link SymbolTable#getSymbol(AstNode)}
+     */
+    private void addSymbolForCallExpression(AstNode node) {
+      AstNode firstChild = node.getFirstChild();
+      String symbolName;
+      if (firstChild.is(PythonGrammar.ATTRIBUTE_REF)) {
+        symbolName = attributeRefName(firstChild);
+      } else if (firstChild.is(PythonGrammar.ATOM)) {
+        symbolName = firstChild.getTokenValue();
+      } else {
+        return;
+      }
+      boolean isNameCall = firstChild.is(PythonGrammar.ATOM);
+      if (classVariableValue != null) {
+        addCallUsage(node, currentScope().resolve(symbolName, classVariableValue), isNameCall);
+      }
+      addCallUsage(node, currentScope().resolve(symbolName, null), isNameCall);
+    }
+
+    private void addCallUsage(AstNode callExpr, @Nullable SymbolImpl symbol, boolean isNameCall) {
+      if (symbol != null && symbolByNode.put(callExpr, symbol) != symbol && isNameCall) {
+        symbol.readUsages.add(callExpr);
       }
     }
 
-    private void createScope(AstNode node, @Nullable Scope parent) {
-      scopesByRootTree.put(node, new Scope(parent, node));
+  }
+
+  /**
+   * The value assigned to a class variable, with the declarations which are visible from it when the assignment is
+   * executed: the ones which precede the assignment, and the ones inside the values of the assignment statement
+   * (loop variables of comprehensions, parameters of lambdas...).
+   * <p>
+   * Declarations are numbered in the order of the first walk. When a name of the value resolves to a visible
+   * declaration, it is bound to it; otherwise it is resolved like any other name, against all the declarations of the file.
+   */
+  private static class ClassVariableValue {
+
+    private final int declaredBefore;
+    @Nullable
+    private final ClassVariableValue previousValue;
+    private int valuesStart;
+    private int valuesEnd;
+    /**
+     * Name written by the next operator of a chained assignment like `a = b = 1`: `b` is written after `a = b` is evaluated.
+     */
+    @Nullable
+    private AstNode nextTargetName;
+
+    private ClassVariableValue(int declaredBefore, @Nullable ClassVariableValue previousValue) {
+      this.declaredBefore = declaredBefore;
+      this.previousValue = previousValue;
+    }
+
+    private void enter(int declarationCount) {
+      valuesStart = previousValue == null ? declarationCount : previousValue.valuesStart;
     }
 
-    private void addWriteUsage(AstNode nameNode) {
-      currentScope().addWriteUsage(nameNode);
+    private void leave(int declarationCount) {
+      valuesEnd = declarationCount;
     }
 
-    private Scope currentScope() {
-      return scopesByRootTree.get(currentScopeRootTree());
+    private boolean isVisible(int declarationIndex) {
+      return declarationIndex < declaredBefore || (declarationIndex >= valuesStart && declarationIndex < valuesEnd);
     }
 
   }
@@ -326,10 +464,9 @@ public class SymbolTableBuilderVisitor extends PythonVisitor {
 
     private final AstNode rootTree;
     private final Scope parent;
-    private final Map<String, Symbol> symbolsByName = new HashMap<>();
-    private final Set<Symbol> symbols = new HashSet<>();
-    private final Set<String> globalNames = new HashSet<>();
-    private final Set<String> nonlocalNames = new HashSet<>();
+    private final Map<String, SymbolImpl> symbolsByName = new LinkedHashMap<>();
+    private final Map<String, Integer> globalNames = new HashMap<>();
+    private final Map<String, Integer> nonlocalNames = new HashMap<>();
 
     private Scope(@Nullable Scope parent, AstNode rootTree) {
       this.parent = parent;
@@ -337,48 +474,57 @@ public class SymbolTableBuilderVisitor extends PythonVisitor {
     }
 
     private Set<Symbol> symbols() {
-      return Collections.unmodifiableSet(symbols);
+      return new DistinctElements<>(symbolsByName.values());
+    }
+
+    private boolean isClassScope() {
+      return rootTree.getType() == PythonGrammar.CLASSDEF;
     }
 
-    public void addWriteUsage(AstNode nameNode) {
-      addWriteUsage(nameNode, null);
+    private SymbolImpl createSymbol(String symbolName, @Nullable String qualifiedName) {
+      SymbolImpl symbol = new SymbolImpl(symbolName, rootTree, qualifiedName, declarationCount);
+      declarationCount++;
+      symbolsByName.put(symbolName, symbol);
+      return symbol;
     }
 
-    public void addWriteUsage(AstNode nameNode, @Nullable String moduleName) {
+    private void addWriteUsage(AstNode nameNode, @Nullable String moduleName) {
       String symbolName = nameNode.getTokenValue();
-      if (!symbolsByName.containsKey(symbolName) && !globalNames.contains(symbolName) && !nonlocalNames.contains(symbolName)) {
-        SymbolImpl symbol = new SymbolImpl(symbolName, rootTree, qualifiedName(moduleName, symbolName));
-        symbols.add(symbol);
-        symbolsByName.put(symbolName, symbol);
-        symbolByNode.put(nameNode, symbol);
+      if (!symbolsByName.containsKey(symbolName) && !globalNames.containsKey(symbolName) && !nonlocalNames.containsKey(symbolName)) {
+        symbolByNode.put(nameNode, createSymbol(symbolName, qualifiedName(moduleName, symbolName)));
       }
-      SymbolImpl symbol = resolve(symbolName);
+      SymbolImpl symbol = resolve(symbolName, null);
       if (symbol != null) {
-        symbol.addWriteUsage(nameNode);
+        symbol.writeUsages.add(nameNode);
+        symbolByWriteUsage.put(nameNode, symbol);
       }
     }
 
+    /**
+     * @param value when not null, only the declarations visible from this class variable value are considered
+     */
     @CheckForNull
-    public SymbolImpl resolve(String symbolName) {
-      if (nonlocalNames.contains(symbolName)) {
-        return resolveNonlocal(symbolName);
+    private SymbolImpl resolve(String symbolName, @Nullable ClassVariableValue value) {
+      if (isDeclared(nonlocalNames, symbolName, value)) {
+        return resolveNonlocal(symbolName, value);
       }
-      Symbol symbol = symbolsByName.get(symbolName);
+      SymbolImpl symbol = visible(symbolsByName.get(symbolName), value);
       if (parent == null || symbol != null) {
-        return (SymbolImpl) symbol;
+        return symbol;
       }
-      if (globalNames.contains(symbolName)) {
-        return rootScope().resolve(symbolName);
+      if (isDeclared(globalNames, symbolName, value)) {
+        return rootScope().resolve(symbolName, value);
       }
-      return parent.resolve(symbolName);
+      return parent.resolve(symbolName, value);
     }
 
-    private SymbolImpl resolveNonlocal(String symbolName) {
+    @CheckForNull
+    private SymbolImpl resolveNonlocal(String symbolName, @Nullable ClassVariableValue value) {
       Scope scope = parent;
       while (scope.parent != null) {
-        Symbol symbol = scope.symbolsByName.get(symbolName);
+        SymbolImpl symbol = visible(scope.symbolsByName.get(symbolName), value);
         if (symbol != null) {
-          return (SymbolImpl) symbol;
+          return symbol;
         }
         scope = scope.parent;
       }
@@ -394,12 +540,52 @@ public class SymbolTableBuilderVisitor extends PythonVisitor {
     }
 
     private void addGlobalName(String name) {
-      globalNames.add(name);
+      globalNames.putIfAbsent(name, declarationCount);
+      declarationCount++;
     }
 
     private void addNonlocalName(String name) {
-      nonlocalNames.add(name);
+      nonlocalNames.putIfAbsent(name, declarationCount);
+      declarationCount++;
+    }
+  }
+
+  private static boolean isDeclared(Map<String, Integer> names, String name, @Nullable ClassVariableValue value) {
+    Integer declarationIndex = names.get(name);
+    return declarationIndex != null && (value == null || value.isVisible(declarationIndex));
+  }
+
+  @CheckForNull
+  private static SymbolImpl visible(@Nullable SymbolImpl symbol, @Nullable ClassVariableValue value) {
+    return symbol == null || value == null || value.isVisible(symbol.declarationIndex) ? symbol : null;
+  }
+
+  /**
+   * True when the node has a single token: compares the first and the last token instead of collecting all the tokens.
+   */
+  private static boolean isSingleToken(AstNode node) {
+    return node.getToken() == node.getLastToken();
+  }
+
+  /**
+   * Name of the symbol of an ATTRIBUTE_REF like `myModuleName.f`: its dotted names, the first one being the first token of the ATOM.
+   */
+  private static String attributeRefName(AstNode attributeRef) {
+    return joinNames(attributeRef, attributeRef.getFirstChild().getTokenValue());
+  }
+
+  private static String joinNames(AstNode node, @Nullable String prefix) {
+    StringBuilder name = new StringBuilder();
+    if (prefix != null) {
+      name.append(prefix);
     }
+    for (AstNode child : node.getChildren(PythonGrammar.NAME)) {
+      if (name.length() > 0) {
+        name.append('.');
+      }
+      name.append(child.getTokenValue());
+    }
+    return name.toString();
   }
 
   @CheckForNull
@@ -412,13 +598,15 @@ public class SymbolTableBuilderVisitor extends PythonVisitor {
     private final String name;
     private final String qualifiedName;
     private final AstNode scopeRootTree;
-    private final Set<AstNode> writeUsages = new HashSet<>();
-    private final Set<AstNode> readUsages = new HashSet<>();
+    private final int declarationIndex;
+    private final List<AstNode> writeUsages = new ArrayList<>(1);
+    private final List<AstNode> readUsages = new ArrayList<>(2);
 
-    private SymbolImpl(String name, AstNode scopeRootTree, @Nullable String qualifiedName) {
+    private SymbolImpl(String name, AstNode scopeRootTree, @Nullable String qualifiedName, int declarationIndex) {
       this.name = name;
       this.scopeRootTree = scopeRootTree;
       this.qualifiedName = qualifiedName;
+      this.declarationIndex = declarationIndex;
     }
 
     @Override
@@ -433,12 +621,12 @@ public class SymbolTableBuilderVisitor extends PythonVisitor {
 
     @Override
     public Set<AstNode> writeUsages() {
-      return Collections.unmodifiableSet(writeUsages);
+      return new DistinctElements<>(writeUsages);
     }
 
     @Override
     public Set<AstNode> readUsages() {
-      return Collections.unmodifiableSet(readUsages);
+      return new DistinctElements<>(readUsages);
     }
 
     @Override
@@ -448,85 +636,28 @@ public class SymbolTableBuilderVisitor extends PythonVisitor {
       }
       return qualifiedName;
     }
-
-    public void addWriteUsage(AstNode nameNode) {
-      writeUsages.add(nameNode);
-    }
-
-    public void addReadUsage(AstNode nameNode) {
-      readUsages.add(nameNode);
-    }
   }
 
   /**
-   * Read usages have to be visited in a second phase.
-   * They can't be visited in the same phase as write usages,
-   * since a read usage may appear in the syntax tree "before" it's declared (written).
+   * Read-only set view of a collection in which an element is never added twice: usages are kept in small lists
+   * rather than in hash sets, most symbols having only a few of them.
    */
-  private class SecondPhaseVisitor extends ScopeVisitor {
+  private static class DistinctElements<T> extends AbstractSet<T> {
 
-    @Override
-    public Set<AstNodeType> subscribedKinds() {
-      Set<AstNodeType> set = new HashSet<>();
-      set.add(PythonGrammar.FUNCDEF);
-      set.add(PythonGrammar.LAMBDEF);
-      set.add(PythonGrammar.LAMBDEF_NOCOND);
-      set.add(PythonGrammar.CLASSDEF);
-      set.add(PythonGrammar.ATOM);
-      set.add(PythonGrammar.DOTTED_NAME);
-      set.add(PythonGrammar.CALL_EXPR);
-      return Collections.unmodifiableSet(set);
-    }
+    private final Collection<? extends T> elements;
 
-    @Override
-    public void visitNode(AstNode node) {
-      super.visitNode(node);
-      if (node.is(PythonGrammar.ATOM, PythonGrammar.DOTTED_NAME)) {
-        AstNode nameNode = node.getFirstChild(PythonGrammar.NAME);
-        if (nameNode != null) {
-          Scope currentScope = scopesByRootTree.get(currentScopeRootTree());
-          SymbolImpl symbol = currentScope.resolve(nameNode.getTokenValue());
-          if (symbol != null && !symbol.writeUsages.contains(nameNode) && !allReadUsages.contains(nameNode)) {
-            symbol.addReadUsage(nameNode);
-            allReadUsages.add(nameNode);
-            symbolByNode.put(node, symbol);
-          }
-        }
-      } else if (node.is(PythonGrammar.CALL_EXPR)) {
-        addSymbolForCallExpression(node);
-      }
+    private DistinctElements(Collection<? extends T> elements) {
+      this.elements = elements;
     }
 
-    /**
-     * This is used by rules to easily retrieve the symbol of a function from AstNode of type CALL_EXPR
-     * see {@link SymbolTable#getSymbol(AstNode)}
-     */
-    private void addSymbolForCallExpression(AstNode node) {
-      Scope currentScope = scopesByRootTree.get(currentScopeRootTree());
-      String symbolName = "";
-      AstNode firstChild = node.getFirstChild();
-      if (firstChild.is(PythonGrammar.ATTRIBUTE_REF)) {
-        symbolName = firstChild.getChildren(PythonGrammar.ATOM, PythonGrammar.NAME).stream()
-          .map(AstNode::getTokenValue)
-          .collect(Collectors.joining( "." ));
-      } else if(firstChild.is(PythonGrammar.ATOM)) {
-        symbolName = firstChild.getTokenValue();
-      }
-      SymbolImpl symbol = currentScope.resolve(symbolName);
-      if (symbol != null) {
-        if (firstChild.is(PythonGrammar.ATOM)) {
-          symbol.addReadUsage(node);
-        }
-        symbolByNode.put(node, symbol);
-      }
+    @Override
+    public Iterator<T> iterator() {
+      return Collections.<T>unmodifiableCollection(elements).iterator();
     }
 
-  }
-
-  private class ClassVariableAssignmentVisitor extends SecondPhaseVisitor {
-
-    public ClassVariableAssignmentVisitor(AstNode classTree) {
-      enterScope(classTree);
+    @Override
+    public int size() {
+      return elements.size();
     }
 
   }
@@ -34,24 +34,24 @@ public class MetricsVisitorTest {
   public void test() {
     MetricsVisitor visitor = metricsVisitor(new File(BASE_DIR, "file_lines.py"), false);
 
-    assertThat(visitor.getLinesOfCode()).hasSize(12);
-    assertThat(visitor.getLinesOfCode()).containsOnly(2, 4, 7, 8, 9, 10, 11, 12, 14, 15, 17, 21);
+    assertThat(visitor.getLinesOfCode().toArray()).hasSize(12);
+    assertThat(visitor.getLinesOfCode().toArray()).containsOnly(2, 4, 7, 8, 9, 10, 11, 12, 14, 15, 17, 21);
 
     assertThat(visitor.getCommentLineCount()).isEqualTo(9);
 
-    assertThat(visitor.getLinesWithNoSonar()).containsOnly(11);
+    assertThat(visitor.getLinesWithNoSonar().toArray()).containsOnly(11);
   }
 
   @Test
   public void test_ignoreHeaderComments() {
     // do not ignoreHeaderComments
     MetricsVisitor visitor = metricsVisitor(new File(BASE_DIR, "file_lines_header_comments.py"), false);
-    assertThat(visitor.getLinesOfCode()).containsOnly(6, 8);
+    assertThat(visitor.getLinesOfCode().toArray()).containsOnly(6, 8);
     assertThat(visitor.getCommentLineCount()).isEqualTo(4);
 
     // ignoreHeaderComments
     visitor = metricsVisitor(new File(BASE_DIR, "file_lines_header_comments.py"), true);
-    assertThat(visitor.getLinesOfCode()).containsOnly(6, 8);
+    assertThat(visitor.getLinesOfCode().toArray()).containsOnly(6, 8);
     assertThat(visitor.getCommentLineCount()).isEqualTo(1);
   }
 
@@ -59,7 +59,16 @@ public class MetricsVisitorTest {
   public void executable_lines() {
     MetricsVisitor visitor = metricsVisitor(new File(BASE_DIR, "executable_lines.py"), false);
 
-    assertThat(visitor.getExecutableLines()).containsOnly(1, 2, 4, 7, 11, 13, 14, 15, 16, 18, 20, 21, 22, 23, 25, 27, 28, 29);
+    assertThat(visitor.getExecutableLines().toArray()).containsOnly(1, 2, 4, 7, 11, 13, 14, 15, 16, 18, 20, 21, 22, 23, 25, 27, 28, 29);
+  }
+
+  @Test
+  public void line_sets() {
+    MetricsVisitor visitor = metricsVisitor(new File(BASE_DIR, "file_lines.py"), false);
+    assertThat(visitor.getLinesWithNoSonar().asSet()).containsOnly(11);
+    assertThat(visitor.getLinesWithNoSonar().contains(11)).isTrue();
+    assertThat(visitor.getLinesWithNoSonar().contains(12)).isFalse();
+    assertThat(visitor.lineSetsMemoryUsage()).isPositive();
   }
 
   private static MetricsVisitor metricsVisitor(File file, boolean ignoreHeaderComments) {
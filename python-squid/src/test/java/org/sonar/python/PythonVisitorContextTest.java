@@ -0,0 +1,73 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python;
+
+import com.sonar.sslr.api.AstNode;
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.sonar.python.parser.PythonParser;
+import org.sonar.python.semantic.ModuleSummary;
+import org.sonar.python.semantic.ProjectIndex;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PythonVisitorContextTest {
+
+  @Test
+  public void lazy_root_tree_and_symbol_table() {
+    PythonFile pythonFile = TestPythonVisitorRunner.createContext(new File("src/test/resources/visitor.py")).pythonFile();
+    AtomicInteger parseCount = new AtomicInteger();
+    PythonVisitorContext context = new PythonVisitorContext(() -> {
+      parseCount.incrementAndGet();
+      return PythonParser.create(new PythonConfiguration(UTF_8)).parse(pythonFile.content());
+    }, pythonFile);
+    assertThat(parseCount.get()).isEqualTo(0);
+
+    AstNode rootTree = context.rootTree();
+    assertThat(rootTree).isNotNull();
+    assertThat(context.symbolTable()).isNotNull();
+    assertThat(context.symbolTable()).isSameAs(context.symbolTable());
+    assertThat(context.rootTree()).isSameAs(rootTree);
+    assertThat(parseCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void no_symbol_table_without_root_tree() {
+    PythonFile pythonFile = TestPythonVisitorRunner.createContext(new File("src/test/resources/visitor.py")).pythonFile();
+    PythonVisitorContext context = new PythonVisitorContext(() -> null, pythonFile);
+    assertThat(context.rootTree()).isNull();
+    assertThat(context.symbolTable()).isNull();
+  }
+
+  @Test
+  public void project_index() {
+    PythonFile pythonFile = TestPythonVisitorRunner.createContext(new File("src/test/resources/visitor.py")).pythonFile();
+    PythonVisitorContext context = new PythonVisitorContext(() -> null, pythonFile);
+    assertThat(context.projectIndex()).isSameAs(ProjectIndex.EMPTY);
+
+    ProjectIndex projectIndex = new ProjectIndex.Builder().add("mod", false, new ModuleSummary(Collections.singletonList("f"), Collections.emptyList())).build();
+    context.setProjectIndex(projectIndex);
+    assertThat(context.projectIndex()).isSameAs(projectIndex);
+  }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.sonar.python.api.PythonGrammar;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PythonVisitorMultiplexerTest {
+
+  private static final File FILE = new File("src/test/resources/visitor.py");
+
+  @Test
+  public void same_calls_as_separate_scans() {
+    List<RecordingCheck> separateChecks = checks();
+    PythonVisitorContext separateContext = TestPythonVisitorRunner.createContext(FILE);
+    for (RecordingCheck check : separateChecks) {
+      check.scanFile(separateContext);
+    }
+
+    List<RecordingCheck> multiplexedChecks = checks();
+    PythonVisitorContext multiplexedContext = TestPythonVisitorRunner.createContext(FILE);
+    new PythonVisitorMultiplexer(multiplexedChecks).scanFile(multiplexedContext);
+
+    for (int i = 0; i < separateChecks.size(); i++) {
+      assertThat(multiplexedChecks.get(i).events).isNotEmpty().isEqualTo(separateChecks.get(i).events);
+    }
+    assertThat(issues(multiplexedContext)).isEqualTo(issues(separateContext));
+  }
+
+  @Test
+  public void standalone_visitor() {
+    StandaloneCheck check = new StandaloneCheck();
+    PythonVisitorContext context = TestPythonVisitorRunner.createContext(FILE);
+    new PythonVisitorMultiplexer(Collections.singletonList(check)).scanFile(context);
+    assertThat(check.scanned).isTrue();
+    assertThat(check.getContext()).isSameAs(context);
+  }
+
+  @Test
+  public void no_tree() {
+    RecordingCheck check = new RecordingCheck(PythonGrammar.ATOM);
+    PythonVisitorContext context = new PythonVisitorContext(() -> null, TestPythonVisitorRunner.createContext(FILE).pythonFile());
+    new PythonVisitorMultiplexer(Collections.singletonList(check)).scanFile(context);
+    assertThat(check.events).isEmpty();
+    assertThat(check.getContext()).isSameAs(context);
+  }
+
+  @Test
+  public void tree_not_built_without_multiplexed_visitors() {
+    PythonVisitorContext context = new PythonVisitorContext(() -> {
+      throw new IllegalStateException("the tree must not be built");
+    }, TestPythonVisitorRunner.createContext(FILE).pythonFile());
+    new PythonVisitorMultiplexer(Collections.emptyList()).scanFile(context);
+    assertThat(context.getIssues()).isEmpty();
+  }
+
+  private static List<RecordingCheck> checks() {
+    return Arrays.asList(
+      new RecordingCheck(PythonGrammar.ATOM, PythonGrammar.EXPRESSION_STMT),
+      new TokenRecordingCheck(PythonGrammar.ATOM),
+      new RecordingCheck(PythonGrammar.EXPRESSION_STMT));
+  }
+
+  private static List<String> issues(PythonVisitorContext context) {
+    return context.getIssues().stream()
+      .map(issue -> issue.check().getClass().getSimpleName() + ":" + issue.primaryLocation().startLine() + ":" + issue.primaryLocation().message())
+      .collect(Collectors.toList());
+  }
+
+  private static class RecordingCheck extends PythonCheck {
+
+    private final Set<AstNodeType> kinds;
+    final List<String> events = new ArrayList<>();
+
+    RecordingCheck(AstNodeType... kinds) {
+      this.kinds = new HashSet<>(Arrays.asList(kinds));
+    }
+
+    @Override
+    public Set<AstNodeType> subscribedKinds() {
+      return kinds;
+    }
+
+    @Override
+    public void visitFile(AstNode node) {
+      events.add("visitFile");
+    }
+
+    @Override
+    public void visitNode(AstNode node) {
+      events.add("visitNode " + node.getType() + " " + node.getTokenLine());
+      addIssue(node, "visit " + node.getType());
+    }
+
+    @Override
+    public void leaveNode(AstNode node) {
+      events.add("leaveNode " + node.getType() + " " + node.getTokenLine());
+    }
+
+    @Override
+    public void leaveFile(AstNode node) {
+      events.add("leaveFile");
+    }
+  }
+
+  private static class TokenRecordingCheck extends RecordingCheck {
+
+    TokenRecordingCheck(AstNodeType... kinds) {
+      super(kinds);
+    }
+
+    @Override
+    public void visitToken(Token token) {
+      events.add("visitToken " + token.getValue());
+    }
+  }
+
+  private static class StandaloneCheck extends PythonCheck {
+
+    boolean scanned = false;
+
+    @Override
+    public void scanFile(PythonVisitorContext context) {
+      super.scanFile(context);
+      scanned = true;
+    }
+  }
+
+}
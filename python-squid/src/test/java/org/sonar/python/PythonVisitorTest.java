@@ -41,6 +41,20 @@ public class PythonVisitorTest {
     assertThat(visitor.fileName).isEqualTo("visitor.py");
   }
 
+  @Test
+  public void visits_syntax_tree() {
+    assertThat(PythonVisitor.visitsSyntaxTree(TestVisitor.class)).isTrue();
+    assertThat(PythonVisitor.visitsSyntaxTree(PythonVisitor.class)).isFalse();
+    assertThat(PythonVisitor.visitsSyntaxTree(SubscriptionOnlyCheck.class)).isFalse();
+  }
+
+  private static class SubscriptionOnlyCheck extends PythonCheck {
+    @Override
+    public void initialize(Context context) {
+      // no subscription
+    }
+  }
+
   public static class TestVisitor extends PythonVisitor {
 
     private List<String> atomValues = new ArrayList<>();
@@ -0,0 +1,97 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python;
+
+import com.intellij.psi.tree.IElementType;
+import com.jetbrains.python.PyElementTypes;
+import com.jetbrains.python.PyTokenTypes;
+import com.jetbrains.python.psi.PyFile;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.sonar.python.frontend.PythonParser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SubscriptionVisitorTest {
+
+  private static final File FILE = new File("src/test/resources/file.py");
+
+  @Test
+  public void checks_are_initialized_once() {
+    RecordingCheck check = new RecordingCheck();
+    SubscriptionVisitor visitor = new SubscriptionVisitor(Arrays.asList(check, new PythonCheck() {
+    }));
+    PythonVisitorContext context = TestPythonVisitorRunner.createContext(FILE);
+    PyFile pyFile = PythonParser.parse(FILE);
+    visitor.analyze(context, pyFile);
+    visitor.analyze(context, pyFile);
+
+    assertThat(check.initializations).isEqualTo(1);
+    assertThat(check.visitedTypes).isNotEmpty();
+    assertThat(check.visitedTypes.size() % 2).isEqualTo(0);
+    assertThat(context.getIssues()).hasSize(check.visitedTypes.size());
+    assertThat(context.getIssues().get(0).check()).isSameAs(check);
+  }
+
+  @Test
+  public void visit_in_pre_order() {
+    RecordingCheck check = new RecordingCheck();
+    PyFile pyFile = new PythonParser().parse("def f():\n  if x:\n    pass\n");
+    SubscriptionVisitor.analyze(Arrays.asList(check), TestPythonVisitorRunner.createContext(FILE), pyFile);
+    assertThat(check.visitedTypes).containsExactly(PyElementTypes.FUNCTION_DECLARATION, PyElementTypes.IF_STATEMENT, PyTokenTypes.IF_KEYWORD);
+  }
+
+  @Test
+  public void time_recorder() {
+    RecordingCheck check = new RecordingCheck();
+    SubscriptionVisitor visitor = new SubscriptionVisitor(Arrays.asList(check));
+    List<PythonCheck> timedChecks = new ArrayList<>();
+    visitor.setTimeRecorder((timedCheck, nanos) -> {
+      assertThat(nanos).isGreaterThanOrEqualTo(0);
+      timedChecks.add(timedCheck);
+    });
+    PyFile pyFile = new PythonParser().parse("def f():\n  if x:\n    pass\n");
+    visitor.analyze(TestPythonVisitorRunner.createContext(FILE), pyFile);
+    assertThat(timedChecks).hasSize(3).containsOnly(check);
+  }
+
+  private static class RecordingCheck extends PythonCheck {
+
+    private int initializations = 0;
+    private final List<IElementType> visitedTypes = new ArrayList<>();
+
+    @Override
+    public void initialize(Context context) {
+      initializations++;
+      context.registerSyntaxNodeConsumer(PyElementTypes.FUNCTION_DECLARATION, this::record);
+      context.registerSyntaxNodeConsumer(PyElementTypes.IF_STATEMENT, this::record);
+      context.registerSyntaxNodeConsumer(PyTokenTypes.IF_KEYWORD, this::record);
+    }
+
+    private void record(SubscriptionContext ctx) {
+      visitedTypes.add(ctx.syntaxNode().getNode().getElementType());
+      ctx.addIssue(ctx.syntaxNode(), "message");
+    }
+  }
+
+}
@@ -19,7 +19,16 @@
  */
 package org.sonar.python.metrics;
 
+import com.intellij.psi.util.PsiTreeUtil;
+import com.jetbrains.python.psi.PyClass;
+import com.jetbrains.python.psi.PyFile;
+import com.jetbrains.python.psi.PyFunction;
+import com.jetbrains.python.psi.PyStatement;
+import com.intellij.psi.impl.source.tree.LeafPsiElement;
 import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.junit.Test;
 import org.sonar.python.frontend.PythonParser;
 
@@ -58,6 +67,71 @@ public class FileMetricsTest {
     assertThat(metrics("function-complexities.py").functionComplexities()).containsExactly(3, 1);
   }
 
+  @Test
+  public void nested_function_complexities() {
+    String source = "def f(x):\n" +
+      "    if x:\n" +
+      "        def g(y):\n" +
+      "            if y and x:\n" +
+      "                pass\n" +
+      "        return g\n";
+    FileMetrics metrics = new FileMetrics(false, new PythonParser().parse(source));
+    assertThat(metrics.functionComplexities()).containsExactly(2, 3);
+    assertThat(metrics.numberOfFunctions()).isEqualTo(2);
+    assertThat(metrics.complexity()).isEqualTo(5);
+  }
+
+  @Test
+  public void leaf_visitors() {
+    String source = "def f(x):  # comment\n" +
+      "    return \"\"\"doc\"\"\" + x\n";
+    StringBuilder text = new StringBuilder();
+    int[] leaveFileCalls = {0};
+    LeafVisitor leafVisitor = new LeafVisitor() {
+      @Override
+      public void visitLeaf(LeafPsiElement leaf) {
+        text.append(leaf.getText());
+      }
+
+      @Override
+      public void leaveFile() {
+        leaveFileCalls[0]++;
+      }
+    };
+    FileMetrics metrics = new FileMetrics(false, new PythonParser().parse(source), Collections.singletonList(leafVisitor));
+    assertThat(text.toString()).isEqualTo(source);
+    assertThat(leaveFileCalls[0]).isEqualTo(1);
+    assertThat(metrics.numberOfFunctions()).isEqualTo(1);
+  }
+
+  @Test
+  public void same_measures_as_separate_visitors() {
+    File baseDir = new File("src/test/resources/metrics/");
+    for (File file : baseDir.listFiles()) {
+      for (boolean ignoreHeaderComments : new boolean[] {false, true}) {
+        PyFile pyFile = PythonParser.parse(file);
+        FileMetrics metrics = new FileMetrics(ignoreHeaderComments, pyFile);
+        String description = file.getName() + ", ignoreHeaderComments=" + ignoreHeaderComments;
+
+        assertThat(metrics.numberOfStatements()).as(description).isEqualTo(PsiTreeUtil.findChildrenOfType(pyFile, PyStatement.class).size());
+        assertThat(metrics.numberOfClasses()).as(description).isEqualTo(PsiTreeUtil.findChildrenOfType(pyFile, PyClass.class).size());
+        List<Integer> functionComplexities = PsiTreeUtil.findChildrenOfType(pyFile, PyFunction.class).stream()
+          .map(ComplexityVisitor::complexity)
+          .collect(Collectors.toList());
+        assertThat(metrics.functionComplexities()).as(description).isEqualTo(functionComplexities);
+        assertThat(metrics.complexity()).as(description).isEqualTo(ComplexityVisitor.complexity(pyFile));
+        assertThat(metrics.cognitiveComplexity()).as(description).isEqualTo(CognitiveComplexityVisitor.complexity(pyFile, null));
+
+        MetricsVisitor metricsVisitor = new MetricsVisitor(ignoreHeaderComments);
+        pyFile.accept(metricsVisitor);
+        assertThat(metrics.metricsVisitor().getLinesOfCode()).as(description).isEqualTo(metricsVisitor.getLinesOfCode());
+        assertThat(metrics.metricsVisitor().getExecutableLines()).as(description).isEqualTo(metricsVisitor.getExecutableLines());
+        assertThat(metrics.metricsVisitor().getLinesWithNoSonar()).as(description).isEqualTo(metricsVisitor.getLinesWithNoSonar());
+        assertThat(metrics.metricsVisitor().getCommentLineCount()).as(description).isEqualTo(metricsVisitor.getCommentLineCount());
+      }
+    }
+  }
+
   private static FileMetrics metrics(String fileName) {
     File baseDir = new File("src/test/resources/metrics/");
     File file = new File(baseDir, fileName);
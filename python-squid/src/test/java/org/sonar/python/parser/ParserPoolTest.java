@@ -0,0 +1,75 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.parser;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import org.sonar.python.api.PythonGrammar;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParserPoolTest {
+
+  private static final String CODE = "def f(x):\n  if x:\n    return [i for i in x]\n  return None\n";
+
+  @Test
+  public void parse() {
+    AstNode tree = PythonParser.pool(UTF_8).parse(CODE);
+    assertThat(tree.is(PythonGrammar.FILE_INPUT)).isTrue();
+    assertThat(tree.getDescendants(PythonGrammar.RETURN_STMT)).hasSize(2);
+  }
+
+  @Test
+  public void parser_is_reusable_after_error() {
+    ParserPool pool = PythonParser.pool(UTF_8);
+    try {
+      pool.parse("def f(:\n");
+    } catch (RecognitionException e) {
+      // expected
+    }
+    assertThat(pool.parse(CODE).getDescendants(PythonGrammar.RETURN_STMT)).hasSize(2);
+  }
+
+  @Test
+  public void concurrent_parsing() throws Exception {
+    ParserPool pool = PythonParser.pool(UTF_8);
+    int expectedTokens = pool.parse(CODE).getTokens().size();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        results.add(executor.submit(() -> pool.parse(CODE).getTokens().size()));
+      }
+      for (Future<Integer> result : results) {
+        assertThat(result.get()).isEqualTo(expectedTokens);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
@@ -27,7 +27,9 @@ import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 import org.sonar.python.PythonConfiguration;
 
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
 
 public class PythonParserTest {
 
@@ -41,6 +43,18 @@ public class PythonParserTest {
     }
   }
 
+  @Test
+  public void grammar_is_shared() {
+    assertThat(parser.getGrammar()).isSameAs(PythonParser.grammar());
+    assertThat(PythonParser.create(new PythonConfiguration(UTF_8)).getGrammar()).isSameAs(PythonParser.grammar());
+  }
+
+  @Test
+  public void one_pool_per_charset() {
+    assertThat(PythonParser.pool(UTF_8)).isSameAs(PythonParser.pool(UTF_8));
+    assertThat(PythonParser.pool(UTF_8)).isNotSameAs(PythonParser.pool(ISO_8859_1));
+  }
+
   private static Collection<File> listFiles() {
     File dir = new File("src/test/resources/parser/");
     return FileUtils.listFiles(dir, new String[]{"py"}, true);
@@ -0,0 +1,120 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.semantic;
+
+import com.sonar.sslr.impl.Lexer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sonar.python.PythonConfiguration;
+import org.sonar.python.lexer.PythonLexer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ModuleSummaryTest {
+
+  private static Lexer lexer;
+
+  @BeforeClass
+  public static void init() {
+    lexer = PythonLexer.create(new PythonConfiguration(UTF_8));
+  }
+
+  @Test
+  public void functions_and_classes() {
+    ModuleSummary summary = extract(
+      "def f(a=1):\n" +
+      "  def nested(): pass\n" +
+      "  x = 1\n" +
+      "@decorator\n" +
+      "class C(Base):\n" +
+      "  y = 2\n" +
+      "  def method(self): pass\n" +
+      "async def g(): pass\n" +
+      "def h(): return 1\n" +
+      "z = 3\n");
+    assertThat(summary.definitions()).containsExactly("f", "C", "g", "h", "z");
+    assertThat(summary.imports()).isEmpty();
+  }
+
+  @Test
+  public void assignments() {
+    ModuleSummary summary = extract(
+      "a = b = 1\n" +
+      "c, (d, [e]) = values\n" +
+      "f: int = 2\n" +
+      "g: str\n" +
+      "h[i] = 3\n" +
+      "j.k = 4\n" +
+      "call(l=5); m = lambda n=6: n\n" +
+      "if cond:\n" +
+      "  o = 7\n" +
+      "else:\n" +
+      "  p += 8\n" +
+      "with open(q) as r:\n" +
+      "  s = {t: u for t, u in items}\n");
+    assertThat(summary.definitions()).containsExactly("a", "b", "c", "d", "e", "f", "g", "m", "o", "s");
+  }
+
+  @Test
+  public void imports() {
+    ModuleSummary summary = extract(
+      "import os, os.path as osp\n" +
+      "import a.b.c\n" +
+      "from x.y import z, w as v\n" +
+      "from . import sibling\n" +
+      "from ..parent import (p1,\n" +
+      "    p2,)\n" +
+      "from star import *\n" +
+      "try:\n" +
+      "  import json\n" +
+      "except ImportError:\n" +
+      "  import simplejson as json\n" +
+      "def f():\n" +
+      "  import local\n");
+    assertThat(summary.imports()).containsExactly("os", "os.path", "a.b.c", "x.y", ".", "..parent", "star", "json", "simplejson");
+    assertThat(summary.definitions()).containsExactly("os", "osp", "a", "z", "v", "sibling", "p1", "p2", "json", "f");
+  }
+
+  @Test
+  public void write_and_read() throws IOException {
+    ModuleSummary summary = extract("import os\nclass C: pass\n");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    summary.write(new DataOutputStream(bytes));
+    ModuleSummary read = ModuleSummary.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertThat(read.definitions()).containsExactly("os", "C");
+    assertThat(read.imports()).containsExactly("os");
+  }
+
+  @Test(expected = IOException.class)
+  public void read_invalid_count() throws IOException {
+    ModuleSummary.read(new DataInputStream(new ByteArrayInputStream(new byte[] {-1, -1, -1, -1})));
+  }
+
+  private static ModuleSummary extract(String code) {
+    return ModuleSummary.extract(lexer.lex(code));
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.semantic;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectIndexTest {
+
+  private final ProjectIndex index = new ProjectIndex.Builder()
+    .add("pkg", true, summary(Arrays.asList("VERSION", "util"), Arrays.asList(".util", "os")))
+    .add("pkg.util", false, summary(Arrays.asList("helper", "Helper"), Arrays.asList("..other", ".", "pkg")))
+    .add("script", false, summary(Collections.singletonList("main"), Arrays.asList("pkg.util", ".")))
+    .add("script", false, summary(Collections.singletonList("other_main"), Collections.emptyList()))
+    .build();
+
+  @Test
+  public void modules() {
+    assertThat(index.moduleCount()).isEqualTo(3);
+    assertThat(index.hasModule("pkg")).isTrue();
+    assertThat(index.hasModule("pkg.util")).isTrue();
+    assertThat(index.hasModule("os")).isFalse();
+    assertThat(index.hasModule("helper")).isFalse();
+    assertThat(index.hasModule("unknown")).isFalse();
+  }
+
+  @Test
+  public void definitions() {
+    assertThat(index.definitions("pkg.util")).containsExactly("Helper", "helper");
+    assertThat(index.definitions("script")).containsExactly("main", "other_main");
+    assertThat(index.definitions("os")).isEmpty();
+    assertThat(index.isDefined("pkg.util", "helper")).isTrue();
+    assertThat(index.isDefined("pkg.util", "main")).isFalse();
+    assertThat(index.isDefined("pkg.util", "unknown")).isFalse();
+    assertThat(index.isDefined("unknown", "helper")).isFalse();
+  }
+
+  @Test
+  public void imports() {
+    assertThat(index.imports("pkg")).containsExactly("os", "pkg.util");
+    assertThat(index.imports("pkg.util")).containsExactly("other", "pkg");
+    assertThat(index.imports("script")).containsExactly(".", "pkg.util");
+    assertThat(index.imports("unknown")).isEmpty();
+  }
+
+  @Test
+  public void resolvable_names() {
+    assertThat(index.isResolvable("pkg.util")).isTrue();
+    assertThat(index.isResolvable("pkg.util.helper")).isTrue();
+    assertThat(index.isResolvable("pkg.VERSION")).isTrue();
+    assertThat(index.isResolvable("pkg.util.unknown")).isFalse();
+    assertThat(index.isResolvable("os.path")).isFalse();
+    assertThat(index.isResolvable(".helper")).isFalse();
+  }
+
+  @Test
+  public void empty() {
+    assertThat(ProjectIndex.EMPTY.moduleCount()).isZero();
+    assertThat(ProjectIndex.EMPTY.hasModule("pkg")).isFalse();
+    assertThat(ProjectIndex.EMPTY.definitions("pkg")).isEmpty();
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void definitions_are_bounded() {
+    index.definitions("pkg").get(2);
+  }
+
+  @Test
+  public void absolute_module_names() {
+    assertThat(ProjectIndex.Builder.absoluteModuleName("a.b", "x.y")).isEqualTo("x.y");
+    assertThat(ProjectIndex.Builder.absoluteModuleName("a.b", ".")).isEqualTo("a.b");
+    assertThat(ProjectIndex.Builder.absoluteModuleName("a.b", ".c")).isEqualTo("a.b.c");
+    assertThat(ProjectIndex.Builder.absoluteModuleName("a.b", "..c")).isEqualTo("a.c");
+    assertThat(ProjectIndex.Builder.absoluteModuleName("a.b", "...c")).isEqualTo("c");
+    assertThat(ProjectIndex.Builder.absoluteModuleName("", ".c")).isEqualTo("c");
+  }
+
+  private static ModuleSummary summary(List<String> definitions, List<String> imports) {
+    return new ModuleSummary(definitions, imports);
+  }
+
+}
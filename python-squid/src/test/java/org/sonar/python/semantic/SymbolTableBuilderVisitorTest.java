@@ -149,6 +149,19 @@ public class SymbolTableBuilderVisitorTest {
     assertThat(a.readUsages()).extracting(AstNode::getTokenLine).contains(classC.getTokenLine() + 1);
   }
 
+  @Test
+  public void lambda_in_class_variable() {
+    AstNode classTree = rootTree.getDescendants(PythonGrammar.CLASSDEF).get(1);
+    assertThat(symbolTable.symbols(classTree)).extracting(Symbol::name).containsOnly("first", "values", "i");
+    Symbol first = lookup(classTree, "first");
+    assertThat(first.readUsages()).extracting(AstNode::getTokenLine).containsOnly(classTree.getTokenLine() + 2);
+
+    AstNode lambda = classTree.getFirstDescendant(PythonGrammar.LAMBDEF);
+    Symbol x = lookup(lambda, "x");
+    assertThat(x.writeUsages()).hasSize(1);
+    assertThat(x.readUsages()).hasSize(1);
+  }
+
   @Test
   public void lambdas() {
     AstNode functionTree = functionTreesByName.get("function_with_lambdas");
@@ -95,3 +95,7 @@ def calling_same_function_multiple_times(params):
 def attribute_ref():
     myModuleName.prop
     p
+
+class ClassWithLambdas:
+    first = lambda x: x
+    values = [first(i) for i in range(3)]
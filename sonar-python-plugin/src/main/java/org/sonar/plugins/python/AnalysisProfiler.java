@@ -0,0 +1,200 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonarsource.analyzer.commons.internal.json.simple.JSONValue;
+
+/**
+ * Cumulative and maximum time of each phase of the analysis and of each rule, and the slowest files.
+ * Enabled with {@link PythonSquidSensor#PERFORMANCE_MEASURE_KEY}. Times are recorded per file, by any analysis thread.
+ */
+class AnalysisProfiler {
+
+  private static final Logger LOG = Loggers.get(AnalysisProfiler.class);
+
+  static final String REPORT_FILE_NAME = "python-performance.json";
+
+  static final String PROJECT_INDEX = "project index";
+  static final String CACHE = "cache";
+  static final String SSLR_PARSE = "sslr parse";
+  static final String PSI_PARSE = "psi parse";
+  static final String SYMBOL_TABLE = "symbol table";
+  // measures, highlighting and CPD tokens, computed in a single traversal of the PSI tree
+  static final String METRICS = "metrics";
+  static final String SYNTAX_TREE_CHECKS = "syntax tree checks";
+  static final String SUBSCRIPTION_CHECKS = "subscription checks";
+  static final String SAVE = "save";
+
+  private static final int SUMMARY_SIZE = 10;
+
+  private final int slowestFilesCount;
+  private final Map<String, Stats> phases = new ConcurrentHashMap<>();
+  private final Map<String, Stats> rules = new ConcurrentHashMap<>();
+  private final PriorityQueue<FileTime> slowestFiles = new PriorityQueue<>(Comparator.comparingLong(fileTime -> fileTime.nanos));
+  private final LongAdder analyzedFiles = new LongAdder();
+
+  AnalysisProfiler(int slowestFilesCount) {
+    this.slowestFilesCount = slowestFilesCount;
+  }
+
+  void recordPhase(String phase, long nanos) {
+    phases.computeIfAbsent(phase, p -> new Stats()).record(nanos);
+  }
+
+  void recordRule(String ruleKey, long nanos) {
+    rules.computeIfAbsent(ruleKey, r -> new Stats()).record(nanos);
+  }
+
+  void recordFile(String file, long nanos) {
+    analyzedFiles.increment();
+    synchronized (slowestFiles) {
+      if (slowestFiles.size() < slowestFilesCount) {
+        slowestFiles.add(new FileTime(file, nanos));
+      } else if (!slowestFiles.isEmpty() && slowestFiles.peek().nanos < nanos) {
+        slowestFiles.poll();
+        slowestFiles.add(new FileTime(file, nanos));
+      }
+    }
+  }
+
+  void writeReport(Path workDir) {
+    Path reportFile = workDir.resolve(REPORT_FILE_NAME);
+    try {
+      Files.createDirectories(workDir);
+      try (Writer writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+        writer.write(toJson());
+      }
+      LOG.info("Python performance report written to {}", reportFile);
+    } catch (IOException e) {
+      LOG.warn("Unable to write the Python performance report \"{}\": {}", reportFile, e.getMessage());
+    }
+  }
+
+  void logSummary() {
+    LOG.info("Python analysis of {} files, time per phase: {}", analyzedFiles.sum(), summary(phases, Integer.MAX_VALUE));
+    if (!rules.isEmpty()) {
+      LOG.info("Slowest Python rules: {}", summary(rules, SUMMARY_SIZE));
+    }
+    List<FileTime> files = slowestFiles();
+    if (!files.isEmpty()) {
+      LOG.info("Slowest Python files: {}", files.stream()
+        .limit(SUMMARY_SIZE)
+        .map(fileTime -> fileTime.file + " " + millis(fileTime.nanos) + "ms")
+        .collect(Collectors.joining(", ")));
+    }
+  }
+
+  private static String summary(Map<String, Stats> statsByName, int limit) {
+    return sortedByTotalTime(statsByName).stream()
+      .limit(limit)
+      .map(entry -> entry.getKey() + " " + millis(entry.getValue().total.sum()) + "ms")
+      .collect(Collectors.joining(", "));
+  }
+
+  String toJson() {
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("files", analyzedFiles.sum());
+    report.put("phases", toJson(phases));
+    report.put("rules", toJson(rules));
+    List<Object> files = new ArrayList<>();
+    for (FileTime fileTime : slowestFiles()) {
+      Map<String, Object> file = new LinkedHashMap<>();
+      file.put("file", fileTime.file);
+      file.put("timeMs", millis(fileTime.nanos));
+      files.add(file);
+    }
+    report.put("slowestFiles", files);
+    return JSONValue.toJSONString(report);
+  }
+
+  private static List<Object> toJson(Map<String, Stats> statsByName) {
+    List<Object> list = new ArrayList<>();
+    for (Map.Entry<String, Stats> entry : sortedByTotalTime(statsByName)) {
+      Map<String, Object> stats = new LinkedHashMap<>();
+      stats.put("name", entry.getKey());
+      stats.put("files", entry.getValue().count.sum());
+      stats.put("totalMs", millis(entry.getValue().total.sum()));
+      stats.put("maxMs", millis(entry.getValue().max.get()));
+      list.add(stats);
+    }
+    return list;
+  }
+
+  private static List<Map.Entry<String, Stats>> sortedByTotalTime(Map<String, Stats> statsByName) {
+    List<Map.Entry<String, Stats>> entries = new ArrayList<>(statsByName.entrySet());
+    entries.sort(Comparator.comparingLong((Map.Entry<String, Stats> entry) -> entry.getValue().total.sum()).reversed()
+      .thenComparing(Map.Entry::getKey));
+    return entries;
+  }
+
+  private List<FileTime> slowestFiles() {
+    List<FileTime> files;
+    synchronized (slowestFiles) {
+      files = new ArrayList<>(slowestFiles);
+    }
+    files.sort(Comparator.comparingLong((FileTime fileTime) -> fileTime.nanos).reversed());
+    return files;
+  }
+
+  private static double millis(long nanos) {
+    // microsecond precision
+    return TimeUnit.NANOSECONDS.toMicros(nanos) / 1000.0;
+  }
+
+  private static class Stats {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void record(long nanos) {
+      count.increment();
+      total.add(nanos);
+      max.accumulate(nanos);
+    }
+  }
+
+  private static class FileTime {
+    private final String file;
+    private final long nanos;
+
+    FileTime(String file, long nanos) {
+      this.file = file;
+      this.nanos = nanos;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Binary I/O shared by the files kept in the working directory between analyses ({@link PythonAnalysisCache} and
+ * {@link ProjectIndexer}).
+ */
+final class CacheFiles {
+
+  private CacheFiles() {
+  }
+
+  interface Content {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  /**
+   * Writes the content in a temporary file which then replaces the file, so that an interrupted analysis never
+   * leaves a truncated file.
+   */
+  static void writeAtomically(Path file, Content content) throws IOException {
+    Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+    Files.createDirectories(file.getParent());
+    try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+      DataOutputStream out = new DataOutputStream(outputStream);
+      content.write(out);
+      out.flush();
+    }
+    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * @param maxLength guards against allocating huge arrays when reading a corrupted file
+   */
+  static byte[] readBytes(DataInputStream in, int maxLength) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > maxLength) {
+      throw new EOFException("invalid length " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.utils.WildcardPattern;
+
+/**
+ * Listings of the directories walked by the {@link DirectoryScanner}s of an analysis, so that a directory of the base
+ * directory is listed once whatever the number of report sensors. The same instance is injected in the sensors
+ * importing reports. Can be used by several threads at the same time.
+ */
+@ScannerSide
+public class DirectoryListings {
+
+  private final FileSystem fileSystem;
+  private final Map<Path, DirectoryScanner.Listing> listings = new ConcurrentHashMap<>();
+
+  public DirectoryListings(FileSystem fileSystem) {
+    this.fileSystem = fileSystem;
+  }
+
+  /**
+   * Scanner of the base directory of the file system, sharing its directory listings with the other scanners of
+   * this analysis.
+   */
+  public DirectoryScanner scanner(WildcardPattern pattern) {
+    return new DirectoryScanner(fileSystem.baseDir(), pattern, listings);
+  }
+
+}
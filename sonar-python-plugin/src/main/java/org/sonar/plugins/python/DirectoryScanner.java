@@ -20,41 +20,163 @@
 package org.sonar.plugins.python;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
-import org.apache.commons.io.FileUtils;
+import java.util.Map;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.filefilter.IOFileFilter;
-import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.sonar.api.utils.WildcardPattern;
 
+/**
+ * Finds the files of a base directory whose relative path matches a wildcard pattern.
+ * <p>
+ * The directories which cannot contain a matching file, according to the leading segments of the pattern, are not
+ * walked: only "xunit-reports" is walked for the pattern "xunit-reports/*.xml", while the whole tree is walked for
+ * "**&#47;*.xml". The listings of the walked directories are shared by the scanners of the same analysis, see
+ * {@link DirectoryListings}, so that a directory is listed once whatever the number of report sensors.
+ */
 public class DirectoryScanner {
 
-  private final File baseDir;
+  private final Path baseDir;
   private final WildcardPattern pattern;
+  // patterns of the leading segments, up to the first one matching any number of directories, which is null
+  private final List<WildcardPattern> segmentPatterns = new ArrayList<>();
+  private final Map<Path, Listing> listings;
 
   public DirectoryScanner(File baseDir, WildcardPattern pattern) {
-    this.baseDir = baseDir;
+    this(baseDir, pattern, new HashMap<>());
+  }
+
+  DirectoryScanner(File baseDir, WildcardPattern pattern, Map<Path, Listing> listings) {
+    this.baseDir = baseDir.toPath();
     this.pattern = pattern;
+    this.listings = listings;
+    String[] segments = pattern.toString().split("[/\\\\]");
+    // a leading separator is ignored by the pattern
+    for (int i = segments.length > 0 && segments[0].isEmpty() ? 1 : 0; i < segments.length; i++) {
+      if (segments[i].contains("**")) {
+        segmentPatterns.add(null);
+        break;
+      }
+      segmentPatterns.add(WildcardPattern.create(segments[i]));
+    }
   }
 
   public List<File> getIncludedFiles() {
-    final String baseDirAbsolutePath = baseDir.getAbsolutePath();
-    IOFileFilter fileFilter = new IOFileFilter() {
+    List<File> includedFiles = new ArrayList<>();
+    if (Files.isDirectory(baseDir)) {
+      scan(baseDir, includedFiles);
+    }
+    return includedFiles;
+  }
 
-      @Override
-      public boolean accept(File dir, String name) {
-        return accept(new File(dir, name));
+  private void scan(Path directory, List<File> includedFiles) {
+    Listing listing = listings.get(directory);
+    if (listing == null) {
+      walk(directory, includedFiles);
+      return;
+    }
+    for (Path file : listing.files) {
+      addIfIncluded(file, includedFiles);
+    }
+    for (Path subdirectory : listing.directories) {
+      if (canContainIncludedFiles(subdirectory)) {
+        scan(subdirectory, includedFiles);
       }
+    }
+  }
+
+  private void walk(Path start, List<File> includedFiles) {
+    Deque<Listing> walkedDirectories = new ArrayDeque<>();
+    try {
+      Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attrs) {
+          Listing parent = walkedDirectories.peek();
+          if (parent != null) {
+            parent.directories.add(directory);
+            if (!canContainIncludedFiles(directory)) {
+              return FileVisitResult.SKIP_SUBTREE;
+            }
+            if (listings.containsKey(directory)) {
+              scan(directory, includedFiles);
+              return FileVisitResult.SKIP_SUBTREE;
+            }
+          }
+          walkedDirectories.push(new Listing());
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+          walkedDirectories.element().files.add(file);
+          addIfIncluded(file, includedFiles);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+          // unreadable file or directory, or symbolic link loop: ignored
+          return FileVisitResult.CONTINUE;
+        }
 
-      @Override
-      public boolean accept(File file) {
-        String path = file.getAbsolutePath();
-        path = path.substring(Math.min(baseDirAbsolutePath.length(), path.length()));
-        return pattern.match(FilenameUtils.separatorsToUnix(path));
+        @Override
+        public FileVisitResult postVisitDirectory(Path directory, IOException e) {
+          Listing listing = walkedDirectories.pop();
+          if (e == null) {
+            listings.put(directory, listing);
+          }
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot walk the directory " + start, e);
+    }
+  }
+
+  private void addIfIncluded(Path file, List<File> includedFiles) {
+    if (pattern.match(FilenameUtils.separatorsToUnix(baseDir.relativize(file).toString()))) {
+      includedFiles.add(file.toFile());
+    }
+  }
+
+  private boolean canContainIncludedFiles(Path directory) {
+    Path relativePath = baseDir.relativize(directory);
+    int depth = relativePath.getNameCount();
+    for (int i = 0; i < depth; i++) {
+      if (i >= segmentPatterns.size()) {
+        return false;
+      }
+      WildcardPattern segmentPattern = segmentPatterns.get(i);
+      if (segmentPattern == null) {
+        return true;
       }
-    };
-    return new ArrayList<>(FileUtils.listFiles(baseDir, fileFilter, TrueFileFilter.INSTANCE));
+      if (!segmentPattern.match(relativePath.getName(i).toString())) {
+        return false;
+      }
+    }
+    return depth < segmentPatterns.size();
+  }
+
+  /**
+   * Files and subdirectories of a walked directory.
+   */
+  static class Listing {
+
+    private final List<Path> files = new ArrayList<>();
+    private final List<Path> directories = new ArrayList<>();
+
   }
 
 }
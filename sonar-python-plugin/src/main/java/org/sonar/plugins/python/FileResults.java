@@ -0,0 +1,499 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.plugins.python.cpd.CpdTokenizer;
+import org.sonar.python.metrics.LineSet;
+
+/**
+ * Results of the analysis of one file, kept until they can be saved on the sensor context.
+ * <p>
+ * The results only hold plain values, so that they can be written to and read back from the
+ * {@link PythonAnalysisCache}.
+ */
+class FileResults {
+
+  static final int NCLOC = 0;
+  static final int STATEMENTS = 1;
+  static final int FUNCTIONS = 2;
+  static final int CLASSES = 3;
+  static final int COMPLEXITY = 4;
+  static final int COGNITIVE_COMPLEXITY = 5;
+  static final int COMMENT_LINES = 6;
+  static final int MEASURE_COUNT = 7;
+
+  private static final TypeOfText[] TYPES_OF_TEXT = TypeOfText.values();
+
+  private Integer errorLine;
+  private String errorMessage;
+
+  private int[] measures;
+  private LineSet linesOfCode;
+  private LineSet executableLines;
+  private LineSet noSonarLines;
+
+  private boolean hasCpdTokens;
+  private final IntList cpdRanges = new IntList();
+  private final List<String> cpdImages = new ArrayList<>();
+
+  private boolean highlighted;
+  private final IntList highlightings = new IntList();
+
+  private final List<Issue> issues = new ArrayList<>();
+
+  private boolean complete;
+  private byte[] contentHash;
+
+  void setError(int line, @Nullable String message) {
+    this.errorLine = line;
+    this.errorMessage = message;
+  }
+
+  @CheckForNull
+  Integer errorLine() {
+    return errorLine;
+  }
+
+  @CheckForNull
+  String errorMessage() {
+    return errorMessage;
+  }
+
+  void setMeasures(int[] measures, LineSet linesOfCode, LineSet executableLines, LineSet noSonarLines) {
+    if (measures.length != MEASURE_COUNT) {
+      throw new IllegalArgumentException("Expected " + MEASURE_COUNT + " measures, got " + measures.length);
+    }
+    this.measures = measures.clone();
+    this.linesOfCode = linesOfCode;
+    this.executableLines = executableLines;
+    this.noSonarLines = noSonarLines;
+  }
+
+  boolean hasMeasures() {
+    return measures != null;
+  }
+
+  int measure(int index) {
+    return measures[index];
+  }
+
+  LineSet linesOfCode() {
+    return linesOfCode;
+  }
+
+  LineSet executableLines() {
+    return executableLines;
+  }
+
+  LineSet noSonarLines() {
+    return noSonarLines;
+  }
+
+  void addCpdToken(int startLine, int startLineOffset, int endLine, int endLineOffset, String image) {
+    hasCpdTokens = true;
+    cpdRanges.add(startLine);
+    cpdRanges.add(startLineOffset);
+    cpdRanges.add(endLine);
+    cpdRanges.add(endLineOffset);
+    cpdImages.add(image);
+  }
+
+  void markCpdTokens() {
+    hasCpdTokens = true;
+  }
+
+  boolean hasCpdTokens() {
+    return hasCpdTokens;
+  }
+
+  void forEachCpdToken(CpdTokenizer.TokenConsumer consumer) {
+    for (int i = 0; i < cpdImages.size(); i++) {
+      int offset = i * 4;
+      consumer.addToken(cpdRanges.get(offset), cpdRanges.get(offset + 1), cpdRanges.get(offset + 2), cpdRanges.get(offset + 3), cpdImages.get(i));
+    }
+  }
+
+  void markHighlighted() {
+    highlighted = true;
+  }
+
+  boolean isHighlighted() {
+    return highlighted;
+  }
+
+  void highlight(int startLine, int startLineOffset, int endLine, int endLineOffset, TypeOfText typeOfText) {
+    highlightings.add(startLine);
+    highlightings.add(startLineOffset);
+    highlightings.add(endLine);
+    highlightings.add(endLineOffset);
+    highlightings.add(typeOfText.ordinal());
+  }
+
+  void forEachHighlighting(PythonHighlighter.HighlightingConsumer consumer) {
+    for (int offset = 0; offset < highlightings.size(); offset += 5) {
+      consumer.highlight(highlightings.get(offset), highlightings.get(offset + 1), highlightings.get(offset + 2), highlightings.get(offset + 3),
+        TYPES_OF_TEXT[highlightings.get(offset + 4)]);
+    }
+  }
+
+  void addIssue(Issue issue) {
+    issues.add(issue);
+  }
+
+  List<Issue> issues() {
+    return issues;
+  }
+
+  /**
+   * Marks the analysis of the file as finished without unexpected error: only complete results are cached.
+   */
+  void markComplete() {
+    complete = true;
+  }
+
+  boolean isComplete() {
+    return complete;
+  }
+
+  void setContentHash(@Nullable byte[] contentHash) {
+    this.contentHash = contentHash;
+  }
+
+  /**
+   * @return the hash of the analyzed content, null when the cache is disabled. It is not part of the serialized results.
+   */
+  @CheckForNull
+  byte[] contentHash() {
+    return contentHash;
+  }
+
+  void write(DataOutput out) throws IOException {
+    out.writeBoolean(errorLine != null);
+    if (errorLine != null) {
+      out.writeInt(errorLine);
+      writeNullableString(out, errorMessage);
+    }
+
+    out.writeBoolean(measures != null);
+    if (measures != null) {
+      writeInts(out, measures);
+      writeLines(out, linesOfCode);
+      writeLines(out, executableLines);
+      writeLines(out, noSonarLines);
+    }
+
+    out.writeBoolean(hasCpdTokens);
+    writeInts(out, cpdRanges.toArray());
+    for (String image : cpdImages) {
+      writeString(out, image);
+    }
+
+    out.writeBoolean(highlighted);
+    writeInts(out, highlightings.toArray());
+
+    out.writeInt(issues.size());
+    for (Issue issue : issues) {
+      issue.write(out);
+    }
+  }
+
+  static FileResults read(DataInput in) throws IOException {
+    FileResults results = new FileResults();
+    if (in.readBoolean()) {
+      results.setError(in.readInt(), readNullableString(in));
+    }
+
+    if (in.readBoolean()) {
+      results.measures = readInts(in);
+      results.linesOfCode = readLines(in);
+      results.executableLines = readLines(in);
+      results.noSonarLines = readLines(in);
+      if (results.measures.length != MEASURE_COUNT) {
+        throw new IOException("Unexpected number of measures: " + results.measures.length);
+      }
+    }
+
+    results.hasCpdTokens = in.readBoolean();
+    int[] ranges = readInts(in);
+    if (ranges.length % 4 != 0) {
+      throw new IOException("Unexpected number of CPD token offsets: " + ranges.length);
+    }
+    results.cpdRanges.addAll(ranges);
+    for (int i = 0; i < ranges.length / 4; i++) {
+      results.cpdImages.add(readString(in));
+    }
+
+    results.highlighted = in.readBoolean();
+    int[] highlightings = readInts(in);
+    if (highlightings.length % 5 != 0) {
+      throw new IOException("Unexpected number of highlighting offsets: " + highlightings.length);
+    }
+    for (int i = 4; i < highlightings.length; i += 5) {
+      if (highlightings[i] < 0 || highlightings[i] >= TYPES_OF_TEXT.length) {
+        throw new IOException("Unknown type of text: " + highlightings[i]);
+      }
+    }
+    results.highlightings.addAll(highlightings);
+
+    int issueCount = in.readInt();
+    for (int i = 0; i < issueCount; i++) {
+      results.issues.add(Issue.read(in));
+    }
+    results.complete = true;
+    return results;
+  }
+
+  private static void writeLines(DataOutput out, LineSet lines) throws IOException {
+    long[] words = lines.toLongArray();
+    out.writeInt(words.length);
+    for (long word : words) {
+      out.writeLong(word);
+    }
+  }
+
+  private static LineSet readLines(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("Negative array length: " + length);
+    }
+    long[] words = new long[length];
+    for (int i = 0; i < length; i++) {
+      words[i] = in.readLong();
+    }
+    return LineSet.fromLongArray(words);
+  }
+
+  private static void writeInts(DataOutput out, int[] values) throws IOException {
+    out.writeInt(values.length);
+    for (int value : values) {
+      out.writeInt(value);
+    }
+  }
+
+  /**
+   * Unlike {@link DataOutput#writeUTF(String)}, supports strings longer than 64KB, such as long string literals.
+   */
+  private static void writeString(DataOutput out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("Negative string length: " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeNullableString(DataOutput out, @Nullable String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      writeString(out, value);
+    }
+  }
+
+  @CheckForNull
+  private static String readNullableString(DataInput in) throws IOException {
+    return in.readBoolean() ? readString(in) : null;
+  }
+
+  private static int[] readInts(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("Negative array length: " + length);
+    }
+    int[] values = new int[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = in.readInt();
+    }
+    return values;
+  }
+
+  static class Issue {
+
+    private final String ruleRepository;
+    private final String ruleKey;
+    private final Double gap;
+    private final Location primaryLocation;
+    private final List<Location> secondaryLocations;
+
+    Issue(String ruleRepository, String ruleKey, @Nullable Double gap, Location primaryLocation, List<Location> secondaryLocations) {
+      this.ruleRepository = ruleRepository;
+      this.ruleKey = ruleKey;
+      this.gap = gap;
+      this.primaryLocation = primaryLocation;
+      this.secondaryLocations = secondaryLocations;
+    }
+
+    String ruleRepository() {
+      return ruleRepository;
+    }
+
+    String ruleKey() {
+      return ruleKey;
+    }
+
+    @CheckForNull
+    Double gap() {
+      return gap;
+    }
+
+    Location primaryLocation() {
+      return primaryLocation;
+    }
+
+    List<Location> secondaryLocations() {
+      return secondaryLocations;
+    }
+
+    void write(DataOutput out) throws IOException {
+      writeString(out, ruleRepository);
+      writeString(out, ruleKey);
+      out.writeBoolean(gap != null);
+      if (gap != null) {
+        out.writeDouble(gap);
+      }
+      primaryLocation.write(out);
+      out.writeInt(secondaryLocations.size());
+      for (Location location : secondaryLocations) {
+        location.write(out);
+      }
+    }
+
+    static Issue read(DataInput in) throws IOException {
+      String ruleRepository = readString(in);
+      String ruleKey = readString(in);
+      Double gap = in.readBoolean() ? in.readDouble() : null;
+      Location primaryLocation = Location.read(in);
+      int secondaryLocationCount = in.readInt();
+      List<Location> secondaryLocations = new ArrayList<>();
+      for (int i = 0; i < secondaryLocationCount; i++) {
+        secondaryLocations.add(Location.read(in));
+      }
+      return new Issue(ruleRepository, ruleKey, gap, primaryLocation, secondaryLocations);
+    }
+  }
+
+  static class Location {
+
+    private final int startLine;
+    private final int startLineOffset;
+    private final int endLine;
+    private final int endLineOffset;
+    private final String message;
+
+    Location(int startLine, int startLineOffset, int endLine, int endLineOffset, @Nullable String message) {
+      this.startLine = startLine;
+      this.startLineOffset = startLineOffset;
+      this.endLine = endLine;
+      this.endLineOffset = endLineOffset;
+      this.message = message;
+    }
+
+    int startLine() {
+      return startLine;
+    }
+
+    int startLineOffset() {
+      return startLineOffset;
+    }
+
+    int endLine() {
+      return endLine;
+    }
+
+    int endLineOffset() {
+      return endLineOffset;
+    }
+
+    @CheckForNull
+    String message() {
+      return message;
+    }
+
+    void write(DataOutput out) throws IOException {
+      out.writeInt(startLine);
+      out.writeInt(startLineOffset);
+      out.writeInt(endLine);
+      out.writeInt(endLineOffset);
+      writeNullableString(out, message);
+    }
+
+    static Location read(DataInput in) throws IOException {
+      int startLine = in.readInt();
+      int startLineOffset = in.readInt();
+      int endLine = in.readInt();
+      int endLineOffset = in.readInt();
+      String message = readNullableString(in);
+      return new Location(startLine, startLineOffset, endLine, endLineOffset, message);
+    }
+  }
+
+  /**
+   * Growable array of ints, to avoid boxing offsets.
+   */
+  private static class IntList {
+
+    private int[] values = new int[16];
+    private int size = 0;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size] = value;
+      size++;
+    }
+
+    void addAll(int[] newValues) {
+      if (size + newValues.length > values.length) {
+        values = Arrays.copyOf(values, Math.max(values.length * 2, size + newValues.length));
+      }
+      System.arraycopy(newValues, 0, values, size, newValues.length);
+      size += newValues.length;
+    }
+
+    int get(int index) {
+      return values[index];
+    }
+
+    int size() {
+      return size;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Executes tasks producing items (ex: the issues of a report) on worker threads, while the items are consumed by the
+ * calling thread in the order of the tasks, and in the order in which each task produced them. The consumer sees the
+ * same sequence of items whatever the number of threads, so it does not need to be thread-safe and the results of the
+ * analysis do not depend on the number of threads.
+ * <p>
+ * The items are handed over by batches. Only a few tasks are started ahead of the one being consumed, and each of them
+ * can only produce a few batches ahead of the consumer, so that the memory used does not depend on the number of tasks.
+ */
+public final class OrderedProducers {
+
+  private static final int BATCH_SIZE = 1000;
+  private static final int BATCHES_PER_TASK = 2;
+  // marks the end of the items of a task
+  private static final List<Object> END_OF_TASK = new ArrayList<>(0);
+
+  private OrderedProducers() {
+  }
+
+  @FunctionalInterface
+  public interface Producer<T, I> {
+    void produce(T task, Consumer<I> sink) throws Exception;
+  }
+
+  /**
+   * @param name prefix of the names of the worker threads, ex: "python-bandit"
+   * @param threads number of worker threads, the tasks are executed by the calling thread when lower than 2
+   * @throws RuntimeException the first exception thrown by a producer or by the consumer
+   */
+  public static <T, I> void run(String name, int threads, List<T> tasks, Producer<T, I> producer, BiConsumer<T, I> consumer) {
+    if (threads <= 1 || tasks.size() <= 1) {
+      for (T task : tasks) {
+        produce(producer, task, item -> consumer.accept(task, item));
+      }
+      return;
+    }
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    // bound the number of tasks started ahead of the consumed one, to bound memory usage
+    int maxPendingTasks = threads * 2;
+    Deque<PendingTask<T, I>> pendingTasks = new ArrayDeque<>();
+    Iterator<T> taskIterator = tasks.iterator();
+    try {
+      while (taskIterator.hasNext() || !pendingTasks.isEmpty()) {
+        while (taskIterator.hasNext() && pendingTasks.size() < maxPendingTasks) {
+          pendingTasks.add(new PendingTask<>(executor, taskIterator.next(), producer));
+        }
+        PendingTask<T, I> pendingTask = pendingTasks.remove();
+        List<I> batch;
+        while ((batch = take(pendingTask.batches, name)) != END_OF_TASK) {
+          for (I item : batch) {
+            consumer.accept(pendingTask.task, item);
+          }
+        }
+        await(pendingTask.future, name);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static <T, I> void produce(Producer<T, I> producer, T task, Consumer<I> sink) {
+    try {
+      producer.produce(task, sink);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalStateException("Failure of task " + task, e);
+    }
+  }
+
+  private static <I> List<I> take(BlockingQueue<List<I>> batches, String name) {
+    try {
+      return batches.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the " + name + " threads", e);
+    }
+  }
+
+  private static void await(Future<Void> future, String name) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the " + name + " threads", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException("Failure of a " + name + " thread", cause);
+    }
+  }
+
+  private static class PendingTask<T, I> {
+
+    private final T task;
+    private final BlockingQueue<List<I>> batches = new ArrayBlockingQueue<>(BATCHES_PER_TASK);
+    private final Future<Void> future;
+
+    PendingTask(ExecutorService executor, T task, Producer<T, I> producer) {
+      this.task = task;
+      this.future = executor.submit(() -> {
+        try {
+          Batcher<I> batcher = new Batcher<>(batches);
+          produce(producer, task, batcher);
+          batcher.flush();
+        } finally {
+          batches.put(endOfTask());
+        }
+        return null;
+      });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <I> List<I> endOfTask() {
+      return (List<I>) (List<?>) END_OF_TASK;
+    }
+  }
+
+  /**
+   * Hands the items produced by a worker thread to the consuming thread, in batches.
+   */
+  private static class Batcher<I> implements Consumer<I> {
+
+    private final BlockingQueue<List<I>> batches;
+    private List<I> batch = new ArrayList<>();
+
+    Batcher(BlockingQueue<List<I>> batches) {
+      this.batches = batches;
+    }
+
+    @Override
+    public void accept(I item) {
+      batch.add(item);
+      if (batch.size() == BATCH_SIZE) {
+        flush();
+      }
+    }
+
+    void flush() {
+      if (batch.isEmpty()) {
+        return;
+      }
+      try {
+        batches.put(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for the consumption of the produced items", e);
+      }
+      batch = new ArrayList<>();
+    }
+  }
+
+}
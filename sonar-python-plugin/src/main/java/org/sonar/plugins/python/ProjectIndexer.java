@@ -0,0 +1,302 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import com.sonar.sslr.impl.Lexer;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.python.PythonConfiguration;
+import org.sonar.python.lexer.PythonLexer;
+import org.sonar.python.semantic.ModuleSummary;
+import org.sonar.python.semantic.ProjectIndex;
+
+/**
+ * Builds the {@link ProjectIndex} of the Python files of the project, before they are analyzed.
+ * <p>
+ * The summary of a module is extracted from its tokens, concurrently when more than one thread is requested.
+ * When a working directory is given, the summaries are stored in a binary file so that the next analysis only
+ * reads again the files whose content changed. File format: magic number, format version, fingerprint (plugin
+ * version), then for each file: key, content hash and summary.
+ */
+class ProjectIndexer {
+
+  private static final Logger LOG = Loggers.get(ProjectIndexer.class);
+
+  static final String FILE_NAME = "python-project-index.bin";
+
+  private static final int MAGIC = 0x50594958;
+  private static final int FORMAT_VERSION = 1;
+  private static final int MAX_ARRAY_LENGTH = 1 << 10;
+  private static final String PACKAGE_FILE_NAME = "__init__.py";
+
+  private final PythonConfiguration configuration;
+  private final int threads;
+  @Nullable
+  private final Path cacheFile;
+  private final byte[] fingerprint;
+  private final ThreadLocal<Lexer> lexers;
+  private int cachedFiles;
+  private int extractedFiles;
+  private byte[] indexHash;
+
+  /**
+   * @param workDir directory of the file keeping the summaries between analyses, null to extract all the summaries
+   */
+  ProjectIndexer(Charset charset, int threads, @Nullable Path workDir, String pluginVersion) {
+    this.configuration = new PythonConfiguration(charset);
+    this.threads = Math.max(1, threads);
+    this.cacheFile = workDir == null ? null : workDir.resolve(FILE_NAME);
+    this.fingerprint = PythonAnalysisCache.hash(pluginVersion, Integer.toString(FORMAT_VERSION));
+    this.lexers = ThreadLocal.withInitial(() -> PythonLexer.create(configuration));
+  }
+
+  ProjectIndex index(List<InputFile> inputFiles) {
+    Map<String, Entry> previousEntries = cacheFile == null ? Collections.emptyMap() : load(cacheFile);
+    Map<String, Entry> currentEntries = new LinkedHashMap<>();
+    List<Entry> entries = summarize(inputFiles, previousEntries);
+
+    Set<Path> packageDirectories = new HashSet<>();
+    List<Path> paths = new ArrayList<>(inputFiles.size());
+    for (InputFile inputFile : inputFiles) {
+      Path path = Paths.get(inputFile.uri());
+      paths.add(path);
+      if (PACKAGE_FILE_NAME.equals(path.getFileName().toString())) {
+        packageDirectories.add(path.getParent());
+      }
+    }
+
+    ProjectIndex.Builder builder = new ProjectIndex.Builder();
+    for (int i = 0; i < inputFiles.size(); i++) {
+      Entry entry = entries.get(i);
+      if (entry != null) {
+        currentEntries.put(inputFiles.get(i).key(), entry);
+        String moduleName = moduleName(paths.get(i), packageDirectories);
+        if (!moduleName.isEmpty()) {
+          builder.add(moduleName, PACKAGE_FILE_NAME.equals(paths.get(i).getFileName().toString()), entry.summary);
+        }
+      }
+    }
+    ProjectIndex projectIndex = builder.build();
+    indexHash = hash(inputFiles, entries);
+    LOG.debug("{} Python modules indexed: {} summaries extracted, {} read from the project index cache", projectIndex.moduleCount(), extractedFiles, cachedFiles);
+    if (cacheFile != null) {
+      save(cacheFile, currentEntries);
+    }
+    return projectIndex;
+  }
+
+  /**
+   * Hash of the keys and contents of the indexed files, which determine the index: it changes whenever the index can change.
+   */
+  byte[] indexHash() {
+    if (indexHash == null) {
+      throw new IllegalStateException("The project is not indexed yet");
+    }
+    return indexHash;
+  }
+
+  private static byte[] hash(List<InputFile> inputFiles, List<Entry> entries) {
+    Map<String, String> contentHashes = new TreeMap<>();
+    for (int i = 0; i < inputFiles.size(); i++) {
+      Entry entry = entries.get(i);
+      contentHashes.put(inputFiles.get(i).key(), entry == null ? "" : Base64.getEncoder().encodeToString(entry.contentHash));
+    }
+    List<String> values = new ArrayList<>(contentHashes.size() * 2);
+    contentHashes.forEach((key, contentHash) -> {
+      values.add(key);
+      values.add(contentHash);
+    });
+    return PythonAnalysisCache.hash(values.toArray(new String[0]));
+  }
+
+  int cachedFiles() {
+    return cachedFiles;
+  }
+
+  int extractedFiles() {
+    return extractedFiles;
+  }
+
+  /**
+   * Summaries of the files, in the same order, null for the files which cannot be read or tokenized.
+   */
+  private List<Entry> summarize(List<InputFile> inputFiles, Map<String, Entry> previousEntries) {
+    AtomicInteger cached = new AtomicInteger();
+    AtomicInteger extracted = new AtomicInteger();
+    List<Entry> entries = new ArrayList<>(inputFiles.size());
+    if (threads == 1 || inputFiles.size() <= 1) {
+      for (InputFile inputFile : inputFiles) {
+        entries.add(summarize(inputFile, previousEntries, cached, extracted));
+      }
+    } else {
+      AtomicInteger threadCount = new AtomicInteger();
+      ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+        Thread thread = new Thread(runnable, "python-index-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+      try {
+        List<Future<Entry>> futures = new ArrayList<>(inputFiles.size());
+        for (InputFile inputFile : inputFiles) {
+          futures.add(executor.submit(() -> summarize(inputFile, previousEntries, cached, extracted)));
+        }
+        for (Future<Entry> future : futures) {
+          entries.add(await(future));
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+    cachedFiles = cached.get();
+    extractedFiles = extracted.get();
+    return entries;
+  }
+
+  @CheckForNull
+  private Entry summarize(InputFile inputFile, Map<String, Entry> previousEntries, AtomicInteger cached, AtomicInteger extracted) {
+    try {
+      String content = SonarQubePythonFile.create(inputFile).content();
+      byte[] contentHash = PythonAnalysisCache.hash(content);
+      Entry previousEntry = previousEntries.get(inputFile.key());
+      if (previousEntry != null && Arrays.equals(previousEntry.contentHash, contentHash)) {
+        cached.incrementAndGet();
+        return previousEntry;
+      }
+      ModuleSummary summary = ModuleSummary.extract(lexers.get().lex(content));
+      extracted.incrementAndGet();
+      return new Entry(contentHash, summary);
+    } catch (RuntimeException e) {
+      LOG.debug("Unable to index file '{}': {}", inputFile, e.getMessage());
+      return null;
+    }
+  }
+
+  @CheckForNull
+  private static Entry await(Future<Entry> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while indexing the Python files", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Indexing of a Python file failed", e.getCause());
+    }
+  }
+
+  /**
+   * "a/b/c.py" is module "a.b.c" when "a" and "a/b" are packages (directories containing a "__init__.py" file), "b.c"
+   * when only "a/b" is, and "c" otherwise. "a/b/__init__.py" is module "a.b".
+   */
+  static String moduleName(Path file, Set<Path> packageDirectories) {
+    Deque<String> names = new ArrayDeque<>();
+    String fileName = file.getFileName().toString();
+    if (!PACKAGE_FILE_NAME.equals(fileName)) {
+      int extensionStart = fileName.lastIndexOf('.');
+      names.push(extensionStart > 0 ? fileName.substring(0, extensionStart) : fileName);
+    }
+    Path directory = file.getParent();
+    while (directory != null && directory.getFileName() != null && packageDirectories.contains(directory)) {
+      names.push(directory.getFileName().toString());
+      directory = directory.getParent();
+    }
+    return String.join(".", names);
+  }
+
+  private Map<String, Entry> load(Path file) {
+    if (!Files.isRegularFile(file)) {
+      return Collections.emptyMap();
+    }
+    try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(file))) {
+      DataInputStream in = new DataInputStream(inputStream);
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !Arrays.equals(CacheFiles.readBytes(in, MAX_ARRAY_LENGTH), fingerprint)) {
+        LOG.debug("Ignoring the Python project index written by another version of the plugin");
+        return Collections.emptyMap();
+      }
+      int entryCount = in.readInt();
+      Map<String, Entry> entries = new HashMap<>();
+      for (int i = 0; i < entryCount; i++) {
+        String key = in.readUTF();
+        entries.put(key, new Entry(CacheFiles.readBytes(in, MAX_ARRAY_LENGTH), ModuleSummary.read(in)));
+      }
+      return entries;
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Ignoring the Python project index \"{}\" which cannot be read: {}", file, e.getMessage());
+      return Collections.emptyMap();
+    }
+  }
+
+  private void save(Path file, Map<String, Entry> entries) {
+    try {
+      CacheFiles.writeAtomically(file, out -> {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        CacheFiles.writeBytes(out, fingerprint);
+        out.writeInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+          out.writeUTF(entry.getKey());
+          CacheFiles.writeBytes(out, entry.getValue().contentHash);
+          entry.getValue().summary.write(out);
+        }
+      });
+    } catch (IOException e) {
+      LOG.warn("Unable to save the Python project index \"{}\": {}", file, e.getMessage());
+    }
+  }
+
+  private static class Entry {
+    private final byte[] contentHash;
+    private final ModuleSummary summary;
+
+    Entry(byte[] contentHash, ModuleSummary summary) {
+      this.contentHash = contentHash;
+      this.summary = summary;
+    }
+  }
+
+}
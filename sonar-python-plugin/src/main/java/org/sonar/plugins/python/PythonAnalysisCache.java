@@ -0,0 +1,210 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import javax.annotation.CheckForNull;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Results of the previous analysis of each file, stored in a binary file of the sensor working directory, so that
+ * files which did not change since the previous analysis do not need to be parsed and analyzed again.
+ * <p>
+ * The whole cache is discarded when the fingerprint of the analysis (plugin version, active rules and their parameters)
+ * changed. Each entry is only reused if the hash of the content of the file is the same.
+ * <p>
+ * File format: magic number, format version, fingerprint, then for each file: key, content hash, results and the CRC32
+ * of the results. The cache is ignored if the file cannot be read, whatever the reason.
+ * <p>
+ * {@link #get(String, byte[])} can be called concurrently by the analysis threads, the other methods must only be
+ * called by the thread which saves the results.
+ */
+class PythonAnalysisCache {
+
+  private static final Logger LOG = Loggers.get(PythonAnalysisCache.class);
+
+  static final String FILE_NAME = "python-analysis-cache.bin";
+
+  private static final int MAGIC = 0x50594143;
+  private static final int FORMAT_VERSION = 1;
+  // guards against allocating huge arrays when reading a corrupted file
+  private static final int MAX_ARRAY_LENGTH = 1 << 28;
+
+  private final Path cacheFile;
+  private final byte[] fingerprint;
+  private final Map<String, Entry> previousEntries;
+  private final Map<String, Entry> currentEntries = new LinkedHashMap<>();
+
+  private PythonAnalysisCache(Path cacheFile, byte[] fingerprint, Map<String, Entry> previousEntries) {
+    this.cacheFile = cacheFile;
+    this.fingerprint = fingerprint;
+    this.previousEntries = previousEntries;
+  }
+
+  static PythonAnalysisCache load(Path workDir, byte[] fingerprint) {
+    Path cacheFile = workDir.resolve(FILE_NAME);
+    Map<String, Entry> entries = Collections.emptyMap();
+    if (Files.isRegularFile(cacheFile)) {
+      try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(cacheFile))) {
+        entries = readEntries(new DataInputStream(inputStream), fingerprint);
+      } catch (IOException | RuntimeException e) {
+        LOG.warn("Ignoring the Python analysis cache \"{}\" which cannot be read: {}", cacheFile, e.getMessage());
+        entries = Collections.emptyMap();
+      }
+    }
+    LOG.debug("{} entries loaded from the Python analysis cache", entries.size());
+    return new PythonAnalysisCache(cacheFile, fingerprint, entries);
+  }
+
+  private static Map<String, Entry> readEntries(DataInputStream in, byte[] fingerprint) throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("not a Python analysis cache");
+    }
+    int formatVersion = in.readInt();
+    if (formatVersion != FORMAT_VERSION) {
+      LOG.debug("Ignoring the Python analysis cache written with format version {}", formatVersion);
+      return Collections.emptyMap();
+    }
+    if (!Arrays.equals(CacheFiles.readBytes(in, MAX_ARRAY_LENGTH), fingerprint)) {
+      LOG.debug("Ignoring the Python analysis cache written with other rules or another version of the plugin");
+      return Collections.emptyMap();
+    }
+    int entryCount = in.readInt();
+    Map<String, Entry> entries = new HashMap<>();
+    for (int i = 0; i < entryCount; i++) {
+      String key = in.readUTF();
+      byte[] contentHash = CacheFiles.readBytes(in, MAX_ARRAY_LENGTH);
+      byte[] results = CacheFiles.readBytes(in, MAX_ARRAY_LENGTH);
+      if (in.readLong() != crc32(results)) {
+        throw new IOException("corrupted entry for " + key);
+      }
+      entries.put(key, new Entry(contentHash, results));
+    }
+    if (in.read() != -1) {
+      throw new IOException("unexpected data after the last entry");
+    }
+    return entries;
+  }
+
+  /**
+   * @return the results of the previous analysis of the file, or null if it was not analyzed or if its content changed
+   */
+  @CheckForNull
+  FileResults get(String key, byte[] contentHash) {
+    Entry entry = previousEntries.get(key);
+    if (entry == null || !Arrays.equals(entry.contentHash, contentHash)) {
+      return null;
+    }
+    try {
+      return FileResults.read(new DataInputStream(new ByteArrayInputStream(entry.results)));
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Ignoring the cached results of {}: {}", key, e.getMessage());
+      return null;
+    }
+  }
+
+  void put(String key, byte[] contentHash, FileResults results) {
+    Entry previousEntry = previousEntries.get(key);
+    if (previousEntry != null && Arrays.equals(previousEntry.contentHash, contentHash)) {
+      currentEntries.put(key, previousEntry);
+      return;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      results.write(new DataOutputStream(bytes));
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot serialize the results of " + key, e);
+    }
+    currentEntries.put(key, new Entry(contentHash, bytes.toByteArray()));
+  }
+
+  /**
+   * Replaces the cache file with the entries of the files analyzed by the current analysis.
+   */
+  void save() {
+    try {
+      CacheFiles.writeAtomically(cacheFile, out -> {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        CacheFiles.writeBytes(out, fingerprint);
+        out.writeInt(currentEntries.size());
+        for (Map.Entry<String, Entry> entry : currentEntries.entrySet()) {
+          out.writeUTF(entry.getKey());
+          CacheFiles.writeBytes(out, entry.getValue().contentHash);
+          CacheFiles.writeBytes(out, entry.getValue().results);
+          out.writeLong(crc32(entry.getValue().results));
+        }
+      });
+      LOG.debug("{} entries saved in the Python analysis cache", currentEntries.size());
+    } catch (IOException e) {
+      LOG.warn("Unable to save the Python analysis cache \"{}\": {}", cacheFile, e.getMessage());
+    }
+  }
+
+  static byte[] hash(String... values) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    for (String value : values) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      // length prefix, so that ("ab", "c") and ("a", "bc") have different hashes
+      digest.update(new byte[] {(byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16), (byte) (bytes.length >>> 8), (byte) bytes.length});
+      digest.update(bytes);
+    }
+    return digest.digest();
+  }
+
+  private static long crc32(byte[] bytes) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(bytes);
+    return crc32.getValue();
+  }
+
+  private static class Entry {
+    private final byte[] contentHash;
+    private final byte[] results;
+
+    Entry(byte[] contentHash, byte[] results) {
+      this.contentHash = contentHash;
+      this.results = results;
+    }
+  }
+}
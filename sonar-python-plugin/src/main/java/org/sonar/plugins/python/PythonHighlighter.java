@@ -24,13 +24,10 @@ import com.intellij.psi.PsiWhiteSpace;
 import com.intellij.psi.impl.source.tree.LeafPsiElement;
 import com.jetbrains.python.PyTokenTypes;
 import com.jetbrains.python.psi.PyElementType;
-import com.jetbrains.python.psi.PyRecursiveElementVisitor;
-import org.sonar.api.batch.fs.InputFile;
-import org.sonar.api.batch.sensor.SensorContext;
-import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.python.frontend.LineOffsets;
 import org.sonar.python.frontend.PythonKeyword;
-import org.sonar.python.frontend.PythonTokenLocation;
+import org.sonar.python.metrics.LeafVisitor;
 
 /**
  * Colors Python code. Currently colors:
@@ -75,43 +72,51 @@ import org.sonar.python.frontend.PythonTokenLocation;
  * "Attribute docstrings" and "additional docstrings" (see PEP 258) are handled as normal string literals.
  * Reminder: a docstring is a string literal that occurs as the first statement in a module,
  * function, class, or method definition.
+ * <p>
+ * Only the leaves of the tree are colored: as a {@link LeafVisitor}, the highlighter is fed with the leaves met by the
+ * traversal computing the metrics.
  */
-public class PythonHighlighter extends PyRecursiveElementVisitor {
+public class PythonHighlighter implements LeafVisitor {
 
-  private NewHighlighting newHighlighting;
+  private final HighlightingConsumer consumer;
 
-  PythonHighlighter(SensorContext context, InputFile inputFile) {
-    newHighlighting = context.newHighlighting();
-    newHighlighting.onFile(inputFile);
-  }
+  private LineOffsets lineOffsets;
 
-  NewHighlighting getNewHighlighting() {
-    return newHighlighting;
+  PythonHighlighter(HighlightingConsumer consumer) {
+    this.consumer = consumer;
   }
 
   @Override
-  public void visitElement(PsiElement element) {
-    if (element instanceof LeafPsiElement && !(element instanceof PsiWhiteSpace)) {
-      LeafPsiElement leaf = (LeafPsiElement) element;
-      PyElementType elementType = (PyElementType) leaf.getElementType();
-      if (PythonKeyword.isKeyword(elementType)) {
-        highlight(leaf, TypeOfText.KEYWORD);
-      } else if (PyTokenTypes.NUMERIC_LITERALS.contains(elementType)) {
-        highlight(leaf, TypeOfText.CONSTANT);
-      } else if (elementType == PyTokenTypes.DOCSTRING) {
-        highlight(leaf, TypeOfText.STRUCTURED_COMMENT);
-      } else if (PyTokenTypes.STRING_NODES.contains(elementType)) {
-        highlight(leaf, TypeOfText.STRING);
-      } else if (elementType == PyTokenTypes.END_OF_LINE_COMMENT) {
-        highlight(leaf, TypeOfText.COMMENT);
-      }
+  public void visitLeaf(LeafPsiElement leaf) {
+    if (leaf instanceof PsiWhiteSpace) {
+      return;
+    }
+    PyElementType elementType = (PyElementType) leaf.getElementType();
+    if (PythonKeyword.isKeyword(elementType)) {
+      highlight(leaf, TypeOfText.KEYWORD);
+    } else if (PyTokenTypes.NUMERIC_LITERALS.contains(elementType)) {
+      highlight(leaf, TypeOfText.CONSTANT);
+    } else if (elementType == PyTokenTypes.DOCSTRING) {
+      highlight(leaf, TypeOfText.STRUCTURED_COMMENT);
+    } else if (PyTokenTypes.STRING_NODES.contains(elementType)) {
+      highlight(leaf, TypeOfText.STRING);
+    } else if (elementType == PyTokenTypes.END_OF_LINE_COMMENT) {
+      highlight(leaf, TypeOfText.COMMENT);
     }
-    super.visitElement(element);
   }
 
   private void highlight(PsiElement token, TypeOfText typeOfText) {
-    PythonTokenLocation tokenLocation = new PythonTokenLocation(token);
-    newHighlighting.highlight(tokenLocation.startLine(), tokenLocation.startLineOffset(), tokenLocation.endLine(), tokenLocation.endLineOffset(), typeOfText);
+    if (lineOffsets == null) {
+      lineOffsets = LineOffsets.of(token);
+    }
+    long start = lineOffsets.startPosition(token);
+    long end = lineOffsets.endPosition(token);
+    consumer.highlight(LineOffsets.lineOf(start), LineOffsets.columnOf(start), LineOffsets.lineOf(end), LineOffsets.columnOf(end), typeOfText);
+  }
+
+  @FunctionalInterface
+  interface HighlightingConsumer {
+    void highlight(int startLine, int startLineOffset, int endLine, int endLineOffset, TypeOfText typeOfText);
   }
 
 }
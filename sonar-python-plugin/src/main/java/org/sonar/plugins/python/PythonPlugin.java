@@ -65,7 +65,27 @@ public class PythonPlugin implements Plugin {
         .onQualifiers(Qualifiers.PROJECT)
         .defaultValue("py")
         .build(),
-
+      PropertyDefinition.builder(PythonSquidSensor.ANALYSIS_THREADS_KEY)
+        .index(11)
+        .name("Analysis threads")
+        .description("Number of threads used to analyze Python files and to read coverage, Pylint and Bandit reports. Files are analyzed sequentially when set to 1.")
+        .category(PYTHON_CATEGORY)
+        .subCategory(GENERAL)
+        .onQualifiers(Qualifiers.PROJECT)
+        .defaultValue("1")
+        .type(PropertyType.INTEGER)
+        .build(),
+      PropertyDefinition.builder(PythonSquidSensor.ANALYSIS_CACHE_KEY)
+        .index(12)
+        .name("Analysis cache")
+        .description("Reuse the results of the previous analysis for the Python files which did not change. " +
+          "The results are stored in the working directory of the analysis.")
+        .category(PYTHON_CATEGORY)
+        .subCategory(GENERAL)
+        .onQualifiers(Qualifiers.PROJECT)
+        .defaultValue("true")
+        .type(PropertyType.BOOLEAN)
+        .build(),
 
       Python.class,
 
@@ -81,6 +101,8 @@ public class PythonPlugin implements Plugin {
       } else {
         context.addExtension(NoOpAnalysisWarningsWrapper.class);
       }
+      // shared by the sensors importing reports
+      context.addExtensions(ReportPathResolver.class, DirectoryListings.class);
 
       addCoberturaExtensions(context);
       addXUnitExtensions(context);
@@ -169,6 +191,18 @@ public class PythonPlugin implements Plugin {
         .onQualifiers(Qualifiers.PROJECT)
         .defaultValue("")
         .build(),
+      PropertyDefinition.builder(PylintConfiguration.PYLINT_BATCH_SIZE_KEY)
+        .index(33)
+        .name("Pylint batch size")
+        .description("Number of files analyzed by each execution of pylint. When set to 0, pylint is executed once per file. " +
+          "Otherwise, the executions are run in parallel according to '" + PythonSquidSensor.ANALYSIS_THREADS_KEY + "', " +
+          "and the results of the files which did not change are reused according to '" + PythonSquidSensor.ANALYSIS_CACHE_KEY + "'.")
+        .category(PYTHON_CATEGORY)
+        .subCategory(PYLINT)
+        .onQualifiers(Qualifiers.PROJECT)
+        .defaultValue("0")
+        .type(PropertyType.INTEGER)
+        .build(),
       PylintConfiguration.class,
       PylintSensor.class,
       PylintImportSensor.class,
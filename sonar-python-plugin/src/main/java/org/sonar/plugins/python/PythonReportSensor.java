@@ -36,11 +36,13 @@ public abstract class PythonReportSensor implements Sensor {
   private static final Logger LOG = Loggers.get(PythonReportSensor.class);
 
   protected final Configuration conf;
+  private final DirectoryListings directoryListings;
   private final AnalysisWarningsWrapper analysisWarnings;
   private final String reportType;
 
-  public PythonReportSensor(Configuration conf, AnalysisWarningsWrapper analysisWarnings, String reportType) {
+  public PythonReportSensor(Configuration conf, DirectoryListings directoryListings, AnalysisWarningsWrapper analysisWarnings, String reportType) {
     this.conf = conf;
+    this.directoryListings = directoryListings;
     this.analysisWarnings = analysisWarnings;
     this.reportType = reportType;
   }
@@ -58,7 +60,7 @@ public abstract class PythonReportSensor implements Sensor {
     String reportPathPropertyKey = reportPathKey();
     String reportPath = conf.get(reportPathPropertyKey).orElse(defaultReportPath());
     try {
-      List<File> reports = getReports(conf, context.fileSystem().baseDir().getPath(), reportPathPropertyKey, reportPath);
+      List<File> reports = getReports(conf, directoryListings, reportPathPropertyKey, reportPath);
       processReports(context, reports);
     } catch (Exception e) {
       LOG.warn("Cannot read report '{}', the following exception occurred: {}", reportPath, e.getMessage());
@@ -66,10 +68,10 @@ public abstract class PythonReportSensor implements Sensor {
     }
   }
 
-  public static List<File> getReports(Configuration conf, String baseDirPath, String reportPathPropertyKey, String reportPath) {
+  public static List<File> getReports(Configuration conf, DirectoryListings directoryListings, String reportPathPropertyKey, String reportPath) {
     LOG.debug("Using pattern '{}' to find reports", reportPath);
 
-    DirectoryScanner scanner = new DirectoryScanner(new File(baseDirPath), WildcardPattern.create(reportPath));
+    DirectoryScanner scanner = directoryListings.scanner(WildcardPattern.create(reportPath));
     List<File> includedFiles = scanner.getIncludedFiles();
 
     if (includedFiles.isEmpty()) {
@@ -20,15 +20,35 @@
 package org.sonar.plugins.python;
 
 import com.jetbrains.python.psi.PyFile;
+import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.Grammar;
 import com.sonar.sslr.api.RecognitionException;
 import com.sonar.sslr.impl.Parser;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.TextRange;
 import org.sonar.api.batch.rule.Checks;
 import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.cpd.NewCpdTokens;
+import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.api.batch.sensor.issue.NewIssue;
 import org.sonar.api.batch.sensor.issue.NewIssueLocation;
 import org.sonar.api.issue.NoSonarFilter;
@@ -39,103 +59,423 @@ import org.sonar.api.measures.Metric;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
-import org.sonar.plugins.python.cpd.PythonCpdAnalyzer;
+import org.sonar.plugins.python.cpd.CpdTokenizer;
+import org.sonar.python.CheckTimeRecorder;
 import org.sonar.python.IssueLocation;
 import org.sonar.python.PythonCheck;
 import org.sonar.python.PythonCheck.PreciseIssue;
 import org.sonar.python.PythonConfiguration;
 import org.sonar.python.PythonFile;
+import org.sonar.python.PythonVisitor;
 import org.sonar.python.PythonVisitorContext;
+import org.sonar.python.PythonVisitorMultiplexer;
 import org.sonar.python.SubscriptionVisitor;
+import org.sonar.python.frontend.LanguageLevelMemo;
 import org.sonar.python.metrics.FileMetrics;
+import org.sonar.python.metrics.LeafVisitor;
 import org.sonar.python.metrics.MetricsVisitor;
 import org.sonar.python.parser.PythonParser;
+import org.sonar.python.semantic.ProjectIndex;
 
+/**
+ * Analyzes Python files and saves the results (issues, measures, highlighting, CPD tokens) on the sensor context.
+ * <p>
+ * When a cache is given, the results of the files which did not change since the previous analysis are read from
+ * the cache instead of parsing and analyzing the files again.
+ * <p>
+ * When more than one thread is requested, files are analyzed concurrently by workers which each own their
+ * parsers and their instances of the checks. Results are always saved from the calling thread, in the order
+ * of the input files, so that the outcome of the analysis does not depend on the number of threads.
+ */
 public class PythonScanner {
 
   private static final Logger LOG = Loggers.get(PythonScanner.class);
 
   private final SensorContext context;
-  private final Parser<Grammar> parser;
+  private final Supplier<Checks<PythonCheck>> checksSupplier;
   private final List<InputFile> inputFiles;
-  private final Checks<PythonCheck> checks;
   private final FileLinesContextFactory fileLinesContextFactory;
   private final NoSonarFilter noSonarFilter;
-  private final PythonCpdAnalyzer cpdAnalyzer;
+  private final int threads;
+  private final PythonAnalysisCache cache;
+  private final LanguageLevelMemo languageLevelMemo = new LanguageLevelMemo();
+  @Nullable
+  private AnalysisProfiler profiler;
+  private ProjectIndex projectIndex = ProjectIndex.EMPTY;
 
   public PythonScanner(SensorContext context, Checks<PythonCheck> checks,
     FileLinesContextFactory fileLinesContextFactory, NoSonarFilter noSonarFilter, List<InputFile> inputFiles) {
+    this(context, () -> checks, fileLinesContextFactory, noSonarFilter, inputFiles, 1, null);
+  }
+
+  /**
+   * @param checksSupplier called once per analysis thread, it must return new check instances on each call when {@code threads > 1}
+   * @param cache results of the previous analysis, null to analyze all the files
+   */
+  PythonScanner(SensorContext context, Supplier<Checks<PythonCheck>> checksSupplier,
+    FileLinesContextFactory fileLinesContextFactory, NoSonarFilter noSonarFilter, List<InputFile> inputFiles, int threads,
+    @Nullable PythonAnalysisCache cache) {
     this.context = context;
-    this.checks = checks;
+    this.checksSupplier = checksSupplier;
     this.fileLinesContextFactory = fileLinesContextFactory;
     this.noSonarFilter = noSonarFilter;
-    this.cpdAnalyzer = new PythonCpdAnalyzer(context);
     this.inputFiles = inputFiles;
-    this.parser = PythonParser.create(new PythonConfiguration(context.fileSystem().encoding()));
+    this.threads = Math.max(1, threads);
+    this.cache = cache;
+  }
+
+  /**
+   * Records the time spent in each phase and in each rule. Must be called before {@link #scanFiles()}.
+   */
+  void setProfiler(@Nullable AnalysisProfiler profiler) {
+    this.profiler = profiler;
+  }
+
+  /**
+   * Index of the modules of the project, made available to the checks. Must be called before {@link #scanFiles()}.
+   */
+  void setProjectIndex(ProjectIndex projectIndex) {
+    this.projectIndex = projectIndex;
   }
 
   public void scanFiles() {
+    if (threads == 1 || inputFiles.size() <= 1) {
+      scanFilesSequentially();
+    } else {
+      scanFilesInParallel();
+    }
+    if (cache != null && !context.isCancelled()) {
+      cache.save();
+    }
+    LOG.debug("{} files parsed by the PSI parser, {} of them parsed twice because of a wrong language level guess",
+      languageLevelMemo.parsedFiles(), languageLevelMemo.reparsedFiles());
+  }
+
+  private void scanFilesSequentially() {
+    FileScanner fileScanner = new FileScanner(checksSupplier.get(), new org.sonar.python.frontend.PythonParser(languageLevelMemo));
     for (InputFile pythonFile : inputFiles) {
       if (context.isCancelled()) {
         return;
       }
+      save(pythonFile, fileScanner.scan(pythonFile));
+    }
+  }
+
+  private void scanFilesInParallel() {
+    LOG.info("Analyzing {} files using {} threads", inputFiles.size(), threads);
+    BlockingQueue<FileScanner> idleFileScanners = new ArrayBlockingQueue<>(threads);
+    for (int i = 0; i < threads; i++) {
+      idleFileScanners.add(new FileScanner(checksSupplier.get(), org.sonar.python.frontend.PythonParser.createIsolated(languageLevelMemo)));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new WorkerThreadFactory());
+    // bound the number of analyzed files waiting to be saved, to bound memory usage
+    int maxPendingFiles = threads * 2;
+    Deque<Future<FileResults>> pendingResults = new ArrayDeque<>();
+    Deque<InputFile> pendingInputFiles = new ArrayDeque<>();
+    Iterator<InputFile> inputFileIterator = inputFiles.iterator();
+    try {
+      while (inputFileIterator.hasNext() || !pendingResults.isEmpty()) {
+        if (context.isCancelled()) {
+          return;
+        }
+        while (inputFileIterator.hasNext() && pendingResults.size() < maxPendingFiles) {
+          InputFile inputFile = inputFileIterator.next();
+          pendingResults.add(executor.submit(() -> scanWithIdleScanner(idleFileScanners, inputFile)));
+          pendingInputFiles.add(inputFile);
+        }
+        save(pendingInputFiles.remove(), awaitResults(pendingResults.remove()));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static FileResults scanWithIdleScanner(BlockingQueue<FileScanner> idleFileScanners, InputFile inputFile) throws InterruptedException {
+    FileScanner fileScanner = idleFileScanners.take();
+    try {
+      return fileScanner.scan(inputFile);
+    } finally {
+      idleFileScanners.add(fileScanner);
+    }
+  }
+
+  private static FileResults awaitResults(Future<FileResults> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the analysis of a Python file", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Analysis of a Python file failed", e.getCause());
+    }
+  }
+
+  /**
+   * State needed to analyze one file at a time. An instance must not be used by several threads at the same time.
+   */
+  private class FileScanner {
+
+    private final Checks<PythonCheck> checks;
+    private final List<PythonCheck> syntaxTreeChecks;
+    private final PythonVisitorMultiplexer syntaxTreeVisitor;
+    private final SubscriptionVisitor subscriptionVisitor;
+    private final Parser<Grammar> parser;
+    private final org.sonar.python.frontend.PythonParser psiParser;
+    // time spent by each check on the current file, only when profiling
+    private final Map<PythonCheck, Integer> checkIndexes = new IdentityHashMap<>();
+    private final String[] ruleKeys;
+    private final long[] ruleNanos;
+
+    FileScanner(Checks<PythonCheck> checks, org.sonar.python.frontend.PythonParser psiParser) {
+      this.checks = checks;
+      this.syntaxTreeChecks = checks.all().stream()
+        .filter(check -> PythonVisitor.visitsSyntaxTree(check.getClass()))
+        .collect(Collectors.toList());
+      this.syntaxTreeVisitor = new PythonVisitorMultiplexer(syntaxTreeChecks);
+      this.subscriptionVisitor = new SubscriptionVisitor(checks.all());
+      this.parser = PythonParser.create(new PythonConfiguration(context.fileSystem().encoding()));
+      this.psiParser = psiParser;
+      if (profiler != null) {
+        List<PythonCheck> allChecks = new ArrayList<>(checks.all());
+        ruleKeys = new String[allChecks.size()];
+        ruleNanos = new long[allChecks.size()];
+        for (int i = 0; i < allChecks.size(); i++) {
+          checkIndexes.put(allChecks.get(i), i);
+          ruleKeys[i] = checks.ruleKey(allChecks.get(i)).toString();
+        }
+        CheckTimeRecorder timeRecorder = (check, nanos) -> ruleNanos[checkIndexes.get(check)] += nanos;
+        syntaxTreeVisitor.setTimeRecorder(timeRecorder);
+        subscriptionVisitor.setTimeRecorder(timeRecorder);
+      } else {
+        ruleKeys = new String[0];
+        ruleNanos = new long[0];
+      }
+    }
+
+    FileResults scan(InputFile inputFile) {
+      long start = System.nanoTime();
+      try {
+        return scanOrReadFromCache(inputFile);
+      } finally {
+        if (profiler != null) {
+          profiler.recordFile(inputFile.toString(), System.nanoTime() - start);
+          for (int i = 0; i < ruleNanos.length; i++) {
+            if (ruleNanos[i] > 0) {
+              profiler.recordRule(ruleKeys[i], ruleNanos[i]);
+              ruleNanos[i] = 0;
+            }
+          }
+        }
+      }
+    }
+
+    private FileResults scanOrReadFromCache(InputFile inputFile) {
+      FileResults results = new FileResults();
       try {
-        scanFile(pythonFile);
+        PythonFile pythonFile = SonarQubePythonFile.create(inputFile);
+        String fileContent = pythonFile.content();
+        byte[] contentHash = null;
+        if (cache != null) {
+          byte[] hash = PythonAnalysisCache.hash(fileContent);
+          contentHash = hash;
+          FileResults cachedResults = measure(AnalysisProfiler.CACHE, () -> cache.get(inputFile.key(), hash));
+          if (cachedResults != null) {
+            cachedResults.setContentHash(contentHash);
+            return cachedResults;
+          }
+        }
+        scanFile(inputFile, pythonFile, fileContent, results);
+        results.setContentHash(contentHash);
+        results.markComplete();
       } catch (Exception e) {
-        LOG.warn("Unable to analyze file '{}'. Error: {}", pythonFile.toString(), e);
+        LOG.warn("Unable to analyze file '{}'. Error: {}", inputFile.toString(), e);
+      }
+      return results;
+    }
+
+    private void scanFile(InputFile inputFile, PythonFile pythonFile, String fileContent, FileResults results) {
+      PythonVisitorContext visitorContext;
+      PyFile pyFile = null;
+      try {
+        if (syntaxTreeChecks.isEmpty()) {
+          // no active check visits the SSLR tree: it is only built if something asks for it, so a file only rejected by the
+          // SSLR parser is analyzed with the PSI tree, without analysis error, unless the SSLR tree is requested
+          visitorContext = new PythonVisitorContext(() -> parseOnDemand(inputFile, fileContent, results), pythonFile);
+        } else {
+          visitorContext = new PythonVisitorContext(measure(AnalysisProfiler.SSLR_PARSE, () -> parser.parse(fileContent)), pythonFile);
+        }
+        pyFile = measure(AnalysisProfiler.PSI_PARSE, () -> psiParser.parse(fileContent));
+        computeMeasures(inputFile, pyFile, results);
+      } catch (RecognitionException e) {
+        visitorContext = new PythonVisitorContext(pythonFile, e);
+        parseError(inputFile, e, results);
+      }
+
+      visitorContext.setProjectIndex(projectIndex);
+      PythonVisitorContext finalVisitorContext = visitorContext;
+      if (profiler != null && !syntaxTreeChecks.isEmpty() && visitorContext.rootTree() != null) {
+        // the symbol table is built lazily by the first check using it: build it first so that its time is not attributed to a check
+        measure(AnalysisProfiler.SYMBOL_TABLE, finalVisitorContext::symbolTable);
+      }
+      measure(AnalysisProfiler.SYNTAX_TREE_CHECKS, () -> syntaxTreeVisitor.scanFile(finalVisitorContext));
+
+      if (pyFile != null) {
+        PyFile finalPyFile = pyFile;
+        measure(AnalysisProfiler.SUBSCRIPTION_CHECKS, () -> subscriptionVisitor.analyze(finalVisitorContext, finalPyFile));
       }
+
+      for (PreciseIssue preciseIssue : visitorContext.getIssues()) {
+        RuleKey ruleKey = checks.ruleKey(preciseIssue.check());
+        Integer cost = preciseIssue.cost();
+        List<FileResults.Location> secondaryLocations = preciseIssue.secondaryLocations().stream()
+          .map(PythonScanner::toLocation)
+          .collect(Collectors.toList());
+        results.addIssue(new FileResults.Issue(ruleKey.repository(), ruleKey.rule(), cost == null ? null : cost.doubleValue(),
+          toLocation(preciseIssue.primaryLocation()), secondaryLocations));
+      }
+    }
+
+    /**
+     * Builds the SSLR tree requested after the PSI tree: a parse error is reported as when the file is parsed upfront, while
+     * the results already computed from the PSI tree are kept.
+     */
+    @CheckForNull
+    private AstNode parseOnDemand(InputFile inputFile, String fileContent, FileResults results) {
+      try {
+        return measure(AnalysisProfiler.SSLR_PARSE, () -> parser.parse(fileContent));
+      } catch (RecognitionException e) {
+        parseError(inputFile, e, results);
+        return null;
+      }
+    }
+  }
+
+  private static void parseError(InputFile inputFile, RecognitionException e, FileResults results) {
+    LOG.error("Unable to parse file: " + inputFile.toString());
+    LOG.error(e.getMessage());
+    results.setError(e.getLine(), e.getMessage());
+  }
+
+  private static class WorkerThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "python-analysis-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
     }
   }
 
-  private void scanFile(InputFile inputFile) {
-    PythonFile pythonFile = SonarQubePythonFile.create(inputFile);
-    PythonVisitorContext visitorContext;
-    String fileContent = pythonFile.content();
-    PyFile pyFile = null;
+  private <T> T measure(String phase, Supplier<T> supplier) {
+    if (profiler == null) {
+      return supplier.get();
+    }
+    long start = System.nanoTime();
     try {
-      visitorContext = new PythonVisitorContext(parser.parse(fileContent), pythonFile);
-      pyFile = new org.sonar.python.frontend.PythonParser().parse(fileContent);
-      saveMeasures(inputFile, pyFile, fileContent);
-    } catch (RecognitionException e) {
-      visitorContext = new PythonVisitorContext(pythonFile, e);
-      LOG.error("Unable to parse file: " + inputFile.toString());
-      LOG.error(e.getMessage());
+      return supplier.get();
+    } finally {
+      profiler.recordPhase(phase, System.nanoTime() - start);
+    }
+  }
+
+  private void measure(String phase, Runnable runnable) {
+    measure(phase, () -> {
+      runnable.run();
+      return null;
+    });
+  }
+
+  private static FileResults.Location toLocation(IssueLocation location) {
+    return new FileResults.Location(location.startLine(), location.startLineOffset(), location.endLine(), location.endLineOffset(), location.message());
+  }
+
+  /**
+   * Computes the measures, the highlighting and the CPD tokens of a file in a single traversal of its PSI tree.
+   */
+  private void computeMeasures(InputFile inputFile, PyFile pyFile, FileResults results) {
+    boolean ignoreHeaderComments = new PythonConfiguration(context.fileSystem().encoding()).getIgnoreHeaderComments();
+    List<LeafVisitor> leafVisitors = new ArrayList<>(2);
+    leafVisitors.add(new PythonHighlighter(results::highlight));
+    if (pyFile.getFirstChild() != null) {
+      results.markCpdTokens();
+      leafVisitors.add(new CpdTokenizer(results::addCpdToken));
+    }
+    FileMetrics fileMetrics = measure(AnalysisProfiler.METRICS, () -> new FileMetrics(ignoreHeaderComments, pyFile, leafVisitors));
+    results.markHighlighted();
+    MetricsVisitor metricsVisitor = fileMetrics.metricsVisitor();
+
+    int[] measures = new int[FileResults.MEASURE_COUNT];
+    measures[FileResults.NCLOC] = metricsVisitor.getLinesOfCode().size();
+    measures[FileResults.STATEMENTS] = fileMetrics.numberOfStatements();
+    measures[FileResults.FUNCTIONS] = fileMetrics.numberOfFunctions();
+    measures[FileResults.CLASSES] = fileMetrics.numberOfClasses();
+    measures[FileResults.COMPLEXITY] = fileMetrics.complexity();
+    measures[FileResults.COGNITIVE_COMPLEXITY] = fileMetrics.cognitiveComplexity();
+    measures[FileResults.COMMENT_LINES] = metricsVisitor.getCommentLineCount();
+    results.setMeasures(measures, metricsVisitor.getLinesOfCode(), metricsVisitor.getExecutableLines(), metricsVisitor.getLinesWithNoSonar());
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("{}: {} bytes used by the line sets", inputFile, metricsVisitor.lineSetsMemoryUsage());
+    }
+  }
+
+  /**
+   * Saves the results of a file on the sensor context. Must only be called from the thread which called {@link #scanFiles()}.
+   */
+  private void save(InputFile inputFile, FileResults results) {
+    measure(AnalysisProfiler.SAVE, () -> saveResults(inputFile, results));
+  }
+
+  private void saveResults(InputFile inputFile, FileResults results) {
+    if (results.hasCpdTokens()) {
+      NewCpdTokens cpdTokens = context.newCpdTokens().onFile(inputFile);
+      results.forEachCpdToken(cpdTokens::addToken);
+      cpdTokens.save();
+    }
+
+    if (results.hasMeasures()) {
+      saveMeasures(inputFile, results);
+    }
+
+    Integer errorLine = results.errorLine();
+    if (errorLine != null) {
       context.newAnalysisError()
         .onFile(inputFile)
-        .at(inputFile.newPointer(e.getLine(), 0))
-        .message(e.getMessage())
+        .at(inputFile.newPointer(errorLine, 0))
+        .message(results.errorMessage())
         .save();
     }
 
-    for (PythonCheck check : checks.all()) {
-      check.scanFile(visitorContext);
+    if (results.isHighlighted()) {
+      NewHighlighting newHighlighting = context.newHighlighting().onFile(inputFile);
+      results.forEachHighlighting(newHighlighting::highlight);
+      newHighlighting.save();
     }
 
-    if (pyFile != null) {
-      SubscriptionVisitor.analyze(checks.all(), visitorContext, pyFile);
-      PythonHighlighter pythonHighlighter = new PythonHighlighter(context, inputFile);
-      pyFile.accept(pythonHighlighter);
-      pythonHighlighter.getNewHighlighting().save();
-    }
+    saveIssues(inputFile, results.issues());
 
-    saveIssues(inputFile, visitorContext.getIssues());
+    byte[] contentHash = results.contentHash();
+    if (cache != null && contentHash != null && results.isComplete()) {
+      cache.put(inputFile.key(), contentHash, results);
+    }
   }
 
-  private void saveIssues(InputFile inputFile, List<PreciseIssue> issues) {
-    for (PreciseIssue preciseIssue : issues) {
-      RuleKey ruleKey = checks.ruleKey(preciseIssue.check());
+  private void saveIssues(InputFile inputFile, List<FileResults.Issue> issues) {
+    for (FileResults.Issue issue : issues) {
       NewIssue newIssue = context
         .newIssue()
-        .forRule(ruleKey);
+        .forRule(RuleKey.of(issue.ruleRepository(), issue.ruleKey()));
 
-      Integer cost = preciseIssue.cost();
-      if (cost != null) {
-        newIssue.gap(cost.doubleValue());
+      Double gap = issue.gap();
+      if (gap != null) {
+        newIssue.gap(gap);
       }
 
-      newIssue.at(newLocation(inputFile, newIssue, preciseIssue.primaryLocation()));
+      newIssue.at(newLocation(inputFile, newIssue, issue.primaryLocation()));
 
-      for (IssueLocation secondaryLocation : preciseIssue.secondaryLocations()) {
+      for (FileResults.Location secondaryLocation : issue.secondaryLocations()) {
         newIssue.addLocation(newLocation(inputFile, newIssue, secondaryLocation));
       }
 
@@ -143,7 +483,7 @@ public class PythonScanner {
     }
   }
 
-  private static NewIssueLocation newLocation(InputFile inputFile, NewIssue issue, IssueLocation location) {
+  private static NewIssueLocation newLocation(InputFile inputFile, NewIssue issue, FileResults.Location location) {
     NewIssueLocation newLocation = issue.newLocation()
       .on(inputFile);
     if (location.startLine() != IssueLocation.UNDEFINED_LINE) {
@@ -156,36 +496,27 @@ public class PythonScanner {
       newLocation.at(range);
     }
 
-    if (location.message() != null) {
-      newLocation.message(location.message());
+    String message = location.message();
+    if (message != null) {
+      newLocation.message(message);
     }
     return newLocation;
   }
 
-  private void saveMeasures(InputFile inputFile, PyFile pyFile, String fileContent) {
-    boolean ignoreHeaderComments = new PythonConfiguration(context.fileSystem().encoding()).getIgnoreHeaderComments();
-    FileMetrics fileMetrics = new FileMetrics(ignoreHeaderComments, pyFile);
-    MetricsVisitor metricsVisitor = fileMetrics.metricsVisitor();
-
-    cpdAnalyzer.pushCpdTokens(inputFile, pyFile, fileContent);
-    noSonarFilter.noSonarInFile(inputFile, metricsVisitor.getLinesWithNoSonar());
+  private void saveMeasures(InputFile inputFile, FileResults results) {
+    noSonarFilter.noSonarInFile(inputFile, results.noSonarLines().asSet());
 
-    Set<Integer> linesOfCode = metricsVisitor.getLinesOfCode();
-    saveMetricOnFile(inputFile, CoreMetrics.NCLOC, linesOfCode.size());
-    saveMetricOnFile(inputFile, CoreMetrics.STATEMENTS, fileMetrics.numberOfStatements());
-    saveMetricOnFile(inputFile, CoreMetrics.FUNCTIONS, fileMetrics.numberOfFunctions());
-    saveMetricOnFile(inputFile, CoreMetrics.CLASSES, fileMetrics.numberOfClasses());
-    saveMetricOnFile(inputFile, CoreMetrics.COMPLEXITY, fileMetrics.complexity());
-    saveMetricOnFile(inputFile, CoreMetrics.COGNITIVE_COMPLEXITY, fileMetrics.cognitiveComplexity());
-    saveMetricOnFile(inputFile, CoreMetrics.COMMENT_LINES, metricsVisitor.getCommentLineCount());
+    saveMetricOnFile(inputFile, CoreMetrics.NCLOC, results.measure(FileResults.NCLOC));
+    saveMetricOnFile(inputFile, CoreMetrics.STATEMENTS, results.measure(FileResults.STATEMENTS));
+    saveMetricOnFile(inputFile, CoreMetrics.FUNCTIONS, results.measure(FileResults.FUNCTIONS));
+    saveMetricOnFile(inputFile, CoreMetrics.CLASSES, results.measure(FileResults.CLASSES));
+    saveMetricOnFile(inputFile, CoreMetrics.COMPLEXITY, results.measure(FileResults.COMPLEXITY));
+    saveMetricOnFile(inputFile, CoreMetrics.COGNITIVE_COMPLEXITY, results.measure(FileResults.COGNITIVE_COMPLEXITY));
+    saveMetricOnFile(inputFile, CoreMetrics.COMMENT_LINES, results.measure(FileResults.COMMENT_LINES));
 
     FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(inputFile);
-    for (int line : linesOfCode) {
-      fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, 1);
-    }
-    for (int line : metricsVisitor.getExecutableLines()) {
-      fileLinesContext.setIntValue(CoreMetrics.EXECUTABLE_LINES_DATA_KEY, line, 1);
-    }
+    results.linesOfCode().forEach(line -> fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, 1));
+    results.executableLines().forEach(line -> fileLinesContext.setIntValue(CoreMetrics.EXECUTABLE_LINES_DATA_KEY, line, 1));
     fileLinesContext.save();
   }
 
@@ -19,9 +19,18 @@
  */
 package org.sonar.plugins.python;
 
+import java.io.File;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.TreeMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.SonarProduct;
 import org.sonar.api.batch.fs.FilePredicates;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Type;
@@ -32,19 +41,28 @@ import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.SensorDescriptor;
 import org.sonar.api.issue.NoSonarFilter;
 import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.python.ProjectIndexConsumer;
 import org.sonar.python.PythonCheck;
 import org.sonar.python.checks.CheckList;
+import org.sonar.python.semantic.ProjectIndex;
 
 public final class PythonSquidSensor implements Sensor {
 
-  private final Checks<PythonCheck> checks;
+  public static final String ANALYSIS_THREADS_KEY = "sonar.python.analysis.threads";
+  public static final String ANALYSIS_CACHE_KEY = "sonar.python.analysis.cache";
+  public static final String PERFORMANCE_MEASURE_KEY = "sonar.python.performance.measure";
+
+  private static final Logger LOG = Loggers.get(PythonSquidSensor.class);
+  private static final int SLOWEST_FILES_IN_REPORT = 20;
+
+  private final CheckFactory checkFactory;
   private final FileLinesContextFactory fileLinesContextFactory;
   private final NoSonarFilter noSonarFilter;
 
   public PythonSquidSensor(FileLinesContextFactory fileLinesContextFactory, CheckFactory checkFactory, NoSonarFilter noSonarFilter) {
-    this.checks = checkFactory
-      .<PythonCheck>create(CheckList.REPOSITORY_KEY)
-      .addAnnotatedChecks(CheckList.getChecks());
+    this.checkFactory = checkFactory;
     this.fileLinesContextFactory = fileLinesContextFactory;
     this.noSonarFilter = noSonarFilter;
   }
@@ -65,8 +83,94 @@ public final class PythonSquidSensor implements Sensor {
     it.forEach(list::add);
     List<InputFile> inputFiles = Collections.unmodifiableList(list);
 
-    PythonScanner scanner = new PythonScanner(context, checks, fileLinesContextFactory, noSonarFilter, inputFiles);
+    int threads = context.config().getInt(ANALYSIS_THREADS_KEY).orElse(1);
+    AnalysisProfiler profiler = null;
+    if (context.config().getBoolean(PERFORMANCE_MEASURE_KEY).orElse(false)) {
+      profiler = new AnalysisProfiler(SLOWEST_FILES_IN_REPORT);
+    }
+    Path cacheDirectory = cacheDirectory(context);
+
+    ProjectIndex projectIndex = ProjectIndex.EMPTY;
+    byte[] indexHash = null;
+    if (createChecks().all().stream().anyMatch(ProjectIndexConsumer.class::isInstance)) {
+      long indexStart = System.nanoTime();
+      ProjectIndexer projectIndexer = new ProjectIndexer(context.fileSystem().encoding(), threads, cacheDirectory, pluginVersion());
+      projectIndex = projectIndexer.index(inputFiles);
+      indexHash = projectIndexer.indexHash();
+      if (profiler != null) {
+        profiler.recordPhase(AnalysisProfiler.PROJECT_INDEX, System.nanoTime() - indexStart);
+      }
+    }
+
+    PythonAnalysisCache cache = cacheDirectory == null ? null : PythonAnalysisCache.load(cacheDirectory, fingerprint(context, indexHash));
+    PythonScanner scanner = new PythonScanner(context, this::createChecks, fileLinesContextFactory, noSonarFilter, inputFiles, threads, cache);
+    scanner.setProfiler(profiler);
+    scanner.setProjectIndex(projectIndex);
     scanner.scanFiles();
+    if (profiler != null) {
+      profiler.logSummary();
+      File workDir = context.fileSystem().workDir();
+      if (workDir != null) {
+        profiler.writeReport(workDir.toPath());
+      }
+    }
+  }
+
+  /**
+   * Directory of the files kept between analyses (analysis cache and project index), null when they are disabled.
+   */
+  @CheckForNull
+  private static Path cacheDirectory(SensorContext context) {
+    if (context.runtime().getProduct() == SonarProduct.SONARLINT || !context.config().getBoolean(ANALYSIS_CACHE_KEY).orElse(true)) {
+      return null;
+    }
+    File workDir = context.fileSystem().workDir();
+    return workDir == null ? null : workDir.toPath();
+  }
+
+  /**
+   * Anything which can change the results of the analysis of a file with the same content: the version of the plugin,
+   * the active rules and their parameters, and the project index when an active rule uses it.
+   */
+  private static byte[] fingerprint(SensorContext context, @Nullable byte[] indexHash) {
+    List<String> values = new ArrayList<>();
+    values.add(pluginVersion());
+    values.add(indexHash == null ? "" : Base64.getEncoder().encodeToString(indexHash));
+    context.activeRules().findByRepository(CheckList.REPOSITORY_KEY).stream()
+      .sorted(Comparator.comparing(activeRule -> activeRule.ruleKey().toString()))
+      .forEach(activeRule -> {
+        values.add(activeRule.ruleKey().toString());
+        new TreeMap<>(activeRule.params()).forEach((key, value) -> {
+          values.add(key);
+          values.add(value);
+        });
+        values.add("");
+      });
+    return PythonAnalysisCache.hash(values.toArray(new String[0]));
+  }
+
+  static String pluginVersion() {
+    String version = PythonSquidSensor.class.getPackage().getImplementationVersion();
+    if (version != null) {
+      return version;
+    }
+    // no version in the manifest (development build): identify the build by its location and modification date
+    try {
+      File location = new File(PythonSquidSensor.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+      return location.getPath() + "@" + location.lastModified();
+    } catch (URISyntaxException | RuntimeException e) {
+      LOG.debug("Unable to locate the Python plugin: {}", e.getMessage());
+      return "unknown";
+    }
+  }
+
+  /**
+   * Checks keep state about the file being analyzed, so each analysis thread needs its own instances.
+   */
+  private Checks<PythonCheck> createChecks() {
+    return checkFactory
+      .<PythonCheck>create(CheckList.REPOSITORY_KEY)
+      .addAnnotatedChecks(CheckList.getChecks());
   }
 
 }
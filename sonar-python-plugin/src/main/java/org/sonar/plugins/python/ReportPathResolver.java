@@ -0,0 +1,288 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.CheckForNull;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Resolves the paths found in the reports of external tools (Pylint, Bandit, coverage and xUnit reports) to the input
+ * files of the project. The input files are indexed once per analysis, on first use, in a trie of their reversed relative
+ * path segments, so that a path is resolved in a time proportional to its number of segments, whatever the number of files:
+ * <ul>
+ *   <li>a relative path is resolved against the base directory, as {@link org.sonar.api.batch.fs.FilePredicates#hasPath},
+ *   then as the suffix of the path of a single file (e.g. a report generated from a subdirectory)</li>
+ *   <li>an absolute path must be the absolute path of a file</li>
+ *   <li>'\' separators and drive letters of Windows paths are accepted on all platforms</li>
+ *   <li>a dotted module name, optionally followed by a class name, is resolved to the file of the module</li>
+ * </ul>
+ * The input files are expected not to change once the sensors are executed. The same instance is injected in the sensors
+ * importing reports. Can be used by several threads at the same time.
+ */
+@ScannerSide
+public class ReportPathResolver {
+
+  private static final Logger LOG = Loggers.get(ReportPathResolver.class);
+
+  private final FileSystem fileSystem;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  // built on first use, as the input files are not indexed yet when the sensors are created
+  private volatile Node root;
+
+  public ReportPathResolver(FileSystem fileSystem) {
+    this.fileSystem = fileSystem;
+  }
+
+  private Node root() {
+    Node result = root;
+    if (result == null) {
+      synchronized (this) {
+        result = root;
+        if (result == null) {
+          result = index();
+          root = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  private Node index() {
+    Node newRoot = new Node();
+    int count = 0;
+    for (InputFile inputFile : fileSystem.inputFiles(fileSystem.predicates().all())) {
+      add(newRoot, inputFile);
+      count++;
+    }
+    LOG.trace("{} files indexed to resolve the paths of reports", count);
+    return newRoot;
+  }
+
+  @SuppressWarnings("deprecation")
+  private static void add(Node root, InputFile inputFile) {
+    // the module relative path, as matched by FilePredicates#hasRelativePath
+    List<String> segments = segments(inputFile.relativePath());
+    if (segments == null || segments.isEmpty()) {
+      return;
+    }
+    Path absolutePath = Paths.get(inputFile.uri());
+    Node node = root;
+    for (int i = segments.size() - 1; i >= 0; i--) {
+      node = node.children.computeIfAbsent(segments.get(i), segment -> new Node());
+      node.fileCount++;
+      node.anyFile = inputFile;
+    }
+    node.file = inputFile;
+    node.absolutePath = absolutePath;
+  }
+
+  /**
+   * Same semantic as {@link org.sonar.api.batch.fs.FilePredicates#hasPath}: the path is either absolute, or relative
+   * to the base directory.
+   */
+  @CheckForNull
+  public InputFile inputFile(String path) {
+    return count(findExact(path));
+  }
+
+  /**
+   * Same as {@link #inputFile(String)}, but a relative path which is not relative to the base directory is resolved
+   * to the only file whose path ends with it.
+   */
+  @CheckForNull
+  public InputFile resolve(String path) {
+    InputFile inputFile = findExact(path);
+    if (inputFile == null && !isAbsolute(path)) {
+      inputFile = findBySuffix(segments(path));
+    }
+    return count(inputFile);
+  }
+
+  /**
+   * Resolves a dotted name, such as the class name of a test case, to the file of its module: "a.b.c" is first
+   * resolved as the path "a/b/c.py", then as the path "a/b.py" of the module of the class "c".
+   */
+  @CheckForNull
+  public InputFile resolveModule(String name) {
+    String modulePath = name.replace('.', '/') + ".py";
+    int lastDot = name.lastIndexOf('.');
+    String parentModulePath = lastDot < 0 ? null : (name.substring(0, lastDot).replace('.', '/') + ".py");
+    InputFile inputFile = findExact(modulePath);
+    if (inputFile == null && parentModulePath != null) {
+      inputFile = findExact(parentModulePath);
+    }
+    if (inputFile == null) {
+      inputFile = findBySuffix(segments(modulePath));
+    }
+    if (inputFile == null && parentModulePath != null) {
+      inputFile = findBySuffix(segments(parentModulePath));
+    }
+    return count(inputFile);
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  public void logStatistics() {
+    LOG.trace("Paths of reports resolved to input files: {} hits, {} misses", hits(), misses());
+  }
+
+  @CheckForNull
+  private InputFile count(@CheckForNull InputFile inputFile) {
+    if (inputFile == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return inputFile;
+  }
+
+  @CheckForNull
+  private InputFile findExact(String path) {
+    List<String> segments = segments(path);
+    if (segments == null || segments.isEmpty()) {
+      return null;
+    }
+    if (isAbsolute(path)) {
+      return findByAbsolutePath(path, segments);
+    }
+    Node node = walk(segments);
+    return node == null ? null : node.file;
+  }
+
+  @CheckForNull
+  private InputFile findBySuffix(List<String> segments) {
+    if (segments == null || segments.isEmpty()) {
+      return null;
+    }
+    Node node = walk(segments);
+    return node != null && node.fileCount == 1 ? node.anyFile : null;
+  }
+
+  /**
+   * The files whose relative path is a suffix of the absolute path are found while walking the trie: the one with the
+   * same absolute path, if any, is the result.
+   */
+  @CheckForNull
+  private InputFile findByAbsolutePath(String path, List<String> segments) {
+    String prefix = "";
+    if (isSeparator(path.charAt(0))) {
+      // keep the two leading separators of UNC paths
+      prefix = path.length() > 1 && isSeparator(path.charAt(1)) ? "//" : "/";
+    }
+    Path absolutePath;
+    try {
+      absolutePath = Paths.get(prefix + String.join("/", segments));
+    } catch (InvalidPathException e) {
+      return null;
+    }
+    Node node = root();
+    for (int i = segments.size() - 1; i >= 0 && node != null; i--) {
+      node = node.children.get(segments.get(i));
+      if (node != null && node.file != null && absolutePath.equals(node.absolutePath)) {
+        return node.file;
+      }
+    }
+    return null;
+  }
+
+  @CheckForNull
+  private Node walk(List<String> segments) {
+    Node node = root();
+    for (int i = segments.size() - 1; i >= 0 && node != null; i--) {
+      node = node.children.get(segments.get(i));
+    }
+    return node;
+  }
+
+  /**
+   * Splits a path on '/' and '\' separators, ignoring "." segments and resolving ".." segments. Returns null when the
+   * path goes up above its first segment.
+   */
+  @CheckForNull
+  static List<String> segments(String path) {
+    List<String> segments = new ArrayList<>();
+    int start = 0;
+    for (int i = 0; i <= path.length(); i++) {
+      if (i == path.length() || isSeparator(path.charAt(i))) {
+        String segment = path.substring(start, i);
+        start = i + 1;
+        if ("..".equals(segment)) {
+          if (segments.isEmpty()) {
+            return null;
+          }
+          segments.remove(segments.size() - 1);
+        } else if (!segment.isEmpty() && !".".equals(segment)) {
+          segments.add(segment);
+        }
+      }
+    }
+    return segments;
+  }
+
+  static boolean isAbsolute(String path) {
+    if (path.isEmpty()) {
+      return false;
+    }
+    if (isSeparator(path.charAt(0))) {
+      return true;
+    }
+    // Windows drive letter
+    return path.length() > 2 && Character.isLetter(path.charAt(0)) && path.charAt(1) == ':' && isSeparator(path.charAt(2));
+  }
+
+  private static boolean isSeparator(char c) {
+    return c == '/' || c == '\\';
+  }
+
+  /**
+   * Suffix of the relative paths of the indexed files, from their last segment.
+   */
+  private static class Node {
+
+    private final Map<String, Node> children = new HashMap<>(4);
+    // number of files whose relative path ends with this suffix, and one of them
+    private int fileCount;
+    private InputFile anyFile;
+    // file whose relative path is this suffix, if any
+    private InputFile file;
+    private Path absolutePath;
+
+  }
+
+}
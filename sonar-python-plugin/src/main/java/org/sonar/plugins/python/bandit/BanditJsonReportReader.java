@@ -23,19 +23,34 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.function.Consumer;
-import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
-import org.sonarsource.analyzer.commons.internal.json.simple.JSONArray;
-import org.sonarsource.analyzer.commons.internal.json.simple.JSONObject;
+import org.sonarsource.analyzer.commons.internal.json.simple.parser.ContentHandler;
 import org.sonarsource.analyzer.commons.internal.json.simple.parser.JSONParser;
 import org.sonarsource.analyzer.commons.internal.json.simple.parser.ParseException;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
-public class BanditJsonReportReader {
+/**
+ * Reads the "results" of a Bandit JSON report while the report is parsed, without building the JSON tree of the report,
+ * so that the memory used does not depend on the size of the report.
+ */
+public class BanditJsonReportReader implements ContentHandler {
+
+  // nesting levels of the root object, of the "results" array and of its elements
+  private static final int ROOT_LEVEL = 1;
+  private static final int RESULTS_LEVEL = 2;
+  private static final int RESULT_LEVEL = 3;
 
-  private final JSONParser jsonParser = new JSONParser();
   private final Consumer<Issue> consumer;
+  private int level = 0;
+  @Nullable
+  private String rootKey;
+  private boolean inResults = false;
+  @Nullable
+  private Issue issue;
+  @Nullable
+  private String issueKey;
 
   public static class Issue {
     @Nullable
@@ -57,29 +72,121 @@ public class BanditJsonReportReader {
   }
 
   static void read(InputStream in, Consumer<Issue> consumer) throws IOException, ParseException {
-    new BanditJsonReportReader(consumer).read(in);
+    new JSONParser().parse(new InputStreamReader(in, UTF_8), new BanditJsonReportReader(consumer));
+  }
+
+  @Override
+  public void startJSON() {
+    // nothing to do
+  }
+
+  @Override
+  public void endJSON() {
+    // nothing to do
+  }
+
+  @Override
+  public boolean startObject() {
+    level++;
+    if (inResults && level == RESULT_LEVEL) {
+      issue = new Issue();
+    }
+    return true;
+  }
+
+  @Override
+  public boolean endObject() {
+    if (issue != null && level == RESULT_LEVEL) {
+      consumer.accept(issue);
+      issue = null;
+    }
+    level--;
+    return true;
+  }
+
+  @Override
+  public boolean startObjectEntry(String key) {
+    if (level == ROOT_LEVEL) {
+      rootKey = key;
+    } else if (issue != null && level == RESULT_LEVEL) {
+      issueKey = key;
+    }
+    return true;
+  }
+
+  @Override
+  public boolean endObjectEntry() {
+    return true;
+  }
+
+  @Override
+  public boolean startArray() {
+    level++;
+    checkRootIsObject();
+    if (level == RESULTS_LEVEL && "results".equals(rootKey)) {
+      inResults = true;
+    }
+    return true;
+  }
+
+  @Override
+  public boolean endArray() {
+    if (level == RESULTS_LEVEL) {
+      inResults = false;
+    }
+    level--;
+    return true;
+  }
+
+  @Override
+  public boolean primitive(@Nullable Object value) {
+    if (level == 0) {
+      checkRootIsObject();
+    }
+    if (issue != null && level == RESULT_LEVEL && issueKey != null) {
+      onResultEntry(issue, issueKey, value);
+    }
+    return true;
+  }
+
+  private void checkRootIsObject() {
+    if (level <= ROOT_LEVEL) {
+      throw new IllegalStateException("The root of a Bandit report is expected to be a JSON object");
+    }
   }
 
-  private void read(InputStream in) throws IOException, ParseException {
-    JSONObject rootObject = (JSONObject) jsonParser.parse(new InputStreamReader(in, UTF_8));
-    JSONArray files = (JSONArray) rootObject.get("results");
-    if (files != null) {
-      ((Stream<JSONObject>) files.stream()).forEach(this::onResult);
+  private static void onResultEntry(Issue issue, String key, @Nullable Object value) {
+    switch (key) {
+      case "test_id":
+        issue.ruleKey = toString(value);
+        break;
+      case "filename":
+        issue.filePath = toString(value);
+        break;
+      case "issue_text":
+        issue.message = toString(value);
+        break;
+      case "line_number":
+        issue.lineNumber = toInteger(value);
+        break;
+      case "issue_severity":
+        issue.severity = toString(value);
+        break;
+      case "issue_confidence":
+        issue.confidence = toString(value);
+        break;
+      default:
+        break;
     }
   }
 
-  private void onResult(JSONObject result) {
-    Issue issue = new Issue();
-    issue.ruleKey = (String) result.get("test_id");
-    issue.filePath = (String) result.get("filename");
-    issue.message = (String) result.get("issue_text");
-    issue.lineNumber = toInteger(result.get("line_number"));
-    issue.severity = (String) result.get("issue_severity");
-    issue.confidence = (String) result.get("issue_confidence");
-    consumer.accept(issue);
+  @CheckForNull
+  private static String toString(@Nullable Object value) {
+    return value instanceof String ? (String) value : null;
   }
 
-  private static Integer toInteger(Object value) {
+  @CheckForNull
+  private static Integer toInteger(@Nullable Object value) {
     if (value instanceof Number) {
       return ((Number) value).intValue();
     }
@@ -26,7 +26,11 @@ import java.io.InputStream;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.rule.Severity;
 import org.sonar.api.batch.sensor.Sensor;
@@ -39,7 +43,10 @@ import org.sonar.api.rules.RuleType;
 import org.sonar.api.utils.Version;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.python.OrderedProducers;
 import org.sonar.plugins.python.Python;
+import org.sonar.plugins.python.PythonSquidSensor;
+import org.sonar.plugins.python.ReportPathResolver;
 import org.sonar.plugins.python.bandit.BanditJsonReportReader.Issue;
 import org.sonarsource.analyzer.commons.ExternalReportProvider;
 import org.sonarsource.analyzer.commons.internal.json.simple.parser.ParseException;
@@ -57,6 +64,12 @@ public class BanditSensor implements Sensor {
   private static final Long DEFAULT_CONSTANT_DEBT_MINUTES = 5L;
   private static final int MAX_LOGGED_FILE_NAMES = 20;
 
+  private final ReportPathResolver pathResolver;
+
+  public BanditSensor(ReportPathResolver pathResolver) {
+    this.pathResolver = pathResolver;
+  }
+
   @Override
   public void describe(SensorDescriptor descriptor) {
     descriptor
@@ -65,12 +78,17 @@ public class BanditSensor implements Sensor {
       .name("Import of " + LINTER_NAME + " issues");
   }
 
+  /**
+   * Reports are read by worker threads, while the issues are saved by the calling thread in the order of the reports.
+   */
   @Override
   public void execute(SensorContext context) {
-    Set<String> unresolvedInputFiles = new HashSet<>();
     List<File> reportFiles = ExternalReportProvider.getReportFiles(context, REPORT_PATH_KEY);
-    reportFiles.forEach(report -> importReport(report, context, unresolvedInputFiles));
-    logUnresolvedInputFiles(unresolvedInputFiles);
+    IssueSaver issueSaver = new IssueSaver(context, pathResolver);
+    int threads = context.config().getInt(PythonSquidSensor.ANALYSIS_THREADS_KEY).orElse(1);
+    OrderedProducers.run("python-bandit", threads, reportFiles, BanditSensor::importReport, issueSaver);
+    logUnresolvedInputFiles(issueSaver.unresolvedInputFiles);
+    pathResolver.logStatistics();
   }
 
   private static void logUnresolvedInputFiles(Set<String> unresolvedInputFiles) {
@@ -84,53 +102,30 @@ public class BanditSensor implements Sensor {
     LOG.warn("Fail to resolve {} file path(s) in " + LINTER_NAME + " report. No issues imported related to file(s): {}", unresolvedInputFiles.size(), fileList);
   }
 
-  private static void importReport(File reportPath, SensorContext context, Set<String> unresolvedInputFiles) {
+  /**
+   * The report is read while its issues are saved: the issues read before an error are saved.
+   */
+  private static void importReport(File reportPath, Consumer<Issue> issueConsumer) {
+    AtomicInteger readIssues = new AtomicInteger();
     try (InputStream in = new FileInputStream(reportPath)) {
       LOG.info("Importing {}", reportPath);
-      boolean engineIdIsSupported = context.getSonarQubeVersion().isGreaterThanOrEqual(Version.create(7, 4));
-      BanditJsonReportReader.read(in, issue -> saveIssue(context, issue, unresolvedInputFiles, engineIdIsSupported));
+      BanditJsonReportReader.read(in, issue -> {
+        issueConsumer.accept(issue);
+        readIssues.incrementAndGet();
+      });
     } catch (IOException | ParseException | RuntimeException e) {
-      LOG.error("No issues information will be saved as the report file '{}' can't be read. " +
-        e.getClass().getSimpleName() + ": " + e.getMessage(), reportPath, e);
+      logImportError(reportPath, readIssues.get(), e);
     }
   }
 
-  private static void saveIssue(SensorContext context, Issue issue, Set<String> unresolvedInputFiles, boolean engineIdIsSupported) {
-    if (isEmpty(issue.ruleKey) || isEmpty(issue.filePath) || isEmpty(issue.message)) {
-      LOG.debug("Missing information for ruleKey:'{}', filePath:'{}', message:'{}'", issue.ruleKey, issue.filePath, issue.message);
-      return;
-    }
-
-    InputFile inputFile = context.fileSystem().inputFile(context.fileSystem().predicates().hasPath(issue.filePath));
-    if (inputFile == null) {
-      unresolvedInputFiles.add(issue.filePath);
-      return;
-    }
-
-    NewExternalIssue newExternalIssue = context.newExternalIssue();
-    newExternalIssue
-      .type(RuleType.VULNERABILITY)
-      .severity(toSonarQubeSeverity(issue.severity, issue.confidence))
-      .remediationEffortMinutes(DEFAULT_CONSTANT_DEBT_MINUTES);
-
-    NewIssueLocation primaryLocation = newExternalIssue.newLocation()
-      .message(issue.message)
-      .on(inputFile);
-
-    if (issue.lineNumber != null) {
-      primaryLocation.at(inputFile.selectLine(issue.lineNumber));
-    }
-
-    newExternalIssue.at(primaryLocation);
-
-    if (engineIdIsSupported) {
-      newExternalIssue.engineId(LINTER_KEY).ruleId(issue.ruleKey);
+  private static void logImportError(File reportPath, int importedIssues, Exception e) {
+    String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+    if (importedIssues == 0) {
+      LOG.error("No issues information will be saved as the report file '{}' can't be read. " + error, reportPath, e);
     } else {
-      // Call the deprecated "forRule" method to support SQ 7.2
-      newExternalIssue.forRule(RuleKey.of(LINTER_KEY, issue.ruleKey));
+      LOG.error("Only the first {} issue(s) of the report file '{}' will be saved as the rest of it can't be read. " + error,
+        importedIssues, reportPath, e);
     }
-
-    newExternalIssue.save();
   }
 
   private static Severity toSonarQubeSeverity(String severity, String confidence) {
@@ -143,4 +138,84 @@ public class BanditSensor implements Sensor {
     }
   }
 
+  /**
+   * Saves the issues of the reports. When an issue of a report cannot be saved, the following issues of this report are
+   * ignored.
+   */
+  private static class IssueSaver implements BiConsumer<File, Issue> {
+
+    private final SensorContext context;
+    private final boolean engineIdIsSupported;
+    private final ReportPathResolver pathResolver;
+    private final Set<String> unresolvedInputFiles = new HashSet<>();
+    private final Set<File> failedReports = new HashSet<>();
+    @Nullable
+    private File report;
+    private int savedIssues;
+
+    IssueSaver(SensorContext context, ReportPathResolver pathResolver) {
+      this.context = context;
+      this.pathResolver = pathResolver;
+      this.engineIdIsSupported = context.getSonarQubeVersion().isGreaterThanOrEqual(Version.create(7, 4));
+    }
+
+    @Override
+    public void accept(File issueReport, Issue issue) {
+      if (!issueReport.equals(report)) {
+        report = issueReport;
+        savedIssues = 0;
+      }
+      if (failedReports.contains(issueReport)) {
+        return;
+      }
+      try {
+        if (save(issue)) {
+          savedIssues++;
+        }
+      } catch (RuntimeException e) {
+        failedReports.add(issueReport);
+        logImportError(issueReport, savedIssues, e);
+      }
+    }
+
+    private boolean save(Issue issue) {
+      if (isEmpty(issue.ruleKey) || isEmpty(issue.filePath) || isEmpty(issue.message)) {
+        LOG.debug("Missing information for ruleKey:'{}', filePath:'{}', message:'{}'", issue.ruleKey, issue.filePath, issue.message);
+        return false;
+      }
+
+      InputFile inputFile = pathResolver.resolve(issue.filePath);
+      if (inputFile == null) {
+        unresolvedInputFiles.add(issue.filePath);
+        return false;
+      }
+
+      NewExternalIssue newExternalIssue = context.newExternalIssue();
+      newExternalIssue
+        .type(RuleType.VULNERABILITY)
+        .severity(toSonarQubeSeverity(issue.severity, issue.confidence))
+        .remediationEffortMinutes(DEFAULT_CONSTANT_DEBT_MINUTES);
+
+      NewIssueLocation primaryLocation = newExternalIssue.newLocation()
+        .message(issue.message)
+        .on(inputFile);
+
+      if (issue.lineNumber != null) {
+        primaryLocation.at(inputFile.selectLine(issue.lineNumber));
+      }
+
+      newExternalIssue.at(primaryLocation);
+
+      if (engineIdIsSupported) {
+        newExternalIssue.engineId(LINTER_KEY).ruleId(issue.ruleKey);
+      } else {
+        // Call the deprecated "forRule" method to support SQ 7.2
+        newExternalIssue.forRule(RuleKey.of(LINTER_KEY, issue.ruleKey));
+      }
+
+      newExternalIssue.save();
+      return true;
+    }
+  }
+
 }
@@ -32,19 +32,29 @@ import org.apache.commons.lang.StringUtils;
 import org.codehaus.staxmate.in.SMInputCursor;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
-import org.sonar.api.batch.sensor.coverage.NewCoverage;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.plugins.python.EmptyReportException;
 import org.sonar.plugins.python.parser.StaxParser;
 
+/**
+ * Reads the coverage of the files of one report. Several parsers can read different reports at the same time.
+ */
 public class CoberturaParser {
 
   private static final Logger LOG = Loggers.get(CoberturaParser.class);
 
+  private final SourcePathResolver pathResolver;
   private int unresolvedFilenameCount;
 
-  public void parseReport(File xmlFile, SensorContext context, final Map<InputFile, NewCoverage> coverageData) throws XMLStreamException {
+  /**
+   * @param pathResolver may be shared with the parsers of the other reports
+   */
+  CoberturaParser(SourcePathResolver pathResolver) {
+    this.pathResolver = pathResolver;
+  }
+
+  void parseReport(File xmlFile, SensorContext context, final Map<InputFile, FileCoverage> coverageData) throws XMLStreamException {
     LOG.info("Parsing report '{}'", xmlFile);
     unresolvedFilenameCount = 0;
 
@@ -62,7 +72,7 @@ public class CoberturaParser {
         if ("sources".equals(cursor.getLocalName())) {
           baseDirectories = extractBaseDirectories(cursor, defaultBaseDirectory);
         } else if ("packages".equals(cursor.getLocalName())) {
-          collectFileMeasures(cursor.descendantElementCursor("class"), context, coverageData, baseDirectories);
+          collectFileMeasures(cursor.descendantElementCursor("class"), coverageData, baseDirectories);
         }
       }
     });
@@ -72,14 +82,14 @@ public class CoberturaParser {
     }
   }
 
-  private static List<File> extractBaseDirectories(SMInputCursor sources, File defaultBaseDirectory) throws XMLStreamException {
+  private List<File> extractBaseDirectories(SMInputCursor sources, File defaultBaseDirectory) throws XMLStreamException {
     List<File> baseDirectories = new ArrayList<>();
     SMInputCursor source = sources.childElementCursor("source");
     while (source.getNext() != null) {
       String path = FilenameUtils.normalize(source.collectDescendantText());
       if (!StringUtils.isBlank(path)) {
         File baseDirectory = new File(path);
-        if (baseDirectory.isDirectory()) {
+        if (pathResolver.isDirectory(baseDirectory)) {
           baseDirectories.add(baseDirectory);
         } else {
           LOG.warn("Invalid directory path in 'source' element: {}", path);
@@ -92,13 +102,13 @@ public class CoberturaParser {
     return baseDirectories;
   }
 
-  private void collectFileMeasures(SMInputCursor classCursor, SensorContext context, Map<InputFile, NewCoverage> coverageData, List<File> baseDirectories)
+  private void collectFileMeasures(SMInputCursor classCursor, Map<InputFile, FileCoverage> coverageData, List<File> baseDirectories)
     throws XMLStreamException {
     while (classCursor.getNext() != null) {
       String filename = FilenameUtils.normalize(classCursor.getAttrValue("filename"));
-      InputFile inputFile = resolve(context, baseDirectories, filename);
+      InputFile inputFile = resolve(baseDirectories, filename);
       if (inputFile != null) {
-        NewCoverage coverage = coverageData.computeIfAbsent(inputFile, f -> context.newCoverage().onFile(f));
+        FileCoverage coverage = coverageData.computeIfAbsent(inputFile, f -> new FileCoverage());
         collectFileData(classCursor, coverage);
       } else {
         classCursor.advance();
@@ -107,18 +117,18 @@ public class CoberturaParser {
   }
 
   @Nullable
-  private InputFile resolve(SensorContext context, List<File> baseDirectories, String filename) {
+  private InputFile resolve(List<File> baseDirectories, String filename) {
     String absolutePath;
     File file = new File(filename);
     if (file.isAbsolute()) {
-      if (!file.exists()) {
+      if (!pathResolver.exists(file)) {
         logUnresolvedFile("Cannot resolve the file path '{}' of the coverage report, the file does not exist in all <source>.", filename);
       }
       absolutePath = file.getAbsolutePath();
     } else {
       List<File> fileList = baseDirectories.stream()
         .map(base -> new File(base, filename))
-        .filter(File::exists)
+        .filter(pathResolver::exists)
         .collect(Collectors.toList());
       if (fileList.isEmpty()) {
         logUnresolvedFile("Cannot resolve the file path '{}' of the coverage report, the file does not exist in all <source>.", filename);
@@ -130,7 +140,7 @@ public class CoberturaParser {
       }
       absolutePath = fileList.get(0).getAbsolutePath();
     }
-    return context.fileSystem().inputFile(context.fileSystem().predicates().hasAbsolutePath(absolutePath));
+    return pathResolver.inputFile(absolutePath);
   }
 
   private void logUnresolvedFile(String message, String filename) {
@@ -140,7 +150,7 @@ public class CoberturaParser {
     }
   }
 
-  private static void collectFileData(SMInputCursor classCursor, NewCoverage coverage) throws XMLStreamException {
+  private static void collectFileData(SMInputCursor classCursor, FileCoverage coverage) throws XMLStreamException {
     SMInputCursor line = classCursor.childElementCursor("lines").advance().childElementCursor("line");
     while (line.getNext() != null) {
       int lineId = Integer.parseInt(line.getAttrValue("number"));
@@ -150,8 +160,28 @@ public class CoberturaParser {
       String text = line.getAttrValue("condition-coverage");
       if (StringUtils.equals(isBranch, "true") && StringUtils.isNotBlank(text)) {
         String[] conditions = StringUtils.split(StringUtils.substringBetween(text, "(", ")"), "/");
-        coverage.conditions(lineId, Integer.parseInt(conditions[1]), Integer.parseInt(conditions[0]));
+        coverage.conditions(lineId, Integer.parseInt(conditions[1]), Integer.parseInt(conditions[0]), missingBranches(line.getAttrValue("missing-branches")));
+      }
+    }
+  }
+
+  /**
+   * Destinations of the branches which are not covered, as written by coverage.py (ex: "9,-2"), null when unknown.
+   */
+  @Nullable
+  private static int[] missingBranches(@Nullable String text) {
+    if (StringUtils.isBlank(text)) {
+      return null;
+    }
+    String[] destinations = StringUtils.split(text, ',');
+    int[] values = new int[destinations.length];
+    for (int i = 0; i < destinations.length; i++) {
+      try {
+        values[i] = Integer.parseInt(destinations[i].trim());
+      } catch (NumberFormatException e) {
+        return null;
       }
     }
+    return values;
   }
 }
@@ -0,0 +1,164 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.coverage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.sensor.coverage.NewCoverage;
+
+/**
+ * Coverage of one file, merged from any number of reports before being saved once. Values are kept in arrays
+ * indexed by line number.
+ * <p>
+ * Hits of a line are summed. The covered conditions of a line are the union of the ones covered in each report:
+ * this is only possible when every report tells which branches are not covered ("missing-branches" attribute of
+ * coverage.py), otherwise the highest number of covered conditions is kept.
+ */
+class FileCoverage {
+
+  private static final int NO_DATA = -1;
+  private static final int[] NO_MISSING_BRANCHES = new int[0];
+
+  private int[] hits = new int[0];
+  private int[] conditions = new int[0];
+  private int[] coveredConditions = new int[0];
+  // sorted destinations of the branches which are not covered, only for the lines with conditions for which they are known
+  private final Map<Integer, int[]> missingBranches = new HashMap<>();
+
+  void lineHits(int line, int lineHits) {
+    ensureCapacity(line);
+    hits[line] = hits[line] == NO_DATA ? lineHits : (hits[line] + lineHits);
+  }
+
+  /**
+   * @param missingBranchDestinations destinations of the branches which are not covered, null when unknown
+   */
+  void conditions(int line, int lineConditions, int lineCoveredConditions, @Nullable int[] missingBranchDestinations) {
+    ensureCapacity(line);
+    int[] missing = missingBranchDestinations;
+    if (missing == null && lineCoveredConditions >= lineConditions) {
+      missing = NO_MISSING_BRANCHES;
+    }
+    if (conditions[line] == NO_DATA) {
+      conditions[line] = lineConditions;
+      coveredConditions[line] = lineCoveredConditions;
+      if (missing != null) {
+        missingBranches.put(line, sorted(missing));
+      }
+      return;
+    }
+    conditions[line] = Math.max(conditions[line], lineConditions);
+    int covered = Math.max(coveredConditions[line], lineCoveredConditions);
+    int[] previousMissing = missingBranches.remove(line);
+    if (previousMissing != null && missing != null) {
+      int[] stillMissing = intersection(previousMissing, sorted(missing));
+      missingBranches.put(line, stillMissing);
+      covered = Math.max(covered, conditions[line] - stillMissing.length);
+    }
+    coveredConditions[line] = Math.min(covered, conditions[line]);
+  }
+
+  void merge(FileCoverage other) {
+    for (int line = 1; line < other.hits.length; line++) {
+      if (other.hits[line] != NO_DATA) {
+        lineHits(line, other.hits[line]);
+      }
+      if (other.conditions[line] != NO_DATA) {
+        conditions(line, other.conditions[line], other.coveredConditions[line], other.missingBranches.get(line));
+      }
+    }
+  }
+
+  void save(NewCoverage coverage) {
+    for (int line = 1; line < hits.length; line++) {
+      if (hits[line] != NO_DATA) {
+        coverage.lineHits(line, hits[line]);
+      }
+      if (conditions[line] != NO_DATA) {
+        coverage.conditions(line, conditions[line], coveredConditions[line]);
+      }
+    }
+    coverage.save();
+  }
+
+  @CheckForNull
+  Integer hits(int line) {
+    return line < hits.length && hits[line] != NO_DATA ? hits[line] : null;
+  }
+
+  @CheckForNull
+  Integer conditions(int line) {
+    return line < conditions.length && conditions[line] != NO_DATA ? conditions[line] : null;
+  }
+
+  @CheckForNull
+  Integer coveredConditions(int line) {
+    return line < coveredConditions.length && conditions[line] != NO_DATA ? coveredConditions[line] : null;
+  }
+
+  private void ensureCapacity(int line) {
+    if (line < 1) {
+      throw new IllegalArgumentException("Invalid line number: " + line);
+    }
+    if (line >= hits.length) {
+      int length = Math.max(line + 1, hits.length * 2);
+      hits = grow(hits, length);
+      conditions = grow(conditions, length);
+      coveredConditions = grow(coveredConditions, length);
+    }
+  }
+
+  private static int[] grow(int[] values, int length) {
+    int previousLength = values.length;
+    int[] grown = Arrays.copyOf(values, length);
+    Arrays.fill(grown, previousLength, length, NO_DATA);
+    return grown;
+  }
+
+  private static int[] sorted(int[] values) {
+    int[] copy = values.clone();
+    Arrays.sort(copy);
+    return copy;
+  }
+
+  private static int[] intersection(int[] sortedValues, int[] otherSortedValues) {
+    int[] result = new int[Math.min(sortedValues.length, otherSortedValues.length)];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < sortedValues.length && j < otherSortedValues.length) {
+      if (sortedValues[i] < otherSortedValues[j]) {
+        i++;
+      } else if (sortedValues[i] > otherSortedValues[j]) {
+        j++;
+      } else {
+        result[count] = sortedValues[i];
+        count++;
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+}
@@ -22,8 +22,7 @@ package org.sonar.plugins.python.coverage;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -34,16 +33,24 @@ import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.SensorDescriptor;
-import org.sonar.api.batch.sensor.coverage.NewCoverage;
 import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.python.DirectoryListings;
 import org.sonar.plugins.python.EmptyReportException;
+import org.sonar.plugins.python.OrderedProducers;
 import org.sonar.plugins.python.Python;
+import org.sonar.plugins.python.PythonSquidSensor;
+import org.sonar.plugins.python.ReportPathResolver;
 import org.sonar.plugins.python.warnings.AnalysisWarningsWrapper;
 
 import static org.sonar.plugins.python.PythonReportSensor.getReports;
 
+/**
+ * Imports the coverage of Cobertura reports. Reports are parsed concurrently when several analysis threads are
+ * configured ({@link PythonSquidSensor#ANALYSIS_THREADS_KEY}). The coverage of a file found in several reports (ex:
+ * sharded test runs) is merged in memory, and saved once.
+ */
 public class PythonCoverageSensor implements Sensor {
 
   private static final Logger LOG = Loggers.get(PythonCoverageSensor.class);
@@ -59,9 +66,13 @@ public class PythonCoverageSensor implements Sensor {
   public static final String OVERALL_REPORT_PATH_KEY = "sonar.python.coverage.overallReportPath";
 
   private final AnalysisWarningsWrapper analysisWarnings;
+  private final ReportPathResolver reportPathResolver;
+  private final DirectoryListings directoryListings;
 
-  public PythonCoverageSensor(AnalysisWarningsWrapper analysisWarnings) {
+  public PythonCoverageSensor(AnalysisWarningsWrapper analysisWarnings, ReportPathResolver reportPathResolver, DirectoryListings directoryListings) {
     this.analysisWarnings = analysisWarnings;
+    this.reportPathResolver = reportPathResolver;
+    this.directoryListings = directoryListings;
   }
 
   @Override
@@ -73,7 +84,6 @@ public class PythonCoverageSensor implements Sensor {
 
   @Override
   public void execute(SensorContext context) {
-    String baseDir = context.fileSystem().baseDir().getPath();
     Configuration config = context.config();
 
     // These warning can be removed starting next LTS 7.X (see SONARPY-308)
@@ -82,29 +92,52 @@ public class PythonCoverageSensor implements Sensor {
 
     warnDeprecatedPropertyUsage(config);
 
-    HashSet<InputFile> filesCovered = new HashSet<>();
-    List<File> reports = getCoverageReports(baseDir, config);
+    List<File> reports = getCoverageReports(directoryListings, config);
     if (!reports.isEmpty()) {
       LOG.info("Python test coverage");
-      for (File report : uniqueAbsolutePaths(reports)) {
-        Map<InputFile, NewCoverage> coverageMeasures = parseReport(report, context);
-        saveMeasures(coverageMeasures, filesCovered);
+      List<File> uniqueReports = new ArrayList<>(uniqueAbsolutePaths(reports));
+      int threads = Math.min(uniqueReports.size(), config.getInt(PythonSquidSensor.ANALYSIS_THREADS_KEY).orElse(1));
+      Map<InputFile, FileCoverage> coverageMeasures = parseReports(uniqueReports, context, threads, new SourcePathResolver(reportPathResolver));
+      saveMeasures(coverageMeasures, context);
+    }
+  }
+
+  /**
+   * Coverage of the files of all the reports, merged in the order of the reports. Reports are parsed by worker threads,
+   * while their coverage is merged by the calling thread.
+   */
+  private static Map<InputFile, FileCoverage> parseReports(List<File> reports, SensorContext context, int threads, SourcePathResolver pathResolver) {
+    Map<InputFile, FileCoverage> mergedMeasures = new LinkedHashMap<>();
+    OrderedProducers.<File, Map<InputFile, FileCoverage>>run("python-coverage", threads, reports,
+      (report, measuresConsumer) -> measuresConsumer.accept(parseReport(report, context, pathResolver)),
+      (report, reportMeasures) -> merge(mergedMeasures, reportMeasures));
+    pathResolver.logStatistics();
+    return mergedMeasures;
+  }
+
+  private static void merge(Map<InputFile, FileCoverage> mergedMeasures, Map<InputFile, FileCoverage> reportMeasures) {
+    for (Map.Entry<InputFile, FileCoverage> entry : reportMeasures.entrySet()) {
+      FileCoverage merged = mergedMeasures.get(entry.getKey());
+      if (merged == null) {
+        mergedMeasures.put(entry.getKey(), entry.getValue());
+      } else {
+        merged.merge(entry.getValue());
       }
     }
   }
 
-  private static List<File> getCoverageReports(String baseDir, Configuration config) {
+  private static List<File> getCoverageReports(DirectoryListings directoryListings, Configuration config) {
     if (!config.hasKey(REPORT_PATH_KEY) && !config.hasKey(REPORT_PATHS_KEY)) {
-      return getReports(config, baseDir, REPORT_PATHS_KEY, DEFAULT_REPORT_PATH);
+      return getReports(config, directoryListings, REPORT_PATHS_KEY, DEFAULT_REPORT_PATH);
     }
 
     List<File> reports = new ArrayList<>();
     config.get(REPORT_PATH_KEY)
-      .map(path -> getReports(config, baseDir, REPORT_PATH_KEY, path))
+      .map(path -> getReports(config, directoryListings, REPORT_PATH_KEY, path))
       .ifPresent(reports::addAll);
 
     Arrays.stream(config.getStringArray(REPORT_PATHS_KEY))
-      .map(path -> getReports(config, baseDir, REPORT_PATHS_KEY, path))
+      .map(path -> getReports(config, directoryListings, REPORT_PATHS_KEY, path))
       .forEach(reports::addAll);
 
     return reports;
@@ -130,10 +163,10 @@ public class PythonCoverageSensor implements Sensor {
       .collect(Collectors.toCollection(LinkedHashSet::new));
   }
 
-  private static Map<InputFile, NewCoverage> parseReport(File report, SensorContext context) {
-    Map<InputFile, NewCoverage> coverageMeasures = new HashMap<>();
+  private static Map<InputFile, FileCoverage> parseReport(File report, SensorContext context, SourcePathResolver pathResolver) {
+    Map<InputFile, FileCoverage> coverageMeasures = new LinkedHashMap<>();
     try {
-      CoberturaParser parser = new CoberturaParser();
+      CoberturaParser parser = new CoberturaParser(pathResolver);
       parser.parseReport(report, context, coverageMeasures);
     } catch (EmptyReportException e) {
       LOG.warn("The report '{}' seems to be empty, ignoring. '{}'", report, e);
@@ -143,15 +176,13 @@ public class PythonCoverageSensor implements Sensor {
     return coverageMeasures;
   }
 
-  private static void saveMeasures(Map<InputFile, NewCoverage> coverageMeasures, HashSet<InputFile> coveredFiles) {
-    for (Map.Entry<InputFile, NewCoverage> entry : coverageMeasures.entrySet()) {
+  private static void saveMeasures(Map<InputFile, FileCoverage> coverageMeasures, SensorContext context) {
+    for (Map.Entry<InputFile, FileCoverage> entry : coverageMeasures.entrySet()) {
       InputFile inputFile = entry.getKey();
-      coveredFiles.add(inputFile);
       if (LOG.isDebugEnabled()) {
         LOG.debug("Saving coverage measures for file '{}'", inputFile.toString());
       }
-      entry.getValue()
-        .save();
+      entry.getValue().save(context.newCoverage().onFile(inputFile));
     }
   }
 }
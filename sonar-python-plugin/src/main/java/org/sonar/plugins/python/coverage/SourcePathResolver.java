@@ -0,0 +1,61 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.coverage;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.plugins.python.ReportPathResolver;
+
+/**
+ * Remembers the file system lookups done to resolve the paths of coverage reports, so that a directory or a file
+ * referenced by several reports (or by several &lt;class&gt; elements) is only looked up once. Can be used by
+ * several threads at the same time. Input files are resolved by the {@link ReportPathResolver} shared by the sensors.
+ */
+class SourcePathResolver {
+
+  private final ReportPathResolver reportPathResolver;
+  private final Map<String, Boolean> directories = new ConcurrentHashMap<>();
+  private final Map<String, Boolean> existingFiles = new ConcurrentHashMap<>();
+
+  SourcePathResolver(ReportPathResolver reportPathResolver) {
+    this.reportPathResolver = reportPathResolver;
+  }
+
+  boolean isDirectory(File directory) {
+    return directories.computeIfAbsent(directory.getPath(), path -> directory.isDirectory());
+  }
+
+  boolean exists(File file) {
+    return existingFiles.computeIfAbsent(file.getPath(), path -> file.exists());
+  }
+
+  @CheckForNull
+  InputFile inputFile(String absolutePath) {
+    return reportPathResolver.inputFile(absolutePath);
+  }
+
+  void logStatistics() {
+    reportPathResolver.logStatistics();
+  }
+
+}
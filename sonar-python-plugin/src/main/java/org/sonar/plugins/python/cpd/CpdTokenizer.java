@@ -0,0 +1,150 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.cpd;
+
+import com.intellij.psi.PsiComment;
+import com.intellij.psi.PsiWhiteSpace;
+import com.intellij.psi.impl.source.tree.LeafPsiElement;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.TokenSet;
+import com.jetbrains.python.PyTokenTypes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import javax.annotation.CheckForNull;
+import org.sonar.python.frontend.LineOffsets;
+import org.sonar.python.metrics.LeafVisitor;
+
+/**
+ * Computes the CPD tokens of a file from the leaves of its PSI tree, which hold all the tokens of the file but the
+ * empty ones (INDENT, DEDENT, STATEMENT_BREAK).
+ * <p>
+ * Whitespaces and comments are ignored. INDENT/DEDENT could not be completely ignored during CPD, see
+ * https://docs.python.org/3/reference/lexical_analysis.html#indentation: just taking into account DEDENT is enough,
+ * and because the DEDENT token has an empty value, it's the line break preceding the less indented line which is
+ * added in its place to create a difference. As DEDENT tokens are not in the tree, the indentation levels are
+ * tracked the way the PyCharm lexer does: lines containing only a comment and line breaks inside brackets do not
+ * change the indentation.
+ */
+public class CpdTokenizer implements LeafVisitor {
+
+  private static final TokenSet IGNORED_TOKEN_TYPES = TokenSet.create(
+    PyTokenTypes.LINE_BREAK, PyTokenTypes.DEDENT, PyTokenTypes.INDENT, PyTokenTypes.END_OF_LINE_COMMENT, PyTokenTypes.SPACE, PyTokenTypes.STATEMENT_BREAK);
+  private static final int TAB_SIZE = 8;
+
+  private final TokenConsumer consumer;
+  private final Deque<Integer> indentationLevels = new ArrayDeque<>();
+  private LineOffsets lineOffsets;
+  private CharSequence text;
+  private int bracketDepth = 0;
+  // line break after which the indentation of the next line is not known yet
+  @CheckForNull
+  private LeafPsiElement pendingLineBreak;
+
+  public CpdTokenizer(TokenConsumer consumer) {
+    this.consumer = consumer;
+    indentationLevels.push(0);
+  }
+
+  @Override
+  public void visitLeaf(LeafPsiElement leaf) {
+    if (lineOffsets == null) {
+      lineOffsets = LineOffsets.of(leaf);
+      text = leaf.getContainingFile().getViewProvider().getContents();
+    }
+    IElementType elementType = leaf.getElementType();
+    if (leaf instanceof PsiWhiteSpace) {
+      if (elementType == PyTokenTypes.LINE_BREAK && bracketDepth == 0) {
+        pendingLineBreak = leaf;
+      }
+    } else if (leaf instanceof PsiComment) {
+      // a line containing only a comment does not change the indentation
+      pendingLineBreak = null;
+    } else {
+      if (pendingLineBreak != null) {
+        if (isDedent(indentation(leaf.getTextRange().getStartOffset()))) {
+          addLineBreak(pendingLineBreak);
+        }
+        pendingLineBreak = null;
+      }
+      if (PyTokenTypes.OPEN_BRACES.contains(elementType)) {
+        bracketDepth++;
+      } else if (PyTokenTypes.CLOSE_BRACES.contains(elementType) && bracketDepth > 0) {
+        bracketDepth--;
+      }
+    }
+    if (!IGNORED_TOKEN_TYPES.contains(elementType)) {
+      addToken(leaf.getTextRange().getStartOffset(), leaf.getTextRange().getEndOffset(), leaf.getText());
+    }
+  }
+
+  @Override
+  public void leaveFile() {
+    // the blocks still open at the end of the file are closed before its last line break
+    if (pendingLineBreak != null && isDedent(0)) {
+      addLineBreak(pendingLineBreak);
+    }
+    pendingLineBreak = null;
+  }
+
+  /**
+   * Updates the indentation levels with the ones of a new logical line, returns true when at least one block is closed.
+   */
+  private boolean isDedent(int indentation) {
+    boolean dedent = false;
+    while (indentation < indentationLevels.peek()) {
+      indentationLevels.pop();
+      dedent = true;
+    }
+    if (indentation > indentationLevels.peek()) {
+      indentationLevels.push(indentation);
+    }
+    return dedent;
+  }
+
+  private int indentation(int offset) {
+    int indentation = 0;
+    for (int i = offset - lineOffsets.column(offset); i < offset; i++) {
+      char c = text.charAt(i);
+      if (c == '\t') {
+        indentation = (indentation / TAB_SIZE + 1) * TAB_SIZE;
+      } else {
+        indentation++;
+      }
+    }
+    return indentation;
+  }
+
+  private void addLineBreak(LeafPsiElement lineBreak) {
+    int start = lineBreak.getTextRange().getStartOffset();
+    addToken(start, start + 1, "\n");
+  }
+
+  private void addToken(int startOffset, int endOffset, String image) {
+    long start = lineOffsets.position(startOffset);
+    long end = lineOffsets.position(endOffset);
+    consumer.addToken(LineOffsets.lineOf(start), LineOffsets.columnOf(start), LineOffsets.lineOf(end), LineOffsets.columnOf(end), image);
+  }
+
+  @FunctionalInterface
+  public interface TokenConsumer {
+    void addToken(int startLine, int startLineOffset, int endLine, int endLineOffset, String image);
+  }
+
+}
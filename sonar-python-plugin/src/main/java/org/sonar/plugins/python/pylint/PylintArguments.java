@@ -31,11 +31,12 @@ public class PylintArguments {
   private static final String[] ARGS_PYLINT_0_X = {"-i", "y", "-f", "parseable", "-r", "n"};
   private static final String[] ARGS_PYLINT_1_X = {"--msg-template", "{path}:{line}: [{msg_id}({symbol}), {obj}] {msg}", "-r", "n"};
 
+  private final String version;
   private final String[] arguments;
 
   public PylintArguments(Command command) {
-    String pylintVersion = pylintVersion(command);
-    this.arguments = pylintVersion.startsWith("0") ? ARGS_PYLINT_0_X : ARGS_PYLINT_1_X;
+    this.version = pylintVersion(command);
+    this.arguments = version.startsWith("0") ? ARGS_PYLINT_0_X : ARGS_PYLINT_1_X;
   }
 
   private static String pylintVersion(Command command) {
@@ -56,6 +57,10 @@ public class PylintArguments {
     throw new IllegalArgumentException(message);
   }
 
+  public String version() {
+    return version;
+  }
+
   public String[] arguments() {
     return arguments;
   }
@@ -32,6 +32,7 @@ public class PylintConfiguration {
 
   public static final String PYLINT_CONFIG_KEY = "sonar.python.pylint_config";
   public static final String PYLINT_KEY = "sonar.python.pylint";
+  public static final String PYLINT_BATCH_SIZE_KEY = "sonar.python.pylint.batchSize";
 
   private final Configuration conf;
 
@@ -56,4 +57,11 @@ public class PylintConfiguration {
     return conf.get(PylintConfiguration.PYLINT_KEY).orElse(null);
   }
 
+  /**
+   * Number of files analyzed by each pylint process, 0 when pylint is executed once per file.
+   */
+  public int getBatchSize() {
+    return Math.max(0, conf.getInt(PylintConfiguration.PYLINT_BATCH_SIZE_KEY).orElse(0));
+  }
+
 }
@@ -19,15 +19,21 @@
  */
 package org.sonar.plugins.python.pylint;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
-import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.rule.ActiveRule;
 import org.sonar.api.batch.sensor.SensorContext;
@@ -37,7 +43,11 @@ import org.sonar.api.config.Configuration;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.python.DirectoryListings;
+import org.sonar.plugins.python.OrderedProducers;
 import org.sonar.plugins.python.PythonReportSensor;
+import org.sonar.plugins.python.PythonSquidSensor;
+import org.sonar.plugins.python.ReportPathResolver;
 import org.sonar.plugins.python.warnings.AnalysisWarningsWrapper;
 
 public class PylintImportSensor extends PythonReportSensor {
@@ -48,8 +58,12 @@ public class PylintImportSensor extends PythonReportSensor {
   private static final PylintRuleParser pylintRules = new PylintRuleParser(PylintRuleRepository.RULES_FILE);
   private static final Set<String> warningAlreadyLogged = new HashSet<>();
 
-  public PylintImportSensor(Configuration conf, AnalysisWarningsWrapper analysisWarnings) {
-    super(conf, analysisWarnings, "Pylint");
+  private final ReportPathResolver pathResolver;
+
+  public PylintImportSensor(Configuration conf, AnalysisWarningsWrapper analysisWarnings, ReportPathResolver pathResolver,
+    DirectoryListings directoryListings) {
+    super(conf, directoryListings, analysisWarnings, "Pylint");
+    this.pathResolver = pathResolver;
   }
 
   @Override
@@ -70,49 +84,33 @@ public class PylintImportSensor extends PythonReportSensor {
     return DEFAULT_REPORT_PATH;
   }
 
+  /**
+   * Reports are parsed by worker threads, while the issues are saved by the calling thread in the order of the reports.
+   */
   @Override
   protected void processReports(final SensorContext context, List<File> reports) {
-    List<Issue> issues = new LinkedList<>();
-    for (File report : reports) {
-      try {
-        issues.addAll(parse(report, context.fileSystem()));
-      } catch (java.io.FileNotFoundException e) {
-        LOG.error("Report '{}' cannot be found, details: '{}'", report, e);
-      } catch (IOException e) {
-        LOG.error("Report '{}' cannot be read, details: '{}'", report, e);
-      }
-    }
-
-    saveIssues(issues, context);
+    Charset charset = context.fileSystem().encoding();
+    IssueSaver issueSaver = new IssueSaver(context, pathResolver);
+    int threads = conf.getInt(PythonSquidSensor.ANALYSIS_THREADS_KEY).orElse(1);
+    OrderedProducers.<File, Issue>run("python-pylint", threads, reports, (report, issueConsumer) -> parse(report, charset, issueConsumer),
+      (report, issue) -> issueSaver.accept(issue));
+    pathResolver.logStatistics();
   }
 
-  private static List<Issue> parse(File report, FileSystem fileSystem) throws IOException {
-    List<Issue> issues = new LinkedList<>();
-
+  private static void parse(File report, Charset charset, Consumer<Issue> issueConsumer) {
     PylintReportParser parser = new PylintReportParser();
-    Scanner sc;
-    for (sc = new Scanner(report.toPath(), fileSystem.encoding().name()); sc.hasNext(); ) {
-      String line = sc.nextLine();
-      Issue issue = parser.parseLine(line);
-      if (issue != null) {
-        issues.add(issue);
-      }
-    }
-    sc.close();
-    return issues;
-  }
-
-  private static void saveIssues(List<Issue> issues, SensorContext context) {
-    FileSystem fileSystem = context.fileSystem();
-    for (Issue pylintIssue : issues) {
-      String filepath = pylintIssue.getFilename();
-      InputFile pyfile = fileSystem.inputFile(fileSystem.predicates().hasPath(filepath));
-      if (pyfile != null) {
-        ActiveRule rule = context.activeRules().find(RuleKey.of(PylintRuleRepository.REPOSITORY_KEY, pylintIssue.getRuleId()));
-        processRule(pylintIssue, pyfile, rule, context);
-      } else {
-        LOG.warn("Cannot find the file '{}' in SonarQube, ignoring violation", filepath);
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(report), charset))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        Issue issue = parser.parseLine(line);
+        if (issue != null) {
+          issueConsumer.accept(issue);
+        }
       }
+    } catch (java.io.FileNotFoundException e) {
+      LOG.error("Report '{}' cannot be found, details: '{}'", report, e);
+    } catch (IOException e) {
+      LOG.error("Report '{}' cannot be read, details: '{}'", report, e);
     }
   }
 
@@ -144,4 +142,39 @@ public class PylintImportSensor extends PythonReportSensor {
     warningAlreadyLogged.clear();
   }
 
+  /**
+   * Saves the issues of the reports. Active rules are looked up once per rule id.
+   */
+  private static class IssueSaver implements Consumer<Issue> {
+
+    private final SensorContext context;
+    private final ReportPathResolver pathResolver;
+    private final Set<String> unresolvedPaths = new HashSet<>();
+    private final Map<String, Optional<ActiveRule>> activeRulesById = new HashMap<>();
+
+    IssueSaver(SensorContext context, ReportPathResolver pathResolver) {
+      this.context = context;
+      this.pathResolver = pathResolver;
+    }
+
+    @Override
+    public void accept(Issue pylintIssue) {
+      InputFile pyfile = inputFile(pylintIssue.getFilename());
+      if (pyfile != null) {
+        ActiveRule rule = activeRulesById.computeIfAbsent(pylintIssue.getRuleId(),
+          ruleId -> Optional.ofNullable(context.activeRules().find(RuleKey.of(PylintRuleRepository.REPOSITORY_KEY, ruleId)))).orElse(null);
+        processRule(pylintIssue, pyfile, rule, context);
+      }
+    }
+
+    @CheckForNull
+    private InputFile inputFile(String filepath) {
+      InputFile pyfile = pathResolver.resolve(filepath);
+      if (pyfile == null && unresolvedPaths.add(filepath)) {
+        LOG.warn("Cannot find the file '{}' in SonarQube, ignoring its violations", filepath);
+      }
+      return pyfile;
+    }
+  }
+
 }
@@ -22,9 +22,21 @@ package org.sonar.plugins.python.pylint;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.utils.command.Command;
@@ -39,6 +51,7 @@ public class PylintIssuesAnalyzer {
   private static final String FALLBACK_PYLINT = "pylint";
 
   private String pylint = null;
+  private String pylintConfigPath = null;
   private String pylintConfigParam = null;
   private PylintArguments pylintArguments;
 
@@ -53,6 +66,7 @@ public class PylintIssuesAnalyzer {
       if (!new File(pylintConfigPath).exists()) {
         throw new IllegalStateException("Cannot find the pylint configuration file: " + pylintConfigPath);
       }
+      this.pylintConfigPath = pylintConfigPath;
       pylintConfigParam = "--rcfile=" + pylintConfigPath;
     }
 
@@ -70,7 +84,82 @@ public class PylintIssuesAnalyzer {
   }
 
   public List<Issue> analyze(String path, Charset charset, File out) throws IOException {
-    Command command = Command.create(pylint).addArguments(pylintArguments.arguments()).addArgument(path);
+    return parseOutput(run(Collections.singletonList(path), charset, out));
+  }
+
+  /**
+   * Runs a single pylint process on all the given files, and returns the lines of its output which report an issue,
+   * grouped by analyzed file. The paths reported by pylint are resolved against the current working directory, which is
+   * inherited by the pylint process. Every given path is a key of the returned map.
+   */
+  public Map<String, List<String>> analyzeBatch(List<String> paths, Charset charset, File out) throws IOException {
+    Map<Path, String> pathsByAbsolutePath = new HashMap<>();
+    Map<String, List<String>> linesByPath = new LinkedHashMap<>();
+    for (String path : paths) {
+      pathsByAbsolutePath.put(Paths.get(path).toAbsolutePath().normalize(), path);
+      linesByPath.put(path, new ArrayList<>());
+    }
+
+    PylintReportParser parser = new PylintReportParser();
+    for (String line : run(paths, charset, out)) {
+      Issue issue = parser.parseLine(line);
+      if (issue != null) {
+        String path = pathsByAbsolutePath.get(reportedPath(issue.getFilename()));
+        if (path != null) {
+          linesByPath.get(path).add(line);
+        } else {
+          LOG.debug("Ignoring the issue of pylint on a file which was not analyzed: {}", line);
+        }
+      }
+    }
+    return linesByPath;
+  }
+
+  /**
+   * Anything which can change the output of pylint for a file with the same content: the executable, its version, its
+   * arguments and the content of its configuration file.
+   */
+  public byte[] fingerprint() throws IOException {
+    MessageDigest digest = sha256();
+    update(digest, pylint.getBytes(StandardCharsets.UTF_8));
+    update(digest, StringUtils.defaultString(pylintArguments.version()).getBytes(StandardCharsets.UTF_8));
+    for (String argument : pylintArguments.arguments()) {
+      update(digest, argument.getBytes(StandardCharsets.UTF_8));
+    }
+    if (pylintConfigPath != null) {
+      update(digest, pylintConfigPath.getBytes(StandardCharsets.UTF_8));
+      update(digest, Files.readAllBytes(Paths.get(pylintConfigPath)));
+    }
+    return digest.digest();
+  }
+
+  static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Length prefixed update, so that ("ab", "c") and ("a", "bc") have different hashes.
+   */
+  static void update(MessageDigest digest, byte[] bytes) {
+    digest.update(new byte[] {(byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16), (byte) (bytes.length >>> 8), (byte) bytes.length});
+    digest.update(bytes);
+  }
+
+  @CheckForNull
+  private static Path reportedPath(String path) {
+    try {
+      return Paths.get(path).toAbsolutePath().normalize();
+    } catch (InvalidPathException e) {
+      return null;
+    }
+  }
+
+  private List<String> run(List<String> paths, Charset charset, File out) throws IOException {
+    Command command = Command.create(pylint).addArguments(pylintArguments.arguments()).addArguments(paths);
 
     if (pylintConfigParam != null) {
       command.addArgument(pylintConfigParam);
@@ -78,7 +167,8 @@ public class PylintIssuesAnalyzer {
 
     LOG.debug("Calling command: '{}'", command);
 
-    long timeoutMS = 300_000; // =5min
+    // 5min per analyzed file
+    long timeoutMS = 300_000L * paths.size();
     CommandStreamConsumer stdOut = new CommandStreamConsumer();
     CommandStreamConsumer stdErr = new CommandStreamConsumer();
     CommandExecutor.create().execute(command, stdOut, stdErr, timeoutMS);
@@ -94,7 +184,7 @@ public class PylintIssuesAnalyzer {
     String str = StringUtils.join(stdOut.getData(), "\n");
     Files.write(out.toPath(), str.getBytes(charset));
 
-    return parseOutput(stdOut.getData());
+    return stdOut.getData();
   }
 
   protected List<Issue> parseOutput(List<String> lines) {
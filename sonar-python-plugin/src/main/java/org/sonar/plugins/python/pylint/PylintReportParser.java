@@ -22,13 +22,11 @@ package org.sonar.plugins.python.pylint;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import javax.annotation.CheckForNull;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
 public class PylintReportParser {
-  private static final Pattern PATTERN = Pattern.compile("(.+):([0-9]+): \\[(.*)\\] (.*)");
   private static final Logger LOG = Loggers.get(PylintReportParser.class);
 
   // Pylint 0.24 brings a nasty reidentifying of some rules...
@@ -60,31 +58,10 @@ public class PylintReportParser {
 
     Issue issue = null;
 
-    int linenr;
-    String ruleid;
-    String objname;
-    String descr;
-    String filename;
-
     if (line.length() > 0) {
       if (!isDetail(line)) {
-        Matcher m = PATTERN.matcher(line);
-        if (m.matches() && m.groupCount() == 4) {
-          filename = m.group(1);
-          linenr = Integer.valueOf(m.group(2));
-          String[] parts = m.group(3).split(",");
-
-          ruleid = ruleId(parts[0].trim());
-
-          if (parts.length == 2) {
-            objname = parts[1].trim();
-          } else {
-            objname = "";
-          }
-
-          descr = m.group(4);
-          issue = new Issue(filename, linenr, ruleid, objname, descr);
-        } else {
+        issue = parseIssue(line);
+        if (issue == null) {
           LOG.debug("Cannot parse the line: {}", line);
         }
       } else {
@@ -95,6 +72,41 @@ public class PylintReportParser {
     return issue;
   }
 
+  /**
+   * Equivalent of matching the line against "(.+):([0-9]+): \\[(.*)\\] (.*)", without the cost of the regular expression.
+   * As the groups of the pattern are greedy, the description starts after the last "] " of the line and the rule id
+   * after the last ":&lt;line&gt;: [" which precedes it.
+   */
+  @CheckForNull
+  private static Issue parseIssue(String line) {
+    int descriptionSeparator = line.lastIndexOf("] ");
+    if (descriptionSeparator < 0) {
+      return null;
+    }
+    int ruleSeparator = line.lastIndexOf(": [", descriptionSeparator - 3);
+    while (ruleSeparator > 0) {
+      int lineNumberStart = ruleSeparator;
+      while (lineNumberStart > 0 && isDigit(line.charAt(lineNumberStart - 1))) {
+        lineNumberStart--;
+      }
+      if (lineNumberStart < ruleSeparator && lineNumberStart > 1 && line.charAt(lineNumberStart - 1) == ':') {
+        String filename = line.substring(0, lineNumberStart - 1);
+        int linenr = Integer.parseInt(line.substring(lineNumberStart, ruleSeparator));
+        String[] parts = line.substring(ruleSeparator + 3, descriptionSeparator).split(",");
+        String ruleid = ruleId(parts[0].trim());
+        String objname = parts.length == 2 ? parts[1].trim() : "";
+        String descr = line.substring(descriptionSeparator + 2);
+        return new Issue(filename, linenr, ruleid, objname, descr);
+      }
+      ruleSeparator = line.lastIndexOf(": [", ruleSeparator - 1);
+    }
+    return null;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
   private static String ruleId(String ruleAndMessageIds) {
     String ruleid = ruleAndMessageIds;
     int parenthesisIndex = ruleid.indexOf('(');
@@ -0,0 +1,119 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.pylint;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Output of pylint for each analyzed file, stored in a directory of the sensor working directory so that files which did
+ * not change since the previous analysis do not need to be analyzed again.
+ * <p>
+ * Each entry is a text file holding the lines reported by pylint for one file. Its name is the hash of the fingerprint
+ * of the pylint execution ({@link PylintIssuesAnalyzer#fingerprint()}) and of the project relative path and the content of
+ * the analyzed file.
+ * Entries which are not used by an analysis are deleted at its end by {@link #removeUnusedEntries()}.
+ * <p>
+ * Must only be used by the thread which saves the issues.
+ */
+class PylintResultCache {
+
+  private static final Logger LOG = Loggers.get(PylintResultCache.class);
+
+  static final String DIRECTORY_NAME = "python-pylint-cache";
+  private static final String SUFFIX = ".txt";
+
+  private final Path directory;
+  private final byte[] fingerprint;
+  private final Set<String> usedKeys = new HashSet<>();
+
+  PylintResultCache(Path directory, byte[] fingerprint) {
+    this.directory = directory;
+    this.fingerprint = fingerprint;
+  }
+
+  /**
+   * The path is part of the key: pylint messages can depend on the location of the file (module names, relative imports).
+   */
+  String key(String relativePath, byte[] content) {
+    MessageDigest digest = PylintIssuesAnalyzer.sha256();
+    digest.update(fingerprint);
+    // length prefixed, so that the path cannot be confused with the beginning of the content
+    PylintIssuesAnalyzer.update(digest, relativePath.getBytes(StandardCharsets.UTF_8));
+    digest.update(content);
+    StringBuilder key = new StringBuilder();
+    for (byte b : digest.digest()) {
+      key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return key.toString();
+  }
+
+  @CheckForNull
+  List<String> get(String key) {
+    try {
+      List<String> lines = Files.readAllLines(directory.resolve(key + SUFFIX), StandardCharsets.UTF_8);
+      usedKeys.add(key);
+      return lines;
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      LOG.debug("Cannot read the cached pylint output '{}': {}", key, e.getMessage());
+      return null;
+    }
+  }
+
+  void put(String key, List<String> lines) {
+    usedKeys.add(key);
+    try {
+      Files.createDirectories(directory);
+      Files.write(directory.resolve(key + SUFFIX), lines, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      LOG.debug("Cannot write the cached pylint output '{}': {}", key, e.getMessage());
+    }
+  }
+
+  void removeUnusedEntries() {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+      for (Path entry : entries) {
+        String fileName = entry.getFileName().toString();
+        if (!usedKeys.contains(fileName.substring(0, fileName.length() - SUFFIX.length()))) {
+          Files.deleteIfExists(entry);
+        }
+      }
+    } catch (IOException e) {
+      LOG.debug("Cannot remove the unused cached pylint outputs: {}", e.getMessage());
+    }
+  }
+
+}
@@ -21,7 +21,17 @@ package org.sonar.plugins.python.pylint;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.annotation.CheckForNull;
 import org.apache.commons.io.FileUtils;
 import org.sonar.api.batch.fs.FilePredicates;
 import org.sonar.api.batch.fs.FileSystem;
@@ -34,7 +44,9 @@ import org.sonar.api.config.Configuration;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.python.OrderedProducers;
 import org.sonar.plugins.python.Python;
+import org.sonar.plugins.python.PythonSquidSensor;
 
 public class PylintSensor implements Sensor {
 
@@ -73,10 +85,17 @@ public class PylintSensor implements Sensor {
     LOG.warn("Execution of pylint by SonarPython is deprecated and will be removed." +
       " Instead, pylint should be executed before sonar-scanner and its report should be imported using the '" + PylintImportSensor.REPORT_PATH_KEY + "' property.");
 
-    int i = 0;
     FileSystem fileSystem = sensorContext.fileSystem();
     FilePredicates p = fileSystem.predicates();
     Iterable<InputFile> files = fileSystem.inputFiles(p.and(p.hasType(InputFile.Type.MAIN), p.hasLanguage(Python.KEY)));
+    int batchSize = conf.getBatchSize();
+    if (batchSize > 0) {
+      int threads = Math.max(1, settings.getInt(PythonSquidSensor.ANALYSIS_THREADS_KEY).orElse(1));
+      analyzeInBatches(sensorContext, files, workDir, batchSize, threads);
+      return;
+    }
+
+    int i = 0;
     for (InputFile file : files) {
       try {
         File out = new File(workDir, i + ".out");
@@ -116,6 +135,106 @@ public class PylintSensor implements Sensor {
     }
   }
 
+  /**
+   * Files are analyzed by batches of {@code batchSize} files, each batch by one pylint process. Up to {@code threads}
+   * processes are executed in parallel, while the issues are saved by the calling thread. The output of pylint for a
+   * file is reused as long as the file and the pylint execution do not change.
+   */
+  private void analyzeInBatches(SensorContext context, Iterable<InputFile> files, File workDir, int batchSize, int threads) {
+    PylintResultCache cache = createCache(context);
+    Map<InputFile, String> cacheKeys = new HashMap<>();
+    List<List<InputFile>> batches = new ArrayList<>();
+    List<InputFile> batch = new ArrayList<>(batchSize);
+    int cachedFiles = 0;
+    for (InputFile file : files) {
+      String cacheKey = cache == null ? null : cacheKey(cache, file);
+      List<String> cachedLines = cacheKey == null ? null : cache.get(cacheKey);
+      if (cachedLines != null) {
+        saveIssues(context, file, cachedLines);
+        cachedFiles++;
+        continue;
+      }
+      if (cacheKey != null) {
+        cacheKeys.put(file, cacheKey);
+      }
+      batch.add(file);
+      if (batch.size() == batchSize) {
+        batches.add(batch);
+        batch = new ArrayList<>(batchSize);
+      }
+    }
+    if (!batch.isEmpty()) {
+      batches.add(batch);
+    }
+    LOG.info("Executing pylint on {} batches of up to {} files using {} threads, {} files did not change since the previous analysis",
+      batches.size(), batchSize, threads, cachedFiles);
+
+    Charset charset = context.fileSystem().encoding();
+    // the tasks are the indexes of the batches, which also name the output files of pylint
+    List<Integer> batchIndexes = IntStream.range(0, batches.size()).boxed().collect(Collectors.toList());
+    OrderedProducers.<Integer, Map<String, List<String>>>run("python-pylint", threads, batchIndexes,
+      (index, linesConsumer) -> linesConsumer.accept(analyzeBatch(batches.get(index), charset, new File(workDir, index + ".out"))),
+      (index, linesByPath) -> {
+        for (InputFile file : batches.get(index)) {
+          List<String> lines = linesByPath.getOrDefault(file.absolutePath(), Collections.emptyList());
+          String cacheKey = cacheKeys.get(file);
+          if (cache != null && cacheKey != null && linesByPath.containsKey(file.absolutePath())) {
+            cache.put(cacheKey, lines);
+          }
+          saveIssues(context, file, lines);
+        }
+      });
+    if (cache != null) {
+      cache.removeUnusedEntries();
+    }
+  }
+
+  @CheckForNull
+  private PylintResultCache createCache(SensorContext context) {
+    File sensorWorkDir = context.fileSystem().workDir();
+    if (sensorWorkDir == null || !settings.getBoolean(PythonSquidSensor.ANALYSIS_CACHE_KEY).orElse(true)) {
+      return null;
+    }
+    try {
+      return new PylintResultCache(new File(sensorWorkDir, PylintResultCache.DIRECTORY_NAME).toPath(), analyzer.fingerprint());
+    } catch (IOException e) {
+      LOG.debug("Cannot compute the fingerprint of the pylint execution, its results will not be reused: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  @CheckForNull
+  @SuppressWarnings("deprecation")
+  private static String cacheKey(PylintResultCache cache, InputFile file) {
+    try {
+      return cache.key(file.relativePath(), Files.readAllBytes(Paths.get(file.uri())));
+    } catch (IOException e) {
+      LOG.debug("Cannot read file '{}', its pylint results will not be reused: {}", file, e.getMessage());
+      return null;
+    }
+  }
+
+  private Map<String, List<String>> analyzeBatch(List<InputFile> batch, Charset charset, File out) {
+    List<String> paths = batch.stream().map(InputFile::absolutePath).collect(Collectors.toList());
+    try {
+      return analyzer.analyzeBatch(paths, charset, out);
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Cannot analyse files '{}', the following exception occurred:", batch, e);
+      return Collections.emptyMap();
+    }
+  }
+
+  private static void saveIssues(SensorContext context, InputFile file, List<String> lines) {
+    PylintReportParser parser = new PylintReportParser();
+    for (String line : lines) {
+      Issue pylintIssue = parser.parseLine(line);
+      if (pylintIssue != null) {
+        ActiveRule rule = context.activeRules().find(RuleKey.of(PylintRuleRepository.REPOSITORY_KEY, pylintIssue.getRuleId()));
+        PylintImportSensor.processRule(pylintIssue, file, rule, context);
+      }
+    }
+  }
+
   private static boolean prepareWorkDir(File dir) {
     try {
       FileUtils.forceMkdir(dir);
@@ -20,14 +20,11 @@
 package org.sonar.plugins.python.xunit;
 
 import java.io.File;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.CheckForNull;
 import javax.xml.stream.XMLStreamException;
-import org.apache.commons.lang.StringUtils;
-import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputComponent;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.measure.Metric;
@@ -36,7 +33,9 @@ import org.sonar.api.config.Configuration;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.python.DirectoryListings;
 import org.sonar.plugins.python.PythonReportSensor;
+import org.sonar.plugins.python.ReportPathResolver;
 import org.sonar.plugins.python.parser.StaxParser;
 import org.sonar.plugins.python.warnings.AnalysisWarningsWrapper;
 
@@ -47,11 +46,12 @@ public class PythonXUnitSensor extends PythonReportSensor {
   public static final String DEFAULT_REPORT_PATH = "xunit-reports/xunit-result-*.xml";
   public static final String SKIP_DETAILS = "sonar.python.xunit.skipDetails";
 
-  private final FileSystem fileSystem;
+  private final ReportPathResolver pathResolver;
 
-  public PythonXUnitSensor(Configuration conf, FileSystem fileSystem, AnalysisWarningsWrapper analysisWarnings) {
-    super(conf, analysisWarnings, "XUnit");
-    this.fileSystem = fileSystem;
+  public PythonXUnitSensor(Configuration conf, ReportPathResolver pathResolver, DirectoryListings directoryListings,
+    AnalysisWarningsWrapper analysisWarnings) {
+    super(conf, directoryListings, analysisWarnings, "XUnit");
+    this.pathResolver = pathResolver;
   }
 
   @Override
@@ -74,15 +74,12 @@ public class PythonXUnitSensor extends PythonReportSensor {
   }
 
   private static void simpleMode(final SensorContext context, List<File> reports) throws XMLStreamException {
-    TestSuiteParser parserHandler = new TestSuiteParser();
-    StaxParser parser = new StaxParser(parserHandler);
+    TestResult total = new TestResult();
+    StaxParser parser = new StaxParser(new TestSuiteParser((suiteKey, testCase) -> total.addTestCase(testCase)));
     for (File report : reports) {
       parser.parse(report);
     }
 
-    TestResult total = new TestResult();
-    parserHandler.getParsedReports().forEach(testSuite -> testSuite.getTestCases().forEach(total::addTestCase));
-
     if (total.getTests() > 0) {
       InputComponent module = context.module();
       saveMeasure(context, module, CoreMetrics.TESTS, total.getExecutedTests());
@@ -95,18 +92,28 @@ public class PythonXUnitSensor extends PythonReportSensor {
 
   private void detailedMode(final SensorContext context, List<File> reports) throws XMLStreamException {
     for (File report : reports) {
-      TestSuiteParser parserHandler = new TestSuiteParser();
-      StaxParser parser = new StaxParser(parserHandler);
+      Map<InputFile, TestResult> testResultsByFile = new HashMap<>();
+      StaxParser parser = new StaxParser(new TestSuiteParser((suiteKey, testCase) -> {
+        String testClassname = testCase.getTestClassname();
+        LOG.debug("Trying to find a SonarQube resource for test case '{}'", testClassname);
+        InputFile inputFile = findResource(pathResolver, testCase, suiteKey);
+        if (inputFile != null) {
+          LOG.debug("The resource was found '{}'", inputFile);
+          testResultsByFile.computeIfAbsent(inputFile, k -> new TestResult()).addTestCase(testCase);
+        } else {
+          LOG.warn("The resource for '{}' is not found, drilling down to the details of this test won't be possible", testClassname);
+        }
+      }));
       parser.parse(report);
 
       LOG.info("Processing report '{}'", report);
 
-      processReportDetailed(context, parserHandler.getParsedReports());
+      saveDetailedMeasures(context, testResultsByFile);
     }
+    pathResolver.logStatistics();
   }
 
-  private void processReportDetailed(SensorContext context, Collection<TestSuite> parsedReports) {
-    Map<InputFile, TestResult> locatedResources = lookupResources(parsedReports);
+  private static void saveDetailedMeasures(SensorContext context, Map<InputFile, TestResult> locatedResources) {
     for (Map.Entry<InputFile, TestResult> entry : locatedResources.entrySet()) {
       InputFile inputFile = entry.getKey();
       TestResult fileTestResult = entry.getValue();
@@ -121,65 +128,26 @@ public class PythonXUnitSensor extends PythonReportSensor {
   }
 
   @CheckForNull
-  private InputFile findResource(TestCase testCase, String fileKey) {
+  private static InputFile findResource(ReportPathResolver pathResolver, TestCase testCase, String fileKey) {
     InputFile unitTestFile = null;
 
-    if (testCase.getFile() != null) {
-      unitTestFile = getSonarTestFile(new File(testCase.getFile()));
+    String file = testCase.getFile();
+    if (file != null) {
+      LOG.debug("Using the path '{}' to lookup the resource in SonarQube", file);
+      unitTestFile = pathResolver.resolve(file);
     }
 
     if (unitTestFile == null) {
       String testClassname = testCase.getTestClassname();
       String key = testClassname != null ? testClassname : fileKey;
-      return findResourceUsingNoseTestsStrategy(key);
+      // nose tests strategy: the key is the name of the module, optionally followed by the name of the class
+      LOG.debug("Using the key '{}' to lookup the resource in SonarQube", key);
+      unitTestFile = pathResolver.resolveModule(key);
     }
 
     return unitTestFile;
   }
 
-  private InputFile findResourceUsingNoseTestsStrategy(String fileKey) {
-    // a) check assuming the key doesnt contain the class name
-    String candidateKey = StringUtils.replace(fileKey, ".", "/") + ".py";
-
-    InputFile unitTestFile = getSonarTestFile(new File(candidateKey));
-
-    if (unitTestFile == null) {
-      // b) check assuming the key *does* contain the class name
-      String candidateKey2 = StringUtils.replace(StringUtils.substringBeforeLast(fileKey, "."), ".", "/") + ".py";
-      if ( !(candidateKey2.equals(candidateKey))) {
-        unitTestFile = getSonarTestFile(new File(candidateKey2));
-      }
-    }
-
-    return unitTestFile;
-  }
-
-  private Map<InputFile, TestResult> lookupResources(Collection<TestSuite> testReports) {
-    Map<InputFile, TestResult> testResultsByFile = new HashMap<>();
-
-    for (TestSuite testSuite : testReports) {
-      testSuite.getTestCases().forEach(testCase -> {
-        String testClassname = testCase.getTestClassname();
-        LOG.debug("Trying to find a SonarQube resource for test case '{}'", testClassname);
-        InputFile inputFile = findResource(testCase, testSuite.getKey());
-        if (inputFile != null) {
-          LOG.debug("The resource was found '{}'", inputFile);
-          testResultsByFile.computeIfAbsent(inputFile, k -> new TestResult()).addTestCase(testCase);
-        } else {
-          LOG.warn("The resource for '{}' is not found, drilling down to the details of this test won't be possible", testClassname);
-        }
-      });
-    }
-
-    return testResultsByFile;
-  }
-
-  @CheckForNull
-  private InputFile getSonarTestFile(File file) {
-    LOG.debug("Using the key '{}' to lookup the resource in SonarQube", file.getPath());
-    return fileSystem.inputFile(fileSystem.predicates().is(file));
-  }
-
   private static void saveMeasure(SensorContext context, InputComponent component, Metric<Integer> metric, int value) {
     context.<Integer>newMeasure()
       .on(component)
@@ -36,7 +36,6 @@ public class TestCase {
 
   private final String name;
   private final String status;
-  private final String stackTrace;
   private final String errorMessage;
   private final int time;
   private final String file;
@@ -51,8 +50,6 @@ public class TestCase {
    *          The execution time in milliseconds
    * @param status
    *          The execution status of the testcase
-   * @param stack
-   *          The stack trace occurred while executing of this testcase; pass "" if the testcase passed/skipped.
    * @param msg
    *          The error message associated with this testcase of the execution was erroneous; pass "" if not.
    * @param file
@@ -60,10 +57,9 @@ public class TestCase {
    * @param testClassname
    *          The classname of the test.
    */
-  public TestCase(String name, int time, String status, String stack, String msg, @Nullable String file, @Nullable String testClassname) {
+  public TestCase(String name, int time, String status, String msg, @Nullable String file, @Nullable String testClassname) {
     this.name = name;
     this.time = time;
-    this.stackTrace = stack;
     this.errorMessage = msg;
     this.status = status;
     this.file = file;
@@ -113,8 +109,7 @@ public class TestCase {
     details.append("<testcase status=\"").append(status).append("\" time=\"").append(time).append("\" name=\"").append(name).append("\"");
     if (isError() || isFailure()) {
       details.append(">").append(isError() ? "<error message=\"" : "<failure message=\"").append(StringEscapeUtils.escapeXml(errorMessage))
-          .append("\">").append("<![CDATA[").append(StringEscapeUtils.escapeXml(stackTrace)).append("]]>")
-          .append(isError() ? "</error>" : "</failure>").append("</testcase>");
+          .append("\">").append(isError() ? "</error>" : "</failure>").append("</testcase>");
     } else {
       details.append("/>");
     }
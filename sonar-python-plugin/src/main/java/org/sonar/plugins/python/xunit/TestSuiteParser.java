@@ -19,8 +19,7 @@
  */
 package org.sonar.plugins.python.xunit;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.function.BiConsumer;
 import org.codehaus.staxmate.in.ElementFilter;
 import org.codehaus.staxmate.in.SMHierarchicCursor;
 import org.codehaus.staxmate.in.SMInputCursor;
@@ -28,40 +27,37 @@ import org.sonar.api.utils.ParsingUtils;
 import org.sonar.plugins.python.parser.StaxParser.XmlStreamHandler;
 import javax.xml.stream.XMLStreamException;
 import java.text.ParseException;
-import java.util.Collection;
 import java.util.Locale;
 
 public class TestSuiteParser implements XmlStreamHandler {
 
-  private List<TestSuite> testSuites = new ArrayList<>();
+  private final BiConsumer<String, TestCase> testCaseConsumer;
+
+  /**
+   * Hands every test case to the given consumer, along with the name of its test suite, as soon as it is read.
+   * Nothing is retained by the parser and the text of failures and errors is not collected.
+   */
+  public TestSuiteParser(BiConsumer<String, TestCase> testCaseConsumer) {
+    this.testCaseConsumer = testCaseConsumer;
+  }
 
   @Override
   public void stream(SMHierarchicCursor rootCursor) throws XMLStreamException {
     SMInputCursor testSuiteCursor = rootCursor.constructDescendantCursor(new ElementFilter("testsuite"));
     while (testSuiteCursor.getNext() != null) {
       String testSuiteClassName = testSuiteCursor.getAttrValue("name");
-      TestSuite testSuite = new TestSuite(testSuiteClassName);
-      testSuites.add(testSuite);
       SMInputCursor testCaseCursor = testSuiteCursor.childElementCursor("testcase");
 
       while (testCaseCursor.getNext() != null) {
-        testSuite.addTestCase(parseTestCaseTag(testCaseCursor));
+        testCaseConsumer.accept(testSuiteClassName, parseTestCaseTag(testCaseCursor));
       }
     }
   }
 
-  /**
-   * Returns successfully parsed reports as a collection of TestSuite objects.
-   */
-  public Collection<TestSuite> getParsedReports() {
-    return testSuites;
-  }
-
   private static TestCase parseTestCaseTag(SMInputCursor testCaseCursor) throws XMLStreamException {
     String name = parseTestCaseName(testCaseCursor);
     Double time = parseTime(testCaseCursor);
     String status = TestCase.STATUS_OK;
-    String stack = "";
     String msg = "";
 
     String file = testCaseCursor.getAttrValue("file");
@@ -75,14 +71,12 @@ public class TestSuiteParser implements XmlStreamHandler {
       } else if (TestCase.STATUS_FAILURE.equals(elementName)) {
         status = TestCase.STATUS_FAILURE;
         msg = childCursor.getAttrValue("message");
-        stack = childCursor.collectDescendantText();
       } else if (TestCase.STATUS_ERROR.equals(elementName)) {
         status = TestCase.STATUS_ERROR;
         msg = childCursor.getAttrValue("message");
-        stack = childCursor.collectDescendantText();
       }
     }
-    return new TestCase(name, time.intValue(), status, stack, msg, file, testClassName);
+    return new TestCase(name, time.intValue(), status, msg, file, testClassName);
   }
 
   private static double parseTime(SMInputCursor testCaseCursor) throws XMLStreamException {
@@ -0,0 +1,201 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import com.intellij.psi.SyntaxTraverser;
+import com.intellij.psi.impl.source.tree.LeafPsiElement;
+import com.jetbrains.python.psi.PyFile;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Grammar;
+import com.sonar.sslr.impl.Parser;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sonar.plugins.python.cpd.CpdTokenizer;
+import org.sonar.python.PythonCheck;
+import org.sonar.python.PythonConfiguration;
+import org.sonar.python.PythonFile;
+import org.sonar.python.PythonVisitor;
+import org.sonar.python.PythonVisitorContext;
+import org.sonar.python.PythonVisitorMultiplexer;
+import org.sonar.python.SubscriptionVisitor;
+import org.sonar.python.checks.CheckList;
+import org.sonar.python.frontend.PythonParser;
+import org.sonar.python.metrics.FileMetrics;
+import org.sonar.python.metrics.LeafVisitor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Allocation of each phase of the analysis, per byte of source code, compared to the budgets of "allocation/budgets.properties".
+ */
+public class AllocationBudgetTest {
+
+  private static final File BASE_DIR = new File("src/test/resources/org/sonar/plugins/python");
+  private static final List<String> FILES = Arrays.asList(
+    "allocation/inventory.py",
+    "squid-sensor/file1.py",
+    "squid-sensor/file2.py",
+    "code_chunks_2.py");
+
+  private static final Parser<Grammar> SSLR_PARSER = org.sonar.python.parser.PythonParser.create(new PythonConfiguration(StandardCharsets.UTF_8));
+  private static final PythonParser PSI_PARSER = new PythonParser();
+
+  // margin kept above the measure when a budget is added
+  private static final double BUDGET_MARGIN = 1.2;
+
+  private static final List<TestFile> files = new ArrayList<>();
+  private static final Properties budgets = new Properties();
+  private static long sourceBytes = 0;
+
+  @BeforeClass
+  public static void setUp() throws IOException {
+    assumeTrue(AllocationMeter.isSupported());
+    for (String path : FILES) {
+      String content = TestUtils.fileContent(new File(BASE_DIR, path), StandardCharsets.UTF_8);
+      files.add(new TestFile(path, content));
+      sourceBytes += content.getBytes(StandardCharsets.UTF_8).length;
+    }
+    try (InputStream inputStream = AllocationBudgetTest.class.getResourceAsStream("/org/sonar/plugins/python/allocation/budgets.properties")) {
+      budgets.load(inputStream);
+    }
+  }
+
+  @Test
+  public void sslr_parse() {
+    assertWithinBudget("sslr.parse", file -> SSLR_PARSER.parse(file.content));
+  }
+
+  @Test
+  public void psi_parse() {
+    assertWithinBudget("psi.parse", file -> PSI_PARSER.parse(file.content));
+  }
+
+  @Test
+  public void symbol_table() {
+    assertWithinBudget("symbol.table", file -> file.newContext().symbolTable());
+  }
+
+  @Test
+  public void metrics() {
+    assertWithinBudget("metrics", file -> new FileMetrics(false, file.pyFile));
+  }
+
+  @Test
+  public void highlighting() {
+    PythonHighlighter.HighlightingConsumer ignored = (startLine, startLineOffset, endLine, endLineOffset, typeOfText) -> {
+    };
+    assertWithinBudget("highlighting", file -> visitLeaves(file.pyFile, new PythonHighlighter(ignored)));
+  }
+
+  @Test
+  public void cpd() {
+    CpdTokenizer.TokenConsumer ignored = (startLine, startLineOffset, endLine, endLineOffset, image) -> {
+    };
+    assertWithinBudget("cpd", file -> visitLeaves(file.pyFile, new CpdTokenizer(ignored)));
+  }
+
+  @Test
+  public void checks() throws ReflectiveOperationException {
+    List<PythonCheck> checks = new ArrayList<>();
+    for (Class checkClass : CheckList.getChecks()) {
+      checks.add((PythonCheck) checkClass.getConstructor().newInstance());
+    }
+    PythonVisitorMultiplexer syntaxTreeVisitor = new PythonVisitorMultiplexer(checks.stream()
+      .filter(check -> PythonVisitor.visitsSyntaxTree(check.getClass()))
+      .collect(Collectors.toList()));
+    SubscriptionVisitor subscriptionVisitor = new SubscriptionVisitor(checks);
+    // the symbol table is measured on its own
+    files.forEach(file -> file.context.symbolTable());
+    assertWithinBudget("checks", file -> {
+      file.context.getIssues().clear();
+      syntaxTreeVisitor.scanFile(file.context);
+      subscriptionVisitor.analyze(file.context, file.pyFile);
+    });
+  }
+
+  /**
+   * Feeds the leaves of a file to a visitor without the metrics computed by {@link FileMetrics} along the way.
+   */
+  private static void visitLeaves(PyFile pyFile, LeafVisitor leafVisitor) {
+    for (LeafPsiElement leaf : SyntaxTraverser.psiTraverser(pyFile).traverse().filter(LeafPsiElement.class)) {
+      leafVisitor.visitLeaf(leaf);
+    }
+    leafVisitor.leaveFile();
+  }
+
+  private static void assertWithinBudget(String phase, Consumer<TestFile> analysis) {
+    long allocatedBytes = AllocationMeter.measure(() -> files.forEach(analysis));
+    double bytesPerSourceByte = allocatedBytes / (double) sourceBytes;
+    String budgetProperty = budgets.getProperty(phase);
+    assertThat(budgetProperty)
+      .overridingErrorMessage(String.format(Locale.ENGLISH, "Phase \"%s\" allocated %.0f bytes per byte of source code (%d bytes) and has no budget, add \"%s=%.0f\"",
+        phase, bytesPerSourceByte, allocatedBytes, phase, Math.ceil(bytesPerSourceByte * BUDGET_MARGIN)))
+      .isNotNull();
+    double budget = Double.parseDouble(budgetProperty);
+    assertThat(bytesPerSourceByte)
+      .overridingErrorMessage(String.format(Locale.ENGLISH, "Phase \"%s\" allocated %.0f bytes per byte of source code (%d bytes), the budget is %.0f",
+        phase, bytesPerSourceByte, allocatedBytes, budget))
+      .isLessThanOrEqualTo(budget);
+  }
+
+  private static class TestFile implements PythonFile {
+
+    private final String fileName;
+    private final String content;
+    private final AstNode tree;
+    private final PyFile pyFile;
+    private final PythonVisitorContext context;
+
+    TestFile(String fileName, String content) {
+      this.fileName = fileName;
+      this.content = content;
+      this.tree = SSLR_PARSER.parse(content);
+      this.pyFile = PSI_PARSER.parse(content);
+      this.context = newContext();
+    }
+
+    PythonVisitorContext newContext() {
+      return new PythonVisitorContext(tree, this);
+    }
+
+    @Override
+    public String content() {
+      return content;
+    }
+
+    @Override
+    public String fileName() {
+      return fileName;
+    }
+  }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Bytes allocated by the current thread, as counted by the JVM (HotSpot and OpenJ9).
+ */
+public class AllocationMeter {
+
+  private AllocationMeter() {
+  }
+
+  public static boolean isSupported() {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    return threadMXBean instanceof com.sun.management.ThreadMXBean
+      && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()
+      && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled();
+  }
+
+  public static long allocatedBytes() {
+    com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Bytes allocated by the runnable. The first executions of some code allocate more than the next ones (class loading,
+   * caches, JIT): the runnable is executed several times and the lowest allocation is returned.
+   */
+  public static long measure(Runnable runnable) {
+    // warmup
+    for (int i = 0; i < 3; i++) {
+      runnable.run();
+    }
+    long lowest = Long.MAX_VALUE;
+    for (int i = 0; i < 3; i++) {
+      long before = allocatedBytes();
+      runnable.run();
+      lowest = Math.min(lowest, allocatedBytes() - before);
+    }
+    return lowest;
+  }
+
+}
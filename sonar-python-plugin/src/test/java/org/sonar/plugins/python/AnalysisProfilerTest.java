@@ -0,0 +1,95 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AnalysisProfilerTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  @Test
+  public void phases_and_rules() {
+    AnalysisProfiler profiler = new AnalysisProfiler(2);
+    profiler.recordPhase(AnalysisProfiler.PSI_PARSE, 3_000_000);
+    profiler.recordPhase(AnalysisProfiler.PSI_PARSE, 1_500_000);
+    profiler.recordPhase(AnalysisProfiler.METRICS, 10_000_000);
+    profiler.recordRule("python:S1", 2_000);
+    profiler.recordFile("a.py", 1_000_000);
+
+    assertThat(profiler.toJson()).isEqualTo("{\"files\":1," +
+      "\"phases\":[{\"name\":\"metrics\",\"files\":1,\"totalMs\":10.0,\"maxMs\":10.0},{\"name\":\"psi parse\",\"files\":2,\"totalMs\":4.5,\"maxMs\":3.0}]," +
+      "\"rules\":[{\"name\":\"python:S1\",\"files\":1,\"totalMs\":0.002,\"maxMs\":0.002}]," +
+      "\"slowestFiles\":[{\"file\":\"a.py\",\"timeMs\":1.0}]}");
+  }
+
+  @Test
+  public void slowest_files() {
+    AnalysisProfiler profiler = new AnalysisProfiler(2);
+    profiler.recordFile("a.py", 2_000_000);
+    profiler.recordFile("b.py", 1_000_000);
+    profiler.recordFile("c.py", 3_000_000);
+    profiler.recordFile("d.py", 500_000);
+
+    assertThat(profiler.toJson()).startsWith("{\"files\":4,")
+      .endsWith("\"slowestFiles\":[{\"file\":\"c.py\",\"timeMs\":3.0},{\"file\":\"a.py\",\"timeMs\":2.0}]}");
+  }
+
+  @Test
+  public void report_and_summary() throws IOException {
+    AnalysisProfiler profiler = new AnalysisProfiler(10);
+    profiler.recordPhase(AnalysisProfiler.SAVE, 1_000_000);
+    profiler.recordRule("python:S2", 2_000_000);
+    profiler.recordFile("a.py", 3_000_000);
+    File workDir = new File(temporaryFolder.getRoot(), "work");
+    profiler.writeReport(workDir.toPath());
+
+    File report = new File(workDir, AnalysisProfiler.REPORT_FILE_NAME);
+    assertThat(new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8)).isEqualTo(profiler.toJson());
+
+    profiler.logSummary();
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains(
+      "Python analysis of 1 files, time per phase: save 1.0ms",
+      "Slowest Python rules: python:S2 2.0ms",
+      "Slowest Python files: a.py 3.0ms");
+  }
+
+  @Test
+  public void report_cannot_be_written() throws IOException {
+    File workDir = temporaryFolder.newFile();
+    new AnalysisProfiler(10).writeReport(workDir.toPath());
+    assertThat(logTester.logs(LoggerLevel.WARN)).hasSize(1);
+    assertThat(logTester.logs(LoggerLevel.WARN).get(0)).startsWith("Unable to write the Python performance report");
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CacheFilesTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void bytes() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CacheFiles.writeBytes(new DataOutputStream(bytes), new byte[] {1, 2, 3});
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    assertThat(CacheFiles.readBytes(in, 3)).containsExactly(1, 2, 3);
+  }
+
+  @Test(expected = EOFException.class)
+  public void too_long_bytes() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CacheFiles.writeBytes(new DataOutputStream(bytes), new byte[] {1, 2, 3});
+    CacheFiles.readBytes(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 2);
+  }
+
+  @Test
+  public void write_atomically() throws IOException {
+    Path file = temporaryFolder.getRoot().toPath().resolve("sub").resolve("cache.bin");
+    CacheFiles.writeAtomically(file, out -> out.writeInt(42));
+    CacheFiles.writeAtomically(file, out -> out.writeInt(43));
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+      assertThat(in.readInt()).isEqualTo(43);
+    }
+    assertThat(file.resolveSibling("cache.bin.tmp")).doesNotExist();
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.utils.WildcardPattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DirectoryListingsTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void scanners_share_listings() throws IOException {
+    File dir = temporaryFolder.getRoot();
+    File report = createFile(dir, "reports/r1.xml");
+    File libReport = createFile(dir, "lib/reports/r2.xml");
+    createFile(dir, "lib/r3.txt");
+    DirectoryListings listings = new DirectoryListings(new DefaultFileSystem(dir));
+
+    assertThat(listings.scanner(WildcardPattern.create("reports/*.xml")).getIncludedFiles()).containsOnly(report);
+    // the listings of the base directory and of "reports" are reused, while "lib" was not walked by the first scan
+    assertThat(listings.scanner(WildcardPattern.create("**/*.xml")).getIncludedFiles()).containsOnly(report, libReport);
+    assertThat(listings.scanner(WildcardPattern.create("lib/**/*")).getIncludedFiles()).hasSize(2);
+  }
+
+  @Test
+  public void listings_of_another_analysis_not_shared() throws IOException {
+    File dir = temporaryFolder.getRoot();
+    File report = createFile(dir, "reports/r1.xml");
+    assertThat(new DirectoryListings(new DefaultFileSystem(dir)).scanner(WildcardPattern.create("**/*.xml")).getIncludedFiles())
+      .containsOnly(report);
+
+    File newReport = createFile(dir, "reports/r2.xml");
+    assertThat(new DirectoryListings(new DefaultFileSystem(dir)).scanner(WildcardPattern.create("**/*.xml")).getIncludedFiles())
+      .containsOnly(report, newReport);
+  }
+
+  private static File createFile(File dir, String relativePath) throws IOException {
+    File file = new File(dir, relativePath);
+    Files.createDirectories(file.getParentFile().toPath());
+    Files.write(file.toPath(), new byte[0]);
+    return file;
+  }
+
+}
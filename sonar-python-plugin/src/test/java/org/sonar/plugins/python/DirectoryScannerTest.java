@@ -20,17 +20,11 @@
 package org.sonar.plugins.python;
 
 import java.io.File;
-import java.io.FileFilter;
 import java.util.List;
 import org.junit.Test;
-import org.mockito.invocation.InvocationOnMock;
-import org.mockito.stubbing.Answer;
 import org.sonar.api.utils.WildcardPattern;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Matchers.any;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
 
 public class DirectoryScannerTest {
 
@@ -55,20 +49,9 @@ public class DirectoryScannerTest {
   }
 
   @Test
-  public void shouldNotFailWhenChildPathIsUnexpectedlyShorterThanBaseDirPath() {
-    File dir = mock(File.class);
-    final File matchingFile = new File("/matching/file");
-    when(dir.getAbsolutePath()).thenReturn("/a/somewhat/long/path");
-    when(dir.isDirectory()).thenReturn(true);
-    when(dir.listFiles(any(FileFilter.class))).thenAnswer(new Answer<File[]>() {
-      @Override
-      public File[] answer(InvocationOnMock invocation) throws Throwable {
-        FileFilter filter = (FileFilter) invocation.getArguments()[0];
-        filter.accept(new File("/short/path"));
-        return new File[] {matchingFile};
-      }
-    });
-    assertThat(scan("xxx", dir)).containsOnly(matchingFile);
+  public void leadingSeparatorAndMissingBaseDir() {
+    assertThat(scan("/dir/f1.txt")).containsOnly(new File(baseDir, F_1_TXT));
+    assertThat(scan("**/f1.txt", new File(baseDir, "missing"))).isEmpty();
   }
 
   private List<File> scan(String pattern) {
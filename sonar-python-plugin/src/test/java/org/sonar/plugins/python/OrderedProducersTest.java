@@ -0,0 +1,123 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class OrderedProducersTest {
+
+  private static final List<Integer> TASKS = Collections.unmodifiableList(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11));
+
+  @Test
+  public void items_consumed_in_task_order() {
+    List<String> expected = run(1);
+    assertThat(expected).hasSize(TASKS.stream().mapToInt(OrderedProducersTest::itemCount).sum());
+    assertThat(expected.get(0)).isEqualTo("1:0");
+    assertThat(run(3)).isEqualTo(expected);
+    assertThat(run(8)).isEqualTo(expected);
+  }
+
+  @Test
+  public void no_task() {
+    List<String> items = new ArrayList<>();
+    OrderedProducers.<Integer, String>run("test", 4, Collections.emptyList(), OrderedProducersTest::produce, (task, item) -> items.add(item));
+    assertThat(items).isEmpty();
+  }
+
+  @Test
+  public void runtime_exception_of_producer() {
+    for (int threads : new int[] {1, 4}) {
+      try {
+        OrderedProducers.<Integer, String>run("test", threads, TASKS, (task, sink) -> {
+          if (task == 5) {
+            throw new IllegalArgumentException("task " + task);
+          }
+          produce(task, sink);
+        }, (task, item) -> {
+        });
+        fail("exception expected");
+      } catch (IllegalArgumentException e) {
+        assertThat(e).hasMessage("task 5");
+      }
+    }
+  }
+
+  @Test
+  public void checked_exception_of_producer() {
+    for (int threads : new int[] {1, 4}) {
+      try {
+        OrderedProducers.<Integer, String>run("test", threads, TASKS, (task, sink) -> {
+          throw new IOException("task " + task);
+        }, (task, item) -> {
+        });
+        fail("exception expected");
+      } catch (IllegalStateException e) {
+        assertThat(e.getCause()).isInstanceOf(IOException.class).hasMessage("task 0");
+      }
+    }
+  }
+
+  @Test
+  public void exception_of_consumer() {
+    List<String> items = new ArrayList<>();
+    try {
+      OrderedProducers.<Integer, String>run("test", 4, TASKS, OrderedProducersTest::produce, (task, item) -> {
+        if (task == 3) {
+          throw new IllegalStateException("consumer");
+        }
+        items.add(item);
+      });
+      fail("exception expected");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("consumer");
+    }
+    // all the items of the previous tasks were consumed
+    assertThat(items).isEqualTo(run(1).subList(0, itemCount(1) + itemCount(2)));
+  }
+
+  private static List<String> run(int threads) {
+    List<String> items = new ArrayList<>();
+    OrderedProducers.<Integer, String>run("test", threads, TASKS, OrderedProducersTest::produce, (task, item) -> items.add(item));
+    return items;
+  }
+
+  private static void produce(Integer task, Consumer<String> sink) {
+    for (int i = 0; i < itemCount(task); i++) {
+      sink.accept(task + ":" + i);
+    }
+  }
+
+  /**
+   * From no item to several batches.
+   */
+  private static int itemCount(int task) {
+    return (task % 4) * 1500;
+  }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.python.semantic.ProjectIndex;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectIndexerTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path baseDir;
+  private Path workDir;
+
+  @Before
+  public void setUp() throws IOException {
+    baseDir = temporaryFolder.newFolder().toPath();
+    workDir = temporaryFolder.newFolder().toPath();
+  }
+
+  @Test
+  public void module_names() {
+    Set<Path> packages = new HashSet<>(Arrays.asList(Paths.get("src", "a"), Paths.get("src", "a", "b")));
+    assertThat(ProjectIndexer.moduleName(Paths.get("src", "a", "b", "c.py"), packages)).isEqualTo("a.b.c");
+    assertThat(ProjectIndexer.moduleName(Paths.get("src", "a", "b", "__init__.py"), packages)).isEqualTo("a.b");
+    assertThat(ProjectIndexer.moduleName(Paths.get("src", "a", "d.py"), packages)).isEqualTo("a.d");
+    assertThat(ProjectIndexer.moduleName(Paths.get("src", "e.py"), packages)).isEqualTo("e");
+    assertThat(ProjectIndexer.moduleName(Paths.get("other", "b", "script"), packages)).isEqualTo("script");
+    assertThat(ProjectIndexer.moduleName(Paths.get("__init__.py"), packages)).isEmpty();
+  }
+
+  @Test
+  public void index() {
+    ProjectIndex index = new ProjectIndexer(StandardCharsets.UTF_8, 1, null, "1.0").index(project());
+    assertIndex(index);
+  }
+
+  @Test
+  public void index_in_parallel() {
+    ProjectIndex index = new ProjectIndexer(StandardCharsets.UTF_8, 3, null, "1.0").index(project());
+    assertIndex(index);
+  }
+
+  @Test
+  public void summaries_reused_by_next_analysis() throws IOException {
+    ProjectIndexer firstIndexer = new ProjectIndexer(StandardCharsets.UTF_8, 1, workDir, "1.0");
+    firstIndexer.index(project());
+    assertThat(firstIndexer.extractedFiles()).isEqualTo(4);
+    assertThat(firstIndexer.cachedFiles()).isZero();
+    assertThat(workDir.resolve(ProjectIndexer.FILE_NAME)).isRegularFile();
+
+    List<InputFile> project = project();
+    project.set(3, inputFile("script.py", "from pkg.util import helper\ndef other_main(): pass\n"));
+    ProjectIndexer secondIndexer = new ProjectIndexer(StandardCharsets.UTF_8, 2, workDir, "1.0");
+    ProjectIndex index = secondIndexer.index(project);
+    assertThat(secondIndexer.extractedFiles()).isEqualTo(1);
+    assertThat(secondIndexer.cachedFiles()).isEqualTo(3);
+    assertThat(index.definitions("script")).containsExactly("helper", "other_main");
+    assertThat(index.definitions("pkg.util")).containsExactly("Helper", "helper");
+
+    ProjectIndexer otherVersion = new ProjectIndexer(StandardCharsets.UTF_8, 1, workDir, "2.0");
+    otherVersion.index(project);
+    assertThat(otherVersion.cachedFiles()).isZero();
+  }
+
+  @Test
+  public void index_hash() {
+    ProjectIndexer indexer = new ProjectIndexer(StandardCharsets.UTF_8, 1, null, "1.0");
+    indexer.index(project());
+    byte[] hash = indexer.indexHash();
+
+    List<InputFile> reversed = project();
+    Collections.reverse(reversed);
+    ProjectIndexer parallelIndexer = new ProjectIndexer(StandardCharsets.UTF_8, 3, null, "1.0");
+    parallelIndexer.index(reversed);
+    assertThat(parallelIndexer.indexHash()).isEqualTo(hash);
+
+    List<InputFile> changed = project();
+    changed.set(3, inputFile("script.py", "def other_main(): pass\n"));
+    ProjectIndexer otherIndexer = new ProjectIndexer(StandardCharsets.UTF_8, 1, null, "1.0");
+    otherIndexer.index(changed);
+    assertThat(otherIndexer.indexHash()).isNotEqualTo(hash);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void no_index_hash_before_indexing() {
+    new ProjectIndexer(StandardCharsets.UTF_8, 1, null, "1.0").indexHash();
+  }
+
+  @Test
+  public void corrupted_cache_is_ignored() throws IOException {
+    Files.write(workDir.resolve(ProjectIndexer.FILE_NAME), new byte[] {1, 2, 3});
+    ProjectIndexer indexer = new ProjectIndexer(StandardCharsets.UTF_8, 1, workDir, "1.0");
+    assertIndex(indexer.index(project()));
+    assertThat(indexer.cachedFiles()).isZero();
+  }
+
+  @Test
+  public void unreadable_file_is_skipped() {
+    InputFile unreadable = TestInputFileBuilder.create("moduleKey", "missing.py")
+      .setModuleBaseDir(baseDir)
+      .setCharset(StandardCharsets.UTF_8)
+      .build();
+    ProjectIndex index = new ProjectIndexer(StandardCharsets.UTF_8, 1, workDir, "1.0").index(Collections.singletonList(unreadable));
+    assertThat(index.moduleCount()).isZero();
+  }
+
+  private static void assertIndex(ProjectIndex index) {
+    assertThat(index.moduleCount()).isEqualTo(4);
+    assertThat(index.hasModule("pkg")).isTrue();
+    assertThat(index.hasModule("pkg.util")).isTrue();
+    assertThat(index.hasModule("pkg.deep")).isTrue();
+    assertThat(index.definitions("pkg")).containsExactly("VERSION", "helper");
+    assertThat(index.imports("pkg")).containsExactly("pkg.util");
+    assertThat(index.imports("pkg.deep")).containsExactly("os", "pkg.util");
+    assertThat(index.isResolvable("pkg.util.Helper")).isTrue();
+    assertThat(index.definitions("script")).containsExactly("main");
+  }
+
+  private List<InputFile> project() {
+    return new ArrayList<>(Arrays.asList(
+      inputFile("pkg/__init__.py", "from .util import helper\nVERSION = '1.0'\n"),
+      inputFile("pkg/util.py", "def helper(): pass\nclass Helper:\n  def method(self): pass\n"),
+      inputFile("pkg/deep.py", "import os\nfrom .util import Helper as H\n"),
+      inputFile("script.py", "def main(): pass\n")));
+  }
+
+  private InputFile inputFile(String relativePath, String content) {
+    return TestInputFileBuilder.create("moduleKey", relativePath)
+      .setModuleBaseDir(baseDir)
+      .setCharset(StandardCharsets.UTF_8)
+      .setContents(content)
+      .build();
+  }
+
+}
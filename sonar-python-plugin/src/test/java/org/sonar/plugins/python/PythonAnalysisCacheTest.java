@@ -0,0 +1,189 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.python.metrics.LineSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PythonAnalysisCacheTest {
+
+  private static final byte[] FINGERPRINT = PythonAnalysisCache.hash("plugin", "rule");
+  private static final byte[] CONTENT_HASH = PythonAnalysisCache.hash("x = 1");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path workDir;
+
+  @Before
+  public void setUp() throws IOException {
+    workDir = temporaryFolder.newFolder().toPath();
+  }
+
+  @Test
+  public void empty_cache() {
+    PythonAnalysisCache cache = PythonAnalysisCache.load(workDir, FINGERPRINT);
+    assertThat(cache.get("file.py", CONTENT_HASH)).isNull();
+  }
+
+  @Test
+  public void round_trip() {
+    PythonAnalysisCache cache = PythonAnalysisCache.load(workDir, FINGERPRINT);
+    cache.put("file.py", CONTENT_HASH, results());
+    cache.save();
+
+    FileResults results = PythonAnalysisCache.load(workDir, FINGERPRINT).get("file.py", CONTENT_HASH);
+    assertThat(results).isNotNull();
+    assertThat(results.isComplete()).isTrue();
+    assertThat(results.errorLine()).isEqualTo(3);
+    assertThat(results.errorMessage()).isEqualTo("Parse error");
+    assertThat(results.hasMeasures()).isTrue();
+    assertThat(results.measure(FileResults.NCLOC)).isEqualTo(2);
+    assertThat(results.measure(FileResults.COMMENT_LINES)).isEqualTo(7);
+    assertThat(results.linesOfCode().toArray()).containsExactly(1, 2);
+    assertThat(results.executableLines().toArray()).containsExactly(2);
+    assertThat(results.noSonarLines().isEmpty()).isTrue();
+
+    assertThat(results.hasCpdTokens()).isTrue();
+    List<String> cpdTokens = new ArrayList<>();
+    results.forEachCpdToken((startLine, startLineOffset, endLine, endLineOffset, image) ->
+      cpdTokens.add(startLine + "," + startLineOffset + "," + endLine + "," + endLineOffset + ":" + image));
+    assertThat(cpdTokens).containsExactly("1,0,1,1:x", "1,4,1,70004:" + longString());
+
+    assertThat(results.isHighlighted()).isTrue();
+    List<String> highlightings = new ArrayList<>();
+    results.forEachHighlighting((startLine, startLineOffset, endLine, endLineOffset, typeOfText) ->
+      highlightings.add(startLine + "," + startLineOffset + "," + endLine + "," + endLineOffset + ":" + typeOfText));
+    assertThat(highlightings).containsExactly("1,0,1,3:KEYWORD");
+
+    assertThat(results.issues()).hasSize(1);
+    FileResults.Issue issue = results.issues().get(0);
+    assertThat(issue.ruleRepository()).isEqualTo("python");
+    assertThat(issue.ruleKey()).isEqualTo("S1");
+    assertThat(issue.gap()).isEqualTo(2.5);
+    assertThat(issue.primaryLocation().startLine()).isEqualTo(1);
+    assertThat(issue.primaryLocation().endLineOffset()).isEqualTo(3);
+    assertThat(issue.primaryLocation().message()).isEqualTo("message");
+    assertThat(issue.secondaryLocations()).hasSize(1);
+    assertThat(issue.secondaryLocations().get(0).message()).isNull();
+  }
+
+  @Test
+  public void changed_content() {
+    PythonAnalysisCache cache = PythonAnalysisCache.load(workDir, FINGERPRINT);
+    cache.put("file.py", CONTENT_HASH, results());
+    cache.save();
+
+    assertThat(PythonAnalysisCache.load(workDir, FINGERPRINT).get("file.py", PythonAnalysisCache.hash("x = 2"))).isNull();
+  }
+
+  @Test
+  public void changed_fingerprint() {
+    PythonAnalysisCache cache = PythonAnalysisCache.load(workDir, FINGERPRINT);
+    cache.put("file.py", CONTENT_HASH, results());
+    cache.save();
+
+    assertThat(PythonAnalysisCache.load(workDir, PythonAnalysisCache.hash("plugin", "other rule")).get("file.py", CONTENT_HASH)).isNull();
+  }
+
+  @Test
+  public void only_analyzed_files_are_kept() {
+    PythonAnalysisCache cache = PythonAnalysisCache.load(workDir, FINGERPRINT);
+    cache.put("file1.py", CONTENT_HASH, results());
+    cache.put("file2.py", CONTENT_HASH, results());
+    cache.save();
+
+    cache = PythonAnalysisCache.load(workDir, FINGERPRINT);
+    assertThat(cache.get("file1.py", CONTENT_HASH)).isNotNull();
+    cache.put("file1.py", CONTENT_HASH, results());
+    cache.save();
+
+    cache = PythonAnalysisCache.load(workDir, FINGERPRINT);
+    assertThat(cache.get("file1.py", CONTENT_HASH)).isNotNull();
+    assertThat(cache.get("file2.py", CONTENT_HASH)).isNull();
+  }
+
+  @Test
+  public void corrupted_cache_is_ignored() throws IOException {
+    PythonAnalysisCache cache = PythonAnalysisCache.load(workDir, FINGERPRINT);
+    cache.put("file.py", CONTENT_HASH, results());
+    cache.save();
+
+    File cacheFile = workDir.resolve(PythonAnalysisCache.FILE_NAME).toFile();
+    try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+      long position = file.length() - 20;
+      file.seek(position);
+      int value = file.read();
+      file.seek(position);
+      file.write(value ^ 0xFF);
+    }
+    assertThat(PythonAnalysisCache.load(workDir, FINGERPRINT).get("file.py", CONTENT_HASH)).isNull();
+
+    byte[] bytes = Files.readAllBytes(cacheFile.toPath());
+    Files.write(cacheFile.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+    assertThat(PythonAnalysisCache.load(workDir, FINGERPRINT).get("file.py", CONTENT_HASH)).isNull();
+
+    Files.write(cacheFile.toPath(), "not a cache".getBytes());
+    assertThat(PythonAnalysisCache.load(workDir, FINGERPRINT).get("file.py", CONTENT_HASH)).isNull();
+  }
+
+  @Test
+  public void hash() {
+    assertThat(PythonAnalysisCache.hash("ab", "c")).isNotEqualTo(PythonAnalysisCache.hash("a", "bc"));
+    assertThat(PythonAnalysisCache.hash("x = 1")).isEqualTo(CONTENT_HASH);
+  }
+
+  private static FileResults results() {
+    FileResults results = new FileResults();
+    results.setError(3, "Parse error");
+    results.setMeasures(new int[] {2, 1, 0, 0, 1, 0, 7}, LineSet.of(2, 1), LineSet.of(2), LineSet.of());
+    results.addCpdToken(1, 0, 1, 1, "x");
+    results.addCpdToken(1, 4, 1, 70004, longString());
+    results.highlight(1, 0, 1, 3, TypeOfText.KEYWORD);
+    results.markHighlighted();
+    results.addIssue(new FileResults.Issue("python", "S1", 2.5,
+      new FileResults.Location(1, 0, 1, 3, "message"),
+      Collections.singletonList(new FileResults.Location(2, 0, 2, 1, null))));
+    results.markComplete();
+    return results;
+  }
+
+  private static String longString() {
+    char[] chars = new char[70000];
+    Arrays.fill(chars, 'é');
+    return new String(chars);
+  }
+
+}
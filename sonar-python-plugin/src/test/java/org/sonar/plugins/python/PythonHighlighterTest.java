@@ -21,15 +21,18 @@ package org.sonar.plugins.python;
 
 import java.io.File;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
 import javax.annotation.Nullable;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.api.batch.sensor.highlighting.TypeOfText;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.python.frontend.PythonParser;
+import org.sonar.python.metrics.FileMetrics;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -52,9 +55,10 @@ public class PythonHighlighterTest {
     context.fileSystem().add(inputFile);
 
     String content = TestUtils.fileContent(file, StandardCharsets.UTF_8);
-    PythonHighlighter pythonHighlighter = new PythonHighlighter(context, inputFile);
-    new PythonParser().parse(content).accept(pythonHighlighter);
-    pythonHighlighter.getNewHighlighting().save();
+    NewHighlighting newHighlighting = context.newHighlighting().onFile(inputFile);
+    PythonHighlighter pythonHighlighter = new PythonHighlighter(newHighlighting::highlight);
+    new FileMetrics(false, new PythonParser().parse(content), Collections.singletonList(pythonHighlighter));
+    newHighlighting.save();
   }
 
   @Test
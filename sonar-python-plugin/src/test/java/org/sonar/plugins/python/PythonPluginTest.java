@@ -36,20 +36,20 @@ public class PythonPluginTest {
   @Test
   public void testGetExtensions() {
     Version v60 = Version.create(6, 0);
-    assertThat(extensions(SonarRuntimeImpl.forSonarQube(v60, SonarQubeSide.SERVER))).hasSize(20);
-    assertThat(extensions(SonarRuntimeImpl.forSonarLint(v60))).hasSize(5);
+    assertThat(extensions(SonarRuntimeImpl.forSonarQube(v60, SonarQubeSide.SERVER))).hasSize(25);
+    assertThat(extensions(SonarRuntimeImpl.forSonarLint(v60))).hasSize(7);
 
     Version v72 = Version.create(7, 2);
-    assertThat(extensions(SonarRuntimeImpl.forSonarQube(v72, SonarQubeSide.SERVER))).hasSize(22);
+    assertThat(extensions(SonarRuntimeImpl.forSonarQube(v72, SonarQubeSide.SERVER))).hasSize(27);
     assertThat(extensions(SonarRuntimeImpl.forSonarQube(v72, SonarQubeSide.SERVER))).contains(NoOpAnalysisWarningsWrapper.class);
     assertThat(extensions(SonarRuntimeImpl.forSonarQube(v72, SonarQubeSide.SERVER))).doesNotContain(DefaultAnalysisWarningsWrapper.class);
-    assertThat(extensions(SonarRuntimeImpl.forSonarLint(v72))).hasSize(5);
+    assertThat(extensions(SonarRuntimeImpl.forSonarLint(v72))).hasSize(7);
 
     Version v74 = Version.create(7, 4);
-    assertThat(extensions(SonarRuntimeImpl.forSonarQube(v74, SonarQubeSide.SERVER))).hasSize(22);
+    assertThat(extensions(SonarRuntimeImpl.forSonarQube(v74, SonarQubeSide.SERVER))).hasSize(27);
     assertThat(extensions(SonarRuntimeImpl.forSonarQube(v74, SonarQubeSide.SERVER))).doesNotContain(NoOpAnalysisWarningsWrapper.class);
     assertThat(extensions(SonarRuntimeImpl.forSonarQube(v74, SonarQubeSide.SERVER))).contains(DefaultAnalysisWarningsWrapper.class);
-    assertThat(extensions(SonarRuntimeImpl.forSonarLint(v74))).hasSize(5);
+    assertThat(extensions(SonarRuntimeImpl.forSonarLint(v74))).hasSize(7);
   }
 
   private static List extensions(SonarRuntime runtime) {
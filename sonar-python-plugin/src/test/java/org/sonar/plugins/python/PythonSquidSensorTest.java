@@ -22,9 +22,13 @@ package org.sonar.plugins.python;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 import org.sonar.api.SonarRuntime;
 import org.sonar.api.batch.fs.InputFile;
@@ -49,6 +53,7 @@ import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.Version;
 import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.plugins.python.coverage.PythonCoverageSensor;
 import org.sonar.python.checks.CheckList;
 import org.sonar.python.checks.ParsingErrorCheck;
@@ -61,6 +66,7 @@ import static org.mockito.Mockito.when;
 public class PythonSquidSensorTest {
 
   private static final String FILE_1 = "file1.py";
+  private static final String SSLR_PARSE_ERROR_FILE = "sslr_parse_error.py";
   private static final String ONE_STATEMENT_PER_LINE_RULE_KEY = "OneStatementPerLine";
   private static final String FILE_COMPLEXITY_RULE_KEY = "FileComplexity";
 
@@ -77,9 +83,13 @@ public class PythonSquidSensorTest {
   @org.junit.Rule
   public LogTester logTester = new LogTester();
 
+  @org.junit.Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Before
-  public void init() {
+  public void init() throws IOException {
     context = SensorContextTester.create(baseDir);
+    context.fileSystem().setWorkDir(temporaryFolder.newFolder().toPath());
     context.settings().setProperty(PythonCoverageSensor.OVERALL_REPORT_PATH_KEY, "coverage.xml");
   }
 
@@ -124,6 +134,7 @@ public class PythonSquidSensorTest {
     assertThat(context.highlightingTypeAt(key, 15, 2)).as(msg).hasSize(1);
 
     assertThat(context.allAnalysisErrors()).isEmpty();
+    assertThat(new File(context.fileSystem().workDir(), PythonAnalysisCache.FILE_NAME)).doesNotExist();
   }
 
   @Test
@@ -229,6 +240,190 @@ public class PythonSquidSensorTest {
     assertThat(location.line()).isEqualTo(2);
   }
 
+  @Test
+  public void subscription_checks_only_on_file_rejected_by_sslr_parser() {
+    // async comprehensions are only supported by the PSI parser
+    inputFile(SSLR_PARSE_ERROR_FILE);
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, "S1716"))
+        .build())
+      .build();
+
+    sensor().execute(context);
+
+    assertThat(context.allIssues()).hasSize(1);
+    Issue issue = context.allIssues().iterator().next();
+    assertThat(issue.ruleKey().rule()).isEqualTo("S1716");
+    assertThat(issue.primaryLocation().textRange().start().line()).isEqualTo(4);
+    assertThat(logTester.logs(LoggerLevel.WARN)).isEmpty();
+    // the SSLR tree is not built: the file is analyzed from its PSI tree only
+    assertThat(context.allAnalysisErrors()).isEmpty();
+    assertThat(context.measure("moduleKey:" + SSLR_PARSE_ERROR_FILE, CoreMetrics.NCLOC).value()).isEqualTo(3);
+  }
+
+  @Test
+  public void sslr_checks_on_file_rejected_by_sslr_parser() {
+    inputFile(SSLR_PARSE_ERROR_FILE);
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, ParsingErrorCheck.CHECK_KEY))
+        .build())
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, "S1716"))
+        .build())
+      .build();
+
+    sensor().execute(context);
+
+    assertThat(context.allIssues()).extracting(issue -> issue.ruleKey().rule()).containsExactly(ParsingErrorCheck.CHECK_KEY);
+    assertThat(context.allAnalysisErrors()).hasSize(1);
+    TextPointer location = context.allAnalysisErrors().iterator().next().location();
+    assertThat(location).isNotNull();
+    assertThat(location.line()).isEqualTo(2);
+    assertThat(context.measure("moduleKey:" + SSLR_PARSE_ERROR_FILE, CoreMetrics.NCLOC)).isNull();
+  }
+
+  @Test
+  public void parallel_analysis() throws IOException {
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, ONE_STATEMENT_PER_LINE_RULE_KEY))
+        .build())
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, FILE_COMPLEXITY_RULE_KEY))
+        .setParam("maximumFileComplexityThreshold", "2")
+        .build())
+      .build();
+
+    inputFile(FILE_1);
+    inputFile("file2.py");
+    inputFile("parse_error.py");
+    sensor().execute(context);
+    List<String> sequentialIssues = issueDescriptions(context);
+
+    init();
+    context.settings().setProperty(PythonSquidSensor.ANALYSIS_THREADS_KEY, "3");
+    inputFile(FILE_1);
+    inputFile("file2.py");
+    inputFile("parse_error.py");
+    sensor().execute(context);
+
+    assertThat(issueDescriptions(context)).isNotEmpty().containsExactlyElementsOf(sequentialIssues);
+    String key = "moduleKey:file1.py";
+    assertThat(context.measure(key, CoreMetrics.NCLOC).value()).isEqualTo(22);
+    assertThat(context.measure(key, CoreMetrics.FUNCTIONS).value()).isEqualTo(4);
+    assertThat(context.highlightingTypeAt(key, 15, 2)).hasSize(1);
+    assertThat(context.allAnalysisErrors()).hasSize(1);
+  }
+
+  @Test
+  public void cancelled_parallel_analysis() {
+    InputFile inputFile = inputFile(FILE_1);
+    inputFile("file2.py");
+    activeRules = (new ActiveRulesBuilder()).build();
+    context.settings().setProperty(PythonSquidSensor.ANALYSIS_THREADS_KEY, "2");
+    context.setCancelled(true);
+    sensor().execute(context);
+    assertThat(context.measure(inputFile.key(), CoreMetrics.NCLOC)).isNull();
+    assertThat(context.allAnalysisErrors()).isEmpty();
+  }
+
+  @Test
+  public void analysis_cache() {
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, ONE_STATEMENT_PER_LINE_RULE_KEY))
+        .build())
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, FILE_COMPLEXITY_RULE_KEY))
+        .setParam("maximumFileComplexityThreshold", "2")
+        .build())
+      .build();
+
+    inputFile(FILE_1);
+    inputFile("file2.py");
+    inputFile("parse_error.py");
+    sensor().execute(context);
+    List<String> issues = issueDescriptions(context);
+    File workDir = context.fileSystem().workDir();
+    assertThat(new File(workDir, PythonAnalysisCache.FILE_NAME)).isFile();
+    // no active check uses the project index
+    assertThat(new File(workDir, ProjectIndexer.FILE_NAME)).doesNotExist();
+
+    context = SensorContextTester.create(baseDir);
+    context.fileSystem().setWorkDir(workDir.toPath());
+    inputFile(FILE_1);
+    inputFile("file2.py");
+    inputFile("parse_error.py");
+    logTester.clear();
+    sensor().execute(context);
+
+    // files are not parsed again
+    assertThat(logTester.logs(LoggerLevel.ERROR)).isEmpty();
+    assertThat(issueDescriptions(context)).isNotEmpty().containsExactlyElementsOf(issues);
+    String key = "moduleKey:file1.py";
+    assertThat(context.measure(key, CoreMetrics.NCLOC).value()).isEqualTo(22);
+    assertThat(context.measure(key, CoreMetrics.COMMENT_LINES).value()).isEqualTo(8);
+    assertThat(context.highlightingTypeAt(key, 15, 2)).hasSize(1);
+    assertThat(context.cpdTokens(key)).isNotEmpty();
+    assertThat(context.allAnalysisErrors()).hasSize(1);
+  }
+
+  @Test
+  public void analysis_cache_disabled() {
+    activeRules = (new ActiveRulesBuilder()).build();
+    context.settings().setProperty(PythonSquidSensor.ANALYSIS_CACHE_KEY, "false");
+    inputFile(FILE_1);
+    sensor().execute(context);
+    assertThat(context.measure("moduleKey:file1.py", CoreMetrics.NCLOC).value()).isEqualTo(22);
+    assertThat(new File(context.fileSystem().workDir(), PythonAnalysisCache.FILE_NAME)).doesNotExist();
+    assertThat(new File(context.fileSystem().workDir(), ProjectIndexer.FILE_NAME)).doesNotExist();
+  }
+
+  @Test
+  public void performance_measure() throws IOException {
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, ONE_STATEMENT_PER_LINE_RULE_KEY))
+        .build())
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, FILE_COMPLEXITY_RULE_KEY))
+        .build())
+      .build();
+    context.settings().setProperty(PythonSquidSensor.PERFORMANCE_MEASURE_KEY, "true");
+    context.settings().setProperty(PythonSquidSensor.ANALYSIS_CACHE_KEY, "false");
+    inputFile(FILE_1);
+    sensor().execute(context);
+
+    File report = new File(context.fileSystem().workDir(), AnalysisProfiler.REPORT_FILE_NAME);
+    assertThat(report).isFile();
+    String json = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+    assertThat(json)
+      .contains("\"files\":1")
+      .contains("\"name\":\"" + AnalysisProfiler.PSI_PARSE + "\"")
+      .contains("\"name\":\"" + AnalysisProfiler.SYMBOL_TABLE + "\"")
+      .contains("\"name\":\"python:" + ONE_STATEMENT_PER_LINE_RULE_KEY + "\"")
+      .contains("file1.py");
+    assertThat(String.join("\n", logTester.logs(LoggerLevel.INFO))).contains("Python analysis of 1 files, time per phase:");
+    // measuring does not change the results
+    assertThat(context.measure("moduleKey:file1.py", CoreMetrics.NCLOC).value()).isEqualTo(22);
+  }
+
+  @Test
+  public void no_performance_report_by_default() {
+    activeRules = (new ActiveRulesBuilder()).build();
+    inputFile(FILE_1);
+    sensor().execute(context);
+    assertThat(new File(context.fileSystem().workDir(), AnalysisProfiler.REPORT_FILE_NAME)).doesNotExist();
+  }
+
+  private static List<String> issueDescriptions(SensorContextTester context) {
+    return context.allIssues().stream()
+      .map(issue -> issue.primaryLocation().inputComponent() + ":" + issue.ruleKey().rule() + ":" + issue.primaryLocation().textRange())
+      .collect(Collectors.toList());
+  }
+
   @Test
   public void cancelled_analysis() {
     InputFile inputFile = inputFile(FILE_1);
@@ -0,0 +1,138 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.File;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReportPathResolverTest {
+
+  private final File baseDir = new File("src/test/resources/org/sonar/plugins/python").getAbsoluteFile();
+  private final DefaultFileSystem fileSystem = new DefaultFileSystem(baseDir);
+
+  private InputFile mod;
+  private InputFile otherMod;
+  private InputFile testFile;
+  private ReportPathResolver resolver;
+
+  @Before
+  public void setUp() {
+    mod = addFile("src/pkg/mod.py");
+    otherMod = addFile("lib/pkg/mod.py");
+    testFile = addFile("tests/dir/test_sample.py");
+    resolver = new ReportPathResolver(fileSystem);
+  }
+
+  @Test
+  public void files_indexed_on_first_use() {
+    InputFile laterFile = addFile("src/pkg/later.py");
+    assertThat(resolver.inputFile("src/pkg/later.py")).isSameAs(laterFile);
+    // the index is not updated afterwards
+    addFile("src/pkg/too_late.py");
+    assertThat(resolver.inputFile("src/pkg/too_late.py")).isNull();
+  }
+
+  @Test
+  public void relative_paths() {
+    assertThat(resolver.inputFile("src/pkg/mod.py")).isSameAs(mod);
+    assertThat(resolver.inputFile("./src/pkg/../pkg/mod.py")).isSameAs(mod);
+    assertThat(resolver.inputFile("lib/pkg/mod.py")).isSameAs(otherMod);
+    assertThat(resolver.inputFile("pkg/mod.py")).isNull();
+    assertThat(resolver.inputFile("other/src/pkg/mod.py")).isNull();
+    assertThat(resolver.inputFile("../src/pkg/mod.py")).isNull();
+    assertThat(resolver.inputFile("")).isNull();
+  }
+
+  @Test
+  public void relative_paths_resolved_by_suffix() {
+    assertThat(resolver.resolve("src/pkg/mod.py")).isSameAs(mod);
+    assertThat(resolver.resolve("dir/test_sample.py")).isSameAs(testFile);
+    assertThat(resolver.resolve("test_sample.py")).isSameAs(testFile);
+    // ambiguous
+    assertThat(resolver.resolve("pkg/mod.py")).isNull();
+    assertThat(resolver.resolve("other/test_sample.py")).isNull();
+  }
+
+  @Test
+  public void absolute_paths() {
+    String absolutePath = new File(baseDir, "src/pkg/mod.py").getAbsolutePath();
+    assertThat(resolver.inputFile(absolutePath)).isSameAs(mod);
+    assertThat(resolver.resolve(absolutePath)).isSameAs(mod);
+    assertThat(resolver.inputFile(new File(baseDir, "src/other/../pkg/mod.py").getPath())).isSameAs(mod);
+    // absolute paths are never resolved by suffix
+    assertThat(resolver.resolve(new File(baseDir.getParentFile(), "test_sample.py").getAbsolutePath())).isNull();
+    assertThat(resolver.resolve("/other/src/pkg/mod.py")).isNull();
+  }
+
+  @Test
+  public void windows_paths() {
+    assertThat(resolver.inputFile("src\\pkg\\mod.py")).isSameAs(mod);
+    assertThat(resolver.resolve("dir\\test_sample.py")).isSameAs(testFile);
+    assertThat(resolver.resolve("C:\\project\\tests\\dir\\test_sample.py")).isNull();
+    assertThat(ReportPathResolver.isAbsolute("C:\\project\\a.py")).isTrue();
+    assertThat(ReportPathResolver.isAbsolute("c:/project/a.py")).isTrue();
+    assertThat(ReportPathResolver.isAbsolute("\\\\server\\share\\a.py")).isTrue();
+    assertThat(ReportPathResolver.isAbsolute("C:a.py")).isFalse();
+    assertThat(ReportPathResolver.isAbsolute("a.py")).isFalse();
+  }
+
+  @Test
+  public void module_names() {
+    assertThat(resolver.resolveModule("src.pkg.mod")).isSameAs(mod);
+    assertThat(resolver.resolveModule("src.pkg.mod.MyClass")).isSameAs(mod);
+    assertThat(resolver.resolveModule("tests.dir.test_sample.TestClass")).isSameAs(testFile);
+    assertThat(resolver.resolveModule("test_sample")).isSameAs(testFile);
+    assertThat(resolver.resolveModule("dir.test_sample.TestClass")).isSameAs(testFile);
+    assertThat(resolver.resolveModule("pkg.mod")).isNull();
+    assertThat(resolver.resolveModule("tests.dir.no_such_file")).isNull();
+  }
+
+  @Test
+  public void segments() {
+    assertThat(ReportPathResolver.segments("a/./b\\c//d.py")).containsExactly("a", "b", "c", "d.py");
+    assertThat(ReportPathResolver.segments("a/b/../c.py")).containsExactly("a", "c.py");
+    assertThat(ReportPathResolver.segments("a/../../c.py")).isNull();
+  }
+
+  @Test
+  public void statistics() {
+    resolver.resolve("src/pkg/mod.py");
+    resolver.resolve("pkg/mod.py");
+    resolver.inputFile("tests/dir/test_sample.py");
+    resolver.resolveModule("tests.dir.no_such_file");
+    assertThat(resolver.hits()).isEqualTo(2);
+    assertThat(resolver.misses()).isEqualTo(2);
+  }
+
+  private InputFile addFile(String relativePath) {
+    InputFile inputFile = TestInputFileBuilder.create("moduleKey", relativePath)
+      .setModuleBaseDir(baseDir.toPath())
+      .build();
+    fileSystem.add(inputFile);
+    return inputFile;
+  }
+
+}
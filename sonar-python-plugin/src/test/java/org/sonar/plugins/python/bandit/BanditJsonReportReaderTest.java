@@ -0,0 +1,77 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.bandit;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.sonar.plugins.python.bandit.BanditJsonReportReader.Issue;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BanditJsonReportReaderTest {
+
+  @Test
+  public void results() throws Exception {
+    List<Issue> issues = read("{\"errors\": [{\"test_id\": \"E1\"}], \"metrics\": {\"results\": [{\"test_id\": \"E2\"}]}, \"results\": [" +
+      "{\"code\": \"1 import os\\n\", \"filename\": \"file.py\", \"issue_confidence\": \"HIGH\", \"issue_severity\": \"LOW\"," +
+      " \"issue_text\": \"A message\", \"line_number\": 2, \"line_range\": [2, {\"line_number\": 3}], \"more_info\": {\"test_id\": \"E3\"}," +
+      " \"test_id\": \"B101\"}," +
+      "{\"test_id\": 42, \"line_number\": \"invalid\"}," +
+      "1, [{\"test_id\": \"E4\"}]]}");
+
+    assertThat(issues).hasSize(2);
+    Issue first = issues.get(0);
+    assertThat(first.ruleKey).isEqualTo("B101");
+    assertThat(first.filePath).isEqualTo("file.py");
+    assertThat(first.message).isEqualTo("A message");
+    assertThat(first.lineNumber).isEqualTo(2);
+    assertThat(first.severity).isEqualTo("LOW");
+    assertThat(first.confidence).isEqualTo("HIGH");
+    Issue second = issues.get(1);
+    assertThat(second.ruleKey).isNull();
+    assertThat(second.lineNumber).isNull();
+  }
+
+  @Test
+  public void no_results() throws Exception {
+    assertThat(read("{}")).isEmpty();
+    assertThat(read("{\"results\": []}")).isEmpty();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void root_array() throws Exception {
+    read("[{\"test_id\": \"B101\"}]");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void root_primitive() throws Exception {
+    read("42");
+  }
+
+  private static List<Issue> read(String json) throws Exception {
+    List<Issue> issues = new ArrayList<>();
+    BanditJsonReportReader.read(new ByteArrayInputStream(json.getBytes(UTF_8)), issues::add);
+    return issues;
+  }
+
+}
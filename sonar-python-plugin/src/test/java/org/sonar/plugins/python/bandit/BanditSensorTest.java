@@ -24,7 +24,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
 import org.junit.Rule;
@@ -32,6 +34,7 @@ import org.junit.Test;
 import org.sonar.api.SonarQubeSide;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.TextRange;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.rule.Severity;
 import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
@@ -43,6 +46,8 @@ import org.sonar.api.rules.RuleType;
 import org.sonar.api.utils.Version;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.plugins.python.PythonSquidSensor;
+import org.sonar.plugins.python.ReportPathResolver;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -55,15 +60,13 @@ public class BanditSensorTest {
 
   private static final Path PROJECT_DIR = Paths.get("src", "test", "resources", "org", "sonar", "plugins", "python", "bandit");
 
-  private static BanditSensor banditSensor = new BanditSensor();
-
   @Rule
   public LogTester logTester = new LogTester();
 
   @Test
   public void test_descriptor() {
     DefaultSensorDescriptor sensorDescriptor = new DefaultSensorDescriptor();
-    banditSensor.describe(sensorDescriptor);
+    new BanditSensor(new ReportPathResolver(new DefaultFileSystem(PROJECT_DIR))).describe(sensorDescriptor);
     assertThat(sensorDescriptor.name()).isEqualTo("Import of Bandit issues");
     assertThat(sensorDescriptor.languages()).containsOnly("py");
     assertThat(sensorDescriptor.configurationPredicate()).isNotNull();
@@ -191,6 +194,19 @@ public class BanditSensorTest {
       .contains("not-bandit-file.json' can't be read.");
   }
 
+  @Test
+  public void issues_read_before_error_with_truncated_bandit_file() throws IOException {
+    for (int threads : new int[] {1, 2}) {
+      logTester.clear();
+      List<ExternalIssue> externalIssues = executeSensorImporting(7, 2, threads, "bandit-report-truncated.json", BANDIT_REPORT_JSON);
+      assertThat(externalIssues).hasSize(1 + 4);
+      assertThat(externalIssues.get(0).primaryLocation().message()).isEqualTo("A message");
+      assertThat(onlyOneLogElement(logTester.logs(LoggerLevel.ERROR)))
+        .startsWith("Only the first 1 issue(s) of the report file '")
+        .contains("bandit-report-truncated.json' will be saved as the rest of it can't be read.");
+    }
+  }
+
   @Test
   public void no_issues_with_empty_bandit_file() throws IOException {
     List<ExternalIssue> externalIssues = executeSensorImporting(7, 2, "bandit-report-empty.json");
@@ -238,17 +254,41 @@ public class BanditSensorTest {
     assertThat(logTester.logs(LoggerLevel.DEBUG)).isEmpty();
   }
 
+  @Test
+  public void reports_imported_in_parallel() throws IOException {
+    List<ExternalIssue> externalIssues = executeSensorImporting(7, 5, 2,
+      BANDIT_REPORT_JSON, "bandit-report-with-file-and-line-errors.json", "bandit-report-with-errors.json", "not-bandit-file.json");
+    assertThat(externalIssues).hasSize(4 + 1);
+    assertThat(externalIssues).extracting(issue -> issue.primaryLocation().inputComponent().key()).containsOnly(BANDIT_FILE);
+
+    List<String> errors = logTester.logs(LoggerLevel.ERROR);
+    assertThat(errors).hasSize(2);
+    assertThat(String.join("\n", errors))
+      .contains("bandit-report-with-file-and-line-errors.json' can't be read.")
+      .contains("100 is not a valid line for pointer. File bandit/file1.py has 8 line(s)")
+      .contains("not-bandit-file.json' can't be read.");
+    assertThat(onlyOneLogElement(logTester.logs(LoggerLevel.WARN)))
+      .startsWith("Fail to resolve 23 file path(s) in Bandit report. No issues imported related to file(s): bandit/unknown.py;bandit/unknown01.py;");
+  }
+
   private static List<ExternalIssue> executeSensorImporting(int majorVersion, int minorVersion, @Nullable String fileName) throws IOException {
+    return fileName == null ? executeSensorImporting(majorVersion, minorVersion, 1) : executeSensorImporting(majorVersion, minorVersion, 1, fileName);
+  }
+
+  private static List<ExternalIssue> executeSensorImporting(int majorVersion, int minorVersion, int threads, String... fileNames) throws IOException {
     Path baseDir = PROJECT_DIR.getParent();
     SensorContextTester context = SensorContextTester.create(baseDir);
     try (Stream<Path> fileStream = Files.list(PROJECT_DIR)) {
       fileStream.forEach(file -> addFileToContext(context, baseDir, file));
       context.setRuntime(SonarRuntimeImpl.forSonarQube(Version.create(majorVersion, minorVersion), SonarQubeSide.SERVER));
-      if (fileName != null) {
-        String path = PROJECT_DIR.resolve(fileName).toAbsolutePath().toString();
-        context.settings().setProperty("sonar.python.bandit.reportPaths", path);
+      if (fileNames.length > 0) {
+        String paths = Arrays.stream(fileNames)
+          .map(fileName -> PROJECT_DIR.resolve(fileName).toAbsolutePath().toString())
+          .collect(Collectors.joining(","));
+        context.settings().setProperty("sonar.python.bandit.reportPaths", paths);
       }
-      banditSensor.execute(context);
+      context.settings().setProperty(PythonSquidSensor.ANALYSIS_THREADS_KEY, threads);
+      new BanditSensor(new ReportPathResolver(context.fileSystem())).execute(context);
       return new ArrayList<>(context.allExternalIssues());
     }
   }
@@ -0,0 +1,140 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.sonarsource.analyzer.commons.internal.json.simple.JSONObject;
+import org.sonarsource.analyzer.commons.internal.json.simple.JSONValue;
+import org.sonarsource.analyzer.commons.internal.json.simple.parser.JSONParser;
+import org.sonarsource.analyzer.commons.internal.json.simple.parser.ParseException;
+
+/**
+ * Measures of one execution of the sensors. The JSON form is both the report of a run and the baseline of the next runs.
+ */
+class BenchmarkResult {
+
+  static final String FILES = "files";
+  static final String WALL_TIME_MS = "wallTimeMs";
+  static final String CPU_TIME_MS = "cpuTimeMs";
+  static final String FILES_PER_SECOND = "filesPerSecond";
+  static final String PEAK_HEAP_BYTES = "peakHeapBytes";
+  static final String ALLOCATED_BYTES = "allocatedBytes";
+
+  final int files;
+  final long wallTimeNanos;
+  final long cpuTimeNanos;
+  final long peakHeapBytes;
+  final long allocatedBytes;
+
+  BenchmarkResult(int files, long wallTimeNanos, long cpuTimeNanos, long peakHeapBytes, long allocatedBytes) {
+    this.files = files;
+    this.wallTimeNanos = wallTimeNanos;
+    this.cpuTimeNanos = cpuTimeNanos;
+    this.peakHeapBytes = peakHeapBytes;
+    this.allocatedBytes = allocatedBytes;
+  }
+
+  double filesPerSecond() {
+    return wallTimeNanos == 0 ? 0 : (files * (double) TimeUnit.SECONDS.toNanos(1) / wallTimeNanos);
+  }
+
+  /**
+   * Descriptions of the measures which are worse than the ones of the baseline by more than the threshold,
+   * e.g. 0.1 for 10%. Measures missing from the baseline are not compared.
+   */
+  List<String> regressions(Map<String, Double> baseline, double threshold) {
+    Map<String, Double> current = measures();
+    List<String> regressions = new ArrayList<>();
+    for (Map.Entry<String, Double> entry : current.entrySet()) {
+      String measure = entry.getKey();
+      Double baselineValue = baseline.get(measure);
+      if (FILES.equals(measure) || baselineValue == null || baselineValue <= 0) {
+        continue;
+      }
+      double value = entry.getValue();
+      // the only measure for which higher is better
+      boolean higherIsBetter = FILES_PER_SECOND.equals(measure);
+      double change = (value - baselineValue) / baselineValue;
+      if ((higherIsBetter && change < -threshold) || (!higherIsBetter && change > threshold)) {
+        regressions.add(String.format(Locale.ENGLISH, "%s: %.1f instead of %.1f (%+.1f%%)", measure, value, baselineValue, change * 100));
+      }
+    }
+    if (baseline.containsKey(FILES) && baseline.get(FILES).intValue() != files) {
+      regressions.add(String.format(Locale.ENGLISH, "%s: %d instead of %d, the results are not comparable", FILES, files, baseline.get(FILES).intValue()));
+    }
+    return regressions;
+  }
+
+  Map<String, Double> measures() {
+    Map<String, Double> measures = new LinkedHashMap<>();
+    measures.put(FILES, (double) files);
+    measures.put(WALL_TIME_MS, (double) TimeUnit.NANOSECONDS.toMillis(wallTimeNanos));
+    measures.put(CPU_TIME_MS, (double) TimeUnit.NANOSECONDS.toMillis(cpuTimeNanos));
+    measures.put(FILES_PER_SECOND, Math.round(filesPerSecond() * 10) / 10.0);
+    measures.put(PEAK_HEAP_BYTES, (double) peakHeapBytes);
+    measures.put(ALLOCATED_BYTES, (double) allocatedBytes);
+    return measures;
+  }
+
+  String toJson() {
+    Map<String, Object> json = new LinkedHashMap<>();
+    json.put(FILES, files);
+    json.put(WALL_TIME_MS, TimeUnit.NANOSECONDS.toMillis(wallTimeNanos));
+    json.put(CPU_TIME_MS, TimeUnit.NANOSECONDS.toMillis(cpuTimeNanos));
+    json.put(FILES_PER_SECOND, Math.round(filesPerSecond() * 10) / 10.0);
+    json.put(PEAK_HEAP_BYTES, peakHeapBytes);
+    json.put(ALLOCATED_BYTES, allocatedBytes);
+    return JSONValue.toJSONString(json);
+  }
+
+  static Map<String, Double> readBaseline(Path file) throws IOException {
+    Map<String, Double> baseline = new LinkedHashMap<>();
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      JSONObject json = (JSONObject) new JSONParser().parse(reader);
+      for (Object key : json.keySet()) {
+        Object value = json.get(key);
+        if (value instanceof Number) {
+          baseline.put((String) key, ((Number) value).doubleValue());
+        }
+      }
+    } catch (ParseException | ClassCastException e) {
+      throw new IOException("Invalid baseline " + file + ": " + e.getMessage(), e);
+    }
+    return baseline;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.ENGLISH, "%d files in %d ms (cpu %d ms), %.1f files/s, peak heap %d MB, allocated %d MB",
+      files, TimeUnit.NANOSECONDS.toMillis(wallTimeNanos), TimeUnit.NANOSECONDS.toMillis(cpuTimeNanos), filesPerSecond(),
+      peakHeapBytes / (1024 * 1024), allocatedBytes / (1024 * 1024));
+  }
+
+}
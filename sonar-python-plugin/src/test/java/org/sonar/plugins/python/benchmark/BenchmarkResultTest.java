@@ -0,0 +1,74 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BenchmarkResultTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final BenchmarkResult RESULT = new BenchmarkResult(100, TimeUnit.SECONDS.toNanos(2), TimeUnit.SECONDS.toNanos(3), 1000, 5000);
+
+  @Test
+  public void json() throws IOException {
+    assertThat(RESULT.toJson()).isEqualTo("{\"files\":100,\"wallTimeMs\":2000,\"cpuTimeMs\":3000,\"filesPerSecond\":50.0,\"peakHeapBytes\":1000,\"allocatedBytes\":5000}");
+    assertThat(RESULT.filesPerSecond()).isEqualTo(50.0);
+
+    File file = temporaryFolder.newFile();
+    Files.write(file.toPath(), RESULT.toJson().getBytes(StandardCharsets.UTF_8));
+    Map<String, Double> baseline = BenchmarkResult.readBaseline(file.toPath());
+    assertThat(baseline).isEqualTo(RESULT.measures());
+    assertThat(RESULT.regressions(baseline, 0)).isEmpty();
+  }
+
+  @Test(expected = IOException.class)
+  public void invalid_baseline() throws IOException {
+    File file = temporaryFolder.newFile();
+    Files.write(file.toPath(), "[1, 2]".getBytes(StandardCharsets.UTF_8));
+    BenchmarkResult.readBaseline(file.toPath());
+  }
+
+  @Test
+  public void regressions() {
+    BenchmarkResult slower = new BenchmarkResult(100, TimeUnit.SECONDS.toNanos(4), TimeUnit.SECONDS.toNanos(3), 1000, 5200);
+    assertThat(slower.regressions(RESULT.measures(), 0.1)).containsExactly(
+      "wallTimeMs: 4000.0 instead of 2000.0 (+100.0%)",
+      "filesPerSecond: 25.0 instead of 50.0 (-50.0%)");
+    assertThat(RESULT.regressions(slower.measures(), 0.1)).isEmpty();
+
+    BenchmarkResult otherFiles = new BenchmarkResult(80, TimeUnit.SECONDS.toNanos(2), TimeUnit.SECONDS.toNanos(3), 1000, 5000);
+    assertThat(otherFiles.regressions(RESULT.measures(), 0.1)).containsExactly(
+      "filesPerSecond: 40.0 instead of 50.0 (-20.0%)",
+      "files: 80 instead of 100, the results are not comparable");
+  }
+
+}
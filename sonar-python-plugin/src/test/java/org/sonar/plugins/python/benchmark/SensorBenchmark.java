@@ -0,0 +1,311 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.rule.CheckFactory;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.rule.internal.NewActiveRule;
+import org.sonar.api.batch.sensor.Sensor;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.issue.NoSonarFilter;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.server.rule.RulesDefinition;
+import org.sonar.api.server.rule.RulesDefinitionXmlLoader;
+import org.sonar.api.utils.AnnotationUtils;
+import org.sonar.check.Rule;
+import org.sonar.plugins.python.DirectoryListings;
+import org.sonar.plugins.python.Python;
+import org.sonar.plugins.python.PythonSquidSensor;
+import org.sonar.plugins.python.ReportPathResolver;
+import org.sonar.plugins.python.bandit.BanditSensor;
+import org.sonar.plugins.python.coverage.PythonCoverageSensor;
+import org.sonar.plugins.python.pylint.PylintImportSensor;
+import org.sonar.plugins.python.pylint.PylintRuleRepository;
+import org.sonar.plugins.python.warnings.AnalysisWarningsWrapper;
+import org.sonar.plugins.python.warnings.NoOpAnalysisWarningsWrapper;
+import org.sonar.plugins.python.xunit.PythonXUnitSensor;
+import org.sonar.python.checks.CheckList;
+
+/**
+ * Executes the sensors of the plugin on a directory, in process and without SonarQube server, to compare the performance
+ * of two versions of the plugin. See the "sensor-benchmark" profile of the pom, the options are system properties:
+ * <ul>
+ *   <li>{@code benchmark.sources}: directory of the Python files (default: its/sources)</li>
+ *   <li>{@code benchmark.sensors}: comma separated list of sensors among "python" (default), "coverage", "xunit",
+ *   "pylint" and "bandit". The reports are searched with the usual properties, e.g. -Dsonar.python.coverage.reportPaths=...</li>
+ *   <li>{@code benchmark.warmups} and {@code benchmark.runs}: number of executions before measuring (default 1), and
+ *   measured (default 3). The run with the lowest wall time is reported.</li>
+ *   <li>{@code benchmark.report}: JSON file in which the result is written (default: target/sensor-benchmark.json)</li>
+ *   <li>{@code benchmark.baseline}: result of a previous run, the benchmark fails if a measure is worse by more
+ *   than {@code benchmark.threshold} (default: 0.1, i.e. 10%)</li>
+ *   <li>any {@code sonar.*} property is given to the sensors. The analysis cache is disabled unless
+ *   {@code sonar.python.analysis.cache} is set.</li>
+ * </ul>
+ * The allocated bytes are the ones of the threads which are still alive at the end of an execution: when
+ * {@code sonar.python.analysis.threads} is greater than 1, the allocations of the analysis threads are not counted.
+ */
+public class SensorBenchmark {
+
+  static final List<String> SENSORS = Arrays.asList("python", "coverage", "xunit", "pylint", "bandit");
+
+  private final Path baseDir;
+  private final List<String> sensors;
+  private final Map<String, String> properties;
+
+  SensorBenchmark(Path baseDir, List<String> sensors, Map<String, String> properties) {
+    this.baseDir = baseDir.toAbsolutePath().normalize();
+    this.sensors = sensors;
+    this.properties = properties;
+    for (String sensor : sensors) {
+      if (!SENSORS.contains(sensor)) {
+        throw new IllegalArgumentException("Unknown sensor \"" + sensor + "\", expected one of " + SENSORS);
+      }
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path sources = Paths.get(System.getProperty("benchmark.sources", "../its/sources"));
+    List<String> sensors = Arrays.stream(System.getProperty("benchmark.sensors", "python").split(","))
+      .map(String::trim)
+      .filter(sensor -> !sensor.isEmpty())
+      .collect(Collectors.toList());
+    Map<String, String> properties = new LinkedHashMap<>();
+    System.getProperties().stringPropertyNames().stream()
+      .filter(name -> name.startsWith("sonar."))
+      .forEach(name -> properties.put(name, System.getProperty(name)));
+    int warmups = Integer.getInteger("benchmark.warmups", 1);
+    int runs = Integer.getInteger("benchmark.runs", 3);
+
+    SensorBenchmark benchmark = new SensorBenchmark(sources, sensors, properties);
+    for (int i = 0; i < warmups; i++) {
+      System.out.println("Warmup " + (i + 1) + ": " + benchmark.run());
+    }
+    BenchmarkResult best = null;
+    for (int i = 0; i < runs; i++) {
+      BenchmarkResult result = benchmark.run();
+      System.out.println("Run " + (i + 1) + ": " + result);
+      if (best == null || result.wallTimeNanos < best.wallTimeNanos) {
+        best = result;
+      }
+    }
+    if (best == null) {
+      return;
+    }
+
+    Path report = Paths.get(System.getProperty("benchmark.report", "target/sensor-benchmark.json"));
+    Files.createDirectories(report.toAbsolutePath().getParent());
+    Files.write(report, best.toJson().getBytes(StandardCharsets.UTF_8));
+    System.out.println("Result written to " + report.toAbsolutePath());
+
+    String baseline = System.getProperty("benchmark.baseline");
+    if (baseline != null) {
+      double threshold = Double.parseDouble(System.getProperty("benchmark.threshold", "0.1"));
+      List<String> regressions = best.regressions(BenchmarkResult.readBaseline(Paths.get(baseline)), threshold);
+      if (!regressions.isEmpty()) {
+        System.out.println("Regressions compared to " + baseline + ":");
+        regressions.forEach(regression -> System.out.println("  " + regression));
+        System.exit(1);
+      }
+      System.out.println("No regression compared to " + baseline);
+    }
+  }
+
+  /**
+   * One execution of the sensors on a new context. Creating the context and the input files is not measured.
+   */
+  BenchmarkResult run() throws IOException {
+    SensorContextTester context = SensorContextTester.create(baseDir);
+    context.settings().setProperty(PythonSquidSensor.ANALYSIS_CACHE_KEY, "false");
+    properties.forEach(context.settings()::setProperty);
+    context.fileSystem().setWorkDir(Files.createTempDirectory("python-sensor-benchmark"));
+    int files = addInputFiles(context);
+    List<Sensor> sensorsToRun = createSensors(context);
+
+    System.gc();
+    List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+      .filter(pool -> pool.getType() == MemoryType.HEAP)
+      .collect(Collectors.toList());
+    heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+    Map<Long, Long> allocatedBefore = allocatedBytesByThread();
+    long cpuBefore = processCpuTime();
+    long start = System.nanoTime();
+
+    for (Sensor sensor : sensorsToRun) {
+      sensor.execute(context);
+    }
+
+    long wallTime = System.nanoTime() - start;
+    long cpuTime = processCpuTime() - cpuBefore;
+    long allocated = allocatedBytesByThread().entrySet().stream()
+      .mapToLong(entry -> entry.getValue() - allocatedBefore.getOrDefault(entry.getKey(), 0L))
+      .sum();
+    // sum of the peaks of each pool, which can be reached at different times: an upper bound of the peak of the heap
+    long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+    return new BenchmarkResult(files, wallTime, cpuTime, peakHeap, allocated);
+  }
+
+  private int addInputFiles(SensorContextTester context) throws IOException {
+    List<Path> paths;
+    try (Stream<Path> stream = Files.walk(baseDir)) {
+      paths = stream
+        .filter(path -> path.getFileName().toString().endsWith(".py") && Files.isRegularFile(path))
+        .sorted(Comparator.naturalOrder())
+        .collect(Collectors.toList());
+    }
+    for (Path path : paths) {
+      String content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+      InputFile inputFile = TestInputFileBuilder.create("moduleKey", baseDir.relativize(path).toString())
+        .setModuleBaseDir(baseDir)
+        .setCharset(StandardCharsets.UTF_8)
+        .setType(InputFile.Type.MAIN)
+        .setLanguage(Python.KEY)
+        .initMetadata(content)
+        .build();
+      context.fileSystem().add(inputFile);
+    }
+    return paths.size();
+  }
+
+  private List<Sensor> createSensors(SensorContextTester context) {
+    ActiveRulesBuilder activeRules = new ActiveRulesBuilder();
+    AnalysisWarningsWrapper analysisWarnings = new NoOpAnalysisWarningsWrapper();
+    List<Sensor> result = new ArrayList<>();
+    for (String sensor : sensors) {
+      switch (sensor) {
+        case "python":
+          for (Class check : CheckList.getChecks()) {
+            Rule rule = AnnotationUtils.getAnnotation(check, Rule.class);
+            activeRules.addRule(new NewActiveRule.Builder().setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, rule.key())).build());
+          }
+          break;
+        case "pylint":
+          RulesDefinition.Context rulesDefinition = new RulesDefinition.Context();
+          new PylintRuleRepository(new RulesDefinitionXmlLoader()).define(rulesDefinition);
+          for (RulesDefinition.Rule rule : rulesDefinition.repository(PylintRuleRepository.REPOSITORY_KEY).rules()) {
+            activeRules.addRule(new NewActiveRule.Builder().setRuleKey(RuleKey.of(PylintRuleRepository.REPOSITORY_KEY, rule.key())).build());
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    context.setActiveRules(activeRules.build());
+
+    // shared by the sensors, as in an analysis
+    ReportPathResolver pathResolver = new ReportPathResolver(context.fileSystem());
+    DirectoryListings directoryListings = new DirectoryListings(context.fileSystem());
+    for (String sensor : sensors) {
+      switch (sensor) {
+        case "python":
+          result.add(new PythonSquidSensor(inputFile -> NoOpFileLinesContext.INSTANCE, new CheckFactory(context.activeRules()), new NoSonarFilter()));
+          break;
+        case "coverage":
+          result.add(new PythonCoverageSensor(analysisWarnings, pathResolver, directoryListings));
+          break;
+        case "xunit":
+          result.add(new PythonXUnitSensor(context.config(), pathResolver, directoryListings, analysisWarnings));
+          break;
+        case "pylint":
+          result.add(new PylintImportSensor(context.config(), analysisWarnings, pathResolver, directoryListings));
+          break;
+        default:
+          result.add(new BanditSensor(pathResolver));
+          break;
+      }
+    }
+    return result;
+  }
+
+  private static long processCpuTime() {
+    OperatingSystemMXBean operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+    if (operatingSystem instanceof com.sun.management.OperatingSystemMXBean) {
+      return ((com.sun.management.OperatingSystemMXBean) operatingSystem).getProcessCpuTime();
+    }
+    return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+  }
+
+  private static Map<Long, Long> allocatedBytesByThread() {
+    Map<Long, Long> allocatedBytes = new HashMap<>();
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      long[] ids = threads.getAllThreadIds();
+      long[] bytes = ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(ids);
+      for (int i = 0; i < ids.length; i++) {
+        if (bytes[i] >= 0) {
+          allocatedBytes.put(ids[i], bytes[i]);
+        }
+      }
+    }
+    return allocatedBytes;
+  }
+
+  private static class NoOpFileLinesContext implements FileLinesContext {
+
+    private static final NoOpFileLinesContext INSTANCE = new NoOpFileLinesContext();
+
+    @Override
+    public void setIntValue(String metricKey, int line, int value) {
+      // the measures of lines are not kept
+    }
+
+    @Override
+    public Integer getIntValue(String metricKey, int line) {
+      return null;
+    }
+
+    @Override
+    public void setStringValue(String metricKey, int line, String value) {
+      // the measures of lines are not kept
+    }
+
+    @Override
+    public String getStringValue(String metricKey, int line) {
+      return null;
+    }
+
+    @Override
+    public void save() {
+      // nothing to save
+    }
+  }
+
+}
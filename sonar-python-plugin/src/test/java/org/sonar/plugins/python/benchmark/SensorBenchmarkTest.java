@@ -0,0 +1,47 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.benchmark;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SensorBenchmarkTest {
+
+  @Test
+  public void run() throws Exception {
+    SensorBenchmark benchmark = new SensorBenchmark(Paths.get("src/test/resources/org/sonar/plugins/python/squid-sensor"),
+      Arrays.asList("python", "coverage", "xunit", "pylint", "bandit"), Collections.emptyMap());
+    BenchmarkResult result = benchmark.run();
+    assertThat(result.files).isGreaterThan(0);
+    assertThat(result.wallTimeNanos).isGreaterThan(0);
+    assertThat(result.peakHeapBytes).isGreaterThan(0);
+    assertThat(result.allocatedBytes).isGreaterThan(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknown_sensor() {
+    new SensorBenchmark(Paths.get("."), Collections.singletonList("unknown"), Collections.emptyMap());
+  }
+
+}
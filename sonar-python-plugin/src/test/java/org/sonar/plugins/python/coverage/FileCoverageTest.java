@@ -0,0 +1,84 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.coverage;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileCoverageTest {
+
+  @Test
+  public void hits_are_summed() {
+    FileCoverage coverage = new FileCoverage();
+    coverage.lineHits(3, 1);
+    coverage.lineHits(100, 0);
+    FileCoverage other = new FileCoverage();
+    other.lineHits(3, 2);
+    other.lineHits(4, 0);
+    coverage.merge(other);
+
+    assertThat(coverage.hits(1)).isNull();
+    assertThat(coverage.hits(3)).isEqualTo(3);
+    assertThat(coverage.hits(4)).isZero();
+    assertThat(coverage.hits(100)).isZero();
+    assertThat(coverage.hits(1000)).isNull();
+    assertThat(coverage.conditions(3)).isNull();
+    assertThat(coverage.coveredConditions(3)).isNull();
+  }
+
+  @Test
+  public void union_of_covered_conditions() {
+    FileCoverage coverage = new FileCoverage();
+    coverage.conditions(1, 2, 1, new int[] {3});
+    coverage.conditions(1, 2, 1, new int[] {2});
+    assertThat(coverage.conditions(1)).isEqualTo(2);
+    assertThat(coverage.coveredConditions(1)).isEqualTo(2);
+
+    coverage.conditions(2, 3, 0, new int[] {-1, 5, 4});
+    coverage.conditions(2, 3, 1, new int[] {5, -1});
+    coverage.conditions(2, 3, 1, new int[] {4, -1});
+    assertThat(coverage.coveredConditions(2)).isEqualTo(2);
+  }
+
+  @Test
+  public void fully_covered_conditions_do_not_need_missing_branches() {
+    FileCoverage coverage = new FileCoverage();
+    coverage.conditions(1, 2, 2, null);
+    coverage.conditions(1, 2, 0, new int[] {2, 3});
+    assertThat(coverage.coveredConditions(1)).isEqualTo(2);
+  }
+
+  @Test
+  public void highest_covered_conditions_when_missing_branches_are_unknown() {
+    FileCoverage coverage = new FileCoverage();
+    coverage.conditions(1, 4, 1, new int[] {2, 3, 4});
+    coverage.conditions(1, 4, 2, null);
+    coverage.conditions(1, 4, 1, new int[] {5, 6, 7});
+    assertThat(coverage.conditions(1)).isEqualTo(4);
+    assertThat(coverage.coveredConditions(1)).isEqualTo(2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalid_line() {
+    new FileCoverage().lineHits(0, 1);
+  }
+
+}
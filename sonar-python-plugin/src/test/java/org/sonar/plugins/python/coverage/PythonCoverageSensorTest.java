@@ -40,6 +40,9 @@ import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.plugins.python.PythonSquidSensor;
+import org.sonar.plugins.python.DirectoryListings;
+import org.sonar.plugins.python.ReportPathResolver;
 import org.sonar.plugins.python.TestUtils;
 import org.sonar.plugins.python.warnings.AnalysisWarningsWrapper;
 
@@ -74,11 +77,11 @@ public class PythonCoverageSensorTest {
   @Before
   public void init() {
     analysisWarnings = spy(AnalysisWarningsWrapper.class);
-    coverageSensor = new PythonCoverageSensor(analysisWarnings);
     settings = new MapSettings();
     settings.setProperty(PythonCoverageSensor.REPORT_PATHS_KEY, "coverage.xml");
     context = SensorContextTester.create(moduleBaseDir);
     context.setSettings(settings);
+    coverageSensor = sensor();
 
     inputFile("sources/file1.py", Type.MAIN);
     inputFile("sources/file2.py", Type.MAIN);
@@ -89,6 +92,10 @@ public class PythonCoverageSensorTest {
     inputFile("sources/folder2/file2.py", Type.MAIN);
   }
 
+  private PythonCoverageSensor sensor() {
+    return new PythonCoverageSensor(analysisWarnings, new ReportPathResolver(context.fileSystem()), new DirectoryListings(context.fileSystem()));
+  }
+
   private InputFile inputFile(String relativePath, Type type) {
     DefaultInputFile inputFile = TestInputFileBuilder.create("moduleKey", relativePath)
       .setModuleBaseDir(moduleBaseDir.toPath())
@@ -290,6 +297,41 @@ public class PythonCoverageSensorTest {
     assertThat(context.coveredConditions(FILE4_KEY, 10)).isNull();
   }
 
+  @Test
+  public void merge_reports() {
+    settings.setProperty(PythonCoverageSensor.REPORT_PATHS_KEY, "coverage.4.4.2.xml,sharded-coverage-2.xml");
+    coverageSensor.execute(context);
+    assertMergedCoverage();
+  }
+
+  @Test
+  public void merge_reports_parsed_in_parallel() {
+    settings.setProperty(PythonCoverageSensor.REPORT_PATHS_KEY, "coverage.4.4.2.xml,sharded-coverage-2.xml,coverage.xml");
+    settings.setProperty(PythonSquidSensor.ANALYSIS_THREADS_KEY, "3");
+    coverageSensor.execute(context);
+    assertMergedCoverage();
+    assertThat(context.lineHits(FILE2_KEY, 2)).isEqualTo(3);
+    assertThat(context.coveredConditions(FILE2_KEY, 3)).isEqualTo(1);
+  }
+
+  private void assertMergedCoverage() {
+    List<Integer> actual = IntStream.range(6, 16).mapToObj(line -> context.lineHits(FILE4_KEY, line)).collect(Collectors.toList());
+    assertThat(actual).containsExactly(2, 2, 2, 1, 1, 1, null, 0, null, 2);
+    // each report misses a different branch of line 8
+    assertThat(context.conditions(FILE4_KEY, 8)).isEqualTo(2);
+    assertThat(context.coveredConditions(FILE4_KEY, 8)).isEqualTo(2);
+    // the branch to line 13 is missed by both reports
+    assertThat(context.conditions(FILE4_KEY, 10)).isEqualTo(2);
+    assertThat(context.coveredConditions(FILE4_KEY, 10)).isEqualTo(1);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void should_fail_on_invalid_report_parsed_in_parallel() {
+    settings.setProperty(PythonCoverageSensor.REPORT_PATHS_KEY, "coverage.xml,invalid-coverage-result.xml");
+    settings.setProperty(PythonSquidSensor.ANALYSIS_THREADS_KEY, "2");
+    coverageSensor.execute(context);
+  }
+
   @Test(expected = IllegalStateException.class)
   public void should_fail_on_invalid_report() {
     settings.setProperty(PythonCoverageSensor.REPORT_PATHS_KEY, "invalid-coverage-result.xml");
@@ -314,7 +356,7 @@ public class PythonCoverageSensorTest {
   @Test
   public void no_default_report_log() {
     settings.clear();
-    PythonCoverageSensor sensor = new PythonCoverageSensor(analysisWarnings);
+    PythonCoverageSensor sensor = sensor();
     sensor.execute(context);
     assertThat(logTester.logs(LoggerLevel.DEBUG)).contains("No report was found for sonar.python.coverage.reportPaths using default pattern coverage-reports/*coverage-*.xml");
   }
@@ -322,7 +364,7 @@ public class PythonCoverageSensorTest {
   @Test
   public void sensor_descriptor() {
     DefaultSensorDescriptor descriptor = new DefaultSensorDescriptor();
-    new PythonCoverageSensor(analysisWarnings).describe(descriptor);
+    sensor().describe(descriptor);
     assertThat(descriptor.name()).isEqualTo("Cobertura Sensor for Python coverage");
     assertThat(descriptor.languages()).containsOnly("py");
   }
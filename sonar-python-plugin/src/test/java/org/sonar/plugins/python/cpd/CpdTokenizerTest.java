@@ -0,0 +1,209 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.cpd;
+
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.TokenSet;
+import com.jetbrains.python.PyTokenTypes;
+import com.jetbrains.python.lexer.PythonIndentingLexer;
+import com.jetbrains.python.psi.PyFile;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.cpd.NewCpdTokens;
+import org.sonar.api.batch.sensor.cpd.internal.TokensLine;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.plugins.python.Python;
+import org.sonar.plugins.python.TestUtils;
+import org.sonar.python.frontend.LineOffsets;
+import org.sonar.python.frontend.PythonParser;
+import org.sonar.python.frontend.PythonTokenLocation;
+import org.sonar.python.metrics.FileMetrics;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CpdTokenizerTest {
+
+  private static final TokenSet LEXER_IGNORED_TOKEN_TYPES = TokenSet.create(
+    PyTokenTypes.LINE_BREAK, PyTokenTypes.DEDENT, PyTokenTypes.INDENT, PyTokenTypes.END_OF_LINE_COMMENT, PyTokenTypes.SPACE, PyTokenTypes.STATEMENT_BREAK);
+  private static final String BASE_DIR = "src/test/resources/org/sonar/plugins/python";
+  private SensorContextTester context = SensorContextTester.create(new File(BASE_DIR));
+
+  @Test
+  public void code_chunks_2() {
+    File file = new File(BASE_DIR, "code_chunks_2.py");
+
+    String content = TestUtils.fileContent(file, UTF_8);
+    DefaultInputFile inputFile = TestInputFileBuilder.create("moduleKey", file.getName())
+      .setModuleBaseDir(Paths.get(BASE_DIR))
+      .setCharset(UTF_8)
+      .setType(InputFile.Type.MAIN)
+      .setLanguage(Python.KEY)
+      .initMetadata(content)
+      .build();
+
+    context.fileSystem().add(inputFile);
+
+    NewCpdTokens cpdTokens = context.newCpdTokens().onFile(inputFile);
+    new FileMetrics(false, new PythonParser().parse(content), Collections.singletonList(new CpdTokenizer(cpdTokens::addToken)));
+    cpdTokens.save();
+
+    List<TokensLine> lines = context.cpdTokens("moduleKey:code_chunks_2.py");
+    assertThat(lines).isNotNull().hasSize(25);
+    TokensLine line1 = lines.get(0);
+    assertThat(line1.getStartLine()).isEqualTo(2);
+    assertThat(line1.getEndLine()).isEqualTo(2);
+    assertThat(line1.getStartUnit()).isEqualTo(1);
+    assertThat(line1.getEndUnit()).isEqualTo(1);
+    List<String> values = lines.stream().map(TokensLine::getValue).collect(Collectors.toList());
+    assertThat(values).containsExactly(
+      "00000",
+      "1111L",
+      "0x10000L",
+      "0X1111",
+      "0b1111L",
+      "0o12345",
+      "u\"lala\"",
+      "U\"lala\"",
+      "r\"lala\"",
+      "R\"lala\"",
+      "print",
+      "a=[1,",
+      "2,",
+      "]",
+      "deffoo():pass",
+      "classbar(object):pass",
+      "deffoo2(x,y,z,):",
+      // \n materializes DEDENT
+      "pass\n",
+      "defbar(*baz):",
+      // \n materializes DEDENT
+      "foo(3,4,5)\n",
+      "defbar2(**baz):",
+      // \n materializes DEDENT
+      "yield;\n",
+      "items=[]",
+      "(itemforiteminitems)",
+      "[itemforiteminitems]");
+  }
+
+  @Test
+  public void dedent_materialized_by_line_break() {
+    String source = "def f(x):\n" +
+      "    if x:\n" +
+      "        return [1,\n" +
+      "  2]\n" +
+      "    return 0\n" +
+      "def g():\n" +
+      "    pass\n";
+    assertThat(tokens(source)).containsExactly(
+      "1:0:def", "1:4:f", "1:5:(", "1:6:x", "1:7:)", "1:8::",
+      "2:4:if", "2:7:x", "2:8::",
+      "3:8:return", "3:15:[", "3:16:1", "3:17:,",
+      "4:2:2", "4:3:]", "4:4:\n",
+      "5:4:return", "5:11:0", "5:12:\n",
+      "6:0:def", "6:4:g", "6:5:(", "6:6:)", "6:7::",
+      "7:4:pass", "7:8:\n");
+  }
+
+  @Test
+  public void comment_lines_do_not_change_indentation() {
+    String source = "if x:\n" +
+      "    a\n" +
+      "# comment\n" +
+      "    # indented comment\n" +
+      "    b\n" +
+      "c";
+    assertThat(tokens(source)).containsExactly("1:0:if", "1:3:x", "1:4::", "2:4:a", "5:4:b", "5:5:\n", "6:0:c");
+  }
+
+  /**
+   * The tokenizer must produce the same tokens as the {@link PythonIndentingLexer} it replaces.
+   */
+  @Test
+  public void same_tokens_as_indenting_lexer() throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(Paths.get(BASE_DIR))) {
+      files = paths.filter(path -> path.toString().endsWith(".py")).sorted().collect(Collectors.toList());
+    }
+    assertThat(files).isNotEmpty();
+    for (Path path : files) {
+      PyFile pyFile = PythonParser.parse(path.toFile());
+      if (pyFile.getFirstChild() != null) {
+        assertThat(tokenRanges(pyFile)).as(path.toString()).isEqualTo(lexerTokenRanges(pyFile.getText()));
+      }
+    }
+  }
+
+  private static List<String> tokens(String source) {
+    List<String> tokens = new ArrayList<>();
+    CpdTokenizer tokenizer = new CpdTokenizer((startLine, startLineOffset, endLine, endLineOffset, image) -> tokens.add(startLine + ":" + startLineOffset + ":" + image));
+    new FileMetrics(false, new PythonParser().parse(source), Collections.singletonList(tokenizer));
+    return tokens;
+  }
+
+  private static List<String> tokenRanges(PyFile pyFile) {
+    List<String> tokens = new ArrayList<>();
+    new FileMetrics(false, pyFile, Collections.singletonList(new CpdTokenizer((startLine, startLineOffset, endLine, endLineOffset, image) ->
+      tokens.add(startLine + ":" + startLineOffset + "-" + endLine + ":" + endLineOffset + ":" + image))));
+    return tokens;
+  }
+
+  /**
+   * Tokens of the former CPD analysis, which lexed the file a second time.
+   */
+  private static List<String> lexerTokenRanges(String content) {
+    LineOffsets lineOffsets = new LineOffsets(content);
+    List<String> tokens = new ArrayList<>();
+    PythonIndentingLexer lexer = new PythonIndentingLexer();
+    lexer.start(content);
+    IElementType prevTokenType = null;
+    while (lexer.getTokenType() != null) {
+      IElementType currentTokenType = lexer.getTokenType();
+      boolean dedentLineBreak = prevTokenType == PyTokenTypes.DEDENT && currentTokenType == PyTokenTypes.LINE_BREAK;
+      if (dedentLineBreak || !LEXER_IGNORED_TOKEN_TYPES.contains(currentTokenType)) {
+        int tokenEnd = lexer.getTokenEnd();
+        String tokenText = lexer.getTokenText();
+        if (currentTokenType == PyTokenTypes.LINE_BREAK) {
+          tokenText = "\n";
+          tokenEnd = lexer.getTokenStart() + 1;
+        }
+        PythonTokenLocation location = new PythonTokenLocation(lexer.getTokenStart(), tokenEnd, lineOffsets);
+        tokens.add(location.startLine() + ":" + location.startLineOffset() + "-" + location.endLine() + ":" + location.endLineOffset() + ":" + tokenText);
+      }
+      prevTokenType = currentTokenType;
+      lexer.advance();
+    }
+    return tokens;
+  }
+
+}
@@ -45,6 +45,12 @@ public class PylintArgumentsTest {
     assertThat(arguments).containsOnly("--msg-template", "{path}:{line}: [{msg_id}({symbol}), {obj}] {msg}", "-r", "n");
   }
 
+  @Test
+  public void version() {
+    assertThat(new PylintArguments(command("pylint 1.1.0")).version()).isEqualTo("1.1.0");
+    assertThat(new PylintArguments(command("pylint.bat 0.28.0")).version()).isEqualTo("0.28.0");
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void unknown() {
     new PylintArguments(command(""));
@@ -40,6 +40,9 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.plugins.python.Python;
+import org.sonar.plugins.python.PythonSquidSensor;
+import org.sonar.plugins.python.DirectoryListings;
+import org.sonar.plugins.python.ReportPathResolver;
 import org.sonar.plugins.python.TestUtils;
 import org.sonar.plugins.python.warnings.AnalysisWarningsWrapper;
 
@@ -81,7 +84,7 @@ public class PylintImportSensorTest {
         .build())
       .build());
 
-    PylintImportSensor sensor = new PylintImportSensor(context.config(), analysisWarnings);
+    PylintImportSensor sensor = sensor(context);
     sensor.execute(context);
     assertThat(context.allIssues()).hasSize(3);
     assertThat(context.allIssues()).extracting(issue -> issue.primaryLocation().inputComponent().key())
@@ -107,7 +110,7 @@ public class PylintImportSensorTest {
           .build())
         .build());
 
-    PylintImportSensor sensor = new PylintImportSensor(context.config(), analysisWarnings);
+    PylintImportSensor sensor = sensor(context);
     PylintImportSensor.clearLoggedWarnings();
     sensor.execute(context);
     assertThat(context.allIssues()).hasSize(1);
@@ -116,10 +119,38 @@ public class PylintImportSensorTest {
     assertThat(logTester.logs(LoggerLevel.WARN)).containsExactly("Pylint rule 'C8888' is unknown in Sonar", "Pylint rule 'C9999' is unknown in Sonar");
   }
 
+  @Test
+  public void parse_reports_in_parallel() {
+    context.settings().setProperty(PylintImportSensor.REPORT_PATH_KEY, "pylint-report*.txt");
+    context.settings().setProperty(PythonSquidSensor.ANALYSIS_THREADS_KEY, 2);
+    DefaultInputFile inputFile = addFile1();
+    activateRules(RULE_C0103, RULE_C0111);
+
+    PylintImportSensor sensor = sensor(context);
+    sensor.execute(context);
+    // pylint-report.txt: 3, pylint-report-unknown-rules.txt: 3, pylint-report-unknown-file.txt: 1
+    assertThat(context.allIssues()).hasSize(7);
+    assertThat(context.allIssues()).extracting(issue -> issue.primaryLocation().inputComponent().key())
+      .containsOnly(inputFile.key());
+    assertThat(logTester.logs(LoggerLevel.ERROR)).isEmpty();
+  }
+
+  @Test
+  public void unknown_file_is_logged_once() {
+    context.settings().setProperty(PylintImportSensor.REPORT_PATH_KEY, "pylint-report-unknown-file.txt");
+    addFile1();
+    activateRules(RULE_C0103, RULE_C0111);
+
+    PylintImportSensor sensor = sensor(context);
+    sensor.execute(context);
+    assertThat(context.allIssues()).hasSize(1);
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsExactly("Cannot find the file 'src/unknown.py' in SonarQube, ignoring its violations");
+  }
+
   @Test
   public void sensor_descriptor() {
     DefaultSensorDescriptor descriptor = new DefaultSensorDescriptor();
-    new PylintImportSensor(context.config(), analysisWarnings).describe(descriptor);
+    sensor(context).describe(descriptor);
     assertThat(descriptor.name()).isEqualTo("PylintImportSensor");
     assertThat(descriptor.languages()).containsOnly("py");
     assertThat(descriptor.type()).isEqualTo(InputFile.Type.MAIN);
@@ -132,11 +163,35 @@ public class PylintImportSensorTest {
   @Test
   public void no_default_report_log() {
     SensorContextTester defaultContext = SensorContextTester.create(baseDir);
-    PylintImportSensor sensor = new PylintImportSensor(defaultContext.config(), analysisWarnings);
+    PylintImportSensor sensor = sensor(defaultContext);
     sensor.execute(defaultContext);
     assertThat(logTester.logs(LoggerLevel.DEBUG)).contains("No report was found for sonar.python.pylint.reportPath using default pattern pylint-reports/pylint-result-*.txt");
   }
 
+  private PylintImportSensor sensor(SensorContextTester context) {
+    return new PylintImportSensor(context.config(), analysisWarnings, new ReportPathResolver(context.fileSystem()), new DirectoryListings(context.fileSystem()));
+  }
+
+  private DefaultInputFile addFile1() {
+    File file = new File(baseDir, FILE1_PATH);
+    DefaultInputFile inputFile = TestInputFileBuilder.create("", FILE1_PATH)
+      .setLanguage(Python.KEY)
+      .initMetadata(TestUtils.fileContent(file, StandardCharsets.UTF_8))
+      .build();
+    context.fileSystem().add(inputFile);
+    return inputFile;
+  }
+
+  private void activateRules(String... ruleIds) {
+    ActiveRulesBuilder activeRules = new ActiveRulesBuilder();
+    for (String ruleId : ruleIds) {
+      activeRules.addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(PylintRuleRepository.REPOSITORY_KEY, ruleId))
+        .build());
+    }
+    context.setActiveRules(activeRules.build());
+  }
+
   private static Configuration configuration(Map<String, String> mapproperties) {
     return new ConfigurationBridge(new MapSettings().addProperties(mapproperties));
   }
@@ -0,0 +1,65 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.pylint;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PylintReportParserTest {
+
+  private final PylintReportParser parser = new PylintReportParser();
+
+  @Test
+  public void issue() {
+    Issue issue = parser.parseLine("src/file1.py:12: [C0103(invalid-name), factorial] Invalid argument name \"n\"");
+    assertThat(issue.getFilename()).isEqualTo("src/file1.py");
+    assertThat(issue.getLine()).isEqualTo(12);
+    assertThat(issue.getRuleId()).isEqualTo("C0103");
+    assertThat(issue.getObjName()).isEqualTo("factorial");
+    assertThat(issue.getDescription()).isEqualTo("Invalid argument name \"n\"");
+  }
+
+  @Test
+  public void old_rule_ids() {
+    assertThat(parser.parseLine("file.py:1: [E9900] Unsupported format character").getRuleId()).isEqualTo("E1300");
+  }
+
+  @Test
+  public void separators_in_file_name_and_description() {
+    Issue issue = parser.parseLine("C:\\dir:2: [x]\\file.py:3: [W0104] Statement [a] seems to have no effect");
+    assertThat(issue.getFilename()).isEqualTo("C:\\dir:2: [x]\\file.py");
+    assertThat(issue.getLine()).isEqualTo(3);
+    assertThat(issue.getRuleId()).isEqualTo("W0104] Statement [a");
+    assertThat(issue.getObjName()).isEmpty();
+    assertThat(issue.getDescription()).isEqualTo("seems to have no effect");
+  }
+
+  @Test
+  public void ignored_lines() {
+    assertThat(parser.parseLine("")).isNull();
+    assertThat(parser.parseLine("  detail of the previous issue")).isNull();
+    assertThat(parser.parseLine("************* Module src.prod")).isNull();
+    assertThat(parser.parseLine("file.py:x: [C0111] Missing docstring")).isNull();
+    assertThat(parser.parseLine(":1: [C0111] Missing docstring")).isNull();
+    assertThat(parser.parseLine("file.py:1: [C0111]")).isNull();
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.pylint;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PylintResultCacheTest {
+
+  private static final byte[] CONTENT = "x = 1\n".getBytes(StandardCharsets.UTF_8);
+
+  @Rule
+  public TemporaryFolder tmpDir = new TemporaryFolder();
+
+  @Test
+  public void keys() {
+    PylintResultCache cache = new PylintResultCache(tmpDir.getRoot().toPath(), new byte[] {1});
+    String key = cache.key("src/file.py", CONTENT);
+    assertThat(key).hasSize(64).matches("[0-9a-f]+");
+    assertThat(cache.key("src/file.py", CONTENT)).isEqualTo(key);
+    assertThat(cache.key("src/file.py", "y = 1\n".getBytes(StandardCharsets.UTF_8))).isNotEqualTo(key);
+    assertThat(cache.key("src/other.py", CONTENT)).isNotEqualTo(key);
+    assertThat(new PylintResultCache(tmpDir.getRoot().toPath(), new byte[] {2}).key("src/file.py", CONTENT)).isNotEqualTo(key);
+  }
+
+  @Test
+  public void entries_are_reused_by_next_analysis() {
+    Path directory = new File(tmpDir.getRoot(), PylintResultCache.DIRECTORY_NAME).toPath();
+    PylintResultCache cache = new PylintResultCache(directory, new byte[] {1});
+    String key = cache.key("file.py", CONTENT);
+    assertThat(cache.get(key)).isNull();
+    cache.put(key, Arrays.asList("file.py:1: [C0103(invalid-name), ] Invalid name", "file.py:2: [C0111] Missing docstring"));
+    cache.put("empty", Collections.emptyList());
+
+    PylintResultCache nextCache = new PylintResultCache(directory, new byte[] {1});
+    assertThat(nextCache.get(key)).containsExactly("file.py:1: [C0103(invalid-name), ] Invalid name", "file.py:2: [C0111] Missing docstring");
+    assertThat(nextCache.get("unknown")).isNull();
+  }
+
+  @Test
+  public void unused_entries_are_removed() {
+    Path directory = tmpDir.getRoot().toPath();
+    PylintResultCache cache = new PylintResultCache(directory, new byte[] {1});
+    cache.put("used", Collections.singletonList("line"));
+    cache.put("unused", Collections.singletonList("line"));
+
+    PylintResultCache nextCache = new PylintResultCache(directory, new byte[] {1});
+    assertThat(nextCache.get("used")).containsExactly("line");
+    nextCache.put("new", Collections.emptyList());
+    nextCache.removeUnusedEntries();
+    assertThat(directory.resolve("used.txt")).exists();
+    assertThat(directory.resolve("new.txt")).exists();
+    assertThat(directory.resolve("unused.txt")).doesNotExist();
+  }
+
+  @Test
+  public void missing_directory() {
+    PylintResultCache cache = new PylintResultCache(new File(tmpDir.getRoot(), "missing").toPath(), new byte[] {1});
+    cache.removeUnusedEntries();
+    assertThat(cache.get("key")).isNull();
+  }
+
+}
@@ -24,7 +24,11 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
 import javax.annotation.Nullable;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.SystemUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -43,10 +47,12 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.plugins.python.Python;
+import org.sonar.plugins.python.PythonSquidSensor;
 import org.sonar.plugins.python.TestUtils;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeFalse;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -166,6 +172,100 @@ public class PylintSensorTest {
     verify(analyzer, times(2)).analyze(any(), any(), any());
   }
 
+  @Test
+  public void batches_with_stub_pylint() throws IOException {
+    assumeFalse(SystemUtils.IS_OS_WINDOWS);
+    File pylint = stubPylint();
+    Files.write(new File(workDir, "file3.py").toPath(), "x = 1\n".getBytes(StandardCharsets.UTF_8));
+    when(conf.getPylintPath()).thenReturn(pylint.getAbsolutePath());
+    when(conf.getBatchSize()).thenReturn(2);
+    MapSettings settings = new MapSettings();
+    settings.setProperty(PythonSquidSensor.ANALYSIS_THREADS_KEY, 2);
+    PylintSensor sensor = new PylintSensor(conf, new ConfigurationBridge(settings));
+
+    SensorContextTester context = batchContext();
+    sensor.execute(context);
+    assertThat(context.allIssues()).hasSize(3);
+    assertThat(context.allIssues()).extracting(issue -> issue.primaryLocation().inputComponent().key()).doesNotHaveDuplicates();
+    assertThat(context.allIssues()).extracting(issue -> issue.primaryLocation().textRange().start().line()).containsOnly(1);
+    List<String> calls = pylintCalls(pylint);
+    assertThat(calls).hasSize(2);
+    assertThat(calls).extracting(call -> StringUtils.countMatches(call, ".py")).containsOnly(2, 1);
+
+    // nothing changed: all the results are reused
+    context = batchContext();
+    sensor.execute(context);
+    assertThat(context.allIssues()).hasSize(3);
+    assertThat(pylintCalls(pylint)).hasSize(2);
+
+    // only the changed file is analyzed again
+    Files.write(new File(workDir, "file3.py").toPath(), "y = 1\n".getBytes(StandardCharsets.UTF_8));
+    context = batchContext();
+    sensor.execute(context);
+    assertThat(context.allIssues()).hasSize(3);
+    calls = pylintCalls(pylint);
+    assertThat(calls).hasSize(3);
+    assertThat(calls.get(2)).endsWith("file3.py");
+    assertThat(StringUtils.countMatches(calls.get(2), ".py")).isEqualTo(1);
+  }
+
+  @Test
+  public void batches_without_cache() throws IOException {
+    assumeFalse(SystemUtils.IS_OS_WINDOWS);
+    File pylint = stubPylint();
+    when(conf.getPylintPath()).thenReturn(pylint.getAbsolutePath());
+    when(conf.getBatchSize()).thenReturn(10);
+    MapSettings settings = new MapSettings();
+    settings.setProperty(PythonSquidSensor.ANALYSIS_CACHE_KEY, false);
+    PylintSensor sensor = new PylintSensor(conf, new ConfigurationBridge(settings));
+
+    sensor.execute(batchContext());
+    SensorContextTester context = batchContext();
+    sensor.execute(context);
+    assertThat(context.allIssues()).hasSize(2);
+    assertThat(pylintCalls(pylint)).hasSize(2);
+    assertThat(new File(workDir, PylintResultCache.DIRECTORY_NAME)).doesNotExist();
+  }
+
+  private SensorContextTester batchContext() {
+    SensorContextTester context = SensorContextTester.create(workDir);
+    context.fileSystem().setWorkDir(workDir.toPath());
+    for (File file : workDir.listFiles((dir, name) -> name.endsWith(".py"))) {
+      createInputFile(workDir, context, file.getName());
+    }
+    context.setActiveRules(
+      new ActiveRulesBuilder()
+        .addRule(new NewActiveRule.Builder()
+          .setRuleKey(RuleKey.of(PylintRuleRepository.REPOSITORY_KEY, C0103_RULE_KEY))
+          .build())
+        .build());
+    return context;
+  }
+
+  /**
+   * Reports an issue on the first line of each analyzed file, and another one on a relative path which is not analyzed.
+   * Every execution is logged in "calls.log", next to the script.
+   */
+  private File stubPylint() throws IOException {
+    File pylint = new File(tmpDir.newFolder("bin"), "pylint");
+    String script = "#!/bin/sh\n" +
+      "if [ \"$1\" = \"--version\" ]; then echo \"pylint 2.3.1\"; exit 0; fi\n" +
+      "echo \"$@\" >> \"$(dirname \"$0\")/calls.log\"\n" +
+      "for arg in \"$@\"; do\n" +
+      "  case \"$arg\" in\n" +
+      "    *.py) echo \"$arg:1: [C0103(invalid-name), ] Invalid name\"; echo \"$(basename \"$arg\"):2: [C0103(invalid-name), ] Invalid name\";;\n" +
+      "  esac\n" +
+      "done\n";
+    Files.write(pylint.toPath(), script.getBytes(StandardCharsets.UTF_8));
+    assertThat(pylint.setExecutable(true)).isTrue();
+    return pylint;
+  }
+
+  private static List<String> pylintCalls(File pylint) throws IOException {
+    Path log = new File(pylint.getParentFile(), "calls.log").toPath();
+    return log.toFile().exists() ? Files.readAllLines(log, StandardCharsets.UTF_8) : Collections.emptyList();
+  }
+
   private static void createInputFile(File baseDir, SensorContextTester context, String filePath) {
     File file = new File(baseDir, filePath);
     DefaultInputFile inputFile = TestInputFileBuilder.create("", filePath)
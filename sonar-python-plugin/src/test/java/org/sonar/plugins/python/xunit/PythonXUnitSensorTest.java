@@ -34,10 +34,14 @@ import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.plugins.python.DirectoryListings;
+import org.sonar.plugins.python.ReportPathResolver;
 import org.sonar.plugins.python.warnings.AnalysisWarningsWrapper;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -61,7 +65,7 @@ public class PythonXUnitSensorTest {
   public void setUp() {
     settings.clear();
     fs = new DefaultFileSystem(baseDir);
-    sensor = new PythonXUnitSensor(new ConfigurationBridge(settings), fs, analysisWarnings);
+    sensor = new PythonXUnitSensor(new ConfigurationBridge(settings), new ReportPathResolver(fs), new DirectoryListings(fs), analysisWarnings);
   }
 
   @Test
@@ -181,6 +185,23 @@ public class PythonXUnitSensorTest {
     assertThat(measure(testFile1, CoreMetrics.TEST_FAILURES)).isEqualTo(0);
   }
 
+  @Test
+  public void resources_are_resolved_without_file_system_lookups() {
+    DefaultFileSystem spiedFs = spy(fs);
+    sensor = new PythonXUnitSensor(new ConfigurationBridge(settings), new ReportPathResolver(spiedFs), new DirectoryListings(spiedFs), analysisWarnings);
+    DefaultInputFile testFile1 = TestInputFileBuilder.create("", FILE_SAMPLE1).build();
+    DefaultInputFile testFile2 = TestInputFileBuilder.create("", FILE_SAMPLE2).build();
+    spiedFs.add(testFile1);
+    spiedFs.add(testFile2);
+    sensor.execute(context);
+
+    assertThat(measure(testFile1, CoreMetrics.TESTS)).isEqualTo(3);
+    assertThat(measure(testFile2, CoreMetrics.TESTS)).isEqualTo(3);
+    verify(spiedFs, never()).inputFile(any());
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsExactly(
+      "The resource for 'tests.dir.no_such_file' is not found, drilling down to the details of this test won't be possible");
+  }
+
   private Integer moduleMeasure(Metric<Integer> metric) {
     return measure(context.module(), metric);
   }
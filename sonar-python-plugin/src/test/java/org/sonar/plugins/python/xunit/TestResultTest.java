@@ -74,7 +74,7 @@ public class TestResultTest {
   }
 
   private static TestCase createTestCase(int time, String status) {
-    return new TestCase("name", time, status, "stack", "msg", "file", "testClassname");
+    return new TestCase("name", time, status, "msg", "file", "testClassname");
   }
 
   @Test
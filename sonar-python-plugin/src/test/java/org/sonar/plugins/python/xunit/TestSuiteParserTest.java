@@ -0,0 +1,65 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.xunit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.sonar.plugins.python.parser.StaxParser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestSuiteParserTest {
+
+  private static final String BASE_DIR = "src/test/resources/org/sonar/plugins/python/xunit-reports/";
+  private static final File REPORT = new File(BASE_DIR, "xunit-result-1.xml");
+
+  @Test
+  public void test_case_attributes() throws Exception {
+    List<TestCase> testCases = new ArrayList<>();
+    new StaxParser(new TestSuiteParser((suiteKey, testCase) -> testCases.add(testCase))).parse(new File(BASE_DIR, "pytest-xunit-result.xml"));
+
+    assertThat(testCases).hasSize(12);
+    assertThat(testCases).extracting(TestCase::getFile).containsOnly("test_sample1.py", "tests/dir/test_sample2.py");
+    assertThat(testCases.stream().filter(TestCase::isSkipped).count()).isEqualTo(2);
+    assertThat(testCases.stream().filter(TestCase::isFailure).count()).isEqualTo(2);
+    assertThat(testCases.get(1).getDetails()).contains("name=\"test_method_2\"").contains("failure message 1");
+  }
+
+  @Test
+  public void streamed_test_cases() throws Exception {
+    List<String> suiteKeys = new ArrayList<>();
+    List<TestCase> testCases = new ArrayList<>();
+    TestSuiteParser handler = new TestSuiteParser((suiteKey, testCase) -> {
+      suiteKeys.add(suiteKey);
+      testCases.add(testCase);
+    });
+    new StaxParser(handler).parse(REPORT);
+
+    assertThat(suiteKeys).containsExactly("nosetests", "nosetests", "nosetests");
+    assertThat(testCases).extracting(TestCase::getTestClassname).containsOnly("test_sample1");
+    assertThat(testCases.get(1).isFailure()).isTrue();
+    assertThat(testCases.get(1).getDetails()).doesNotContain("Traceback");
+    assertThat(testCases.get(2).isError()).isTrue();
+    assertThat(testCases.get(2).getDetails()).contains("not_exising_callable").doesNotContain("Traceback");
+  }
+
+}
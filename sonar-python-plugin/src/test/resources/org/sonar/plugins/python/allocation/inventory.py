@@ -0,0 +1,171 @@
+# -*- coding: utf-8 -*-
+"""
+Inventory management: items, stock movements and reports.
+
+This module is a fixture of the allocation budget tests, it should look like
+ordinary application code: classes, functions, comments, strings and
+control flow of various kinds.
+"""
+
+import collections
+import datetime
+import logging
+import re
+
+LOGGER = logging.getLogger(__name__)
+
+SKU_PATTERN = re.compile(r"^[A-Z]{3}-\d{4}$")
+DEFAULT_LOCATION = "main"
+MAX_QUANTITY = 10000
+
+
+class InventoryError(Exception):
+    """Raised when a stock movement is not valid."""
+
+    def __init__(self, sku, message):
+        super(InventoryError, self).__init__("%s: %s" % (sku, message))
+        self.sku = sku
+
+
+class Item(object):
+    """An item of the inventory, identified by its SKU."""
+
+    def __init__(self, sku, name, unit_price, tags=None):
+        if not SKU_PATTERN.match(sku):
+            raise InventoryError(sku, "invalid SKU")
+        self.sku = sku
+        self.name = name
+        self.unit_price = unit_price
+        self.tags = set(tags or [])
+
+    def __repr__(self):
+        return "Item(%r, %r)" % (self.sku, self.name)
+
+    def __eq__(self, other):
+        return isinstance(other, Item) and other.sku == self.sku
+
+    def __hash__(self):
+        return hash(self.sku)
+
+    @property
+    def is_discounted(self):
+        return "discount" in self.tags
+
+
+class Movement(object):
+
+    def __init__(self, item, quantity, location=DEFAULT_LOCATION, date=None):
+        self.item = item
+        self.quantity = quantity
+        self.location = location
+        self.date = date or datetime.date.today()
+
+
+class Inventory(object):
+    """Stock of items per location."""
+
+    def __init__(self):
+        self._items = {}
+        self._stock = collections.defaultdict(int)
+        self._movements = []
+
+    def add_item(self, item):
+        if item.sku in self._items:
+            LOGGER.warning("Item %s already exists", item.sku)
+            return False
+        self._items[item.sku] = item
+        return True
+
+    def item(self, sku):
+        try:
+            return self._items[sku]
+        except KeyError:
+            raise InventoryError(sku, "unknown item")
+
+    def move(self, sku, quantity, location=DEFAULT_LOCATION):
+        item = self.item(sku)
+        if quantity == 0:
+            return
+        if abs(quantity) > MAX_QUANTITY:
+            raise InventoryError(sku, "quantity too large: %d" % quantity)
+        key = (sku, location)
+        if self._stock[key] + quantity < 0:
+            raise InventoryError(sku, "not enough stock in %s" % location)
+        self._stock[key] += quantity
+        self._movements.append(Movement(item, quantity, location))
+        # TODO notify the subscribers of low stock
+        if self._stock[key] < 10:
+            LOGGER.info("Low stock for %s in %s", sku, location)
+
+    def quantity(self, sku, location=None):
+        if location is not None:
+            return self._stock[(sku, location)]
+        total = 0
+        for (item_sku, _), quantity in self._stock.items():
+            if item_sku == sku:
+                total += quantity
+        return total
+
+    def value(self):
+        return sum(self._items[sku].unit_price * quantity
+                   for (sku, _), quantity in self._stock.items())
+
+    def movements(self, since=None, location=None):
+        for movement in self._movements:
+            if since is not None and movement.date < since:
+                continue
+            if location is not None and movement.location != location:
+                continue
+            yield movement
+
+
+def parse_line(line):
+    """Parses a line of an import file: 'SKU;name;price;quantity'."""
+    parts = [part.strip() for part in line.split(";")]
+    if len(parts) != 4:
+        return None
+    sku, name, price, quantity = parts
+    try:
+        return sku, name, float(price), int(quantity)
+    except ValueError:
+        return None
+
+
+def import_lines(inventory, lines):
+    imported, rejected = 0, []
+    for number, line in enumerate(lines, 1):
+        if not line or line.startswith("#"):
+            continue
+        parsed = parse_line(line)
+        if parsed is None:
+            rejected.append(number)
+            continue
+        sku, name, price, quantity = parsed
+        try:
+            inventory.add_item(Item(sku, name, price))
+            inventory.move(sku, quantity)
+            imported += 1
+        except InventoryError as e:
+            LOGGER.error("Line %d: %s", number, e)
+            rejected.append(number)
+    return imported, rejected
+
+
+def report(inventory, width=40):
+    lines = []
+    header = "Inventory report"
+    lines.append(header.center(width, "="))
+    for sku in sorted(inventory._items):
+        item = inventory.item(sku)
+        quantity = inventory.quantity(sku)
+        flag = "*" if item.is_discounted else " "
+        lines.append("%s %-10s %-20s %6d" % (flag, sku, item.name[:20], quantity))
+    lines.append("Total value: %.2f" % inventory.value())
+    return "\n".join(lines)
+
+
+if __name__ == "__main__":
+    logging.basicConfig(level=logging.INFO)
+    stock = Inventory()
+    import_lines(stock, ["ABC-0001;Hammer;12.5;10", "ABC-0002;Screwdriver;4.0;100", "bad line"])
+    print(report(stock))
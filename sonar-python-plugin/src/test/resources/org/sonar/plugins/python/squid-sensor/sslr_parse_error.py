@@ -0,0 +1,4 @@
+async def squares(numbers):
+    return [n * n async for n in numbers]
+
+break